@@ -0,0 +1,73 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.benchmark;
+
+import com.adp.marketplace.connection.configuration.AuthorizationCodeConfiguration;
+import com.adp.marketplace.connection.core.AuthorizationCodeConnection;
+import com.adp.marketplace.connection.vo.Token;
+
+
+/**
+ * Creates connections that look connected without calling the token server
+ * 
+ * @author tallaprs
+ *
+ */
+final class BenchmarkConnections {
+
+	private BenchmarkConnections() {}
+	
+	/**
+	 * Returns a connected AuthorizationCodeConnection
+	 * 
+	 * @param apiRequestUrl	User Info API endpoint
+	 * @param stubServer	server whose key store is the client certificate, or null
+	 * @return AuthorizationCodeConnection
+	 */
+	static AuthorizationCodeConnection create(String apiRequestUrl, StubUserInfoServer stubServer) {
+		
+		AuthorizationCodeConfiguration configuration = new AuthorizationCodeConfiguration();
+		configuration.setClientID("benchmark-client-id");
+		configuration.setClientSecret("benchmark-client-secret");
+		configuration.setApiRequestUrl(apiRequestUrl);
+		configuration.setScope(AuthorizationCodeConfiguration.getScopeOpenId());
+		
+		if ( stubServer != null ) {
+			configuration.setSslCertPath(stubServer.getKeyStorePath());
+			configuration.setStorePassword(StubUserInfoServer.PASSWORD);
+			configuration.setKeyPassword(StubUserInfoServer.PASSWORD);
+		}
+		
+		Token token = new Token();
+		token.setAccess_token("benchmark-access-token");
+		token.setScope(AuthorizationCodeConfiguration.getScopeOpenId());
+		token.setToken_type("Bearer");
+		token.setExpires_in(3600);
+		
+		AuthorizationCodeConnection connection = new AuthorizationCodeConnection(configuration) {
+			@Override
+			public boolean isConnectionIndicator() {
+				return true;
+			}
+		};
+		connection.setToken(token);
+		
+		return connection;
+	}
+	
+}
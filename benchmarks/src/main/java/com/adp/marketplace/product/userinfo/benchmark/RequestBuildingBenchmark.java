@@ -0,0 +1,96 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.benchmark;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URIBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adp.marketplace.connection.configuration.AuthorizationCodeConfiguration;
+import com.adp.marketplace.connection.core.AuthorizationCodeConnection;
+import com.adp.marketplace.connection.exception.ConnectionException;
+import com.adp.marketplace.product.userinfo.utils.UserInfoUtils;
+
+
+/**
+ * Measures building the User Info API request: the query parameters of 
+ * the connection and the endpoint URI, built with URIBuilder or from the 
+ * precomputed request template of the configuration
+ * 
+ * @author tallaprs
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RequestBuildingBenchmark {
+
+	private AuthorizationCodeConnection connection;
+	private List<NameValuePair> nameValuePairs;
+	private String apiRequestUrl;
+	private String accessToken;
+	
+	@Setup
+	public void setUp() throws Exception {
+		
+		apiRequestUrl = "https://iat-api.adp.com/core/v1/userinfo";
+		connection = BenchmarkConnections.create(apiRequestUrl, null);
+		nameValuePairs = UserInfoUtils.getInstance().getNameValuePairs(connection);
+		accessToken = connection.getToken().getAccess_token();
+	}
+	
+	@Benchmark
+	public List<NameValuePair> nameValuePairs() throws ConnectionException {
+		return UserInfoUtils.getInstance().getNameValuePairs(connection);
+	}
+	
+	@Benchmark
+	public URI uri() throws URISyntaxException {
+		return new URIBuilder(apiRequestUrl).setParameters(nameValuePairs).build();
+	}
+	
+	@Benchmark
+	public URI request() throws ConnectionException, URISyntaxException {
+		return new URIBuilder(apiRequestUrl)
+				.setParameters(UserInfoUtils.getInstance().getNameValuePairs(connection)).build();
+	}
+	
+	@Benchmark
+	public URI template() throws ConnectionException, URISyntaxException {
+		return UserInfoUtils.getInstance().getRequestTemplate(
+				(AuthorizationCodeConfiguration) connection.getConnectionConfiguration()).createURI(accessToken);
+	}
+	
+}
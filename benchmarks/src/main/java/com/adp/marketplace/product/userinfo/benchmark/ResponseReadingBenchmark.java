@@ -0,0 +1,120 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adp.marketplace.product.userinfo.configuration.UserInfoConfiguration;
+import com.adp.marketplace.product.userinfo.exception.APIException;
+import com.adp.marketplace.product.userinfo.utils.ResponseUtils;
+import com.adp.marketplace.product.userinfo.vo.UserInfo;
+import com.adp.marketplace.product.userinfo.vo.UserInfoField;
+
+
+/**
+ * Measures reading User Info API response bodies, the work done by 
+ * UserInfoHelper once the response headers have arrived
+ * 
+ * @author tallaprs
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ResponseReadingBenchmark {
+
+	@Param({ "small", "typical", "large" })
+	public String size;
+	
+	private static final Set<UserInfoField> IDENTIFIERS = 
+			EnumSet.of(UserInfoField.ASSOCIATE_OID, UserInfoField.ORGANIZATION_OID);
+	
+	private ByteArrayEntity entity;
+	
+	private ByteArrayOutputStream sink;
+	
+	@Setup
+	public void setUp() throws Exception {
+		
+		// repeatable, every read gets a fresh stream over the same bytes
+		entity = new ByteArrayEntity(UserInfoPayloads.forSize(size).getBytes("UTF-8"), 
+				ContentType.APPLICATION_JSON);
+		sink = new ByteArrayOutputStream((int) entity.getContentLength());
+	}
+	
+	@Benchmark
+	public String readBody() throws IOException, APIException {
+		return ResponseUtils.getInstance().readBody(entity, 
+				UserInfoConfiguration.DEFAULT_MAX_RESPONSE_BODY_SIZE);
+	}
+	
+	@Benchmark
+	public UserInfo readUserInfo() throws IOException, APIException {
+		return ResponseUtils.getInstance().readUserInfo(entity, 
+				UserInfoConfiguration.DEFAULT_MAX_RESPONSE_BODY_SIZE);
+	}
+	
+	@Benchmark
+	public UserInfo readUserInfoFields() throws IOException, APIException {
+		return ResponseUtils.getInstance().readUserInfo(entity, 
+				UserInfoConfiguration.DEFAULT_MAX_RESPONSE_BODY_SIZE, IDENTIFIERS);
+	}
+	
+	/**
+	 * Proxying the body the way a caller of getUserInfo() has to, 
+	 * decoded to a String and encoded back to bytes
+	 */
+	@Benchmark
+	public ByteArrayOutputStream proxyBody() throws IOException, APIException {
+		
+		sink.reset();
+		sink.write(ResponseUtils.getInstance().readBody(entity, 
+				UserInfoConfiguration.DEFAULT_MAX_RESPONSE_BODY_SIZE).getBytes("UTF-8"));
+		return sink;
+	}
+	
+	@Benchmark
+	public ByteArrayOutputStream writeBody() throws IOException, APIException {
+		
+		sink.reset();
+		ResponseUtils.getInstance().writeBody(entity, sink, UserInfoConfiguration.DEFAULT_MAX_RESPONSE_BODY_SIZE);
+		return sink;
+	}
+	
+}
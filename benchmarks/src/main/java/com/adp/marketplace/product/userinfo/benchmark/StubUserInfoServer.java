@@ -0,0 +1,427 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.ssl.SSLContexts;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+
+/**
+ * <p>
+ * Embedded HTTPS server on the loopback interface that answers User Info 
+ * API requests with a fixed body.
+ * <p>
+ * Requests are checked for the access_token and scope query parameters 
+ * UserInfoUtils sends, a request missing them gets a 401 or 400. The body, 
+ * the latency added before answering and the share of requests answered 
+ * with an error status or a dropped connection can be changed while the 
+ * server runs. Added latency holds a request handling thread, so start the 
+ * server with a thread per concurrent caller.
+ * <p>
+ * A self-signed localhost certificate is generated with keytool into a 
+ * temporary key store, which the JVM also trusts, so the benchmarked client 
+ * runs the same TLS handshake and hostname verification as in production.
+ * The key store doubles as the client certificate of the configuration.
+ * 
+ * @author tallaprs
+ *
+ */
+final class StubUserInfoServer {
+
+	static final String PASSWORD = "changeit";
+	
+	static final String PATH = "/core/v1/userinfo";
+	
+	private static final byte[] ERROR_INVALID_TOKEN = errorBody("invalid_token");
+	private static final byte[] ERROR_INVALID_SCOPE = errorBody("invalid_scope");
+	private static final byte[] ERROR_INJECTED = errorBody("server_error");
+	
+	private final File keyStore;
+	private final HttpsServer server;
+	private final ExecutorService executorService;
+	
+	private volatile byte[] body;
+	private volatile Latency latency = Latency.none();
+	private volatile double errorRate;
+	private volatile int errorStatus = 503;
+	private volatile double dropRate;
+	
+	private final AtomicLong requestCount = new AtomicLong();
+	private final AtomicLong errorCount = new AtomicLong();
+	private final AtomicLong dropCount = new AtomicLong();
+	
+	/**
+	 * Starts the server
+	 * 
+	 * @param body			response body of every request
+	 * @param threads		number of request handling threads
+	 * @throws Exception	in case the certificate or server cannot be created
+	 */
+	StubUserInfoServer(String body, int threads) throws Exception {
+		
+		setBody(body);
+		
+		keyStore = File.createTempFile("userinfo-stub-", ".jks");
+		if ( !keyStore.delete() ) {
+			throw new IOException("Unable to prepare key store " + keyStore);
+		}
+		generateKeyStore(keyStore);
+		
+		System.setProperty("javax.net.ssl.trustStore", keyStore.getAbsolutePath());
+		System.setProperty("javax.net.ssl.trustStorePassword", PASSWORD);
+		
+		SSLContext sslContext = SSLContexts.custom()
+				.loadKeyMaterial(keyStore, PASSWORD.toCharArray(), PASSWORD.toCharArray())
+				.build();
+		
+		// headers and body are written separately, Nagle would hold the body for the delayed ACK
+		if ( System.getProperty("sun.net.httpserver.nodelay") == null ) {
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+		
+		executorService = Executors.newFixedThreadPool(threads);
+		
+		server = HttpsServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.setHttpsConfigurator(new HttpsConfigurator(sslContext));
+		server.setExecutor(executorService);
+		server.createContext(PATH, new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				
+				requestCount.incrementAndGet();
+				
+				InputStream requestBody = exchange.getRequestBody();
+				while ( requestBody.read() != -1 ) {
+					// drain, the connection is kept alive
+				}
+				
+				Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+				if ( isEmpty(parameters.get("access_token")) ) {
+					respond(exchange, 401, ERROR_INVALID_TOKEN);
+					return;
+				}
+				if ( isEmpty(parameters.get("scope")) ) {
+					respond(exchange, 400, ERROR_INVALID_SCOPE);
+					return;
+				}
+				
+				try {
+					long delay = latency.nextDelayNanos();
+					if ( delay > 0 ) {
+						TimeUnit.NANOSECONDS.sleep(delay);
+					}
+				} catch (InterruptedException e) {
+					// the server is stopping
+					exchange.close();
+					return;
+				}
+				
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				if ( dropRate > 0 && random.nextDouble() < dropRate ) {
+					dropCount.incrementAndGet();
+					// closing before the response headers closes the connection
+					exchange.close();
+					return;
+				}
+				if ( errorRate > 0 && random.nextDouble() < errorRate ) {
+					errorCount.incrementAndGet();
+					respond(exchange, errorStatus, ERROR_INJECTED);
+					return;
+				}
+				
+				respond(exchange, 200, StubUserInfoServer.this.body);
+			}
+		});
+		server.start();
+	}
+	
+	/**
+	 * @param body response body of successful requests
+	 */
+	void setBody(String body) {
+		
+		try {
+			this.body = body.getBytes("UTF-8");
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * @param latency distribution of the time added before answering
+	 */
+	void setLatency(Latency latency) {
+		this.latency = latency;
+	}
+	
+	/**
+	 * @param errorRate		share of requests, between 0 and 1, answered with the error status
+	 * @param errorStatus	HTTP status of injected errors, e.g. 429, 500 or 503
+	 */
+	void setErrors(double errorRate, int errorStatus) {
+		
+		this.errorRate = errorRate;
+		this.errorStatus = errorStatus;
+	}
+	
+	/**
+	 * @param dropRate share of requests, between 0 and 1, whose connection is closed without a response
+	 */
+	void setDropRate(double dropRate) {
+		this.dropRate = dropRate;
+	}
+	
+	/**
+	 * @return number of requests received
+	 */
+	long getRequestCount() {
+		return requestCount.get();
+	}
+	
+	/**
+	 * @return number of requests answered with an injected error status
+	 */
+	long getErrorCount() {
+		return errorCount.get();
+	}
+	
+	/**
+	 * @return number of requests whose connection was dropped
+	 */
+	long getDropCount() {
+		return dropCount.get();
+	}
+	
+	/**
+	 * @return User Info API endpoint of the server
+	 */
+	String getApiRequestUrl() {
+		return "https://localhost:" + server.getAddress().getPort() + PATH;
+	}
+	
+	/**
+	 * @return key store holding the server certificate and key
+	 */
+	String getKeyStorePath() {
+		return keyStore.getAbsolutePath();
+	}
+	
+	/**
+	 * Stops the server and deletes its key store
+	 */
+	void stop() {
+		
+		server.stop(0);
+		executorService.shutdownNow();
+		
+		if ( !keyStore.delete() ) {
+			keyStore.deleteOnExit();
+		}
+	}
+	
+	private static void respond(HttpExchange exchange, int status, byte[] bytes) throws IOException {
+		
+		exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		
+		OutputStream responseBody = exchange.getResponseBody();
+		responseBody.write(bytes);
+		responseBody.close();
+	}
+	
+	private static Map<String, String> parseQuery(String query) throws IOException {
+		
+		Map<String, String> parameters = new HashMap<String, String>();
+		if ( query == null ) {
+			return parameters;
+		}
+		
+		for ( String pair : query.split("&") ) {
+			int separator = pair.indexOf('=');
+			if ( separator > 0 ) {
+				parameters.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"), 
+						URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+			}
+		}
+		return parameters;
+	}
+	
+	private static boolean isEmpty(String value) {
+		return value == null || value.isEmpty();
+	}
+	
+	private static void generateKeyStore(File keyStore) throws IOException, InterruptedException {
+		
+		String keytool = new File(new File(System.getProperty("java.home"), "bin"), "keytool").getAbsolutePath();
+		
+		Process process = new ProcessBuilder(keytool, "-genkeypair", 
+				"-alias", "userinfo-stub", 
+				"-keyalg", "RSA", "-keysize", "2048", "-validity", "1",
+				"-dname", "CN=localhost", 
+				"-ext", "SAN=dns:localhost,ip:127.0.0.1",
+				"-storetype", "JKS", "-keystore", keyStore.getAbsolutePath(),
+				"-storepass", PASSWORD, "-keypass", PASSWORD)
+			.redirectErrorStream(true)
+			.start();
+		
+		InputStream output = process.getInputStream();
+		while ( output.read() != -1 ) {
+			// keytool blocks once its output pipe is full
+		}
+		
+		if ( process.waitFor() != 0 ) {
+			throw new IOException("keytool failed to generate " + keyStore);
+		}
+	}
+	
+	private static byte[] errorBody(String error) {
+		
+		try {
+			return ("{\"error\":\"" + error + "\"}").getBytes("UTF-8");
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Distribution of the latency the server adds before answering
+	 */
+	abstract static class Latency {
+		
+		/**
+		 * @return nanoseconds to wait before answering the next request
+		 */
+		abstract long nextDelayNanos();
+		
+		/**
+		 * @return no added latency
+		 */
+		static Latency none() {
+			return fixed(0);
+		}
+		
+		/**
+		 * @param millis latency added to every request
+		 */
+		static Latency fixed(final double millis) {
+			
+			final long nanos = toNanos(millis);
+			return new Latency() {
+				long nextDelayNanos() {
+					return nanos;
+				}
+				@Override
+				public String toString() {
+					return millis == 0 ? "none" : "fixed:" + millis;
+				}
+			};
+		}
+		
+		/**
+		 * @param minMillis	shortest added latency
+		 * @param maxMillis	longest added latency
+		 */
+		static Latency uniform(final double minMillis, final double maxMillis) {
+			
+			final long minNanos = toNanos(minMillis);
+			final long maxNanos = toNanos(maxMillis);
+			return new Latency() {
+				long nextDelayNanos() {
+					return maxNanos > minNanos ? ThreadLocalRandom.current().nextLong(minNanos, maxNanos) : minNanos;
+				}
+				@Override
+				public String toString() {
+					return "uniform:" + minMillis + ":" + maxMillis;
+				}
+			};
+		}
+		
+		/**
+		 * Log-normal latency, the usual shape of service latency: most 
+		 * requests near the median and a long tail, longer the larger sigma
+		 * 
+		 * @param medianMillis	median added latency
+		 * @param sigma			standard deviation of the log of the latency, e.g. 0.5
+		 */
+		static Latency logNormal(final double medianMillis, final double sigma) {
+			
+			final long medianNanos = toNanos(medianMillis);
+			return new Latency() {
+				long nextDelayNanos() {
+					return (long) (medianNanos * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+				}
+				@Override
+				public String toString() {
+					return "lognormal:" + medianMillis + ":" + sigma;
+				}
+			};
+		}
+		
+		/**
+		 * Parses none, fixed:millis, uniform:minMillis:maxMillis or 
+		 * lognormal:medianMillis:sigma
+		 * 
+		 * @param spec
+		 * @return Latency
+		 */
+		static Latency parse(String spec) {
+			
+			String[] parts = spec.split(":");
+			try {
+				if ( "none".equals(parts[0]) && parts.length == 1 ) {
+					return none();
+				} else if ( "fixed".equals(parts[0]) && parts.length == 2 ) {
+					return fixed(Double.parseDouble(parts[1]));
+				} else if ( "uniform".equals(parts[0]) && parts.length == 3 ) {
+					return uniform(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+				} else if ( "lognormal".equals(parts[0]) && parts.length == 3 ) {
+					return logNormal(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+				}
+			} catch (NumberFormatException e) {
+				// reported below
+			}
+			throw new IllegalArgumentException("Unknown latency " + spec);
+		}
+		
+		private static long toNanos(double millis) {
+			return (long) (millis * 1000000);
+		}
+		
+	}
+	
+}
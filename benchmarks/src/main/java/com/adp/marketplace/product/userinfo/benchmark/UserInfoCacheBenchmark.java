@@ -0,0 +1,91 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adp.marketplace.connection.vo.Token;
+import com.adp.marketplace.product.userinfo.core.AbstractUserInfoCache;
+import com.adp.marketplace.product.userinfo.core.OffHeapUserInfoCache;
+import com.adp.marketplace.product.userinfo.core.UserInfoCache;
+
+
+/**
+ * Measures cache lookups with many cached sessions, on heap and off heap. 
+ * Run with -prof gc to compare the allocation and garbage collection cost
+ * 
+ * @author tallaprs
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-XX:MaxDirectMemorySize=2g" })
+public class UserInfoCacheBenchmark {
+
+	@Param({ "heap", "offHeap" })
+	public String cache;
+	
+	@Param({ "100000", "500000" })
+	public int sessions;
+	
+	private AbstractUserInfoCache userInfoCache;
+	private String[] accessTokens;
+	
+	@Setup
+	public void setUp() throws Exception {
+		
+		long timeToLive = TimeUnit.HOURS.toMillis(1);
+		userInfoCache = "offHeap".equals(cache) ? 
+				new OffHeapUserInfoCache(sessions, timeToLive, 1024L * 1024 * 1024) : 
+				new UserInfoCache(sessions, timeToLive);
+		
+		String response = UserInfoPayloads.forSize("typical");
+		accessTokens = new String[sessions];
+		
+		for ( int i = 0; i < sessions; i++ ) {
+			Token token = new Token();
+			token.setAccess_token("98f34d77-9b1f-490d-84c7-" + String.format("%012d", i));
+			token.setExpires_in(3600);
+			
+			accessTokens[i] = token.getAccess_token();
+			userInfoCache.putResponse(token, response);
+		}
+	}
+	
+	@Benchmark
+	public String getResponse() {
+		return userInfoCache.getResponse(accessTokens[ThreadLocalRandom.current().nextInt(sessions)]);
+	}
+	
+}
@@ -0,0 +1,108 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adp.marketplace.connection.configuration.AuthorizationCodeConfiguration;
+import com.adp.marketplace.connection.core.AuthorizationCodeConnection;
+import com.adp.marketplace.product.userinfo.configuration.UserInfoConfiguration;
+import com.adp.marketplace.product.userinfo.configuration.UserInfoTransport;
+import com.adp.marketplace.product.userinfo.core.UserInfoHelper;
+import com.adp.marketplace.product.userinfo.exception.APIException;
+import com.adp.marketplace.product.userinfo.utils.AsyncHttpClientUtils;
+import com.adp.marketplace.product.userinfo.utils.HttpClientUtils;
+
+
+/**
+ * Measures getUserInfo() end to end against {@link StubUserInfoServer}: 
+ * request building, the pooled TLS connection, and reading the response. 
+ * The cache and request coalescing are off so every operation is a call.
+ * 
+ * @author tallaprs
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(2)
+public class UserInfoHelperBenchmark {
+
+	@Param({ "BLOCKING", "NIO" })
+	public UserInfoTransport transport;
+	
+	@Param({ "typical" })
+	public String size;
+	
+	private StubUserInfoServer stubServer;
+	private AuthorizationCodeConnection connection;
+	private UserInfoHelper userInfoHelper;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		
+		stubServer = new StubUserInfoServer(UserInfoPayloads.forSize(size), 4);
+		connection = BenchmarkConnections.create(stubServer.getApiRequestUrl(), stubServer);
+		
+		UserInfoConfiguration userInfoConfiguration = new UserInfoConfiguration();
+		userInfoConfiguration.setTransport(transport);
+		userInfoConfiguration.setRequestCoalescing(false);
+		
+		userInfoHelper = new UserInfoHelper(connection, userInfoConfiguration);
+		
+		// fail fast instead of measuring exceptions
+		if ( userInfoHelper.getUserInfo() == null ) {
+			throw new IllegalStateException("Stub server returned no user info");
+		}
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		
+		AuthorizationCodeConfiguration configuration = 
+				(AuthorizationCodeConfiguration) connection.getConnectionConfiguration();
+		
+		HttpClientUtils.getInstance().close(configuration);
+		AsyncHttpClientUtils.getInstance().close(configuration);
+		stubServer.stop();
+	}
+	
+	@Benchmark
+	public String getUserInfo() throws APIException {
+		return userInfoHelper.getUserInfo();
+	}
+	
+}
@@ -0,0 +1,286 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.benchmark;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.adp.marketplace.connection.configuration.AuthorizationCodeConfiguration;
+import com.adp.marketplace.connection.core.AuthorizationCodeConnection;
+import com.adp.marketplace.product.userinfo.benchmark.StubUserInfoServer.Latency;
+import com.adp.marketplace.product.userinfo.configuration.UserInfoConfiguration;
+import com.adp.marketplace.product.userinfo.configuration.UserInfoTransport;
+import com.adp.marketplace.product.userinfo.core.UserInfoHelper;
+import com.adp.marketplace.product.userinfo.metrics.InMemoryUserInfoMetrics;
+import com.adp.marketplace.product.userinfo.metrics.LatencyHistogram;
+import com.adp.marketplace.product.userinfo.metrics.UserInfoPhase;
+import com.adp.marketplace.product.userinfo.utils.AsyncHttpClientUtils;
+import com.adp.marketplace.product.userinfo.utils.HttpClientUtils;
+import com.adp.marketplace.product.userinfo.vo.UserInfoResult;
+import com.adp.marketplace.product.userinfo.vo.UserInfoResult.Category;
+
+
+/**
+ * <p>
+ * Load generator driving concurrent callers through UserInfoHelper against 
+ * {@link StubUserInfoServer}, so changes to the client can be load tested 
+ * without calling the ADP endpoint.
+ * <p>
+ * Every caller calls getUserInfoResult() in a closed loop, the next call 
+ * starts when the previous one ends. Calls during the warmup are not 
+ * counted. At the end the throughput, the latency percentiles of all calls 
+ * and of the successful ones, the number of calls per result category 
+ * and the latency of each phase of the calls are printed. The cache and request coalescing are off so every call 
+ * reaches the server. Settings are passed as name=value arguments:
+ * <ul>
+ * <li>callers - number of concurrent callers, 16 by default</li>
+ * <li>warmup, duration - seconds, 5 and 30 by default</li>
+ * <li>transport - BLOCKING or NIO</li>
+ * <li>size - payload size, small, typical or large</li>
+ * <li>latency - latency the server adds, none, fixed:ms, uniform:ms:ms or lognormal:ms:sigma</li>
+ * <li>errorRate, errorStatus - share of requests answered with the error status, 503 by default</li>
+ * <li>dropRate - share of requests whose connection is closed without a response</li>
+ * <li>retries - maximum retries of a call, 0 by default</li>
+ * </ul>
+ * 
+ * @author tallaprs
+ *
+ */
+final class UserInfoLoadGenerator {
+
+	private static final double[] PERCENTILES = { 50, 99, 99.9 };
+	private static final String[] PERCENTILE_NAMES = { "p50", "p99", "p99.9" };
+	
+	private final UserInfoHelper userInfoHelper;
+	private final int callers;
+	
+	private final LatencyHistogram allCalls = new LatencyHistogram();
+	private final LatencyHistogram successfulCalls = new LatencyHistogram();
+	private final Map<Category, AtomicLong> categoryCounts = new EnumMap<Category, AtomicLong>(Category.class);
+	
+	/**
+	 * constructor
+	 * 
+	 * @param userInfoHelper	helper the callers share
+	 * @param callers			number of concurrent callers
+	 */
+	UserInfoLoadGenerator(UserInfoHelper userInfoHelper, int callers) {
+		
+		this.userInfoHelper = userInfoHelper;
+		this.callers = callers;
+		
+		for ( Category category : Category.values() ) {
+			categoryCounts.put(category, new AtomicLong());
+		}
+	}
+	
+	/**
+	 * Runs the callers for the warmup and then the measured duration
+	 * 
+	 * @param warmup	milliseconds of calls not counted
+	 * @param duration	milliseconds of calls counted
+	 * @return nanoseconds measured, from the end of the warmup to the last counted call
+	 * @throws InterruptedException in case the thread is interrupted while waiting for the callers
+	 */
+	long run(long warmup, long duration) throws InterruptedException {
+		
+		final long measureFrom = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(warmup);
+		final long measureUntil = measureFrom + TimeUnit.MILLISECONDS.toNanos(duration);
+		
+		List<Thread> threads = new ArrayList<Thread>(callers);
+		for ( int i = 0; i < callers; i++ ) {
+			
+			Thread thread = new Thread(new Runnable() {
+				public void run() {
+					
+					while ( true ) {
+						long start = System.nanoTime();
+						if ( start >= measureUntil ) {
+							return;
+						}
+						
+						UserInfoResult result = userInfoHelper.getUserInfoResult();
+						
+						if ( start >= measureFrom ) {
+							long latency = System.nanoTime() - start;
+							allCalls.record(latency);
+							if ( result.isSuccess() ) {
+								successfulCalls.record(latency);
+							}
+							categoryCounts.get(result.getCategory()).incrementAndGet();
+						}
+					}
+				}
+			}, "userinfo-load-" + i);
+			
+			thread.start();
+			threads.add(thread);
+		}
+		
+		for ( Thread thread : threads ) {
+			thread.join();
+		}
+		
+		return Math.max(1, System.nanoTime() - measureFrom);
+	}
+	
+	/**
+	 * @return latencies of the counted calls in nanoseconds
+	 */
+	LatencyHistogram getAllCalls() {
+		return allCalls;
+	}
+	
+	/**
+	 * @return latencies of the counted successful calls in nanoseconds
+	 */
+	LatencyHistogram getSuccessfulCalls() {
+		return successfulCalls;
+	}
+	
+	/**
+	 * @return number of counted calls per result category, categories without calls left out
+	 */
+	Map<Category, Long> getCategoryCounts() {
+		
+		Map<Category, Long> counts = new LinkedHashMap<Category, Long>();
+		for ( Map.Entry<Category, AtomicLong> entry : categoryCounts.entrySet() ) {
+			if ( entry.getValue().get() > 0 ) {
+				counts.put(entry.getKey(), entry.getValue().get());
+			}
+		}
+		return counts;
+	}
+	
+	/**
+	 * Starts the stub server, runs the load and prints the report
+	 * 
+	 * @param args name=value settings
+	 * @throws Exception in case the server cannot be started
+	 */
+	public static void main(String[] args) throws Exception {
+		
+		Map<String, String> settings = new LinkedHashMap<String, String>();
+		settings.put("callers", "16");
+		settings.put("warmup", "5");
+		settings.put("duration", "30");
+		settings.put("transport", UserInfoTransport.BLOCKING.name());
+		settings.put("size", "typical");
+		settings.put("latency", "none");
+		settings.put("errorRate", "0");
+		settings.put("errorStatus", "503");
+		settings.put("dropRate", "0");
+		settings.put("retries", "0");
+		
+		for ( String arg : args ) {
+			int separator = arg.indexOf('=');
+			if ( separator <= 0 || !settings.containsKey(arg.substring(0, separator)) ) {
+				throw new IllegalArgumentException("Unknown setting " + arg + ", expected one of " 
+						+ settings.keySet());
+			}
+			settings.put(arg.substring(0, separator), arg.substring(separator + 1));
+		}
+		
+		int callers = Integer.parseInt(settings.get("callers"));
+		
+		StubUserInfoServer stubServer = new StubUserInfoServer(UserInfoPayloads.forSize(settings.get("size")), 
+				callers);
+		stubServer.setLatency(Latency.parse(settings.get("latency")));
+		stubServer.setErrors(Double.parseDouble(settings.get("errorRate")), 
+				Integer.parseInt(settings.get("errorStatus")));
+		stubServer.setDropRate(Double.parseDouble(settings.get("dropRate")));
+		
+		AuthorizationCodeConnection connection = BenchmarkConnections.create(stubServer.getApiRequestUrl(), 
+				stubServer);
+		
+		UserInfoConfiguration userInfoConfiguration = new UserInfoConfiguration();
+		userInfoConfiguration.setTransport(UserInfoTransport.valueOf(settings.get("transport")));
+		userInfoConfiguration.setRequestCoalescing(false);
+		userInfoConfiguration.setMaxRetries(Integer.parseInt(settings.get("retries")));
+		
+		final InMemoryUserInfoMetrics metrics = new InMemoryUserInfoMetrics();
+		userInfoConfiguration.setMetricsListener(metrics);
+		userInfoConfiguration.setMaxTotalConnections(Math.max(userInfoConfiguration.getMaxTotalConnections(), 
+				callers));
+		userInfoConfiguration.setMaxConnectionsPerRoute(Math.max(userInfoConfiguration.getMaxConnectionsPerRoute(), 
+				callers));
+		
+		UserInfoLoadGenerator loadGenerator = new UserInfoLoadGenerator(
+				new UserInfoHelper(connection, userInfoConfiguration), callers);
+		
+		try {
+			System.out.println("Running " + settings);
+			
+			final long warmup = TimeUnit.SECONDS.toMillis(Long.parseLong(settings.get("warmup")));
+			Thread warmupEnd = new Thread(new Runnable() {
+				public void run() {
+					try {
+						Thread.sleep(warmup);
+						// phases of the warmup calls are not reported
+						metrics.snapshotAndResetPhases();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}, "userinfo-load-warmup");
+			warmupEnd.setDaemon(true);
+			warmupEnd.start();
+			
+			long elapsed = loadGenerator.run(warmup, TimeUnit.SECONDS.toMillis(Long.parseLong(settings.get("duration"))));
+			
+			long calls = loadGenerator.getAllCalls().getCount();
+			System.out.println(String.format("throughput   %.1f calls/s, %d calls in %.1f s", 
+					calls * 1e9 / elapsed, calls, elapsed / 1e9));
+			System.out.println("all calls    " + percentiles(loadGenerator.getAllCalls()));
+			System.out.println("successful   " + percentiles(loadGenerator.getSuccessfulCalls()));
+			System.out.println("results      " + loadGenerator.getCategoryCounts());
+			
+			for ( Map.Entry<UserInfoPhase, LatencyHistogram> entry : metrics.snapshotAndResetPhases().entrySet() ) {
+				System.out.println(String.format("%-20s %8d calls  %s", entry.getKey(), entry.getValue().getCount(), 
+						percentiles(entry.getValue())));
+			}
+			System.out.println("server       requests=" + stubServer.getRequestCount() 
+					+ ", injected errors=" + stubServer.getErrorCount() 
+					+ ", dropped connections=" + stubServer.getDropCount());
+			
+		} finally {
+			AuthorizationCodeConfiguration configuration = 
+					(AuthorizationCodeConfiguration) connection.getConnectionConfiguration();
+			
+			HttpClientUtils.getInstance().close(configuration);
+			AsyncHttpClientUtils.getInstance().close(configuration);
+			stubServer.stop();
+		}
+	}
+	
+	private static String percentiles(LatencyHistogram histogram) {
+		
+		StringBuilder stringBuilder = new StringBuilder();
+		for ( int i = 0; i < PERCENTILES.length; i++ ) {
+			stringBuilder.append(String.format("%s %.2f ms  ", PERCENTILE_NAMES[i], 
+					histogram.getValueAtPercentile(PERCENTILES[i]) / 1e6));
+		}
+		return stringBuilder.append(String.format("max %.2f ms", histogram.getMax() / 1e6)).toString();
+	}
+	
+}
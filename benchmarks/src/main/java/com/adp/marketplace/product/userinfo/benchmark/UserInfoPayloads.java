@@ -0,0 +1,91 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.benchmark;
+
+
+/**
+ * User Info API response bodies of the sizes the benchmarks are run with
+ * 
+ * @author tallaprs
+ *
+ */
+final class UserInfoPayloads {
+
+	/**
+	 * user info with no work assignments, about 200 bytes
+	 */
+	static final String SMALL = userInfo(0);
+	
+	/**
+	 * user info with a few work assignments, under 1 KB
+	 */
+	static final String TYPICAL = userInfo(4);
+	
+	/**
+	 * user info with many work assignments, about 200 KB
+	 */
+	static final String LARGE = userInfo(1600);
+	
+	private UserInfoPayloads() {}
+	
+	/**
+	 * Returns the payload of the given size name
+	 * 
+	 * @param size small, typical or large
+	 * @return String
+	 */
+	static String forSize(String size) {
+		
+		if ( "small".equals(size) ) {
+			return SMALL;
+		} else if ( "typical".equals(size) ) {
+			return TYPICAL;
+		} else if ( "large".equals(size) ) {
+			return LARGE;
+		}
+		throw new IllegalArgumentException("Unknown payload size " + size);
+	}
+	
+	private static String userInfo(int workAssignments) {
+		
+		StringBuilder stringBuilder = new StringBuilder(256 + workAssignments * 160);
+		
+		stringBuilder.append("{\"userInfo\":{\"sub\":\"G3349PZGBADQY8H7\",")
+			.append("\"associateOID\":\"G3349PZGBADQY8H7\",")
+			.append("\"organizationOID\":\"G3BGDTFNHNN3QAAH\",")
+			.append("\"givenName\":\"Zoë\",\"familyName\":\"Åström\",")
+			.append("\"email\":\"zoe.astrom@example.com\"");
+		
+		if ( workAssignments > 0 ) {
+			stringBuilder.append(",\"workAssignments\":[");
+			for ( int i = 0; i < workAssignments; i++ ) {
+				if ( i > 0 ) {
+					stringBuilder.append(',');
+				}
+				stringBuilder.append("{\"itemID\":\"").append(10000000 + i)
+					.append("\",\"positionID\":\"POS").append(i)
+					.append("\",\"jobTitle\":\"Senior Payroll Specialist\",\"primaryIndicator\":")
+					.append(i == 0).append(",\"department\":\"Finance\"}");
+			}
+			stringBuilder.append(']');
+		}
+		
+		return stringBuilder.append("}}").toString();
+	}
+	
+}
@@ -0,0 +1,368 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.configuration;
+
+import com.adp.marketplace.product.userinfo.core.CircuitBreaker;
+import com.adp.marketplace.product.userinfo.core.ConcurrencyLimiter;
+import com.adp.marketplace.product.userinfo.core.HedgingPolicy;
+import com.adp.marketplace.product.userinfo.core.AbstractUserInfoCache;
+import com.adp.marketplace.product.userinfo.metrics.UserInfoMetricsListener;
+
+/**
+ * UserInfoConfiguration holds the client side settings used by
+ * UserInfoHelper to invoke User Info API.
+ * <p>
+ * The settings are read on every call. An AuthorizationCodeConfiguration 
+ * has one shared HTTP client per transport, created with the pool settings 
+ * (connection limits, idle timeout, keep alive and I/O threads) of the 
+ * call that needed it. A call with other pool settings replaces it with a 
+ * new pool and the replaced one is closed after 
+ * {@link com.adp.marketplace.product.userinfo.utils.HttpClientUtils#RETIRED_CLIENT_GRACE_PERIOD}, 
+ * so helpers sharing an AuthorizationCodeConfiguration should use the 
+ * same pool settings.
+ * <p>
+ * The configuration returned by {@link #getDefault()} is shared and 
+ * cannot be changed, create a new one to change any setting.
+ *
+ * @author tallaprs
+ *
+ */
+public class UserInfoConfiguration {
+
+	public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 50;
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+	public static final long DEFAULT_IDLE_CONNECTION_TIMEOUT = 30000L;
+	public static final long DEFAULT_KEEP_ALIVE_DURATION = 60000L;
+	public static final long DEFAULT_MAX_RESPONSE_BODY_SIZE = 1024L * 1024L;
+	public static final int DEFAULT_IO_THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+	public static final long DEFAULT_RETRY_BACKOFF = 100L;
+	public static final long DEFAULT_MAX_RETRY_BACKOFF = 2000L;
+
+	private static final UserInfoConfiguration DEFAULT_CONFIGURATION = new UserInfoConfiguration(true);
+
+	private int maxTotalConnections = DEFAULT_MAX_TOTAL_CONNECTIONS;
+	private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+	private long idleConnectionTimeout = DEFAULT_IDLE_CONNECTION_TIMEOUT;
+	private long keepAliveDuration = DEFAULT_KEEP_ALIVE_DURATION;
+	private long maxResponseBodySize = DEFAULT_MAX_RESPONSE_BODY_SIZE;
+	private boolean compression = true;
+	private AbstractUserInfoCache userInfoCache;
+	private boolean requestCoalescing = true;
+	private long refreshAheadWindow;
+	private long requestTimeout;
+	private UserInfoTransport transport = UserInfoTransport.BLOCKING;
+	private int ioThreadCount = DEFAULT_IO_THREAD_COUNT;
+	private UserInfoMetricsListener metricsListener;
+	private int maxRetries;
+	private long retryBackoff = DEFAULT_RETRY_BACKOFF;
+	private long maxRetryBackoff = DEFAULT_MAX_RETRY_BACKOFF;
+	private CircuitBreaker circuitBreaker;
+	private HedgingPolicy hedgingPolicy;
+	private ConcurrencyLimiter concurrencyLimiter;
+
+	private final boolean unmodifiable;
+
+	public UserInfoConfiguration() {
+		this(false);
+	}
+
+	private UserInfoConfiguration(boolean unmodifiable) {
+		this.unmodifiable = unmodifiable;
+	}
+
+	/**
+	 * Returns the configuration used when none is supplied, its setters 
+	 * throw UnsupportedOperationException
+	 *
+	 * @return UserInfoConfiguration
+	 */
+	public static UserInfoConfiguration getDefault() {
+		return DEFAULT_CONFIGURATION;
+	}
+
+	/**
+	 * @return maximum number of pooled connections across all routes
+	 */
+	public int getMaxTotalConnections() {
+		return maxTotalConnections;
+	}
+
+	public void setMaxTotalConnections(int maxTotalConnections) {
+		checkModifiable();
+		this.maxTotalConnections = maxTotalConnections;
+	}
+
+	/**
+	 * @return maximum number of pooled connections per route
+	 */
+	public int getMaxConnectionsPerRoute() {
+		return maxConnectionsPerRoute;
+	}
+
+	public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+		checkModifiable();
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+	}
+
+	/**
+	 * @return time in milliseconds after which idle pooled connections are evicted
+	 */
+	public long getIdleConnectionTimeout() {
+		return idleConnectionTimeout;
+	}
+
+	public void setIdleConnectionTimeout(long idleConnectionTimeout) {
+		checkModifiable();
+		this.idleConnectionTimeout = idleConnectionTimeout;
+	}
+
+	/**
+	 * @return keep alive in milliseconds used when the server does not
+	 *         send a Keep-Alive header, also the upper bound for one it sends
+	 */
+	public long getKeepAliveDuration() {
+		return keepAliveDuration;
+	}
+
+	public void setKeepAliveDuration(long keepAliveDuration) {
+		checkModifiable();
+		this.keepAliveDuration = keepAliveDuration;
+	}
+
+	/**
+	 * @return maximum size in bytes of a User Info API response body
+	 */
+	public long getMaxResponseBodySize() {
+		return maxResponseBodySize;
+	}
+
+	public void setMaxResponseBodySize(long maxResponseBodySize) {
+		checkModifiable();
+		this.maxResponseBodySize = maxResponseBodySize;
+	}
+
+	/**
+	 * @return cache of User Info API responses, null when caching is disabled
+	 */
+	public AbstractUserInfoCache getUserInfoCache() {
+		return userInfoCache;
+	}
+
+	public void setUserInfoCache(AbstractUserInfoCache userInfoCache) {
+		checkModifiable();
+		this.userInfoCache = userInfoCache;
+	}
+
+	/**
+	 * @return true when concurrent calls for the same access token and 
+	 *         scope share one in-flight User Info API call
+	 */
+	public boolean isRequestCoalescing() {
+		return requestCoalescing;
+	}
+
+	public void setRequestCoalescing(boolean requestCoalescing) {
+		checkModifiable();
+		this.requestCoalescing = requestCoalescing;
+	}
+
+	/**
+	 * @return milliseconds before a cached value stops being fresh within which 
+	 *         an access reloads it in the background while it is still served; 
+	 *         0 to never refresh ahead
+	 */
+	public long getRefreshAheadWindow() {
+		return refreshAheadWindow;
+	}
+
+	public void setRefreshAheadWindow(long refreshAheadWindow) {
+		checkModifiable();
+		this.refreshAheadWindow = refreshAheadWindow;
+	}
+
+	/**
+	 * @return timeout in milliseconds of a User Info API call, used as connect, 
+	 *         socket and pool lease timeout and as the longest time a caller 
+	 *         waits for a shared in-flight call; 0 for no timeout
+	 */
+	public long getRequestTimeout() {
+		return requestTimeout;
+	}
+
+	public void setRequestTimeout(long requestTimeout) {
+		checkModifiable();
+		this.requestTimeout = requestTimeout;
+	}
+
+	/**
+	 * @return true if gzip and deflate compressed responses are accepted, 
+	 *         they are decompressed as the body is read
+	 */
+	public boolean isCompression() {
+		return compression;
+	}
+
+	public void setCompression(boolean compression) {
+		checkModifiable();
+		this.compression = compression;
+	}
+
+	/**
+	 * @return transport used to invoke User Info API
+	 */
+	public UserInfoTransport getTransport() {
+		return transport;
+	}
+
+	public void setTransport(UserInfoTransport transport) {
+		checkModifiable();
+		this.transport = transport;
+	}
+
+	/**
+	 * @return number of I/O dispatch threads of the {@link UserInfoTransport#NIO} transport
+	 */
+	public int getIoThreadCount() {
+		return ioThreadCount;
+	}
+
+	public void setIoThreadCount(int ioThreadCount) {
+		checkModifiable();
+		this.ioThreadCount = ioThreadCount;
+	}
+
+	/**
+	 * @return listener notified of every User Info call, null when calls are not instrumented
+	 */
+	public UserInfoMetricsListener getMetricsListener() {
+		return metricsListener;
+	}
+
+	public void setMetricsListener(UserInfoMetricsListener metricsListener) {
+		checkModifiable();
+		this.metricsListener = metricsListener;
+	}
+
+	/**
+	 * @return number of times a call failing with a transport error or a 429 
+	 *         or 5xx response is retried; 0, the default, disables retries
+	 */
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	public void setMaxRetries(int maxRetries) {
+		checkModifiable();
+		this.maxRetries = maxRetries;
+	}
+
+	/**
+	 * @return base delay in milliseconds before the first retry, doubled for 
+	 *         each following retry; the actual delay is drawn at random up 
+	 *         to it so retries of many callers spread out
+	 */
+	public long getRetryBackoff() {
+		return retryBackoff;
+	}
+
+	public void setRetryBackoff(long retryBackoff) {
+		checkModifiable();
+		this.retryBackoff = retryBackoff;
+	}
+
+	/**
+	 * @return longest delay in milliseconds before a retry, also the longest 
+	 *         Retry-After honoured
+	 */
+	public long getMaxRetryBackoff() {
+		return maxRetryBackoff;
+	}
+
+	public void setMaxRetryBackoff(long maxRetryBackoff) {
+		checkModifiable();
+		this.maxRetryBackoff = maxRetryBackoff;
+	}
+
+	/**
+	 * @return circuit breaker guarding User Info API calls, null when calls are not guarded
+	 */
+	public CircuitBreaker getCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+	public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+		checkModifiable();
+		this.circuitBreaker = circuitBreaker;
+	}
+
+	/**
+	 * @return policy sending hedge requests for slow calls, null when calls are not hedged
+	 */
+	public HedgingPolicy getHedgingPolicy() {
+		return hedgingPolicy;
+	}
+
+	public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+		checkModifiable();
+		this.hedgingPolicy = hedgingPolicy;
+	}
+
+	/**
+	 * @return limiter capping the User Info API calls in flight, null when calls are not limited
+	 */
+	public ConcurrencyLimiter getConcurrencyLimiter() {
+		return concurrencyLimiter;
+	}
+
+	public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+		checkModifiable();
+		this.concurrencyLimiter = concurrencyLimiter;
+	}
+
+	private void checkModifiable() {
+
+		if ( unmodifiable ) {
+			throw new UnsupportedOperationException(
+					"The default UserInfoConfiguration cannot be changed, create a new one");
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "UserInfoConfiguration [maxTotalConnections=" + maxTotalConnections
+				+ ", maxConnectionsPerRoute=" + maxConnectionsPerRoute
+				+ ", idleConnectionTimeout=" + idleConnectionTimeout
+				+ ", keepAliveDuration=" + keepAliveDuration
+				+ ", maxResponseBodySize=" + maxResponseBodySize
+				+ ", compression=" + compression
+				+ ", userInfoCache=" + userInfoCache
+				+ ", requestCoalescing=" + requestCoalescing
+				+ ", refreshAheadWindow=" + refreshAheadWindow
+				+ ", requestTimeout=" + requestTimeout
+				+ ", transport=" + transport
+				+ ", ioThreadCount=" + ioThreadCount
+				+ ", metricsListener=" + metricsListener
+				+ ", maxRetries=" + maxRetries
+				+ ", retryBackoff=" + retryBackoff
+				+ ", maxRetryBackoff=" + maxRetryBackoff
+				+ ", circuitBreaker=" + circuitBreaker
+				+ ", hedgingPolicy=" + hedgingPolicy
+				+ ", concurrencyLimiter=" + concurrencyLimiter + "]";
+	}
+
+}
@@ -0,0 +1,40 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.configuration;
+
+
+/**
+ * Transport used by UserInfoHelper to invoke User Info API
+ * 
+ * @author tallaprs
+ *
+ */
+public enum UserInfoTransport {
+
+	/**
+	 * Apache HttpClient with blocking I/O, one thread per outstanding call
+	 */
+	BLOCKING,
+	
+	/**
+	 * Apache HttpAsyncClient with non-blocking I/O, a few I/O threads 
+	 * multiplex all outstanding calls
+	 */
+	NIO
+	
+}
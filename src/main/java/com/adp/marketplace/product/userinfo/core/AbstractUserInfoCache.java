@@ -0,0 +1,280 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.adp.marketplace.connection.vo.Token;
+import com.adp.marketplace.product.userinfo.vo.UserInfo;
+
+
+/**
+ * <p>
+ * AbstractUserInfoCache is the contract of a cache of User Info API 
+ * responses keyed by the access token of the connection, as used by 
+ * UserInfoHelper. It holds the size and time to live settings and the 
+ * hit, miss, eviction and revalidation counts; how values are stored is 
+ * left to the implementations.
+ * <p>
+ * {@link UserInfoCache} keeps values in an LRU map on the heap, 
+ * {@link OffHeapUserInfoCache} in direct memory.
+ * <p>
+ * A cache is shared by registering it on
+ * {@link com.adp.marketplace.product.userinfo.configuration.UserInfoConfiguration}.
+ *
+ * @author tallaprs
+ *
+ */
+public abstract class AbstractUserInfoCache {
+
+	private final int maximumSize;
+	private final long timeToLive;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+	private final AtomicLong revalidationCount = new AtomicLong();
+
+	/**
+	 * constructor
+	 *
+	 * @param maximumSize	maximum number of cached entries
+	 * @param timeToLive	maximum time in milliseconds a value is served
+	 */
+	protected AbstractUserInfoCache(int maximumSize, long timeToLive) {
+
+		if ( maximumSize <= 0 ) {
+			throw new IllegalArgumentException("maximumSize must be positive");
+		}
+
+		this.maximumSize = maximumSize;
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * Returns the cached User Info API response of the access token
+	 *
+	 * @param accessToken	access token of the connection
+	 * @return String		cached response or null
+	 */
+	public abstract String getResponse(String accessToken);
+
+	/**
+	 * Returns the cached {@link UserInfo} of the access token, every caller 
+	 * gets its own copy
+	 *
+	 * @param accessToken	access token of the connection
+	 * @return UserInfo		cached user info or null
+	 */
+	public abstract UserInfo getUserInfo(String accessToken);
+
+	/**
+	 * Caches the User Info API response of the token
+	 *
+	 * @param token		token of the connection
+	 * @param response	User Info API response
+	 */
+	public void putResponse(Token token, String response) {
+		putResponse(token, response, null, null);
+	}
+
+	/**
+	 * Caches the User Info API response of the token with its validators
+	 *
+	 * @param token			token of the connection
+	 * @param response		User Info API response
+	 * @param etag			ETag of the response or null
+	 * @param lastModified	Last-Modified of the response or null
+	 */
+	public abstract void putResponse(Token token, String response, String etag, String lastModified);
+
+	/**
+	 * Caches the {@link UserInfo} of the token
+	 *
+	 * @param token		token of the connection
+	 * @param userInfo	parsed user info
+	 */
+	public void putUserInfo(Token token, UserInfo userInfo) {
+		putUserInfo(token, userInfo, null, null);
+	}
+
+	/**
+	 * Caches a copy of the {@link UserInfo} of the token with the validators 
+	 * of the response it was parsed from
+	 *
+	 * @param token			token of the connection
+	 * @param userInfo		parsed user info
+	 * @param etag			ETag of the response or null
+	 * @param lastModified	Last-Modified of the response or null
+	 */
+	public abstract void putUserInfo(Token token, UserInfo userInfo, String etag, String lastModified);
+
+	/**
+	 * Returns the cached response of the access token, fresh or not, 
+	 * if it can be revalidated
+	 *
+	 * @param accessToken	access token of the connection
+	 * @return CachedValue	cached response with validators or null
+	 */
+	abstract CachedValue<String> getRevalidatableResponse(String accessToken);
+
+	/**
+	 * Returns a copy of the cached {@link UserInfo} of the access token, 
+	 * fresh or not, if it can be revalidated
+	 *
+	 * @param accessToken	access token of the connection
+	 * @return CachedValue	cached user info with validators or null
+	 */
+	abstract CachedValue<UserInfo> getRevalidatableUserInfo(String accessToken);
+
+	/**
+	 * Returns until when the cached response of the access token is fresh, 
+	 * if reloading it would keep it fresh for longer
+	 *
+	 * @param accessToken	access token of the connection
+	 * @return long			time in milliseconds, 0 if there is no fresh response 
+	 * 						or it is fresh until its token expires
+	 */
+	abstract long getResponseFreshUntil(String accessToken);
+
+	/**
+	 * Returns until when the cached {@link UserInfo} of the access token is 
+	 * fresh, if reloading it would keep it fresh for longer
+	 *
+	 * @param accessToken	access token of the connection
+	 * @return long			time in milliseconds, 0 if there is no fresh user info 
+	 * 						or it is fresh until its token expires
+	 */
+	abstract long getUserInfoFreshUntil(String accessToken);
+
+	/**
+	 * Discards the cached values of the access token
+	 *
+	 * @param accessToken access token of the connection
+	 */
+	public abstract void invalidate(String accessToken);
+
+	/**
+	 * Discards all cached values
+	 */
+	public abstract void invalidateAll();
+
+	/**
+	 * Discards expired values, they are otherwise discarded when looked up
+	 * or evicted when the cache is full
+	 */
+	public abstract void cleanUp();
+
+	/**
+	 * @return number of cached entries, including expired ones not yet discarded
+	 */
+	public abstract int size();
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * @return number of entries discarded because the cache was full or they expired
+	 */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	/**
+	 * @return number of cached values confirmed by a 304 Not Modified answer
+	 */
+	public long getRevalidationCount() {
+		return revalidationCount.get();
+	}
+
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	public long getTimeToLive() {
+		return timeToLive;
+	}
+
+	/**
+	 * Counts a cached value served again after a 304 Not Modified answer
+	 */
+	void recordRevalidation() {
+		revalidationCount.incrementAndGet();
+	}
+
+	void record(boolean hit) {
+
+		if ( hit ) {
+			hitCount.incrementAndGet();
+		} else {
+			missCount.incrementAndGet();
+		}
+	}
+
+	void recordEvictions(int count) {
+		evictionCount.addAndGet(count);
+	}
+
+	/**
+	 * One cached value with the validators of the response it came from
+	 */
+	static final class CachedValue<V> {
+
+		private final V value;
+		private final String etag;
+		private final String lastModified;
+		private final long freshUntil;
+
+		CachedValue(V value, String etag, String lastModified, long freshUntil) {
+			this.value = value;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.freshUntil = freshUntil;
+		}
+
+		V getValue() {
+			return value;
+		}
+
+		String getEtag() {
+			return etag;
+		}
+
+		String getLastModified() {
+			return lastModified;
+		}
+
+		long getFreshUntil() {
+			return freshUntil;
+		}
+
+		boolean isFresh(long now) {
+			return now < freshUntil;
+		}
+
+		boolean hasValidators() {
+			return etag != null || lastModified != null;
+		}
+	}
+
+}
@@ -0,0 +1,66 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.core;
+
+import org.apache.http.concurrent.Cancellable;
+
+
+/**
+ * CallCancellation lets another thread abort a User Info API call, e.g. 
+ * the losing request of a hedged call. The call registers the request in 
+ * flight, cancelling aborts it and keeps further attempts from starting.
+ *
+ * @author tallaprs
+ *
+ */
+class CallCancellation {
+
+	private volatile boolean cancelled;
+	private volatile Cancellable current;
+
+	/**
+	 * Registers the request in flight, it is aborted at once if the call 
+	 * was already cancelled
+	 *
+	 * @param cancellable aborts the request
+	 */
+	void setCurrent(Cancellable cancellable) {
+
+		current = cancellable;
+		if ( cancelled && cancellable != null ) {
+			cancellable.cancel();
+		}
+	}
+
+	/**
+	 * Cancels the call and aborts its request in flight
+	 */
+	void cancel() {
+
+		cancelled = true;
+		Cancellable cancellable = current;
+		if ( cancellable != null ) {
+			cancellable.cancel();
+		}
+	}
+
+	boolean isCancelled() {
+		return cancelled;
+	}
+
+}
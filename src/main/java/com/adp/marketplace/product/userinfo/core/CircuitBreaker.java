@@ -0,0 +1,254 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * <p>
+ * CircuitBreaker stops User Info API calls to an endpoint that keeps 
+ * failing, so callers fail fast instead of holding threads on it.
+ * <p>
+ * While CLOSED, the outcomes of the most recent calls are kept in a sliding 
+ * window. Once the window holds at least the minimum number of calls and 
+ * the failure rate reaches the threshold, the breaker OPENs and rejects 
+ * every call. After the open duration it turns HALF_OPEN and lets a few 
+ * probe calls through: if they all succeed it CLOSEs again, the first 
+ * failing probe OPENs it for another open duration.
+ * <p>
+ * Transport errors and 429 or 5xx responses count as failures. A breaker 
+ * is shared by registering it on
+ * {@link com.adp.marketplace.product.userinfo.configuration.UserInfoConfiguration}.
+ *
+ * @author tallaprs
+ *
+ */
+public class CircuitBreaker {
+
+	public static final float DEFAULT_FAILURE_RATE_THRESHOLD = 0.5f;
+	public static final int DEFAULT_WINDOW_SIZE = 100;
+	public static final int DEFAULT_MINIMUM_CALLS = 20;
+	public static final long DEFAULT_OPEN_DURATION = 30L * 1000L;
+	public static final int DEFAULT_PROBE_CALLS = 3;
+	
+	/**
+	 * States of the breaker
+	 */
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+	
+	private final float failureRateThreshold;
+	private final int minimumCalls;
+	private final long openDuration;
+	private final int probeCalls;
+	
+	// outcomes of the most recent calls, true for failures
+	private final boolean[] window;
+	private int windowCount;
+	private int windowIndex;
+	private int windowFailures;
+	
+	private State state = State.CLOSED;
+	private long openedAt;
+	private int probesInFlight;
+	private int probesSucceeded;
+	
+	private final AtomicLong rejectedCount = new AtomicLong();
+	private final AtomicLong openedCount = new AtomicLong();
+	
+	/**
+	 * constructor with default settings
+	 */
+	public CircuitBreaker() {
+		this(DEFAULT_FAILURE_RATE_THRESHOLD, DEFAULT_WINDOW_SIZE, DEFAULT_MINIMUM_CALLS, 
+				DEFAULT_OPEN_DURATION, DEFAULT_PROBE_CALLS);
+	}
+	
+	/**
+	 * constructor
+	 * 
+	 * @param failureRateThreshold	failure rate between 0 and 1 that opens the breaker
+	 * @param windowSize			number of most recent calls the failure rate is computed over
+	 * @param minimumCalls			number of calls needed in the window before the breaker can open
+	 * @param openDuration			milliseconds the breaker stays open before probing
+	 * @param probeCalls			number of successful probe calls that close the breaker
+	 */
+	public CircuitBreaker(float failureRateThreshold, int windowSize, int minimumCalls, long openDuration, 
+			int probeCalls) {
+		
+		if ( failureRateThreshold <= 0 || failureRateThreshold > 1 ) {
+			throw new IllegalArgumentException("failureRateThreshold must be in (0, 1]");
+		}
+		if ( windowSize <= 0 || minimumCalls <= 0 || probeCalls <= 0 ) {
+			throw new IllegalArgumentException("windowSize, minimumCalls and probeCalls must be positive");
+		}
+		
+		this.failureRateThreshold = failureRateThreshold;
+		this.window = new boolean[windowSize];
+		this.minimumCalls = Math.min(minimumCalls, windowSize);
+		this.openDuration = openDuration;
+		this.probeCalls = probeCalls;
+	}
+	
+	/**
+	 * Returns whether a call may be made now. Every permitted call must be 
+	 * followed by exactly one of {@link #onSuccess()}, {@link #onFailure()} 
+	 * or {@link #onIgnored()}.
+	 * 
+	 * @return true if the call may be made
+	 */
+	public synchronized boolean tryAcquirePermission() {
+		
+		if ( state == State.OPEN ) {
+			if ( System.currentTimeMillis() - openedAt < openDuration ) {
+				rejectedCount.incrementAndGet();
+				return false;
+			}
+			state = State.HALF_OPEN;
+			probesInFlight = 0;
+			probesSucceeded = 0;
+		}
+		
+		if ( state == State.HALF_OPEN ) {
+			if ( probesInFlight + probesSucceeded >= probeCalls ) {
+				rejectedCount.incrementAndGet();
+				return false;
+			}
+			probesInFlight++;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Records a successful permitted call
+	 */
+	public synchronized void onSuccess() {
+		
+		if ( state == State.HALF_OPEN ) {
+			probesInFlight = Math.max(0, probesInFlight - 1);
+			probesSucceeded++;
+			if ( probesSucceeded >= probeCalls ) {
+				close();
+			}
+		} else if ( state == State.CLOSED ) {
+			record(false);
+		}
+	}
+	
+	/**
+	 * Records a failed permitted call
+	 */
+	public synchronized void onFailure() {
+		
+		if ( state == State.HALF_OPEN ) {
+			open();
+		} else if ( state == State.CLOSED ) {
+			record(true);
+			if ( windowCount >= minimumCalls && windowFailures >= failureRateThreshold * windowCount ) {
+				open();
+			}
+		}
+	}
+	
+	/**
+	 * Releases the permission of a call whose outcome says nothing about 
+	 * the endpoint, e.g. a cancelled one
+	 */
+	public synchronized void onIgnored() {
+		
+		if ( state == State.HALF_OPEN ) {
+			probesInFlight = Math.max(0, probesInFlight - 1);
+		}
+	}
+	
+	/**
+	 * @return current state, OPEN turns HALF_OPEN on the next call after the open duration
+	 */
+	public synchronized State getState() {
+		return state;
+	}
+	
+	/**
+	 * @return failure rate of the calls in the window while CLOSED
+	 */
+	public synchronized float getFailureRate() {
+		return windowCount == 0 ? 0 : (float) windowFailures / windowCount;
+	}
+	
+	/**
+	 * @return number of calls rejected without being made
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+	
+	/**
+	 * @return number of times the breaker opened
+	 */
+	public long getOpenedCount() {
+		return openedCount.get();
+	}
+	
+	@Override
+	public String toString() {
+		return "CircuitBreaker [state=" + getState() + ", failureRate=" + getFailureRate() 
+				+ ", rejectedCount=" + rejectedCount + ", openedCount=" + openedCount + "]";
+	}
+	
+	/**
+	 * Adds an outcome to the window, replacing the oldest one once it is full.
+	 * Callers hold the lock.
+	 */
+	private void record(boolean failure) {
+		
+		if ( windowCount == window.length ) {
+			if ( window[windowIndex] ) {
+				windowFailures--;
+			}
+		} else {
+			windowCount++;
+		}
+		
+		window[windowIndex] = failure;
+		if ( failure ) {
+			windowFailures++;
+		}
+		windowIndex = (windowIndex + 1) % window.length;
+	}
+	
+	private void open() {
+		
+		state = State.OPEN;
+		openedAt = System.currentTimeMillis();
+		openedCount.incrementAndGet();
+	}
+	
+	private void close() {
+		
+		state = State.CLOSED;
+		windowCount = 0;
+		windowIndex = 0;
+		windowFailures = 0;
+		probesInFlight = 0;
+		probesSucceeded = 0;
+	}
+	
+}
@@ -0,0 +1,257 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * <p>
+ * ConcurrencyLimiter caps the number of User Info API calls in flight and 
+ * adapts the cap to how the endpoint copes, so a slow or throttling 
+ * endpoint is not sent more calls than it can take.
+ * <p>
+ * The limit follows AIMD: a call answered within the latency threshold 
+ * while the limit is in use raises it by 1/limit, i.e. by about one per 
+ * limit worth of calls. A 429 or 5xx response, a transport error or a 
+ * call slower than the threshold cuts it by the backoff ratio. The limit 
+ * stays between the minimum and maximum limit.
+ * <p>
+ * Once the limit is reached, blocking calls queue for up to the maximum 
+ * queue wait, calls finding the queue full or still queued at its end are 
+ * shed. Non-blocking calls do not hold a thread to queue, they are shed as 
+ * soon as the limit is reached. A limiter is shared by registering it on
+ * {@link com.adp.marketplace.product.userinfo.configuration.UserInfoConfiguration}.
+ *
+ * @author tallaprs
+ *
+ */
+public class ConcurrencyLimiter {
+
+	public static final int DEFAULT_INITIAL_LIMIT = 20;
+	public static final int DEFAULT_MIN_LIMIT = 1;
+	public static final int DEFAULT_MAX_LIMIT = 200;
+	public static final long DEFAULT_LATENCY_THRESHOLD = 2L * 1000L;
+	public static final double DEFAULT_BACKOFF_RATIO = 0.9;
+	public static final int DEFAULT_MAX_QUEUE_SIZE = 100;
+	public static final long DEFAULT_MAX_QUEUE_WAIT = 500L;
+	
+	private final int minLimit;
+	private final int maxLimit;
+	private final long latencyThresholdNanos;
+	private final double backoffRatio;
+	private final int maxQueueSize;
+	private final long maxQueueWait;
+	
+	private double limit;
+	private int inFlight;
+	private int queueDepth;
+	
+	private final AtomicLong shedCount = new AtomicLong();
+	
+	/**
+	 * constructor with default settings
+	 */
+	public ConcurrencyLimiter() {
+		this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT, DEFAULT_LATENCY_THRESHOLD, 
+				DEFAULT_BACKOFF_RATIO, DEFAULT_MAX_QUEUE_SIZE, DEFAULT_MAX_QUEUE_WAIT);
+	}
+	
+	/**
+	 * constructor
+	 * 
+	 * @param initialLimit		number of calls allowed in flight to begin with
+	 * @param minLimit			lowest the limit is cut to
+	 * @param maxLimit			highest the limit is raised to
+	 * @param latencyThreshold	milliseconds above which a call cuts the limit
+	 * @param backoffRatio		ratio between 0 and 1 the limit is multiplied with when cut
+	 * @param maxQueueSize		number of blocking calls that may wait for the limit, 0 to shed right away
+	 * @param maxQueueWait		milliseconds a queued call waits before it is shed
+	 */
+	public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThreshold, 
+			double backoffRatio, int maxQueueSize, long maxQueueWait) {
+		
+		if ( minLimit <= 0 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit ) {
+			throw new IllegalArgumentException("limits must be positive with minLimit <= initialLimit <= maxLimit");
+		}
+		if ( latencyThreshold <= 0 ) {
+			throw new IllegalArgumentException("latencyThreshold must be positive");
+		}
+		if ( backoffRatio <= 0 || backoffRatio >= 1 ) {
+			throw new IllegalArgumentException("backoffRatio must be in (0, 1)");
+		}
+		if ( maxQueueSize < 0 || maxQueueWait < 0 ) {
+			throw new IllegalArgumentException("maxQueueSize and maxQueueWait must not be negative");
+		}
+		
+		this.limit = initialLimit;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThreshold);
+		this.backoffRatio = backoffRatio;
+		this.maxQueueSize = maxQueueSize;
+		this.maxQueueWait = maxQueueWait;
+	}
+	
+	/**
+	 * Returns whether a call may be made now, without waiting. Every 
+	 * permitted call must be followed by exactly one of 
+	 * {@link #onSuccess(long)}, {@link #onDropped()} or {@link #onIgnored()}.
+	 * 
+	 * @return true if the call may be made, false if it is shed
+	 */
+	public synchronized boolean tryAcquire() {
+		
+		if ( inFlight < getLimit() ) {
+			inFlight++;
+			return true;
+		}
+		
+		shedCount.incrementAndGet();
+		return false;
+	}
+	
+	/**
+	 * Returns whether a call may be made, queueing for up to the maximum 
+	 * queue wait while the limit is reached. Every permitted call must be 
+	 * followed by exactly one of {@link #onSuccess(long)}, 
+	 * {@link #onDropped()} or {@link #onIgnored()}.
+	 * 
+	 * @return true if the call may be made, false if it is shed
+	 * @throws InterruptedException in case the thread is interrupted while queued
+	 */
+	public synchronized boolean acquire() throws InterruptedException {
+		
+		if ( inFlight < getLimit() ) {
+			inFlight++;
+			return true;
+		}
+		
+		if ( queueDepth >= maxQueueSize || maxQueueWait == 0 ) {
+			shedCount.incrementAndGet();
+			return false;
+		}
+		
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxQueueWait);
+		queueDepth++;
+		try {
+			while ( inFlight >= getLimit() ) {
+				long remaining = deadline - System.nanoTime();
+				if ( remaining <= 0 ) {
+					shedCount.incrementAndGet();
+					return false;
+				}
+				TimeUnit.NANOSECONDS.timedWait(this, remaining);
+			}
+			inFlight++;
+			return true;
+		} finally {
+			queueDepth--;
+		}
+	}
+	
+	/**
+	 * Records a permitted call the endpoint answered, raising the limit if 
+	 * it was answered within the latency threshold and cutting it otherwise
+	 * 
+	 * @param latencyNanos time from sending the request to the response
+	 */
+	public synchronized void onSuccess(long latencyNanos) {
+		
+		if ( latencyNanos > latencyThresholdNanos ) {
+			decrease();
+		} else if ( inFlight * 2 >= limit ) {
+			// only raised while in use, an idle client learns nothing about the endpoint
+			limit = Math.min(maxLimit, limit + 1 / limit);
+		}
+		release();
+	}
+	
+	/**
+	 * Records a permitted call the endpoint throttled or failed to answer, 
+	 * cutting the limit
+	 */
+	public synchronized void onDropped() {
+		
+		decrease();
+		release();
+	}
+	
+	/**
+	 * Releases the permit of a call whose outcome says nothing about the 
+	 * endpoint, e.g. a cancelled one
+	 */
+	public synchronized void onIgnored() {
+		release();
+	}
+	
+	/**
+	 * @return number of calls currently allowed in flight
+	 */
+	public synchronized int getLimit() {
+		return (int) limit;
+	}
+	
+	/**
+	 * @return number of permitted calls not yet released
+	 */
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+	
+	/**
+	 * @return number of blocking calls waiting for the limit
+	 */
+	public synchronized int getQueueDepth() {
+		return queueDepth;
+	}
+	
+	/**
+	 * @return number of calls shed without being made
+	 */
+	public long getShedCount() {
+		return shedCount.get();
+	}
+	
+	@Override
+	public String toString() {
+		return "ConcurrencyLimiter [limit=" + getLimit() + ", inFlight=" + getInFlight() 
+				+ ", queueDepth=" + getQueueDepth() + ", shedCount=" + shedCount + "]";
+	}
+	
+	/**
+	 * Callers hold the lock.
+	 */
+	private void decrease() {
+		limit = Math.max(minLimit, limit * backoffRatio);
+	}
+	
+	/**
+	 * Frees the permit and wakes the queued calls, the limit may have risen 
+	 * by more than one. Callers hold the lock.
+	 */
+	private void release() {
+		
+		inFlight = Math.max(0, inFlight - 1);
+		if ( queueDepth > 0 ) {
+			notifyAll();
+		}
+	}
+	
+}
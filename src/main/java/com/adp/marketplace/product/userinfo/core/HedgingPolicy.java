@@ -0,0 +1,237 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.adp.marketplace.product.userinfo.metrics.LatencyHistogram;
+
+
+/**
+ * <p>
+ * HedgingPolicy decides when a User Info API call sends a second, hedge 
+ * request. If the first request has not answered within the hedge delay, 
+ * an identical request is sent, the first response to arrive is used and 
+ * the other request is aborted.
+ * <p>
+ * The hedge delay is a percentile of the latencies of recent calls, so only 
+ * the slowest calls are hedged, and it never drops below the minimum delay. 
+ * Until enough calls have been measured the initial delay is used.
+ * <p>
+ * Every call earns maxHedgeRatio of a hedge, up to a small burst, and every 
+ * hedge spends one. The extra load is therefore at most maxHedgeRatio of 
+ * the calls, also when the endpoint slows down as a whole.
+ * <p>
+ * A policy is shared by registering it on
+ * {@link com.adp.marketplace.product.userinfo.configuration.UserInfoConfiguration}.
+ *
+ * @author tallaprs
+ *
+ */
+public class HedgingPolicy {
+
+	public static final double DEFAULT_PERCENTILE = 95;
+	public static final double DEFAULT_MAX_HEDGE_RATIO = 0.05;
+	public static final long DEFAULT_MINIMUM_DELAY = 10;
+	public static final long DEFAULT_INITIAL_DELAY = 500;
+	
+	// latencies measured before the percentile is trusted
+	static final int MINIMUM_SAMPLES = 100;
+	// latencies measured before the histogram is replaced, so old ones age out
+	static final int SAMPLE_WINDOW = 2000;
+	// hedges that can be saved up, in thousandths
+	private static final long MAX_BUDGET = 10L * 1000L;
+	
+	private final double percentile;
+	private final double maxHedgeRatio;
+	private final long minimumDelayNanos;
+	private final long initialDelayNanos;
+	
+	private final long budgetPerCall;
+	private final AtomicLong budget = new AtomicLong();
+	
+	private volatile LatencyHistogram current = new LatencyHistogram();
+	private volatile LatencyHistogram previous;
+	private volatile long hedgeDelayNanos;
+	
+	private final AtomicLong callCount = new AtomicLong();
+	private final AtomicLong hedgeCount = new AtomicLong();
+	private final AtomicLong hedgeWinCount = new AtomicLong();
+	
+	/**
+	 * constructor with default settings
+	 */
+	public HedgingPolicy() {
+		this(DEFAULT_PERCENTILE, DEFAULT_MAX_HEDGE_RATIO, DEFAULT_MINIMUM_DELAY, DEFAULT_INITIAL_DELAY);
+	}
+	
+	/**
+	 * constructor
+	 * 
+	 * @param percentile	percentile of recent latencies after which a hedge is sent, e.g. 95
+	 * @param maxHedgeRatio	maximum number of hedges per call, between 0 and 1
+	 * @param minimumDelay	milliseconds the hedge delay never drops below
+	 * @param initialDelay	hedge delay in milliseconds until enough latencies are measured
+	 */
+	public HedgingPolicy(double percentile, double maxHedgeRatio, long minimumDelay, long initialDelay) {
+		
+		if ( percentile <= 0 || percentile > 100 ) {
+			throw new IllegalArgumentException("percentile must be in (0, 100]");
+		}
+		if ( maxHedgeRatio <= 0 || maxHedgeRatio > 1 ) {
+			throw new IllegalArgumentException("maxHedgeRatio must be in (0, 1]");
+		}
+		
+		this.percentile = percentile;
+		this.maxHedgeRatio = maxHedgeRatio;
+		this.minimumDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, minimumDelay));
+		this.initialDelayNanos = Math.max(minimumDelayNanos, TimeUnit.MILLISECONDS.toNanos(initialDelay));
+		this.budgetPerCall = Math.round(maxHedgeRatio * 1000);
+		this.hedgeDelayNanos = initialDelayNanos;
+	}
+	
+	/**
+	 * @return nanoseconds to wait for the first response before sending a hedge
+	 */
+	public long getHedgeDelayNanos() {
+		return hedgeDelayNanos;
+	}
+	
+	/**
+	 * @return number of calls that went through the policy
+	 */
+	public long getCallCount() {
+		return callCount.get();
+	}
+	
+	/**
+	 * @return number of hedge requests sent
+	 */
+	public long getHedgeCount() {
+		return hedgeCount.get();
+	}
+	
+	/**
+	 * @return number of calls answered by the hedge request
+	 */
+	public long getHedgeWinCount() {
+		return hedgeWinCount.get();
+	}
+	
+	public double getPercentile() {
+		return percentile;
+	}
+	
+	public double getMaxHedgeRatio() {
+		return maxHedgeRatio;
+	}
+	
+	@Override
+	public String toString() {
+		return "HedgingPolicy [percentile=" + percentile + ", maxHedgeRatio=" + maxHedgeRatio 
+				+ ", hedgeDelayNanos=" + hedgeDelayNanos + ", callCount=" + callCount 
+				+ ", hedgeCount=" + hedgeCount + ", hedgeWinCount=" + hedgeWinCount + "]";
+	}
+	
+	/**
+	 * Counts a new call and adds its share to the hedge budget
+	 */
+	void callStarted() {
+		
+		callCount.incrementAndGet();
+		
+		long available;
+		do {
+			available = budget.get();
+			if ( available >= MAX_BUDGET ) {
+				return;
+			}
+		} while ( !budget.compareAndSet(available, Math.min(MAX_BUDGET, available + budgetPerCall)) );
+	}
+	
+	/**
+	 * Spends one hedge of the budget
+	 * 
+	 * @return true if a hedge may be sent
+	 */
+	boolean tryHedge() {
+		
+		long available;
+		do {
+			available = budget.get();
+			if ( available < 1000 ) {
+				return false;
+			}
+		} while ( !budget.compareAndSet(available, available - 1000) );
+		
+		hedgeCount.incrementAndGet();
+		return true;
+	}
+	
+	void hedgeWon() {
+		hedgeWinCount.incrementAndGet();
+	}
+	
+	/**
+	 * Records the latency of a successful call and updates the hedge delay
+	 * 
+	 * @param nanos
+	 */
+	void recordLatency(long nanos) {
+		
+		LatencyHistogram histogram = current;
+		histogram.record(nanos);
+		
+		long count = histogram.getCount();
+		if ( count >= SAMPLE_WINDOW ) {
+			rotate(histogram);
+		}
+		
+		// the percentile walks the buckets, so it is not computed on every call
+		if ( (count & 15) == 0 ) {
+			updateHedgeDelay();
+		}
+	}
+	
+	/**
+	 * Replaces the full histogram, the percentile is read from it until 
+	 * the new one is full in turn
+	 */
+	private synchronized void rotate(LatencyHistogram full) {
+		
+		if ( current == full ) {
+			previous = full;
+			current = new LatencyHistogram();
+		}
+	}
+	
+	private void updateHedgeDelay() {
+		
+		LatencyHistogram histogram = previous;
+		if ( histogram == null ) {
+			histogram = current;
+			if ( histogram.getCount() < MINIMUM_SAMPLES ) {
+				return;
+			}
+		}
+		
+		hedgeDelayNanos = Math.max(minimumDelayNanos, histogram.getValueAtPercentile(percentile));
+	}
+	
+}
@@ -0,0 +1,669 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import com.adp.marketplace.connection.vo.Token;
+import com.adp.marketplace.product.userinfo.vo.UserInfo;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+
+/**
+ * <p>
+ * OffHeapUserInfoCache is an {@link AbstractUserInfoCache} that keeps its values 
+ * outside the Java heap, for caches holding hundreds of thousands of tokens.
+ * <p>
+ * Values are stored as UTF-8 bytes in direct ByteBuffer slabs and are only 
+ * decoded when they are looked up, each lookup returns a new String or 
+ * {@link UserInfo}. The index is an open addressing table of primitive longs, 
+ * so the heap used by the cache does not grow with the number of tokens and 
+ * the garbage collector has nothing to trace for them.
+ * <p>
+ * Slabs are filled in turn. Once the memory limit or the maximum size is 
+ * reached, the oldest slab is emptied and reused, which evicts the values 
+ * written longest ago. Replaced and invalidated values keep their space 
+ * until their slab is reused.
+ * <p>
+ * Direct memory is limited by -XX:MaxDirectMemorySize, it has to allow for 
+ * the maximum memory of the cache.
+ *
+ * @author tallaprs
+ *
+ */
+public class OffHeapUserInfoCache extends AbstractUserInfoCache {
+
+	public static final int DEFAULT_SLAB_SIZE = 4 * 1024 * 1024;
+	public static final int MINIMUM_SLAB_SIZE = 4 * 1024;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final byte RESPONSE = 1;
+	private static final byte USER_INFO = 2;
+
+	// record: kind, expiresAt, freshUntil, token chars, then etag, 
+	// lastModified and value as UTF-8 bytes, each after its length
+	private static final int EXPIRES_AT_OFFSET = 1;
+	private static final int FRESH_UNTIL_OFFSET = 9;
+	private static final int TOKEN_OFFSET = 17;
+
+	private final long maximumMemory;
+	private final int slabSize;
+	private final Gson gson = new Gson();
+
+	private final ByteBuffer[] slabs;
+	private final int[] slabEntries;
+	private int currentSlab;
+	private int writeOffset;
+
+	// open addressing with linear probing, a key of 0 marks a free slot
+	private final long[] keys;
+	private final long[] addresses;
+	private final int mask;
+	private int count;
+
+	/**
+	 * constructor with the default slab size
+	 *
+	 * @param maximumSize	maximum number of cached values
+	 * @param timeToLive	maximum time in milliseconds a value is served
+	 * @param maximumMemory	maximum bytes of direct memory used for values
+	 */
+	public OffHeapUserInfoCache(int maximumSize, long timeToLive, long maximumMemory) {
+		this(maximumSize, timeToLive, maximumMemory, DEFAULT_SLAB_SIZE);
+	}
+
+	/**
+	 * constructor
+	 *
+	 * @param maximumSize	maximum number of cached values
+	 * @param timeToLive	maximum time in milliseconds a value is served
+	 * @param maximumMemory	maximum bytes of direct memory used for values
+	 * @param slabSize		bytes of direct memory allocated at a time
+	 */
+	public OffHeapUserInfoCache(int maximumSize, long timeToLive, long maximumMemory, int slabSize) {
+
+		super(maximumSize, timeToLive);
+
+		if ( slabSize < MINIMUM_SLAB_SIZE ) {
+			throw new IllegalArgumentException("slabSize must be at least " + MINIMUM_SLAB_SIZE);
+		}
+		if ( maximumMemory < 2L * slabSize ) {
+			throw new IllegalArgumentException("maximumMemory must hold at least two slabs");
+		}
+		if ( maximumSize > (1 << 29) ) {
+			throw new IllegalArgumentException("maximumSize must not exceed " + (1 << 29));
+		}
+
+		this.maximumMemory = maximumMemory;
+		this.slabSize = slabSize;
+
+		int slabCount = (int) Math.min(maximumMemory / slabSize, Integer.MAX_VALUE);
+		this.slabs = new ByteBuffer[slabCount];
+		this.slabEntries = new int[slabCount];
+
+		// at most half full, so probe sequences stay short and a free slot always exists
+		int capacity = Integer.highestOneBit(Math.max(maximumSize, 2) * 2 - 1) << 1;
+		this.keys = new long[capacity];
+		this.addresses = new long[capacity];
+		this.mask = capacity - 1;
+	}
+
+	@Override
+	public String getResponse(String accessToken) {
+
+		CachedValue<byte[]> cachedValue = read(RESPONSE, accessToken);
+		String response = null;
+
+		if ( cachedValue != null && cachedValue.isFresh(System.currentTimeMillis()) ) {
+			response = new String(cachedValue.getValue(), UTF_8);
+		}
+
+		record(response != null);
+		return response;
+	}
+
+	@Override
+	public UserInfo getUserInfo(String accessToken) {
+
+		CachedValue<byte[]> cachedValue = read(USER_INFO, accessToken);
+		UserInfo userInfo = null;
+
+		if ( cachedValue != null && cachedValue.isFresh(System.currentTimeMillis()) ) {
+			userInfo = decodeUserInfo(cachedValue.getValue());
+		}
+
+		record(userInfo != null);
+		return userInfo;
+	}
+
+	@Override
+	public void putResponse(Token token, String response, String etag, String lastModified) {
+
+		if ( response != null ) {
+			write(RESPONSE, token, response.getBytes(UTF_8), etag, lastModified);
+		}
+	}
+
+	@Override
+	public void putUserInfo(Token token, UserInfo userInfo, String etag, String lastModified) {
+
+		if ( userInfo != null ) {
+			write(USER_INFO, token, gson.toJson(userInfo).getBytes(UTF_8), etag, lastModified);
+		}
+	}
+
+	@Override
+	CachedValue<String> getRevalidatableResponse(String accessToken) {
+
+		CachedValue<byte[]> cachedValue = read(RESPONSE, accessToken);
+		if ( cachedValue == null || !cachedValue.hasValidators() ) {
+			return null;
+		}
+
+		return new CachedValue<String>(new String(cachedValue.getValue(), UTF_8), cachedValue.getEtag(), 
+				cachedValue.getLastModified(), cachedValue.getFreshUntil());
+	}
+
+	@Override
+	CachedValue<UserInfo> getRevalidatableUserInfo(String accessToken) {
+
+		CachedValue<byte[]> cachedValue = read(USER_INFO, accessToken);
+		if ( cachedValue == null || !cachedValue.hasValidators() ) {
+			return null;
+		}
+
+		UserInfo userInfo = decodeUserInfo(cachedValue.getValue());
+		return userInfo == null ? null : new CachedValue<UserInfo>(userInfo, cachedValue.getEtag(), 
+				cachedValue.getLastModified(), cachedValue.getFreshUntil());
+	}
+
+	@Override
+	long getResponseFreshUntil(String accessToken) {
+		return freshUntil(RESPONSE, accessToken);
+	}
+
+	@Override
+	long getUserInfoFreshUntil(String accessToken) {
+		return freshUntil(USER_INFO, accessToken);
+	}
+
+	@Override
+	public synchronized void invalidate(String accessToken) {
+
+		if ( accessToken == null ) {
+			return;
+		}
+
+		int slot = find(RESPONSE, accessToken);
+		if ( slot >= 0 ) {
+			removeSlot(slot);
+		}
+
+		slot = find(USER_INFO, accessToken);
+		if ( slot >= 0 ) {
+			removeSlot(slot);
+		}
+	}
+
+	@Override
+	public synchronized void invalidateAll() {
+
+		Arrays.fill(keys, 0L);
+		Arrays.fill(addresses, 0L);
+		Arrays.fill(slabEntries, 0);
+		count = 0;
+		currentSlab = 0;
+		writeOffset = 0;
+	}
+
+	@Override
+	public synchronized void cleanUp() {
+		recordEvictions(removeWhere(-1, System.currentTimeMillis()));
+	}
+
+	/**
+	 * @return number of cached values, a response and a user info of the same token count twice
+	 */
+	@Override
+	public synchronized int size() {
+		return count;
+	}
+
+	/**
+	 * @return bytes of direct memory allocated for values
+	 */
+	public synchronized long getMemoryUsed() {
+
+		long memoryUsed = 0L;
+		for ( ByteBuffer slab : slabs ) {
+			if ( slab != null ) {
+				memoryUsed += slab.capacity();
+			}
+		}
+		return memoryUsed;
+	}
+
+	public long getMaximumMemory() {
+		return maximumMemory;
+	}
+
+	public int getSlabSize() {
+		return slabSize;
+	}
+
+	@Override
+	public String toString() {
+		return "OffHeapUserInfoCache [size=" + size() + ", maximumSize=" + getMaximumSize()
+				+ ", memoryUsed=" + getMemoryUsed() + ", maximumMemory=" + maximumMemory
+				+ ", hitCount=" + getHitCount() + ", missCount=" + getMissCount()
+				+ ", evictionCount=" + getEvictionCount() + ", revalidationCount=" + getRevalidationCount() + "]";
+	}
+
+	/**
+	 * Returns the live value of the kind and access token with the value 
+	 * still encoded, discarding it if it has expired
+	 */
+	private synchronized CachedValue<byte[]> read(byte kind, String accessToken) {
+
+		if ( accessToken == null ) {
+			return null;
+		}
+
+		int slot = find(kind, accessToken);
+		if ( slot < 0 ) {
+			return null;
+		}
+
+		long now = System.currentTimeMillis();
+		long address = addresses[slot];
+		ByteBuffer slab = slabs[slabOf(address)];
+		int offset = offsetOf(address);
+
+		if ( isExpired(slab, offset, now) ) {
+			removeSlot(slot);
+			recordEvictions(1);
+			return null;
+		}
+
+		long freshUntil = slab.getLong(offset + FRESH_UNTIL_OFFSET);
+		int position = offset + TOKEN_OFFSET + 4 + slab.getInt(offset + TOKEN_OFFSET) * 2;
+
+		byte[] etag = readBytes(slab, position);
+		position += 4 + (etag != null ? etag.length : 0);
+		byte[] lastModified = readBytes(slab, position);
+		position += 4 + (lastModified != null ? lastModified.length : 0);
+		byte[] value = readBytes(slab, position);
+
+		return new CachedValue<byte[]>(value, etag != null ? new String(etag, UTF_8) : null, 
+				lastModified != null ? new String(lastModified, UTF_8) : null, freshUntil);
+	}
+
+	/**
+	 * Returns until when the value of the kind and access token is fresh, 
+	 * reading the record header only. 0 if there is no fresh value or it 
+	 * is fresh until its token expires.
+	 */
+	private synchronized long freshUntil(byte kind, String accessToken) {
+
+		int slot = accessToken != null ? find(kind, accessToken) : -1;
+		if ( slot < 0 ) {
+			return 0L;
+		}
+
+		long address = addresses[slot];
+		ByteBuffer slab = slabs[slabOf(address)];
+		int offset = offsetOf(address);
+
+		long freshUntil = slab.getLong(offset + FRESH_UNTIL_OFFSET);
+		if ( freshUntil <= System.currentTimeMillis() || freshUntil >= slab.getLong(offset + EXPIRES_AT_OFFSET) ) {
+			return 0L;
+		}
+		return freshUntil;
+	}
+
+	/**
+	 * Appends a value to the current slab and indexes it. A value keeps the 
+	 * expiry of a live value of the same token, as the entries of 
+	 * UserInfoCache do.
+	 */
+	private synchronized void write(byte kind, Token token, byte[] value, String etag, String lastModified) {
+
+		if ( token == null || token.getAccess_token() == null ) {
+			return;
+		}
+
+		String accessToken = token.getAccess_token();
+		byte[] etagBytes = etag != null ? etag.getBytes(UTF_8) : null;
+		byte[] lastModifiedBytes = lastModified != null ? lastModified.getBytes(UTF_8) : null;
+
+		long length = TOKEN_OFFSET + 4L + accessToken.length() * 2L 
+				+ 4L + (etagBytes != null ? etagBytes.length : 0) 
+				+ 4L + (lastModifiedBytes != null ? lastModifiedBytes.length : 0) 
+				+ 4L + value.length;
+
+		if ( length > slabSize ) {
+			return;
+		}
+
+		long now = System.currentTimeMillis();
+		long expiresAt = getExpiresAt(accessToken, now);
+		if ( expiresAt <= 0L ) {
+			expiresAt = TokenLifetime.expiresAt(token, getTimeToLive());
+		}
+
+		long key = key(kind, accessToken);
+		int slot = slotOf(key);
+		if ( keys[slot] == 0L && count >= getMaximumSize() ) {
+			evictOldestSlab();
+			slot = slotOf(key);
+		}
+
+		long address = allocate((int) length);
+		ByteBuffer slab = slabs[slabOf(address)];
+		int offset = offsetOf(address);
+
+		slab.put(offset, kind);
+		slab.putLong(offset + EXPIRES_AT_OFFSET, expiresAt);
+		slab.putLong(offset + FRESH_UNTIL_OFFSET, Math.min(now + getTimeToLive(), expiresAt));
+		slab.putInt(offset + TOKEN_OFFSET, accessToken.length());
+
+		int position = offset + TOKEN_OFFSET + 4;
+		for ( int i = 0; i < accessToken.length(); i++ ) {
+			slab.putChar(position, accessToken.charAt(i));
+			position += 2;
+		}
+
+		position = writeBytes(slab, position, etagBytes);
+		position = writeBytes(slab, position, lastModifiedBytes);
+		writeBytes(slab, position, value);
+
+		// allocating may have evicted a slab and moved the slot
+		slot = slotOf(key);
+		if ( keys[slot] == 0L ) {
+			keys[slot] = key;
+			count++;
+		} else {
+			slabEntries[slabOf(addresses[slot])]--;
+		}
+		addresses[slot] = address;
+		slabEntries[slabOf(address)]++;
+	}
+
+	/**
+	 * Returns the address of length bytes in the current slab, moving to 
+	 * the next slab, and emptying it, when the current one is full
+	 */
+	private long allocate(int length) {
+
+		if ( slabs[currentSlab] != null && writeOffset + length > slabSize ) {
+			currentSlab = (currentSlab + 1) % slabs.length;
+			writeOffset = 0;
+			if ( slabEntries[currentSlab] > 0 ) {
+				recordEvictions(removeWhere(currentSlab, 0L));
+			}
+		}
+
+		if ( slabs[currentSlab] == null ) {
+			slabs[currentSlab] = ByteBuffer.allocateDirect(slabSize);
+		}
+
+		long address = ((long) currentSlab << 32) | writeOffset;
+		writeOffset += length;
+		return address;
+	}
+
+	/**
+	 * Empties the slab written longest ago that holds values, the current 
+	 * slab if it is the only one
+	 */
+	private void evictOldestSlab() {
+
+		for ( int i = 1; i <= slabs.length; i++ ) {
+			int slab = (currentSlab + i) % slabs.length;
+			if ( slabEntries[slab] > 0 ) {
+				recordEvictions(removeWhere(slab, 0L));
+				if ( slab == currentSlab ) {
+					writeOffset = 0;
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the expiry of a live value of the access token or 0
+	 */
+	private long getExpiresAt(String accessToken, long now) {
+
+		byte[] kinds = { RESPONSE, USER_INFO };
+		for ( byte kind : kinds ) {
+			int slot = find(kind, accessToken);
+			if ( slot >= 0 ) {
+				long address = addresses[slot];
+				long expiresAt = slabs[slabOf(address)].getLong(offsetOf(address) + EXPIRES_AT_OFFSET);
+				if ( expiresAt > now ) {
+					return expiresAt;
+				}
+			}
+		}
+		return 0L;
+	}
+
+	/**
+	 * Returns the slot of the kind and access token or -1. The token is 
+	 * compared with the stored one, two tokens with the same key never 
+	 * share a value.
+	 */
+	private int find(byte kind, String accessToken) {
+
+		int slot = slotOf(key(kind, accessToken));
+		if ( keys[slot] == 0L ) {
+			return -1;
+		}
+
+		long address = addresses[slot];
+		ByteBuffer slab = slabs[slabOf(address)];
+		int offset = offsetOf(address);
+
+		if ( slab.get(offset) != kind || slab.getInt(offset + TOKEN_OFFSET) != accessToken.length() ) {
+			return -1;
+		}
+
+		int position = offset + TOKEN_OFFSET + 4;
+		for ( int i = 0; i < accessToken.length(); i++ ) {
+			if ( slab.getChar(position) != accessToken.charAt(i) ) {
+				return -1;
+			}
+			position += 2;
+		}
+		return slot;
+	}
+
+	/**
+	 * Returns the slot holding the key or the free slot it would be inserted at
+	 */
+	private int slotOf(long key) {
+
+		int slot = (int) key & mask;
+		while ( keys[slot] != 0L && keys[slot] != key ) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Removes the slot, moving later slots of the probe sequence back so 
+	 * no lookup stops at the freed slot
+	 */
+	private void removeSlot(int slot) {
+
+		slabEntries[slabOf(addresses[slot])]--;
+		count--;
+
+		int hole = slot;
+		int next = slot;
+
+		while ( true ) {
+			next = (next + 1) & mask;
+			if ( keys[next] == 0L ) {
+				break;
+			}
+
+			int home = (int) keys[next] & mask;
+			boolean movable = next > hole ? (home <= hole || home > next) : (home <= hole && home > next);
+			if ( movable ) {
+				keys[hole] = keys[next];
+				addresses[hole] = addresses[next];
+				hole = next;
+			}
+		}
+
+		keys[hole] = 0L;
+		addresses[hole] = 0L;
+	}
+
+	/**
+	 * Removes the values stored in the slab or, for a slab of -1, the 
+	 * values expired at now
+	 *
+	 * @return number of removed values
+	 */
+	private int removeWhere(int slab, long now) {
+
+		// start after a free slot, no probe sequence wraps around it
+		int start = 0;
+		while ( keys[start] != 0L ) {
+			start++;
+		}
+
+		int removed = 0;
+		int slot = (start + 1) & mask;
+
+		for ( int visited = 0; visited < keys.length; ) {
+
+			if ( keys[slot] != 0L ) {
+				long address = addresses[slot];
+				boolean remove = slab >= 0 ? slabOf(address) == slab 
+						: isExpired(slabs[slabOf(address)], offsetOf(address), now);
+				if ( remove ) {
+					// a later slot may have moved here, look at it again
+					removeSlot(slot);
+					removed++;
+					continue;
+				}
+			}
+
+			slot = (slot + 1) & mask;
+			visited++;
+		}
+
+		return removed;
+	}
+
+	/**
+	 * A value expires with its token, or once it is no longer fresh when it 
+	 * cannot be revalidated
+	 */
+	private static boolean isExpired(ByteBuffer slab, int offset, long now) {
+
+		if ( slab.getLong(offset + EXPIRES_AT_OFFSET) <= now ) {
+			return true;
+		}
+		if ( slab.getLong(offset + FRESH_UNTIL_OFFSET) > now ) {
+			return false;
+		}
+
+		int position = offset + TOKEN_OFFSET + 4 + slab.getInt(offset + TOKEN_OFFSET) * 2;
+		int etagLength = slab.getInt(position);
+		int lastModifiedLength = slab.getInt(position + 4 + Math.max(etagLength, 0));
+
+		return etagLength < 0 && lastModifiedLength < 0;
+	}
+
+	private UserInfo decodeUserInfo(byte[] json) {
+
+		try {
+			return gson.fromJson(new InputStreamReader(new ByteArrayInputStream(json), UTF_8), UserInfo.class);
+		} catch (JsonParseException e) {
+			return null;
+		}
+	}
+
+	private static int writeBytes(ByteBuffer slab, int position, byte[] bytes) {
+
+		if ( bytes == null ) {
+			slab.putInt(position, -1);
+			return position + 4;
+		}
+
+		slab.putInt(position, bytes.length);
+		ByteBuffer target = slab.duplicate();
+		target.position(position + 4);
+		target.put(bytes);
+		return position + 4 + bytes.length;
+	}
+
+	private static byte[] readBytes(ByteBuffer slab, int position) {
+
+		int length = slab.getInt(position);
+		if ( length < 0 ) {
+			return null;
+		}
+
+		byte[] bytes = new byte[length];
+		ByteBuffer source = slab.duplicate();
+		source.position(position + 4);
+		source.get(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Returns a 64 bit hash of the kind and access token, never 0
+	 */
+	private static long key(byte kind, String accessToken) {
+
+		long hash = 0xcbf29ce484222325L ^ kind;
+		for ( int i = 0; i < accessToken.length(); i++ ) {
+			hash ^= accessToken.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+
+		return hash != 0L ? hash : 1L;
+	}
+
+	private static int slabOf(long address) {
+		return (int) (address >>> 32);
+	}
+
+	private static int offsetOf(long address) {
+		return (int) address;
+	}
+
+}
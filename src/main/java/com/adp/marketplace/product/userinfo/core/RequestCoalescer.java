@@ -0,0 +1,182 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.core;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import com.adp.marketplace.connection.exception.ConnectionException;
+import com.adp.marketplace.product.userinfo.exception.APIException;
+
+
+/**
+ * RequestCoalescer lets concurrent calls with the same key share one
+ * in-flight call. The first caller runs the call on its own thread,
+ * callers arriving while it runs wait for its result or exception.
+ * Non-blocking calls are shared the same way, callers arriving while 
+ * one is in flight get a future completed with its outcome.
+ *
+ * @author tallaprs
+ *
+ */
+class RequestCoalescer {
+
+	private final ConcurrentMap<String, FutureTask<?>> inFlight =
+			new ConcurrentHashMap<String, FutureTask<?>>();
+
+	private final ConcurrentMap<String, CompletableFuture<?>> inFlightAsync =
+			new ConcurrentHashMap<String, CompletableFuture<?>>();
+
+	/**
+	 * Runs the call or joins the one in flight for the key
+	 *
+	 * @param key		identifies identical calls
+	 * @param call		call to run when none is in flight
+	 * @param timeout	milliseconds a joining caller waits, 0 to wait until done
+	 * @return T		result of the call
+	 * @throws APIException			in case the call fails or the wait times out
+	 * @throws ConnectionException	in case the call fails with it
+	 */
+	@SuppressWarnings("unchecked")
+	<T> T execute(String key, Callable<T> call, long timeout) throws APIException, ConnectionException {
+
+		FutureTask<T> task = new FutureTask<T>(call);
+		FutureTask<T> running = (FutureTask<T>) inFlight.putIfAbsent(key, task);
+
+		try {
+			if ( running == null ) {
+				try {
+					task.run();
+				} finally {
+					inFlight.remove(key, task);
+				}
+				return task.get();
+			}
+
+			if ( timeout > 0 ) {
+				return running.get(timeout, TimeUnit.MILLISECONDS);
+			}
+			return running.get();
+
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if ( cause instanceof APIException ) {
+				throw (APIException) cause;
+			} else if ( cause instanceof ConnectionException ) {
+				throw (ConnectionException) cause;
+			} else if ( cause instanceof RuntimeException ) {
+				throw (RuntimeException) cause;
+			} else if ( cause instanceof Error ) {
+				throw (Error) cause;
+			}
+			throw new APIException(cause);
+		} catch (TimeoutException e) {
+			throw new APIException("Error: User Info API call timed out after " + timeout + " ms.");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new APIException("Error: Interrupted while waiting for User Info API response.");
+		}
+	}
+
+	/**
+	 * Starts the non-blocking call or joins the one in flight for the key.
+	 * Every caller gets its own future, so cancelling one does not affect
+	 * the others.
+	 *
+	 * @param key		identifies identical calls
+	 * @param call		starts the call when none is in flight
+	 * @return CompletableFuture completed with the outcome of the call
+	 */
+	@SuppressWarnings("unchecked")
+	<T> CompletableFuture<T> executeAsync(final String key, Supplier<CompletableFuture<T>> call) {
+
+		final CompletableFuture<T> future = new CompletableFuture<T>();
+		CompletableFuture<T> running = (CompletableFuture<T>) inFlightAsync.putIfAbsent(key, future);
+
+		if ( running != null ) {
+			return relay(running);
+		}
+
+		try {
+			call.get().whenComplete(new BiConsumer<T, Throwable>() {
+				public void accept(T result, Throwable throwable) {
+					inFlightAsync.remove(key, future);
+					if ( throwable == null ) {
+						future.complete(result);
+					} else {
+						future.completeExceptionally(unwrap(throwable));
+					}
+				}
+			});
+		} catch (Throwable e) {
+			inFlightAsync.remove(key, future);
+			future.completeExceptionally(e);
+		}
+
+		return relay(future);
+	}
+
+	/**
+	 * @return number of calls in flight
+	 */
+	int size() {
+		return inFlight.size() + inFlightAsync.size();
+	}
+
+	/**
+	 * Returns a new future completed with the outcome of source
+	 */
+	private static <T> CompletableFuture<T> relay(CompletableFuture<T> source) {
+
+		final CompletableFuture<T> target = new CompletableFuture<T>();
+
+		source.whenComplete(new BiConsumer<T, Throwable>() {
+			public void accept(T result, Throwable throwable) {
+				if ( throwable == null ) {
+					target.complete(result);
+				} else {
+					target.completeExceptionally(unwrap(throwable));
+				}
+			}
+		});
+
+		return target;
+	}
+
+	/**
+	 * Returns the cause of a CompletionException, dependent futures wrap 
+	 * the exception of the future they depend on in one
+	 */
+	static Throwable unwrap(Throwable throwable) {
+
+		if ( throwable instanceof CompletionException && throwable.getCause() != null ) {
+			return throwable.getCause();
+		}
+		return throwable;
+	}
+
+}
@@ -0,0 +1,76 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.core;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.adp.marketplace.connection.vo.Token;
+
+
+/**
+ * Tracks when tokens were obtained so cached values of a token expire 
+ * with it. A Token carries its expires_in but not its issue time, the 
+ * lifetime is therefore counted from the first time a UserInfoHelper 
+ * obtained the token from its connection. Tokens are held weakly and 
+ * compared by identity.
+ * 
+ * @author tallaprs
+ *
+ */
+final class TokenLifetime {
+
+	private static final Map<Token, Long> OBTAINED_AT = 
+			Collections.synchronizedMap(new WeakHashMap<Token, Long>());
+
+	private TokenLifetime() {
+	}
+
+	/**
+	 * Records the token as obtained now, unless it was obtained before
+	 * 
+	 * @param token token of the connection or null
+	 */
+	static void obtained(Token token) {
+
+		if ( token != null ) {
+			OBTAINED_AT.putIfAbsent(token, Long.valueOf(System.currentTimeMillis()));
+		}
+	}
+
+	/**
+	 * Returns when the token expires, counted from when it was obtained, or 
+	 * after timeToLive from now when its expires_in is not known
+	 * 
+	 * @param token			token of the connection
+	 * @param timeToLive	lifetime in milliseconds used without expires_in
+	 * @return long			expiry time in milliseconds
+	 */
+	static long expiresAt(Token token, long timeToLive) {
+
+		long now = System.currentTimeMillis();
+		if ( token.getExpires_in() <= 0 ) {
+			return now + timeToLive;
+		}
+
+		Long obtainedAt = OBTAINED_AT.putIfAbsent(token, Long.valueOf(now));
+		return (obtainedAt != null ? obtainedAt.longValue() : now) + token.getExpires_in() * 1000L;
+	}
+
+}
@@ -0,0 +1,475 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.core;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.adp.marketplace.connection.vo.Token;
+import com.adp.marketplace.product.userinfo.vo.UserInfo;
+
+
+/**
+ * <p>
+ * UserInfoCache is an in-process, size bounded LRU cache of User Info API
+ * responses keyed by the access token of the connection.
+ * <p>
+ * A value is served for the configured time to live or until the token 
+ * it was cached for expires, whichever comes first. The expires_in of the 
+ * token is counted from when a UserInfoHelper first obtained the token.
+ * UserInfoHelper only consults the cache once the connection has been
+ * checked to be alive, so a value is never served for an expired token.
+ * Every caller gets its own copy of a cached {@link UserInfo}.
+ * <p>
+ * Values cached with an ETag or Last-Modified validator are kept after 
+ * their time to live, until the token expires, so UserInfoHelper can 
+ * revalidate them with a conditional request. A 304 Not Modified answer 
+ * serves the kept value again without reading or parsing a payload.
+ * <p>
+ * A {@link UserInfoDiskCache} can back the cache. Values are then also 
+ * written to disk by its background writer, and a value not in memory is 
+ * looked up on disk and kept in memory again, so a restarted JVM warms 
+ * from local disk.
+ * <p>
+ * A cache is shared by registering it on
+ * {@link com.adp.marketplace.product.userinfo.configuration.UserInfoConfiguration}.
+ *
+ * @author tallaprs
+ *
+ */
+public class UserInfoCache extends AbstractUserInfoCache {
+
+	public static final int DEFAULT_MAXIMUM_SIZE = 10000;
+	public static final long DEFAULT_TIME_TO_LIVE = 5L * 60L * 1000L;
+
+	private final UserInfoDiskCache diskCache;
+
+	private final LinkedHashMap<String, CacheEntry> entries;
+
+	/**
+	 * constructor with default maximum size and time to live
+	 */
+	public UserInfoCache() {
+		this(DEFAULT_MAXIMUM_SIZE, DEFAULT_TIME_TO_LIVE);
+	}
+
+	/**
+	 * constructor
+	 *
+	 * @param maximumSize	maximum number of cached tokens
+	 * @param timeToLive	maximum time in milliseconds an entry is served
+	 */
+	public UserInfoCache(int maximumSize, long timeToLive) {
+		this(maximumSize, timeToLive, null);
+	}
+
+	/**
+	 * constructor
+	 *
+	 * @param maximumSize	maximum number of cached tokens
+	 * @param timeToLive	maximum time in milliseconds an entry is served
+	 * @param diskCache		persistent tier behind the cache or null
+	 */
+	public UserInfoCache(int maximumSize, long timeToLive, UserInfoDiskCache diskCache) {
+
+		super(maximumSize, timeToLive);
+
+		this.diskCache = diskCache;
+
+		// access ordered, so the eldest entry is the least recently used one
+		this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+
+				boolean evict = size() > getMaximumSize();
+				if ( evict ) {
+					recordEvictions(1);
+				}
+				return evict;
+			}
+		};
+	}
+
+	@Override
+	public String getResponse(String accessToken) {
+
+		String response = null;
+		long now = System.currentTimeMillis();
+		boolean cached;
+
+		synchronized (entries) {
+			CacheEntry entry = getEntry(accessToken);
+			cached = entry != null && entry.response != null;
+			if ( cached && entry.response.isFresh(now) ) {
+				response = entry.response.getValue();
+			}
+		}
+
+		if ( !cached ) {
+			CachedValue<String> cachedValue = loadResponse(accessToken);
+			if ( cachedValue != null && cachedValue.isFresh(now) ) {
+				response = cachedValue.getValue();
+			}
+		}
+
+		record(response != null);
+		return response;
+	}
+
+	@Override
+	public UserInfo getUserInfo(String accessToken) {
+
+		UserInfo userInfo = null;
+		long now = System.currentTimeMillis();
+		boolean cached;
+
+		synchronized (entries) {
+			CacheEntry entry = getEntry(accessToken);
+			cached = entry != null && entry.userInfo != null;
+			if ( cached && entry.userInfo.isFresh(now) ) {
+				userInfo = new UserInfo(entry.userInfo.getValue());
+			}
+		}
+
+		if ( !cached ) {
+			CachedValue<UserInfo> cachedValue = loadUserInfo(accessToken);
+			if ( cachedValue != null && cachedValue.isFresh(now) ) {
+				userInfo = new UserInfo(cachedValue.getValue());
+			}
+		}
+
+		record(userInfo != null);
+		return userInfo;
+	}
+
+	@Override
+	public void putResponse(Token token, String response, String etag, String lastModified) {
+
+		if ( response == null ) {
+			return;
+		}
+
+		CachedValue<String> cachedValue = null;
+		long expiresAt = 0L;
+
+		synchronized (entries) {
+			CacheEntry entry = putEntry(token);
+			if ( entry != null ) {
+				cachedValue = entry.newValue(response, etag, lastModified, getTimeToLive());
+				entry.response = cachedValue;
+				expiresAt = entry.expiresAt;
+			}
+		}
+
+		if ( diskCache != null && cachedValue != null ) {
+			diskCache.putResponseInBackground(token.getAccess_token(), cachedValue, expiresAt);
+		}
+	}
+
+	@Override
+	public void putUserInfo(Token token, UserInfo userInfo, String etag, String lastModified) {
+
+		if ( userInfo == null ) {
+			return;
+		}
+
+		CachedValue<UserInfo> cachedValue = null;
+		long expiresAt = 0L;
+
+		synchronized (entries) {
+			CacheEntry entry = putEntry(token);
+			if ( entry != null ) {
+				cachedValue = entry.newValue(new UserInfo(userInfo), etag, lastModified, getTimeToLive());
+				entry.userInfo = cachedValue;
+				expiresAt = entry.expiresAt;
+			}
+		}
+
+		if ( diskCache != null && cachedValue != null ) {
+			diskCache.putUserInfoInBackground(token.getAccess_token(), cachedValue, expiresAt);
+		}
+	}
+
+	@Override
+	CachedValue<String> getRevalidatableResponse(String accessToken) {
+
+		synchronized (entries) {
+			CacheEntry entry = getEntry(accessToken);
+			if ( entry != null && entry.response != null ) {
+				return entry.response.hasValidators() ? entry.response : null;
+			}
+		}
+
+		CachedValue<String> cachedValue = loadResponse(accessToken);
+		return cachedValue != null && cachedValue.hasValidators() ? cachedValue : null;
+	}
+
+	@Override
+	CachedValue<UserInfo> getRevalidatableUserInfo(String accessToken) {
+
+		CachedValue<UserInfo> cachedValue = null;
+
+		synchronized (entries) {
+			CacheEntry entry = getEntry(accessToken);
+			if ( entry != null && entry.userInfo != null ) {
+				cachedValue = entry.userInfo;
+			}
+		}
+
+		if ( cachedValue == null ) {
+			cachedValue = loadUserInfo(accessToken);
+		}
+
+		if ( cachedValue == null || !cachedValue.hasValidators() ) {
+			return null;
+		}
+		return new CachedValue<UserInfo>(new UserInfo(cachedValue.getValue()), cachedValue.getEtag(), 
+				cachedValue.getLastModified(), cachedValue.getFreshUntil());
+	}
+
+	@Override
+	long getResponseFreshUntil(String accessToken) {
+
+		synchronized (entries) {
+			CacheEntry entry = getEntry(accessToken);
+			return entry != null ? entry.refreshableUntil(entry.response, System.currentTimeMillis()) : 0L;
+		}
+	}
+
+	@Override
+	long getUserInfoFreshUntil(String accessToken) {
+
+		synchronized (entries) {
+			CacheEntry entry = getEntry(accessToken);
+			return entry != null ? entry.refreshableUntil(entry.userInfo, System.currentTimeMillis()) : 0L;
+		}
+	}
+
+	@Override
+	public void invalidate(String accessToken) {
+
+		if ( accessToken != null ) {
+			synchronized (entries) {
+				entries.remove(accessToken);
+			}
+			if ( diskCache != null ) {
+				diskCache.invalidateInBackground(accessToken);
+			}
+		}
+	}
+
+	@Override
+	public void invalidateAll() {
+
+		synchronized (entries) {
+			entries.clear();
+		}
+		if ( diskCache != null ) {
+			diskCache.invalidateAll();
+		}
+	}
+
+	@Override
+	public void cleanUp() {
+
+		long now = System.currentTimeMillis();
+
+		synchronized (entries) {
+			Iterator<CacheEntry> iterator = entries.values().iterator();
+			while ( iterator.hasNext() ) {
+				if ( iterator.next().isExpired(now) ) {
+					iterator.remove();
+					recordEvictions(1);
+				}
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * @return persistent tier behind the cache or null
+	 */
+	public UserInfoDiskCache getDiskCache() {
+		return diskCache;
+	}
+
+	@Override
+	public String toString() {
+		return "UserInfoCache [size=" + size() + ", maximumSize=" + getMaximumSize()
+				+ ", hitCount=" + getHitCount() + ", missCount=" + getMissCount()
+				+ ", evictionCount=" + getEvictionCount() + ", revalidationCount=" + getRevalidationCount() + "]";
+	}
+
+	/**
+	 * Returns the live entry of the access token, discarding it if it has expired.
+	 * Callers hold the lock on entries.
+	 */
+	private CacheEntry getEntry(String accessToken) {
+
+		if ( accessToken == null ) {
+			return null;
+		}
+
+		CacheEntry entry = entries.get(accessToken);
+		if ( entry != null && entry.isExpired(System.currentTimeMillis()) ) {
+			entries.remove(accessToken);
+			recordEvictions(1);
+			entry = null;
+		}
+		return entry;
+	}
+
+	/**
+	 * Returns the live entry of the token, creating it if needed. The entry 
+	 * lives until the token expires or, when its expires_in is not known, 
+	 * for the time to live, see {@link TokenLifetime}.
+	 * Callers hold the lock on entries.
+	 */
+	private CacheEntry putEntry(Token token) {
+
+		if ( token == null || token.getAccess_token() == null ) {
+			return null;
+		}
+
+		CacheEntry entry = getEntry(token.getAccess_token());
+		if ( entry == null ) {
+			entry = new CacheEntry(TokenLifetime.expiresAt(token, getTimeToLive()));
+			entries.put(token.getAccess_token(), entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * Returns the response of the access token stored on disk, keeping it 
+	 * in memory again if it is fresh or can be revalidated
+	 */
+	private CachedValue<String> loadResponse(String accessToken) {
+
+		UserInfoDiskCache.DiskEntry<String> diskEntry = 
+				diskCache != null ? diskCache.getResponse(accessToken) : null;
+		if ( diskEntry == null ) {
+			return null;
+		}
+
+		CachedValue<String> cachedValue = diskEntry.getCachedValue();
+		synchronized (entries) {
+			CacheEntry entry = loadEntry(accessToken, diskEntry.getExpiresAt());
+			if ( entry.response == null ) {
+				entry.response = cachedValue;
+			}
+		}
+		return cachedValue;
+	}
+
+	/**
+	 * Returns the {@link UserInfo} of the access token stored on disk, keeping 
+	 * it in memory again if it is fresh or can be revalidated
+	 */
+	private CachedValue<UserInfo> loadUserInfo(String accessToken) {
+
+		UserInfoDiskCache.DiskEntry<UserInfo> diskEntry = 
+				diskCache != null ? diskCache.getUserInfo(accessToken) : null;
+		if ( diskEntry == null ) {
+			return null;
+		}
+
+		CachedValue<UserInfo> cachedValue = diskEntry.getCachedValue();
+		synchronized (entries) {
+			CacheEntry entry = loadEntry(accessToken, diskEntry.getExpiresAt());
+			if ( entry.userInfo == null ) {
+				entry.userInfo = cachedValue;
+			}
+		}
+		return cachedValue;
+	}
+
+	/**
+	 * Returns the entry of the access token, creating it with the expiry of 
+	 * the entry it was stored on disk with.
+	 * Callers hold the lock on entries.
+	 */
+	private CacheEntry loadEntry(String accessToken, long expiresAt) {
+
+		CacheEntry entry = entries.get(accessToken);
+		if ( entry == null ) {
+			entry = new CacheEntry(expiresAt);
+			entries.put(accessToken, entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * Cached values of one access token
+	 */
+	private static class CacheEntry {
+
+		private final long expiresAt;
+		private CachedValue<String> response;
+		private CachedValue<UserInfo> userInfo;
+
+		CacheEntry(long expiresAt) {
+			this.expiresAt = expiresAt;
+		}
+
+		/**
+		 * An entry also expires once none of its values is fresh or can 
+		 * be revalidated
+		 */
+		boolean isExpired(long now) {
+			return now >= expiresAt || (!isKept(response, now) && !isKept(userInfo, now));
+		}
+
+		private static boolean isKept(CachedValue<?> cachedValue, long now) {
+			return cachedValue != null && (cachedValue.isFresh(now) || cachedValue.hasValidators());
+		}
+
+		/**
+		 * Returns until when the value is fresh, 0 if it is not fresh or a 
+		 * reloaded value would not be fresh for longer
+		 */
+		long refreshableUntil(CachedValue<?> cachedValue, long now) {
+			
+			if ( cachedValue == null || !cachedValue.isFresh(now) || cachedValue.getFreshUntil() >= expiresAt ) {
+				return 0L;
+			}
+			return cachedValue.getFreshUntil();
+		}
+
+		/**
+		 * Returns a value fresh for the time to live, but not past the 
+		 * expiry of the entry
+		 */
+		<V> CachedValue<V> newValue(V value, String etag, String lastModified, long timeToLive) {
+			
+			long now = System.currentTimeMillis();
+			return new CachedValue<V>(value, etag, lastModified, Math.min(now + timeToLive, expiresAt));
+		}
+	}
+
+}
@@ -0,0 +1,1007 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.adp.marketplace.product.userinfo.core.AbstractUserInfoCache.CachedValue;
+import com.adp.marketplace.product.userinfo.utils.ExecutorUtils;
+import com.adp.marketplace.product.userinfo.vo.UserInfo;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+
+/**
+ * <p>
+ * UserInfoDiskCache is the persistent tier of {@link UserInfoCache}. Entries 
+ * are appended to a memory-mapped file, so a restarted JVM warms its cache 
+ * from local disk instead of calling User Info API again.
+ * <p>
+ * Entries hold personal data and are encrypted at rest with AES/GCM under 
+ * the supplied key. Entries are keyed by an HMAC of the access token, the 
+ * token itself is never written. The expiry of an entry is kept next to it, 
+ * authenticated but not encrypted, so expired entries are skipped without 
+ * being decrypted.
+ * <p>
+ * Updates and removals are appended, the file is compacted to its live 
+ * entries when it is full. A compaction has to free at least a quarter of 
+ * the file, when too few entries are dead or expired the entries expiring 
+ * soonest are evicted to make up the rest, so a file full of live entries 
+ * is not compacted on every write. Compaction writes a new file and 
+ * renames it over the old one, so a crash leaves either of them intact. A file written with 
+ * another key is not readable, its entries are misses and are discarded by 
+ * the next compaction.
+ * <p>
+ * {@link UserInfoCache} hands its updates over to a background writer on 
+ * the refresh executor of {@link ExecutorUtils}, so encrypting, appending 
+ * and compacting never run on the thread of a User Info call. Updates are 
+ * written in the order they were handed over. Stored values of an access 
+ * token with an invalidation not yet written are misses. The removal of an 
+ * entry is written to the file before the entry is dropped, if it cannot be 
+ * written the file is marked invalid so it is cleared when it is reopened.
+ * <p>
+ * A file is used by one UserInfoDiskCache at a time, it is locked while open.
+ *
+ * @author tallaprs
+ *
+ */
+public class UserInfoDiskCache implements Closeable {
+
+	public static final int DEFAULT_MAXIMUM_FILE_SIZE = 64 * 1024 * 1024;
+	public static final int MINIMUM_FILE_SIZE = 64 * 1024;
+
+	private static final Logger LOGGER = Logger.getLogger(UserInfoDiskCache.class.getName());
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final int MAGIC = 0x55494443;
+	private static final int VERSION = 1;
+	private static final int FILE_HEADER_SIZE = 8;
+
+	// a compaction frees at least 1/COMPACTION_FREE_DIVISOR of the file
+	private static final int COMPACTION_FREE_DIVISOR = 4;
+
+	/**
+	 * values waiting for the background writer, further ones are only cached in memory
+	 */
+	public static final int MAXIMUM_PENDING_WRITES = 1024;
+
+	private static final byte RESPONSE = 1;
+	private static final byte USER_INFO = 2;
+	private static final byte REMOVED = 3;
+
+	private static final int KEY_SIZE = 32;
+	private static final int IV_SIZE = 12;
+	private static final int TAG_BITS = 128;
+
+	// record: length, then kind, key, expiresAt and freshUntil which are 
+	// authenticated, then iv and the encrypted etag, lastModified and value
+	private static final int EXPIRES_AT_OFFSET = 4 + 1 + KEY_SIZE;
+	private static final int METADATA_SIZE = 1 + KEY_SIZE + 8 + 8;
+
+	private final File file;
+	private final int maximumFileSize;
+	private final SecretKey key;
+
+	private final Cipher cipher;
+	private final Mac mac;
+	private final SecureRandom secureRandom = new SecureRandom();
+	private final Gson gson = new Gson();
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong compactionCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+	private final AtomicLong droppedWriteCount = new AtomicLong();
+
+	// updates waiting for the background writer, in the order they were handed over
+	private final Queue<Runnable> pendingWrites = new ConcurrentLinkedQueue<Runnable>();
+	private final AtomicInteger pendingWriteCount = new AtomicInteger();
+	private final AtomicBoolean writerScheduled = new AtomicBoolean();
+
+	// access tokens with an invalidation waiting for the background writer
+	private final Map<String, Integer> pendingInvalidations = new HashMap<String, Integer>();
+
+	// offset of the live record of each kind and key
+	private final Map<String, Integer> index = new HashMap<String, Integer>();
+
+	private FileChannel channel;
+	private FileLock lock;
+	private MappedByteBuffer buffer;
+	private int writePosition;
+	private boolean closed;
+
+	/**
+	 * constructor with the default maximum file size
+	 *
+	 * @param file	cache file, created if it does not exist
+	 * @param key	AES key the entries are encrypted with
+	 * @throws IOException	in case the file cannot be opened or is in use
+	 */
+	public UserInfoDiskCache(File file, SecretKey key) throws IOException {
+		this(file, key, DEFAULT_MAXIMUM_FILE_SIZE);
+	}
+
+	/**
+	 * constructor
+	 *
+	 * @param file				cache file, created if it does not exist
+	 * @param key				AES key the entries are encrypted with
+	 * @param maximumFileSize	size in bytes the file is mapped with
+	 * @throws IOException	in case the file cannot be opened or is in use
+	 */
+	public UserInfoDiskCache(File file, SecretKey key, int maximumFileSize) throws IOException {
+
+		if ( file == null ) {
+			throw new IllegalArgumentException("file must not be null");
+		}
+		if ( key == null || !"AES".equalsIgnoreCase(key.getAlgorithm()) || key.getEncoded() == null ) {
+			throw new IllegalArgumentException("key must be an AES key");
+		}
+		if ( maximumFileSize < MINIMUM_FILE_SIZE ) {
+			throw new IllegalArgumentException("maximumFileSize must be at least " + MINIMUM_FILE_SIZE);
+		}
+
+		this.file = file;
+		this.key = key;
+		this.maximumFileSize = maximumFileSize;
+
+		try {
+			this.cipher = Cipher.getInstance("AES/GCM/NoPadding");
+			this.cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, newIV()));
+
+			// the index key is derived from the encryption key, so no key is used by two algorithms
+			Mac derivation = Mac.getInstance("HmacSHA256");
+			derivation.init(new SecretKeySpec(key.getEncoded(), "HmacSHA256"));
+
+			this.mac = Mac.getInstance("HmacSHA256");
+			this.mac.init(new SecretKeySpec(derivation.doFinal("userinfo-cache-index".getBytes(UTF_8)), "HmacSHA256"));
+		} catch (GeneralSecurityException e) {
+			throw new IllegalArgumentException("key cannot be used to encrypt the cache", e);
+		}
+
+		open();
+	}
+
+	/**
+	 * Returns the stored User Info API response of the access token
+	 *
+	 * @param accessToken	access token of the connection
+	 * @return DiskEntry	stored response or null
+	 */
+	synchronized DiskEntry<String> getResponse(String accessToken) {
+		return read(RESPONSE, accessToken);
+	}
+
+	/**
+	 * Returns the stored {@link UserInfo} of the access token
+	 *
+	 * @param accessToken	access token of the connection
+	 * @return DiskEntry	stored user info or null
+	 */
+	synchronized DiskEntry<UserInfo> getUserInfo(String accessToken) {
+
+		DiskEntry<String> diskEntry = read(USER_INFO, accessToken);
+		if ( diskEntry == null ) {
+			return null;
+		}
+
+		CachedValue<String> json = diskEntry.getCachedValue();
+		try {
+			UserInfo userInfo = gson.fromJson(json.getValue(), UserInfo.class);
+			return new DiskEntry<UserInfo>(new CachedValue<UserInfo>(userInfo, json.getEtag(), 
+					json.getLastModified(), diskEntry.freshUntil), diskEntry.expiresAt);
+		} catch (JsonParseException e) {
+			LOGGER.log(Level.WARNING, "Discarding unreadable user info in " + file, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the User Info API response of the access token
+	 *
+	 * @param accessToken	access token of the connection
+	 * @param cachedValue	response with its validators and freshness
+	 * @param expiresAt		time in milliseconds the entry expires at
+	 */
+	void putResponse(String accessToken, CachedValue<String> cachedValue, long expiresAt) {
+
+		flush();
+		synchronized (this) {
+			write(RESPONSE, accessToken, cachedValue.getValue(), cachedValue, expiresAt);
+		}
+	}
+
+	/**
+	 * Stores the {@link UserInfo} of the access token
+	 *
+	 * @param accessToken	access token of the connection
+	 * @param cachedValue	user info with its validators and freshness
+	 * @param expiresAt		time in milliseconds the entry expires at
+	 */
+	void putUserInfo(String accessToken, CachedValue<UserInfo> cachedValue, long expiresAt) {
+
+		flush();
+		synchronized (this) {
+			write(USER_INFO, accessToken, gson.toJson(cachedValue.getValue()), cachedValue, expiresAt);
+		}
+	}
+
+	/**
+	 * Hands the User Info API response of the access token over to the 
+	 * background writer, it is dropped if too many values are waiting
+	 *
+	 * @param accessToken	access token of the connection
+	 * @param cachedValue	response with its validators and freshness
+	 * @param expiresAt		time in milliseconds the entry expires at
+	 */
+	void putResponseInBackground(final String accessToken, final CachedValue<String> cachedValue, 
+			final long expiresAt) {
+
+		if ( accessToken == null || !reservePendingWrite() ) {
+			return;
+		}
+
+		enqueue(new Runnable() {
+			public void run() {
+				pendingWriteCount.decrementAndGet();
+				synchronized (UserInfoDiskCache.this) {
+					write(RESPONSE, accessToken, cachedValue.getValue(), cachedValue, expiresAt);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Hands the {@link UserInfo} of the access token over to the background 
+	 * writer, it is dropped if too many values are waiting
+	 *
+	 * @param accessToken	access token of the connection
+	 * @param cachedValue	user info with its validators and freshness
+	 * @param expiresAt		time in milliseconds the entry expires at
+	 */
+	void putUserInfoInBackground(final String accessToken, final CachedValue<UserInfo> cachedValue, 
+			final long expiresAt) {
+
+		if ( accessToken == null || !reservePendingWrite() ) {
+			return;
+		}
+
+		enqueue(new Runnable() {
+			public void run() {
+				pendingWriteCount.decrementAndGet();
+				String json = gson.toJson(cachedValue.getValue());
+				synchronized (UserInfoDiskCache.this) {
+					write(USER_INFO, accessToken, json, cachedValue, expiresAt);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Hands the invalidation of the access token over to the background 
+	 * writer. Its stored values are misses from now on.
+	 *
+	 * @param accessToken access token of the connection
+	 */
+	void invalidateInBackground(final String accessToken) {
+
+		if ( accessToken == null ) {
+			return;
+		}
+
+		synchronized (pendingInvalidations) {
+			Integer pending = pendingInvalidations.get(accessToken);
+			pendingInvalidations.put(accessToken, pending == null ? 1 : pending + 1);
+		}
+
+		// never dropped, a dropped invalidation would bring the values back
+		enqueue(new Runnable() {
+			public void run() {
+				try {
+					synchronized (UserInfoDiskCache.this) {
+						remove(accessToken);
+					}
+				} finally {
+					synchronized (pendingInvalidations) {
+						int pending = pendingInvalidations.get(accessToken);
+						if ( pending > 1 ) {
+							pendingInvalidations.put(accessToken, pending - 1);
+						} else {
+							pendingInvalidations.remove(accessToken);
+						}
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Discards the stored values of the access token
+	 *
+	 * @param accessToken access token of the connection
+	 */
+	public void invalidate(String accessToken) {
+
+		flush();
+		synchronized (this) {
+			remove(accessToken);
+		}
+	}
+
+	/**
+	 * Discards all stored values
+	 */
+	public void invalidateAll() {
+
+		flush();
+		synchronized (this) {
+			if ( closed ) {
+				return;
+			}
+
+			index.clear();
+			// zeroing from the front, the first record is gone first
+			zero(FILE_HEADER_SIZE, writePosition);
+			writePosition = FILE_HEADER_SIZE;
+		}
+	}
+
+	/**
+	 * Writes the updates waiting for the background writer on the calling 
+	 * thread
+	 */
+	public void flush() {
+
+		// one thread at a time, so updates are written in order
+		synchronized (pendingWrites) {
+			Runnable pendingWrite;
+			while ( (pendingWrite = pendingWrites.poll()) != null ) {
+				try {
+					pendingWrite.run();
+				} catch (RuntimeException e) {
+					LOGGER.log(Level.WARNING, "Cannot write User Info disk cache update", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Rewrites the file with its live entries only. Runs when the file is 
+	 * full, it can also be run when the cache is idle.
+	 *
+	 * @throws IOException	in case the compacted file cannot be written
+	 */
+	public synchronized void compact() throws IOException {
+
+		if ( closed ) {
+			return;
+		}
+
+		long now = System.currentTimeMillis();
+		File compactFile = new File(file.getPath() + ".compact");
+		FileChannel compactChannel = FileChannel.open(compactFile.toPath(), StandardOpenOption.CREATE, 
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		try {
+			FileLock compactLock = compactChannel.lock();
+			MappedByteBuffer compactBuffer = compactChannel.map(FileChannel.MapMode.READ_WRITE, 0, buffer.capacity());
+			compactBuffer.putInt(0, MAGIC);
+			compactBuffer.putInt(4, VERSION);
+
+			Map<String, Integer> compactIndex = new HashMap<String, Integer>();
+			int position = FILE_HEADER_SIZE;
+
+			for ( Map.Entry<String, Integer> entry : index.entrySet() ) {
+
+				int offset = entry.getValue();
+				if ( buffer.getLong(offset + EXPIRES_AT_OFFSET) <= now ) {
+					continue;
+				}
+
+				int size = 4 + buffer.getInt(offset);
+				ByteBuffer record = buffer.duplicate();
+				record.limit(offset + size);
+				record.position(offset);
+
+				ByteBuffer target = compactBuffer.duplicate();
+				target.position(position);
+				target.put(record);
+
+				compactIndex.put(entry.getKey(), position);
+				position += size;
+			}
+
+			compactBuffer.force();
+			Files.move(compactFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, 
+					StandardCopyOption.ATOMIC_MOVE);
+
+			// the old mapping is released once it is garbage collected
+			closeChannel();
+
+			channel = compactChannel;
+			lock = compactLock;
+			buffer = compactBuffer;
+			writePosition = position;
+			index.clear();
+			index.putAll(compactIndex);
+			compactionCount.incrementAndGet();
+
+		} catch (IOException e) {
+			compactChannel.close();
+			compactFile.delete();
+			throw e;
+		}
+	}
+
+	/**
+	 * Writes the pending updates and the entries to disk and closes the file
+	 */
+	public void close() throws IOException {
+
+		flush();
+		synchronized (this) {
+			if ( closed ) {
+				return;
+			}
+
+			closed = true;
+			index.clear();
+			buffer.force();
+			closeChannel();
+		}
+	}
+
+	/**
+	 * @return number of live entries, a response and a user info of the same token count twice
+	 */
+	public synchronized int size() {
+		return index.size();
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * @return number of times the file was rewritten with its live entries
+	 */
+	public long getCompactionCount() {
+		return compactionCount.get();
+	}
+
+	/**
+	 * @return number of live entries evicted to make room
+	 */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	/**
+	 * @return number of values only cached in memory because too many were 
+	 * 		   waiting for the background writer
+	 */
+	public long getDroppedWriteCount() {
+		return droppedWriteCount.get();
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public int getMaximumFileSize() {
+		return maximumFileSize;
+	}
+
+	@Override
+	public String toString() {
+		return "UserInfoDiskCache [file=" + file + ", size=" + size() + ", hitCount=" + hitCount 
+				+ ", missCount=" + missCount + ", compactionCount=" + compactionCount 
+				+ ", evictionCount=" + evictionCount + ", droppedWriteCount=" + droppedWriteCount + "]";
+	}
+
+	/**
+	 * Opens, locks and maps the file and indexes its records. A file that 
+	 * is not a cache file is cleared.
+	 */
+	private void open() throws IOException {
+
+		File parent = file.getAbsoluteFile().getParentFile();
+		if ( parent != null && !parent.isDirectory() && !parent.mkdirs() ) {
+			throw new IOException("Cannot create directory " + parent);
+		}
+
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, 
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		try {
+			lock = channel.tryLock();
+		} catch (OverlappingFileLockException e) {
+			lock = null;
+		}
+
+		if ( lock == null ) {
+			channel.close();
+			throw new IOException("User Info disk cache " + file + " is in use");
+		}
+
+		try {
+			long size = channel.size();
+			int capacity = (int) Math.max(maximumFileSize, Math.min(size, Integer.MAX_VALUE));
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+
+			if ( size >= FILE_HEADER_SIZE && buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION ) {
+				load();
+			} else {
+				if ( size > 0 ) {
+					LOGGER.warning("Clearing " + file + ", it is not a User Info disk cache file");
+					zero(0, capacity);
+				}
+				buffer.putInt(0, MAGIC);
+				buffer.putInt(4, VERSION);
+				writePosition = FILE_HEADER_SIZE;
+			}
+		} catch (IOException e) {
+			closeChannel();
+			throw e;
+		}
+	}
+
+	/**
+	 * Indexes the records of the file, later records replace earlier ones. 
+	 * Scanning stops at the end of the log or at a torn record, which is 
+	 * cleared so it is not read again.
+	 */
+	private void load() {
+
+		long now = System.currentTimeMillis();
+		int capacity = buffer.capacity();
+		int position = FILE_HEADER_SIZE;
+		byte[] tokenKey = new byte[KEY_SIZE];
+
+		while ( position + 4 <= capacity ) {
+
+			int length = buffer.getInt(position);
+			if ( length == 0 ) {
+				break;
+			}
+
+			byte kind = length >= METADATA_SIZE && length <= capacity - position - 4 ? 
+					buffer.get(position + 4) : 0;
+
+			if ( kind != RESPONSE && kind != USER_INFO && kind != REMOVED ) {
+				LOGGER.warning("Discarding torn records of " + file + " from offset " + position);
+				zero(position, capacity);
+				break;
+			}
+
+			ByteBuffer source = buffer.duplicate();
+			source.position(position + 5);
+			source.get(tokenKey);
+
+			if ( kind == REMOVED ) {
+				index.remove(indexKey(RESPONSE, tokenKey));
+				index.remove(indexKey(USER_INFO, tokenKey));
+			} else if ( buffer.getLong(position + EXPIRES_AT_OFFSET) > now ) {
+				index.put(indexKey(kind, tokenKey), position);
+			} else {
+				index.remove(indexKey(kind, tokenKey));
+			}
+
+			position += 4 + length;
+		}
+
+		writePosition = position;
+	}
+
+	/**
+	 * Returns the decrypted record of the kind and access token. A record 
+	 * that does not decrypt is dropped from the index.
+	 */
+	private DiskEntry<String> read(byte kind, String accessToken) {
+
+		if ( closed || accessToken == null ) {
+			return null;
+		}
+
+		synchronized (pendingInvalidations) {
+			if ( pendingInvalidations.containsKey(accessToken) ) {
+				missCount.incrementAndGet();
+				return null;
+			}
+		}
+
+		String indexKey = indexKey(kind, hash(accessToken));
+		Integer position = index.get(indexKey);
+
+		if ( position == null ) {
+			missCount.incrementAndGet();
+			return null;
+		}
+
+		long expiresAt = buffer.getLong(position + EXPIRES_AT_OFFSET);
+		long freshUntil = buffer.getLong(position + EXPIRES_AT_OFFSET + 8);
+
+		if ( expiresAt <= System.currentTimeMillis() ) {
+			index.remove(indexKey);
+			missCount.incrementAndGet();
+			return null;
+		}
+
+		byte[] record = new byte[buffer.getInt(position)];
+		ByteBuffer source = buffer.duplicate();
+		source.position(position + 4);
+		source.get(record);
+
+		try {
+			cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, record, METADATA_SIZE, IV_SIZE));
+			cipher.updateAAD(record, 0, METADATA_SIZE);
+			byte[] plaintext = cipher.doFinal(record, METADATA_SIZE + IV_SIZE, record.length - METADATA_SIZE - IV_SIZE);
+
+			DataInputStream input = new DataInputStream(new ByteArrayInputStream(plaintext));
+			String etag = readString(input);
+			String lastModified = readString(input);
+			String value = readString(input);
+
+			hitCount.incrementAndGet();
+			return new DiskEntry<String>(new CachedValue<String>(value, etag, lastModified, freshUntil), expiresAt);
+
+		} catch (GeneralSecurityException e) {
+			LOGGER.log(Level.FINE, "Discarding record of " + file + " that does not decrypt", e);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Discarding unreadable record of " + file, e);
+		}
+
+		index.remove(indexKey);
+		missCount.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Encrypts and appends a record, compacting the file when it is full. 
+	 * The record is dropped if it does not fit or cannot be written, the 
+	 * value is still cached in memory.
+	 */
+	private void write(byte kind, String accessToken, String value, CachedValue<?> cachedValue, long expiresAt) {
+
+		if ( closed || accessToken == null || value == null ) {
+			return;
+		}
+
+		byte[] tokenKey = hash(accessToken);
+
+		try {
+			ByteArrayOutputStream plaintext = new ByteArrayOutputStream(value.length() + 64);
+			DataOutputStream output = new DataOutputStream(plaintext);
+			writeString(output, cachedValue.getEtag());
+			writeString(output, cachedValue.getLastModified());
+			writeString(output, value);
+			output.flush();
+
+			byte[] iv = newIV();
+			ByteBuffer metadata = metadata(kind, tokenKey, expiresAt, cachedValue.getFreshUntil());
+
+			cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+			cipher.updateAAD(metadata.array());
+			byte[] ciphertext = cipher.doFinal(plaintext.toByteArray());
+
+			int length = METADATA_SIZE + IV_SIZE + ciphertext.length;
+			if ( !reserve(4 + length) ) {
+				return;
+			}
+
+			// the length is written last, a torn record ends the log
+			ByteBuffer target = buffer.duplicate();
+			target.position(writePosition + 4);
+			target.put(metadata.array());
+			target.put(iv);
+			target.put(ciphertext);
+			buffer.putInt(writePosition, length);
+
+			index.put(indexKey(kind, tokenKey), writePosition);
+			writePosition += 4 + length;
+
+		} catch (GeneralSecurityException e) {
+			LOGGER.log(Level.WARNING, "Cannot encrypt User Info disk cache record", e);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Cannot write User Info disk cache record", e);
+		}
+	}
+
+	/**
+	 * Drops the stored values of the access token. The removal is written 
+	 * first, so a restart does not bring them back, and the file is marked 
+	 * invalid if it cannot be.
+	 */
+	private void remove(String accessToken) {
+
+		if ( closed || accessToken == null ) {
+			return;
+		}
+
+		byte[] tokenKey = hash(accessToken);
+		String responseKey = indexKey(RESPONSE, tokenKey);
+		String userInfoKey = indexKey(USER_INFO, tokenKey);
+
+		if ( !index.containsKey(responseKey) && !index.containsKey(userInfoKey) ) {
+			return;
+		}
+
+		if ( reserve(4 + METADATA_SIZE) ) {
+			ByteBuffer target = buffer.duplicate();
+			target.position(writePosition + 4);
+			target.put(metadata(REMOVED, tokenKey, 0L, 0L).array());
+			buffer.putInt(writePosition, METADATA_SIZE);
+			writePosition += 4 + METADATA_SIZE;
+		} else {
+			// a compaction writes a valid file again
+			LOGGER.warning("Cannot write a removal to " + file + ", it is cleared when reopened");
+			buffer.putInt(0, 0);
+			buffer.force();
+		}
+
+		index.remove(responseKey);
+		index.remove(userInfoKey);
+	}
+
+	/**
+	 * @return true if another value may wait for the background writer
+	 */
+	private boolean reservePendingWrite() {
+
+		if ( pendingWriteCount.incrementAndGet() > MAXIMUM_PENDING_WRITES ) {
+			pendingWriteCount.decrementAndGet();
+			droppedWriteCount.incrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	private void enqueue(Runnable pendingWrite) {
+
+		pendingWrites.add(pendingWrite);
+		scheduleWriter();
+	}
+
+	/**
+	 * Starts the background writer unless it is running. Updates rejected by 
+	 * the executor are written by a later one or when the cache is closed.
+	 */
+	private void scheduleWriter() {
+
+		if ( !writerScheduled.compareAndSet(false, true) ) {
+			return;
+		}
+
+		try {
+			ExecutorUtils.getInstance().getRefreshExecutor().execute(new Runnable() {
+				public void run() {
+					try {
+						flush();
+					} finally {
+						writerScheduled.set(false);
+					}
+					// handed over while the writer was finishing
+					if ( !pendingWrites.isEmpty() ) {
+						scheduleWriter();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			writerScheduled.set(false);
+		}
+	}
+
+	/**
+	 * Returns true if size bytes can be appended, compacting the file if 
+	 * needed. Entries expiring soonest are evicted first when compacting 
+	 * would not free enough of the file.
+	 */
+	private boolean reserve(int size) {
+
+		if ( writePosition + size <= buffer.capacity() ) {
+			return true;
+		}
+		if ( size > buffer.capacity() - FILE_HEADER_SIZE ) {
+			return false;
+		}
+
+		int capacity = buffer.capacity();
+		evict(Math.min(capacity - FILE_HEADER_SIZE - size, capacity - capacity / COMPACTION_FREE_DIVISOR));
+
+		try {
+			compact();
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Cannot compact " + file, e);
+			return false;
+		}
+		return writePosition + size <= buffer.capacity();
+	}
+
+	/**
+	 * Drops the entries expiring soonest from the index until its unexpired 
+	 * records take at most maximumLiveBytes. Compaction then leaves them out.
+	 */
+	private void evict(int maximumLiveBytes) {
+
+		final long now = System.currentTimeMillis();
+		final Map<String, Long> expiries = new HashMap<String, Long>();
+		long liveBytes = 0;
+
+		for ( Map.Entry<String, Integer> entry : index.entrySet() ) {
+			long expiresAt = buffer.getLong(entry.getValue() + EXPIRES_AT_OFFSET);
+			if ( expiresAt > now ) {
+				expiries.put(entry.getKey(), expiresAt);
+				liveBytes += 4 + buffer.getInt(entry.getValue());
+			}
+		}
+
+		if ( liveBytes <= maximumLiveBytes ) {
+			return;
+		}
+
+		List<String> keys = new ArrayList<String>(expiries.keySet());
+		Collections.sort(keys, new Comparator<String>() {
+			public int compare(String key1, String key2) {
+				return expiries.get(key1).compareTo(expiries.get(key2));
+			}
+		});
+
+		for ( String indexKey : keys ) {
+			if ( liveBytes <= maximumLiveBytes ) {
+				break;
+			}
+			liveBytes -= 4 + buffer.getInt(index.remove(indexKey));
+			evictionCount.incrementAndGet();
+		}
+	}
+
+	private static ByteBuffer metadata(byte kind, byte[] tokenKey, long expiresAt, long freshUntil) {
+
+		ByteBuffer metadata = ByteBuffer.allocate(METADATA_SIZE);
+		metadata.put(kind).put(tokenKey).putLong(expiresAt).putLong(freshUntil);
+		return metadata;
+	}
+
+	private byte[] newIV() {
+
+		byte[] iv = new byte[IV_SIZE];
+		secureRandom.nextBytes(iv);
+		return iv;
+	}
+
+	private byte[] hash(String accessToken) {
+		return mac.doFinal(accessToken.getBytes(UTF_8));
+	}
+
+	private static String indexKey(byte kind, byte[] tokenKey) {
+		return kind + Base64.getEncoder().encodeToString(tokenKey);
+	}
+
+	private void zero(int from, int to) {
+
+		byte[] zeros = new byte[8192];
+		ByteBuffer target = buffer.duplicate();
+		target.position(from);
+
+		while ( target.position() < to ) {
+			target.put(zeros, 0, Math.min(zeros.length, to - target.position()));
+		}
+	}
+
+	private void closeChannel() throws IOException {
+
+		try {
+			if ( lock != null && lock.isValid() ) {
+				lock.release();
+			}
+		} finally {
+			channel.close();
+		}
+	}
+
+	private static void writeString(DataOutputStream output, String value) throws IOException {
+
+		if ( value == null ) {
+			output.writeInt(-1);
+		} else {
+			byte[] bytes = value.getBytes(UTF_8);
+			output.writeInt(bytes.length);
+			output.write(bytes);
+		}
+	}
+
+	private static String readString(DataInputStream input) throws IOException {
+
+		int length = input.readInt();
+		if ( length < 0 ) {
+			return null;
+		}
+
+		byte[] bytes = new byte[length];
+		input.readFully(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	/**
+	 * A stored value with the time its entry expires at
+	 */
+	static final class DiskEntry<V> {
+
+		private final CachedValue<V> cachedValue;
+		private final long freshUntil;
+		private final long expiresAt;
+
+		DiskEntry(CachedValue<V> cachedValue, long expiresAt) {
+			this.cachedValue = cachedValue;
+			this.freshUntil = cachedValue.getFreshUntil();
+			this.expiresAt = expiresAt;
+		}
+
+		CachedValue<V> getCachedValue() {
+			return cachedValue;
+		}
+
+		long getExpiresAt() {
+			return expiresAt;
+		}
+	}
+
+}
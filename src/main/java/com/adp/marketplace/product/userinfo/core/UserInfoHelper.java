@@ -17,19 +17,60 @@
 */
 package com.adp.marketplace.product.userinfo.core;
 
-import java.io.BufferedReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.URI;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
-import java.util.List;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.apache.http.NameValuePair;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.StatusLine;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.Cancellable;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.message.BasicHeader;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
 
 import com.adp.marketplace.connection.configuration.AuthorizationCodeConfiguration;
 import com.adp.marketplace.connection.constants.Constants;
@@ -37,9 +78,25 @@ import com.adp.marketplace.connection.core.ADPAPIConnection;
 import com.adp.marketplace.connection.core.AuthorizationCodeConnection;
 import com.adp.marketplace.connection.core.ClientCredentialsConnection;
 import com.adp.marketplace.connection.exception.ConnectionException;
-import com.adp.marketplace.connection.utils.SSLUtils;
+import com.adp.marketplace.connection.vo.Token;
+import com.adp.marketplace.product.userinfo.configuration.UserInfoConfiguration;
+import com.adp.marketplace.product.userinfo.configuration.UserInfoTransport;
+import com.adp.marketplace.product.userinfo.core.AbstractUserInfoCache.CachedValue;
 import com.adp.marketplace.product.userinfo.exception.APIException;
+import com.adp.marketplace.product.userinfo.metrics.UserInfoCallEvent;
+import com.adp.marketplace.product.userinfo.metrics.UserInfoMetricsListener;
+import com.adp.marketplace.product.userinfo.metrics.UserInfoPhase;
+import com.adp.marketplace.product.userinfo.utils.AsyncHttpClientUtils;
+import com.adp.marketplace.product.userinfo.utils.ExecutorUtils;
+import com.adp.marketplace.product.userinfo.utils.HttpClientUtils;
+import com.adp.marketplace.product.userinfo.utils.RequestTemplate;
+import com.adp.marketplace.product.userinfo.utils.ResponseUtils;
 import com.adp.marketplace.product.userinfo.utils.UserInfoUtils;
+import com.adp.marketplace.product.userinfo.vo.UserInfo;
+import com.adp.marketplace.product.userinfo.vo.UserInfoBatchResult;
+import com.adp.marketplace.product.userinfo.vo.UserInfoField;
+import com.adp.marketplace.product.userinfo.vo.UserInfoResult;
+import com.adp.marketplace.product.userinfo.vo.UserInfoResult.Category;
 
 
 /**
@@ -55,156 +112,2309 @@ public class UserInfoHelper  {
 	
 	private String response;
 	private ADPAPIConnection connection;
+	private UserInfoConfiguration userInfoConfiguration;
+	private RequestCoalescer requestCoalescer;
+	
+	// calls are only shared by helpers of the same configuration, they use its 
+	// cache, limits and transport
+	private static final Map<UserInfoConfiguration, RequestCoalescer> REQUEST_COALESCERS = 
+			Collections.synchronizedMap(new WeakHashMap<UserInfoConfiguration, RequestCoalescer>());
+	
+	// keys of the cached values being refreshed ahead of expiry
+	private static final Set<String> REFRESHING = ConcurrentHashMap.<String>newKeySet();
+	
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	// request headers are immutable, every request shares the same instances
+	private static final Header USER_AGENT_HEADER = new BasicHeader(HttpHeaders.USER_AGENT, Constants.USERINFO_USER_AGENT);
+	private static final Header ACCEPT_ENCODING_HEADER = new BasicHeader(HttpHeaders.ACCEPT_ENCODING, ResponseUtils.ACCEPT_ENCODING);
+	
+	/**
+	 * Turns a User Info API response into the result of a call and 
+	 * moves that result in and out of the cache
+	 */
+	private static abstract class ResponseProcessor<T> {
+		
+		private final String name;
+		
+		ResponseProcessor(String name) {
+			this.name = name;
+		}
+		
+		/**
+		 * Identifies the results of the processor, calls of processors with 
+		 * the same key are coalesced
+		 */
+		String key() {
+			return name;
+		}
+		
+		/**
+		 * False when the result is written to a caller sink, calls of such 
+		 * processors are neither coalesced nor hedged
+		 */
+		boolean isRepeatable() {
+			return true;
+		}
+		
+		/**
+		 * Returns the processor whose cached results serve this one, they 
+		 * are the ones refreshed ahead of expiry; null if there are none
+		 */
+		ResponseProcessor<?> cachedBy() {
+			return null;
+		}
+		
+		/**
+		 * Returns until when the cached result of the processor is fresh, 
+		 * 0 if it is not cached or cannot be refreshed
+		 */
+		long freshUntil(AbstractUserInfoCache userInfoCache, String accessToken) {
+			return 0L;
+		}
+		
+		/**
+		 * Adds headers of the processor to the request of every attempt
+		 */
+		void prepare(HttpRequest request) {
+		}
+		
+		/**
+		 * Returns a copy of a mutable result for a caller sharing a 
+		 * coalesced call, the result itself when it is immutable
+		 */
+		T copy(T result) {
+			return result;
+		}
+		
+		abstract T process(HttpResponse response) throws IOException, APIException;
+		
+		abstract T fromCache(AbstractUserInfoCache userInfoCache, String accessToken) throws APIException;
+		
+		abstract CachedValue<T> revalidatableFromCache(AbstractUserInfoCache userInfoCache, String accessToken);
+		
+		abstract void toCache(AbstractUserInfoCache userInfoCache, Token token, T result, String etag, 
+				String lastModified);
+	}
+	
+	private final ResponseProcessor<String> bodyProcessor = new ResponseProcessor<String>("body") {
+		ResponseProcessor<?> cachedBy() {
+			return this;
+		}
+		long freshUntil(AbstractUserInfoCache userInfoCache, String accessToken) {
+			return userInfoCache.getResponseFreshUntil(accessToken);
+		}
+		String process(HttpResponse response) throws IOException, APIException {
+			return processAPIResponse(response);
+		}
+		String fromCache(AbstractUserInfoCache userInfoCache, String accessToken) {
+			return userInfoCache.getResponse(accessToken);
+		}
+		CachedValue<String> revalidatableFromCache(AbstractUserInfoCache userInfoCache, String accessToken) {
+			return userInfoCache.getRevalidatableResponse(accessToken);
+		}
+		void toCache(AbstractUserInfoCache userInfoCache, Token token, String result, String etag, String lastModified) {
+			userInfoCache.putResponse(token, result, etag, lastModified);
+		}
+	};
+	
+	private final ResponseProcessor<UserInfo> userInfoProcessor = new ResponseProcessor<UserInfo>("userInfo") {
+		ResponseProcessor<?> cachedBy() {
+			return this;
+		}
+		long freshUntil(AbstractUserInfoCache userInfoCache, String accessToken) {
+			return userInfoCache.getUserInfoFreshUntil(accessToken);
+		}
+		UserInfo process(HttpResponse response) throws IOException, APIException {
+			return processUserInfoResponse(response);
+		}
+		UserInfo copy(UserInfo result) {
+			return result != null ? new UserInfo(result) : null;
+		}
+		UserInfo fromCache(AbstractUserInfoCache userInfoCache, String accessToken) {
+			return userInfoCache.getUserInfo(accessToken);
+		}
+		CachedValue<UserInfo> revalidatableFromCache(AbstractUserInfoCache userInfoCache, String accessToken) {
+			return userInfoCache.getRevalidatableUserInfo(accessToken);
+		}
+		void toCache(AbstractUserInfoCache userInfoCache, Token token, UserInfo result, String etag, String lastModified) {
+			userInfoCache.putUserInfo(token, result, etag, lastModified);
+		}
+	};
+	
+	/**
+	 * Turns every response, whatever its status, into a result. Successful 
+	 * bodies share the cache entries of getUserInfo().
+	 */
+	private final ResponseProcessor<UserInfoResult> resultProcessor = new ResponseProcessor<UserInfoResult>("result") {
+		ResponseProcessor<?> cachedBy() {
+			return bodyProcessor;
+		}
+		UserInfoResult process(HttpResponse response) throws IOException, APIException {
+			return processResultResponse(response);
+		}
+		UserInfoResult fromCache(AbstractUserInfoCache userInfoCache, String accessToken) {
+			String response = userInfoCache.getResponse(accessToken);
+			return response != null ? UserInfoResult.forResponse(HttpStatus.SC_OK, response) : null;
+		}
+		CachedValue<UserInfoResult> revalidatableFromCache(AbstractUserInfoCache userInfoCache, String accessToken) {
+			CachedValue<String> cachedValue = userInfoCache.getRevalidatableResponse(accessToken);
+			if ( cachedValue == null ) {
+				return null;
+			}
+			return new CachedValue<UserInfoResult>(UserInfoResult.forResponse(HttpStatus.SC_OK, cachedValue.getValue()), 
+					cachedValue.getEtag(), cachedValue.getLastModified(), cachedValue.getFreshUntil());
+		}
+		void toCache(AbstractUserInfoCache userInfoCache, Token token, UserInfoResult result, String etag, String lastModified) {
+			if ( result != null && result.isSuccess() && result.getBody() != null ) {
+				userInfoCache.putResponse(token, result.getBody(), etag, lastModified);
+			}
+		}
+	};
+	
+	/**
+	 * Parses the requested fields of the response only. Projections are 
+	 * served from a cached UserInfo but are not cached themselves.
+	 */
+	private class ProjectingProcessor extends ResponseProcessor<UserInfo> {
+		
+		private final Set<UserInfoField> fields;
+		
+		ProjectingProcessor(Set<UserInfoField> fields) {
+			super("projection");
+			this.fields = fields;
+		}
+		
+		@Override
+		String key() {
+			return "projection" + fields;
+		}
+		
+		@Override
+		ResponseProcessor<?> cachedBy() {
+			return userInfoProcessor;
+		}
+		
+		UserInfo process(HttpResponse response) throws IOException, APIException {
+			return processUserInfoResponse(response, fields);
+		}
+		
+		@Override
+		UserInfo copy(UserInfo result) {
+			return result != null ? new UserInfo(result) : null;
+		}
+		
+		UserInfo fromCache(AbstractUserInfoCache userInfoCache, String accessToken) {
+			return UserInfoUtils.getInstance().projectUserInfo(userInfoCache.getUserInfo(accessToken), fields);
+		}
+		
+		CachedValue<UserInfo> revalidatableFromCache(AbstractUserInfoCache userInfoCache, String accessToken) {
+			return null;
+		}
+		
+		void toCache(AbstractUserInfoCache userInfoCache, Token token, UserInfo result, String etag, String lastModified) {
+		}
+	}
+	
+	/**
+	 * Copies the response body to a caller sink as bytes. A cached response 
+	 * is written UTF-8 encoded, the copied response is not cached.
+	 */
+	private class StreamingProcessor extends ResponseProcessor<Long> {
+		
+		private final OutputStream sink;
+		
+		StreamingProcessor(OutputStream sink) {
+			super("stream");
+			this.sink = sink;
+		}
+		
+		@Override
+		boolean isRepeatable() {
+			return false;
+		}
+		
+		@Override
+		ResponseProcessor<?> cachedBy() {
+			return bodyProcessor;
+		}
+		
+		Long process(HttpResponse response) throws IOException, APIException {
+			return processAPIResponse(response, sink);
+		}
+		
+		Long fromCache(AbstractUserInfoCache userInfoCache, String accessToken) throws APIException {
+			
+			String cached = userInfoCache.getResponse(accessToken);
+			if ( cached == null ) {
+				return null;
+			}
+			
+			byte[] bytes = cached.getBytes(UTF_8);
+			try {
+				sink.write(bytes);
+			} catch (IOException e) {
+				throw new APIException(e);
+			}
+			return Long.valueOf(bytes.length);
+		}
+		
+		CachedValue<Long> revalidatableFromCache(AbstractUserInfoCache userInfoCache, String accessToken) {
+			return null;
+		}
+		
+		void toCache(AbstractUserInfoCache userInfoCache, Token token, Long result, String etag, String lastModified) {
+		}
+	}
+	
+	/**
+	 * Caches the result of the processor it wraps with the validators of the 
+	 * response. When a cached value can be revalidated the request is made 
+	 * conditional and a 304 Not Modified answer serves that value again.
+	 */
+	private static class CachingProcessor<T> extends ResponseProcessor<T> {
+		
+		private final ResponseProcessor<T> processor;
+		private final AbstractUserInfoCache userInfoCache;
+		private final Token token;
+		private final CachedValue<T> cachedValue;
+		
+		CachingProcessor(ResponseProcessor<T> processor, AbstractUserInfoCache userInfoCache, Token token) {
+			super(processor.name);
+			this.processor = processor;
+			this.userInfoCache = userInfoCache;
+			this.token = token;
+			this.cachedValue = processor.revalidatableFromCache(userInfoCache, token.getAccess_token());
+		}
+		
+		@Override
+		boolean isRepeatable() {
+			return processor.isRepeatable();
+		}
+		
+		@Override
+		void prepare(HttpRequest request) {
+			
+			processor.prepare(request);
+			
+			if ( cachedValue != null ) {
+				if ( cachedValue.getEtag() != null ) {
+					request.setHeader(HttpHeaders.IF_NONE_MATCH, cachedValue.getEtag());
+				}
+				if ( cachedValue.getLastModified() != null ) {
+					request.setHeader(HttpHeaders.IF_MODIFIED_SINCE, cachedValue.getLastModified());
+				}
+			}
+		}
+		
+		T process(HttpResponse response) throws IOException, APIException {
+			
+			String etag = getHeader(response, HttpHeaders.ETAG);
+			String lastModified = getHeader(response, HttpHeaders.LAST_MODIFIED);
+			
+			if ( cachedValue != null && response != null && response.getStatusLine() != null 
+					&& response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED ) {
+				
+				closeResponse(response);
+				
+				userInfoCache.recordRevalidation();
+				processor.toCache(userInfoCache, token, cachedValue.getValue(), 
+						etag != null ? etag : cachedValue.getEtag(), 
+						lastModified != null ? lastModified : cachedValue.getLastModified());
+				
+				return cachedValue.getValue();
+			}
+			
+			T result = processor.process(response);
+			processor.toCache(userInfoCache, token, result, etag, lastModified);
+			
+			return result;
+		}
+		
+		T fromCache(AbstractUserInfoCache userInfoCache, String accessToken) throws APIException {
+			return processor.fromCache(userInfoCache, accessToken);
+		}
+		
+		CachedValue<T> revalidatableFromCache(AbstractUserInfoCache userInfoCache, String accessToken) {
+			return processor.revalidatableFromCache(userInfoCache, accessToken);
+		}
+		
+		void toCache(AbstractUserInfoCache userInfoCache, Token token, T result, String etag, String lastModified) {
+			processor.toCache(userInfoCache, token, result, etag, lastModified);
+		}
+	}
+	
+	/**
+	 * constructor
+	 * 
+	 * @param apiConnection current connection
+	 */
+	public UserInfoHelper(ADPAPIConnection apiConnection) {
+		this(apiConnection, UserInfoConfiguration.getDefault());
+	}
+	
+	/**
+	 * constructor
+	 * 
+	 * @param apiConnection 		current connection
+	 * @param userInfoConfiguration	client settings used to invoke User Info API
+	 */
+	public UserInfoHelper(ADPAPIConnection apiConnection, UserInfoConfiguration userInfoConfiguration) {
+		this.connection = apiConnection;
+		this.userInfoConfiguration = userInfoConfiguration != null ? 
+				userInfoConfiguration : UserInfoConfiguration.getDefault();
+		this.requestCoalescer = requestCoalescerOf(this.userInfoConfiguration);
+		
+		if ( apiConnection != null ) {
+			TokenLifetime.obtained(apiConnection.getToken());
+		}
+	}
+	
+	/**
+	 * @param userInfoConfiguration
+	 * @return RequestCoalescer shared by the helpers of the configuration
+	 */
+	private static RequestCoalescer requestCoalescerOf(UserInfoConfiguration userInfoConfiguration) {
+		
+		synchronized (REQUEST_COALESCERS) {
+			RequestCoalescer requestCoalescer = REQUEST_COALESCERS.get(userInfoConfiguration);
+			if ( requestCoalescer == null ) {
+				requestCoalescer = new RequestCoalescer();
+				REQUEST_COALESCERS.put(userInfoConfiguration, requestCoalescer);
+			}
+			return requestCoalescer;
+		}
+	}
+		
+	/**
+	 * Returns UserInfo for the connected entity
+	 * 
+	 * @return UserInfo
+	 * @throws APIException  throws an exception with message
+	 */
+	public String getUserInfo() throws APIException {
+	
+		try {		
+			this.response = fetch(bodyProcessor);
+		} catch (ConnectionException e) {
+			throw toAPIException(e);
+		} 
+		
+		return response;
+	}
+	
+	/**
+	 * Returns UserInfo for the connected entity as {@link UserInfo}, parsed 
+	 * while the response is read
+	 * 
+	 * @return UserInfo
+	 * @throws APIException  throws an exception with message
+	 */
+	public UserInfo getUserInfoObject() throws APIException {
+		
+		UserInfo userInfo = null;
+		
+		try {		
+			userInfo = fetch(userInfoProcessor);
+		} catch (ConnectionException e) {
+			throw toAPIException(e);
+		} 
+		
+		return userInfo;
+	}
+	
+	/**
+	 * Returns the requested fields of UserInfo for the connected entity. The 
+	 * response is read with a streaming JSON reader, members of other fields 
+	 * are skipped without being built and parsing stops once every requested 
+	 * field is found. Other fields of the result are null or empty.
+	 * 
+	 * @param fields		 fields to read, null for all of them
+	 * @return UserInfo		 user info with the requested fields
+	 * @throws APIException  throws an exception with message
+	 */
+	public UserInfo getUserInfo(Set<UserInfoField> fields) throws APIException {
+		
+		if ( fields == null ) {
+			return getUserInfoObject();
+		}
+		
+		EnumSet<UserInfoField> requested = EnumSet.noneOf(UserInfoField.class);
+		requested.addAll(fields);
+		
+		try {		
+			return fetch(new ProjectingProcessor(requested));
+		} catch (ConnectionException e) {
+			throw toAPIException(e);
+		} 
+	}
+	
+	/**
+	 * Returns the outcome of the UserInfo call for the connected entity 
+	 * without throwing. Error statuses of User Info API, an expired token 
+	 * and other failures are reported by the category of the result, with 
+	 * the HTTP status and error body when there was a response.
+	 * 
+	 * @return UserInfoResult outcome of the call
+	 */
+	public UserInfoResult getUserInfoResult() {
+		
+		UserInfoResult result = null;
+		
+		try {		
+			result = fetch(resultProcessor);
+		} catch (ConnectionException e) {
+			return toResult(toAPIException(e));
+		} catch (APIException e) {
+			return toResult(e);
+		}
+		
+		if ( result == null ) {
+			return new UserInfoResult(Category.UNAVAILABLE, 0, null, "Error: No User Info API response.", null);
+		}
+		return result;
+	}
+	
+	/**
+	 * Writes the UserInfo response body for the connected entity to the sink 
+	 * as it is read, without decoding it or building it in memory. The body 
+	 * is decompressed when the response is compressed. The sink is neither 
+	 * flushed nor closed.
+	 * <p>
+	 * A cached response is written UTF-8 encoded, a response read from 
+	 * User Info API is not cached. Streamed calls are neither coalesced 
+	 * nor hedged since every caller has its own sink, and they always use 
+	 * the blocking transport so the body is written on the calling thread.
+	 * 
+	 * @param sink			 stream the response body is written to
+	 * @return long			 number of bytes written, -1 when there was no body
+	 * @throws APIException  throws an exception with message, part of the body 
+	 * 						 may have been written already
+	 */
+	public long getUserInfo(OutputStream sink) throws APIException {
+		
+		if ( sink == null ) {
+			throw new APIException("Error: Output stream is null.");
+		}
+		
+		Long written = null;
+		
+		try {		
+			written = fetch(new StreamingProcessor(sink));
+		} catch (ConnectionException e) {
+			throw toAPIException(e);
+		} 
+		
+		return written != null ? written.longValue() : -1;
+	}
+	
+	/**
+	 * Writes the UserInfo response body for the connected entity to the 
+	 * channel, see {@link #getUserInfo(OutputStream)}
+	 * 
+	 * @param channel		 channel the response body is written to
+	 * @return long			 number of bytes written, -1 when there was no body
+	 * @throws APIException  throws an exception with message
+	 */
+	public long getUserInfo(WritableByteChannel channel) throws APIException {
+		
+		if ( channel == null ) {
+			throw new APIException("Error: Output channel is null.");
+		}
+		
+		return getUserInfo(Channels.newOutputStream(channel));
+	}
+	
+	/**
+	 * Returns UserInfo for the connected entity asynchronously, the call runs 
+	 * on the default executor of {@link ExecutorUtils}
+	 * 
+	 * @return CompletableFuture completed with the response or exceptionally 
+	 * 							 with {@link APIException}
+	 */
+	public CompletableFuture<String> getUserInfoAsync() {
+		return getUserInfoAsync(null);
+	}
+	
+	/**
+	 * Returns UserInfo for the connected entity asynchronously
+	 * 
+	 * @param executor			 executor the call runs on, null for the default one
+	 * @return CompletableFuture completed with the response or exceptionally 
+	 * 							 with {@link APIException}
+	 */
+	public CompletableFuture<String> getUserInfoAsync(Executor executor) {
+		return fetchAsync(bodyProcessor, executor);
+	}
+	
+	/**
+	 * Returns UserInfo for the connected entity as {@link UserInfo} asynchronously, 
+	 * the call runs on the default executor of {@link ExecutorUtils}
+	 * 
+	 * @return CompletableFuture completed with the user info or exceptionally 
+	 * 							 with {@link APIException}
+	 */
+	public CompletableFuture<UserInfo> getUserInfoObjectAsync() {
+		return getUserInfoObjectAsync(null);
+	}
+	
+	/**
+	 * Returns UserInfo for the connected entity as {@link UserInfo} asynchronously
+	 * 
+	 * @param executor			 executor the call runs on, null for the default one
+	 * @return CompletableFuture completed with the user info or exceptionally 
+	 * 							 with {@link APIException}
+	 */
+	public CompletableFuture<UserInfo> getUserInfoObjectAsync(Executor executor) {
+		return fetchAsync(userInfoProcessor, executor);
+	}
+	
+	/**
+	 * Returns UserInfo for each connection, fetched concurrently with at most 
+	 * parallelism calls in flight. A failing connection does not stop the batch, 
+	 * its exception is recorded in the result.
+	 * 
+	 * @param connections			connections to fetch UserInfo for
+	 * @param parallelism			maximum number of calls in flight
+	 * @return UserInfoBatchResult	responses and failures by connection
+	 * @throws APIException			in case the calling thread is interrupted
+	 */
+	public static UserInfoBatchResult getUserInfoBatch(Collection<? extends ADPAPIConnection> connections, 
+			int parallelism) throws APIException {
+		return getUserInfoBatch(connections, parallelism, UserInfoConfiguration.getDefault(), null);
+	}
+	
+	/**
+	 * Returns UserInfo for each connection, fetched concurrently with at most 
+	 * parallelism calls in flight. A failing connection does not stop the batch, 
+	 * its exception is recorded in the result. Null connections are skipped.
+	 * 
+	 * @param connections			connections to fetch UserInfo for
+	 * @param parallelism			maximum number of calls in flight
+	 * @param userInfoConfiguration	client settings used to invoke User Info API
+	 * @param executor				executor the calls run on, null for the default one
+	 * @return UserInfoBatchResult	responses and failures by connection
+	 * @throws APIException			in case the calling thread is interrupted
+	 */
+	public static UserInfoBatchResult getUserInfoBatch(Collection<? extends ADPAPIConnection> connections, 
+			int parallelism, UserInfoConfiguration userInfoConfiguration, Executor executor) throws APIException {
+		
+		if ( parallelism <= 0 ) {
+			throw new IllegalArgumentException("parallelism must be positive");
+		}
+		
+		final UserInfoBatchResult result = new UserInfoBatchResult();
+		
+		if ( connections == null || connections.isEmpty() ) {
+			return result;
+		}
+		
+		final Semaphore permits = new Semaphore(parallelism);
+		final CountDownLatch done = new CountDownLatch(connections.size());
+		
+		try {
+			for ( final ADPAPIConnection batchConnection : connections ) {
+				
+				if ( batchConnection == null ) {
+					done.countDown();
+					continue;
+				}
+				
+				permits.acquire();
+				
+				new UserInfoHelper(batchConnection, userInfoConfiguration).getUserInfoAsync(executor)
+					.whenComplete(new BiConsumer<String, Throwable>() {
+						public void accept(String response, Throwable throwable) {
+							try {
+								if ( throwable == null ) {
+									result.addResponse(batchConnection, response);
+								} else if ( throwable instanceof APIException ) {
+									result.addFailure(batchConnection, (APIException) throwable);
+								} else {
+									result.addFailure(batchConnection, new APIException(throwable));
+								}
+							} finally {
+								permits.release();
+								done.countDown();
+							}
+						}
+					});
+			}
+			
+			done.await();
+			
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new APIException("Error: Interrupted while fetching User Info batch.");
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Runs {@link #fetch(ResponseProcessor)} on the executor, or with the 
+	 * {@link UserInfoTransport#NIO} transport without blocking any thread 
+	 * while the call is in flight
+	 * 
+	 * @param processor turns the response into the result
+	 * @param executor  executor the call runs on, null for the default one
+	 * @return CompletableFuture
+	 */
+	private <T> CompletableFuture<T> fetchAsync(final ResponseProcessor<T> processor, Executor executor) {
+		
+		if ( userInfoConfiguration.getTransport() == UserInfoTransport.NIO ) {
+			return fetchNonBlocking(processor);
+		}
+		
+		final CompletableFuture<T> future = new CompletableFuture<T>();
+		
+		if ( executor == null ) {
+			executor = ExecutorUtils.getInstance().getDefaultExecutor();
+		}
+		
+		try {
+			executor.execute(new Runnable() {
+				public void run() {
+					try {
+						future.complete(fetch(processor));
+					} catch (ConnectionException e) {
+						future.completeExceptionally(toAPIException(e));
+					} catch (Throwable e) {
+						future.completeExceptionally(e);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(new APIException(e));
+		}
+		
+		return future;
+	}
+	
+	/**
+	 * Non-blocking counterpart of {@link #fetch(ResponseProcessor)}, the 
+	 * response is processed on an I/O dispatch thread
+	 * 
+	 * @param processor turns the response into the result
+	 * @return CompletableFuture
+	 */
+	private <T> CompletableFuture<T> fetchNonBlocking(final ResponseProcessor<T> processor) {
+		
+		final UserInfoMetricsListener listener = userInfoConfiguration.getMetricsListener();
+		if ( listener == null ) {
+			return fetchNonBlocking(processor, null);
+		}
+		
+		final UserInfoCallEvent event = callStarted(listener, processor.name);
+		final long start = System.nanoTime();
+		
+		final CompletableFuture<T> future = new CompletableFuture<T>();
+		
+		fetchNonBlocking(processor, event).whenComplete(new BiConsumer<T, Throwable>() {
+			public void accept(T result, Throwable throwable) {
+				if ( throwable != null ) {
+					event.setException(RequestCoalescer.unwrap(throwable));
+				}
+				callEnded(listener, event, start);
+				
+				if ( throwable == null ) {
+					future.complete(result);
+				} else {
+					future.completeExceptionally(RequestCoalescer.unwrap(throwable));
+				}
+			}
+		});
+		
+		return future;
+	}
+	
+	/**
+	 * @param processor turns the response into the result
+	 * @param event		measurements of the call or null
+	 * @return CompletableFuture
+	 */
+	private <T> CompletableFuture<T> fetchNonBlocking(final ResponseProcessor<T> processor, 
+			final UserInfoCallEvent event) {
+		
+		try {
+			validateConnection();
+		} catch (ConnectionException e) {
+			return failedFuture(toAPIException(e));
+		}
+		
+		final Token token = connection.getToken();
+		if ( token == null || token.getAccess_token() == null ) {
+			return invokeAPIAsync(processor, event);
+		}
+		TokenLifetime.obtained(token);
+		
+		final AbstractUserInfoCache userInfoCache = userInfoConfiguration.getUserInfoCache();
+		if ( userInfoCache != null ) {
+			T result;
+			try {
+				result = processor.fromCache(userInfoCache, token.getAccess_token());
+			} catch (APIException e) {
+				return failedFuture(e);
+			}
+			if ( result != null ) {
+				if ( event != null ) {
+					event.setServedFromCache(true);
+				}
+				refreshAhead(processor, token, userInfoCache);
+				return CompletableFuture.completedFuture(result);
+			}
+		}
+		
+		if ( !userInfoConfiguration.isRequestCoalescing() || !processor.isRepeatable() ) {
+			return fetchAndCacheAsync(processor, token, userInfoCache, event);
+		}
+		
+		String key = processor.key() + ":" + token.getScope() + ":" + token.getAccess_token();
+		final AtomicBoolean led = new AtomicBoolean();
+		
+		CompletableFuture<T> future = requestCoalescer.executeAsync(key, new Supplier<CompletableFuture<T>>() {
+			public CompletableFuture<T> get() {
+				led.set(true);
+				return fetchAndCacheAsync(processor, token, userInfoCache, event);
+			}
+		});
+		
+		if ( led.get() ) {
+			return future;
+		}
+		
+		if ( event != null ) {
+			event.setCoalesced(true);
+		}
+		
+		// every caller sharing the call gets its own copy of the result
+		final CompletableFuture<T> copied = new CompletableFuture<T>();
+		future.whenComplete(new BiConsumer<T, Throwable>() {
+			public void accept(T result, Throwable throwable) {
+				if ( throwable == null ) {
+					copied.complete(processor.copy(result));
+				} else {
+					copied.completeExceptionally(RequestCoalescer.unwrap(throwable));
+				}
+			}
+		});
+		return copied;
+	}
+	
+	/**
+	 * Invokes User Info API without blocking and caches the result, 
+	 * revalidating the cached one when it has validators
+	 * 
+	 * @param processor
+	 * @param token
+	 * @param userInfoCache cache or null
+	 * @param event			measurements of the call or null
+	 * @return CompletableFuture
+	 */
+	private <T> CompletableFuture<T> fetchAndCacheAsync(final ResponseProcessor<T> processor, final Token token, 
+			final AbstractUserInfoCache userInfoCache, UserInfoCallEvent event) {
+		
+		if ( userInfoCache == null ) {
+			return invokeAPIAsync(processor, event);
+		}
+		
+		return invokeAPIAsync(new CachingProcessor<T>(processor, userInfoCache, token), event);
+	}
+	
+	/**
+	 * Returns the result of processor for the connection, served from the 
+	 * cache when possible and otherwise from a User Info API call shared 
+	 * with concurrent identical calls
+	 * 
+	 * @param processor turns the response into the result
+	 * @return result of the processor
+	 * @throws ConnectionException
+	 * @throws APIException
+	 */
+	private <T> T fetch(final ResponseProcessor<T> processor) throws ConnectionException, APIException {
+		
+		UserInfoMetricsListener listener = userInfoConfiguration.getMetricsListener();
+		if ( listener == null ) {
+			return fetch(processor, null);
+		}
+		
+		UserInfoCallEvent event = callStarted(listener, processor.name);
+		long start = System.nanoTime();
+		
+		try {
+			return fetch(processor, event);
+		} catch (ConnectionException e) {
+			event.setException(e);
+			throw e;
+		} catch (APIException e) {
+			event.setException(e);
+			throw e;
+		} catch (RuntimeException e) {
+			event.setException(e);
+			throw e;
+		} finally {
+			callEnded(listener, event, start);
+		}
+	}
+	
+	/**
+	 * @param processor turns the response into the result
+	 * @param event		measurements of the call or null
+	 * @return result of the processor
+	 * @throws ConnectionException
+	 * @throws APIException
+	 */
+	private <T> T fetch(final ResponseProcessor<T> processor, final UserInfoCallEvent event) 
+			throws ConnectionException, APIException {
+		
+		validateConnection();
+		
+		final Token token = connection.getToken();
+		if ( token == null || token.getAccess_token() == null ) {
+			return invokeAPI(processor, event);
+		}
+		TokenLifetime.obtained(token);
+		
+		final AbstractUserInfoCache userInfoCache = userInfoConfiguration.getUserInfoCache();
+		if ( userInfoCache != null ) {
+			T result = processor.fromCache(userInfoCache, token.getAccess_token());
+			if ( result != null ) {
+				if ( event != null ) {
+					event.setServedFromCache(true);
+				}
+				refreshAhead(processor, token, userInfoCache);
+				return result;
+			}
+		}
+		
+		if ( !userInfoConfiguration.isRequestCoalescing() || !processor.isRepeatable() ) {
+			return fetchAndCache(processor, token, userInfoCache, event);
+		}
+		
+		String key = processor.key() + ":" + token.getScope() + ":" + token.getAccess_token();
+		final AtomicBoolean led = new AtomicBoolean();
+		
+		try {
+			T result = requestCoalescer.execute(key, new Callable<T>() {
+				public T call() throws Exception {
+					led.set(true);
+					return fetchAndCache(processor, token, userInfoCache, event);
+				}
+			}, userInfoConfiguration.getRequestTimeout());
+			
+			// every caller sharing the call gets its own copy of the result
+			return led.get() ? result : processor.copy(result);
+		} finally {
+			if ( event != null && !led.get() ) {
+				event.setCoalesced(true);
+			}
+		}
+	}
+	
+	/**
+	 * Invokes User Info API and caches the result, revalidating the cached 
+	 * one when it has validators
+	 * 
+	 * @param processor
+	 * @param token
+	 * @param userInfoCache cache or null
+	 * @param event			measurements of the call or null
+	 * @return result of the processor
+	 * @throws ConnectionException
+	 * @throws APIException
+	 */
+	private <T> T fetchAndCache(ResponseProcessor<T> processor, Token token, AbstractUserInfoCache userInfoCache, 
+			UserInfoCallEvent event) throws ConnectionException, APIException {
+		
+		if ( userInfoCache == null ) {
+			return invokeAPI(processor, event);
+		}
+		
+		return invokeAPI(new CachingProcessor<T>(processor, userInfoCache, token), event);
+	}
+	
+	/**
+	 * Reloads the cached result serving the processor in the background, on 
+	 * the refresh executor of {@link ExecutorUtils}, when it is accessed within 
+	 * the refresh ahead window before it stops being fresh. The cached result 
+	 * is served meanwhile. Nothing is reloaded once the connection is no 
+	 * longer alive or has another token.
+	 * 
+	 * @param processor		processor a cached result was served for
+	 * @param token			token of the connection
+	 * @param userInfoCache
+	 */
+	private void refreshAhead(ResponseProcessor<?> processor, final Token token, final AbstractUserInfoCache userInfoCache) {
+		
+		long refreshAheadWindow = userInfoConfiguration.getRefreshAheadWindow();
+		final ResponseProcessor<?> refreshed = processor.cachedBy();
+		if ( refreshAheadWindow <= 0 || refreshed == null ) {
+			return;
+		}
+		
+		long freshUntil = refreshed.freshUntil(userInfoCache, token.getAccess_token());
+		if ( freshUntil == 0 || freshUntil - System.currentTimeMillis() > refreshAheadWindow ) {
+			return;
+		}
+		
+		final String key = refreshed.key() + ":" + token.getScope() + ":" + token.getAccess_token();
+		if ( !REFRESHING.add(key) ) {
+			return;
+		}
+		
+		try {
+			ExecutorUtils.getInstance().getRefreshExecutor().execute(new Runnable() {
+				public void run() {
+					try {
+						if ( isAlive(token) ) {
+							refresh(refreshed, key, token, userInfoCache);
+						}
+					} catch (Exception e) {
+						LOGGER.log(Level.FINE, "Unable to refresh cached User Info", e);
+					} finally {
+						REFRESHING.remove(key);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// the cached result is reloaded by a later access or once it expires
+			REFRESHING.remove(key);
+		}
+	}
+	
+	/**
+	 * Invokes User Info API and caches the result, sharing the call with 
+	 * identical calls in flight
+	 * 
+	 * @param processor
+	 * @param key			key of identical calls
+	 * @param token
+	 * @param userInfoCache
+	 * @throws ConnectionException
+	 * @throws APIException
+	 */
+	private <T> void refresh(final ResponseProcessor<T> processor, String key, final Token token, 
+			final AbstractUserInfoCache userInfoCache) throws ConnectionException, APIException {
+		
+		if ( !userInfoConfiguration.isRequestCoalescing() ) {
+			fetchAndCache(processor, token, userInfoCache, null);
+			return;
+		}
+		
+		requestCoalescer.execute(key, new Callable<T>() {
+			public T call() throws Exception {
+				return fetchAndCache(processor, token, userInfoCache, null);
+			}
+		}, userInfoConfiguration.getRequestTimeout());
+	}
+	
+	/**
+	 * @param token
+	 * @return true while the connection is alive with the token
+	 */
+	private boolean isAlive(Token token) {
+		
+		if ( connection == null || !connection.isConnectionIndicator() ) {
+			return false;
+		}
+		
+		Token current = connection.getToken();
+		return current != null && token.getAccess_token().equals(current.getAccess_token());
+	}
+	
+	/**
+	 * Verifies the connection can be used to invoke User Info API
+	 * 
+	 * @throws ConnectionException in case the connection is null, 
+	 * 							   not supported or its token is expired
+	 */
+	private void validateConnection() throws ConnectionException {
+		
+		// expected failures, thrown without a stack trace
+		if ( connection != null ) {
+			if ( connection instanceof ClientCredentialsConnection ) {
+				throw new StacklessConnectionException("Unimplemented method - UserInfo API access not "
+						+ "available for GrantType:ClientCredentials", Category.CONFIGURATION);
+			} else if ( !connection.isConnectionIndicator() ) {
+				throw new StacklessConnectionException("Connection Token is expired!", Category.AUTHENTICATION);
+			}
+		} else {
+			throw new StacklessConnectionException("ADPAPIConnection is null!", Category.CONFIGURATION);
+		}
+	}
+	
+	/**
+	 * Wraps a ConnectionException, without a stack trace when it is an 
+	 * expected failure
+	 * 
+	 * @param e
+	 * @return APIException
+	 */
+	private static APIException toAPIException(ConnectionException e) {
+		
+		if ( e instanceof StacklessConnectionException ) {
+			return APIException.stackless(e);
+		}
+		return new APIException(e);
+	}
+	
+	/**
+	 * Returns the result of a call that failed with the exception
+	 * 
+	 * @param e
+	 * @return UserInfoResult
+	 */
+	private static UserInfoResult toResult(APIException e) {
+		
+		Category category = Category.UNAVAILABLE;
+		if ( e.getHttpStatus() > 0 ) {
+			category = Category.forStatus(e.getHttpStatus());
+		} else if ( e.getCause() instanceof StacklessConnectionException ) {
+			category = ((StacklessConnectionException) e.getCause()).category;
+		} else if ( e.getCause() instanceof ConnectionException ) {
+			category = Category.CONFIGURATION;
+		}
+		
+		String message = e.getMessage() != null ? e.getMessage() : 
+				e.getCause() != null ? e.getCause().getMessage() : null;
+		
+		return new UserInfoResult(category, e.getHttpStatus(), e.getResponse(), message, e);
+	}
+	
+	/**
+	 * Process the actual call to User Info API
+	 * 
+	 * @param processor turns the response into the result
+	 * @param event		measurements of the call or null
+	 * @return result of the processor
+	 * @throws ConnectionException 
+	 * @throws APIException 
+	 * @throws UserInfoHelperException
+	 */
+	private <T> T invokeAPI(ResponseProcessor<T> processor, UserInfoCallEvent event) 
+			throws ConnectionException, APIException {
+		
+		// the non-blocking transport buffers the body and would write it to 
+		// a caller sink on an IO thread, even after the caller gave up
+		if ( userInfoConfiguration.getTransport() == UserInfoTransport.NIO && processor.isRepeatable() ) {
+			return awaitResult(invokeAPIAsync(processor, event));
+		}
+		
+		HedgingPolicy hedgingPolicy = userInfoConfiguration.getHedgingPolicy();
+		if ( hedgingPolicy != null && processor.isRepeatable() ) {
+			validateConnection();
+			return invokeHedged(processor, event, hedgingPolicy);
+		}
+		
+		return invokeAPI(processor, event, null);
+	}
+	
+	/**
+	 * @param processor		turns the response into the result
+	 * @param event			measurements of the call or null
+	 * @param cancellation	aborts the call or null
+	 * @return result of the processor
+	 * @throws ConnectionException
+	 * @throws APIException
+	 */
+	private <T> T invokeAPI(ResponseProcessor<T> processor, UserInfoCallEvent event, 
+			CallCancellation cancellation) throws ConnectionException, APIException {
+		
+		T response = null;
+		
+		CloseableHttpClient httpClient = null;
+		CloseableHttpResponse httpResponse = null;
+		// limiter whose permit the current attempt holds, null once released
+		ConcurrencyLimiter heldLimiter = null;
+		
+		validateConnection();
+		
+		try {
+			if ( connection instanceof AuthorizationCodeConnection) {
+			
+				AuthorizationCodeConnection authorizationCodeConnection = (AuthorizationCodeConnection) connection;
+				AuthorizationCodeConfiguration authorizationCodeConfiguration = 
+						(AuthorizationCodeConfiguration) authorizationCodeConnection.getConnectionConfiguration();
+				
+				CircuitBreaker circuitBreaker = userInfoConfiguration.getCircuitBreaker();
+				ConcurrencyLimiter concurrencyLimiter = userInfoConfiguration.getConcurrencyLimiter();
+				
+				for ( int attempt = 0; ; attempt++ ) {
+					
+					checkCancelled(cancellation);
+					acquirePermission(circuitBreaker);
+					acquirePermit(concurrencyLimiter, circuitBreaker, true);
+					heldLimiter = concurrencyLimiter;
+					
+					//get the shared pooled HTTP Client of this configuration
+					httpClient = HttpClientUtils.getInstance().getHttpClient(authorizationCodeConfiguration, 
+							userInfoConfiguration);
+					
+					final HttpGet getRequest = buildRequest(authorizationCodeConfiguration);
+					processor.prepare(getRequest);
+					HttpClientContext context = event != null ? HttpClientContext.create() : null;
+					long requestStart = System.nanoTime();
+					
+					if ( cancellation != null ) {
+						cancellation.setCurrent(new Cancellable() {
+							public boolean cancel() {
+								getRequest.abort();
+								return true;
+							}
+						});
+					}
+					
+					//invoke the service for response
+					try {
+						httpResponse = (CloseableHttpResponse) httpClient.execute(getRequest, context);
+					} catch (IOException e) {
+						if ( cancellation != null && cancellation.isCancelled() ) {
+							onIgnored(circuitBreaker);
+							checkCancelled(cancellation);
+						}
+						onFailure(circuitBreaker);
+						onDropped(heldLimiter);
+						heldLimiter = null;
+						if ( attempt < userInfoConfiguration.getMaxRetries() ) {
+							sleepBeforeRetry(retryDelay(attempt, null), event);
+							continue;
+						}
+						throw e;
+					} catch (RuntimeException e) {
+						onFailure(circuitBreaker);
+						throw e;
+					}
+					
+					if ( httpResponse == null ) {
+						onIgnored(circuitBreaker);
+						break;
+					}
+					
+					onResponse(heldLimiter, httpResponse, System.nanoTime() - requestStart);
+					heldLimiter = null;
+					
+					if ( isRetryableStatus(httpResponse) ) {
+						onFailure(circuitBreaker);
+						if ( attempt < userInfoConfiguration.getMaxRetries() ) {
+							long delay = retryDelay(attempt, httpResponse);
+							// consumed so the connection goes back to the pool
+							EntityUtils.consumeQuietly(httpResponse.getEntity());
+							httpResponse.close();
+							httpResponse = null;
+							sleepBeforeRetry(delay, event);
+							continue;
+						}
+					} else {
+						onSuccess(circuitBreaker);
+					}
+					
+					long responseReceived = System.nanoTime();
+					
+					if ( event != null ) {
+						Long connectNanos = (Long) context.getAttribute(HttpClientUtils.CONNECT_NANOS);
+						event.setConnectNanos(connectNanos != null ? connectNanos.longValue() : 0);
+						event.setTimeToFirstByteNanos(responseReceived - requestStart);
+						recordConnectionPhases(context, event, requestStart, responseReceived);
+						recordResponse(httpResponse, event, true);
+					}
+					
+					response = processor.process(httpResponse);
+					
+					if ( event != null ) {
+						long bodyReadNanos = System.nanoTime() - responseReceived;
+						event.setBodyReadNanos(bodyReadNanos);
+						event.setPhaseNanos(UserInfoPhase.DECODE, Math.max(0, 
+								bodyReadNanos - Math.max(0, event.getPhaseNanos(UserInfoPhase.TRANSFER))));
+					}
+					break;
+				}
+			} 
+			
+		} catch (ConnectionException e) {
+			throw toAPIException(e);
+		} catch (IOException e) {
+			throw new APIException(e);   
+		} catch (URISyntaxException e) {
+			throw new APIException(e);		    
+		} catch (APIException e) {
+			throw e;
+		} finally {
+			// attempts ended by cancellation or an unexpected error
+			onIgnored(heldLimiter);
+	       	try {
+	       		// releases the connection back to the pool, the client is shared 
+	       		if ( httpResponse != null) {
+	       			httpResponse.close();
+	       		}
+			} catch (IOException e) {
+				throw new APIException(e);
+			} finally {}
+		}
+		
+		return response;
+	}
+	
+	/**
+	 * Process the actual call to User Info API on the non-blocking transport
+	 * 
+	 * @param processor turns the response into the result
+	 * @param event		measurements of the call or null
+	 * @return CompletableFuture completed with the result of the processor or 
+	 * 							 exceptionally with {@link APIException}
+	 */
+	private <T> CompletableFuture<T> invokeAPIAsync(final ResponseProcessor<T> processor, 
+			final UserInfoCallEvent event) {
+		
+		HedgingPolicy hedgingPolicy = userInfoConfiguration.getHedgingPolicy();
+		if ( hedgingPolicy == null || !processor.isRepeatable() ) {
+			return invokeAPIAsync(processor, event, null);
+		}
+		
+		try {
+			validateConnection();
+		} catch (ConnectionException e) {
+			return failedFuture(toAPIException(e));
+		}
+		
+		return invokeHedgedAsync(processor, event, hedgingPolicy);
+	}
+	
+	/**
+	 * @param processor		turns the response into the result
+	 * @param event			measurements of the call or null
+	 * @param cancellation	aborts the call or null
+	 * @return CompletableFuture completed with the result of the processor or 
+	 * 							 exceptionally with {@link APIException}
+	 */
+	private <T> CompletableFuture<T> invokeAPIAsync(final ResponseProcessor<T> processor, 
+			final UserInfoCallEvent event, final CallCancellation cancellation) {
+		
+		final CompletableFuture<T> future = new CompletableFuture<T>();
+		
+		try {
+			validateConnection();
+			
+			if ( !(connection instanceof AuthorizationCodeConnection) ) {
+				future.complete(null);
+				return future;
+			}
+			
+			AuthorizationCodeConfiguration authorizationCodeConfiguration = (AuthorizationCodeConfiguration) 
+					((AuthorizationCodeConnection) connection).getConnectionConfiguration();
+			
+			//get the shared non-blocking HTTP Client of this configuration
+			CloseableHttpAsyncClient httpAsyncClient = AsyncHttpClientUtils.getInstance().getHttpAsyncClient(
+					authorizationCodeConfiguration, userInfoConfiguration);
+			
+			attemptAsync(processor, event, cancellation, authorizationCodeConfiguration, httpAsyncClient, future, 0);
+			
+		} catch (ConnectionException e) {
+			future.completeExceptionally(toAPIException(e));
+		}
+		
+		return future;
+	}
+	
+	/**
+	 * Makes one attempt of a non-blocking call, failed attempts are retried 
+	 * on the scheduler of {@link ExecutorUtils} after the backoff delay
+	 * 
+	 * @param processor						turns the response into the result
+	 * @param event							measurements of the call or null
+	 * @param cancellation					aborts the call or null
+	 * @param authorizationCodeConfiguration
+	 * @param httpAsyncClient
+	 * @param future						completed with the outcome of the call
+	 * @param attempt						0 for the first attempt
+	 */
+	private <T> void attemptAsync(final ResponseProcessor<T> processor, final UserInfoCallEvent event, 
+			final CallCancellation cancellation, final AuthorizationCodeConfiguration authorizationCodeConfiguration, 
+			final CloseableHttpAsyncClient httpAsyncClient, final CompletableFuture<T> future, final int attempt) {
+		
+		final CircuitBreaker circuitBreaker = userInfoConfiguration.getCircuitBreaker();
+		final ConcurrencyLimiter concurrencyLimiter = userInfoConfiguration.getConcurrencyLimiter();
+		
+		try {
+			checkCancelled(cancellation);
+			acquirePermission(circuitBreaker);
+			// an IO or scheduler thread must not wait for the limit
+			acquirePermit(concurrencyLimiter, circuitBreaker, false);
+		} catch (APIException e) {
+			future.completeExceptionally(e);
+			return;
+		}
+		
+		try {
+			final HttpContext context = event != null ? new BasicHttpContext() : null;
+			final long requestStart = System.nanoTime();
+			
+			HttpGet getRequest = buildRequest(authorizationCodeConfiguration);
+			processor.prepare(getRequest);
+			
+			final Future<HttpResponse> requestFuture = AsyncHttpClientUtils.getInstance().execute(httpAsyncClient, 
+					getRequest, userInfoConfiguration.getMaxResponseBodySize(), context, 
+					new FutureCallback<HttpResponse>() {
+				
+				public void completed(HttpResponse httpResponse) {
+					
+					onResponse(concurrencyLimiter, httpResponse, System.nanoTime() - requestStart);
+					
+					if ( isRetryableStatus(httpResponse) ) {
+						onFailure(circuitBreaker);
+						if ( attempt < userInfoConfiguration.getMaxRetries() ) {
+							retryAsync(retryDelay(attempt, httpResponse));
+							return;
+						}
+					} else {
+						onSuccess(circuitBreaker);
+					}
+					
+					try {
+						if ( event == null ) {
+							future.complete(processor.process(httpResponse));
+							return;
+						}
+						
+						Long responseReceived = (Long) context.getAttribute(AsyncHttpClientUtils.RESPONSE_RECEIVED_NANOS);
+						long headersAt = responseReceived != null ? responseReceived.longValue() : System.nanoTime();
+						
+						// the body was received into a buffer before the callback
+						long bodyReceived = System.nanoTime();
+						event.setTimeToFirstByteNanos(headersAt - requestStart);
+						event.setPhaseNanos(UserInfoPhase.TIME_TO_FIRST_BYTE, headersAt - requestStart);
+						event.setPhaseNanos(UserInfoPhase.TRANSFER, Math.max(0, bodyReceived - headersAt));
+						recordResponse(httpResponse, event, false);
+						
+						T result = processor.process(httpResponse);
+						long processed = System.nanoTime();
+						event.setBodyReadNanos(processed - headersAt);
+						event.setPhaseNanos(UserInfoPhase.DECODE, processed - bodyReceived);
+						
+						future.complete(result);
+					} catch (IOException e) {
+						future.completeExceptionally(new APIException(e));
+					} catch (Throwable e) {
+						future.completeExceptionally(e);
+					}
+				}
+				
+				public void failed(Exception e) {
+					
+					if ( cancellation != null && cancellation.isCancelled() ) {
+						cancelled();
+						return;
+					}
+					
+					onFailure(circuitBreaker);
+					onDropped(concurrencyLimiter);
+					if ( attempt < userInfoConfiguration.getMaxRetries() ) {
+						retryAsync(retryDelay(attempt, null));
+						return;
+					}
+					
+					future.completeExceptionally(new APIException("Error: Unable to get API response. " 
+							+ e.getMessage()));
+				}
+				
+				public void cancelled() {
+					
+					onIgnored(circuitBreaker);
+					onIgnored(concurrencyLimiter);
+					future.completeExceptionally(new APIException("Error: User Info API call was cancelled."));
+				}
+				
+				private void retryAsync(long delay) {
+					
+					if ( event != null ) {
+						event.setRetries(event.getRetries() + 1);
+					}
+					
+					try {
+						ExecutorUtils.getInstance().getScheduler().schedule(new Runnable() {
+							public void run() {
+								attemptAsync(processor, event, cancellation, authorizationCodeConfiguration, 
+										httpAsyncClient, future, attempt + 1);
+							}
+						}, delay, TimeUnit.MILLISECONDS);
+					} catch (RejectedExecutionException e) {
+						future.completeExceptionally(new APIException(e));
+					}
+				}
+			});
+			
+			if ( cancellation != null ) {
+				cancellation.setCurrent(new Cancellable() {
+					public boolean cancel() {
+						return requestFuture.cancel(true);
+					}
+				});
+			}
+			
+		} catch (ConnectionException e) {
+			onIgnored(circuitBreaker);
+			onIgnored(concurrencyLimiter);
+			future.completeExceptionally(toAPIException(e));
+		} catch (URISyntaxException e) {
+			onIgnored(circuitBreaker);
+			onIgnored(concurrencyLimiter);
+			future.completeExceptionally(new APIException(e));
+		} catch (RuntimeException e) {
+			// the client rejects requests once it is closed
+			onIgnored(circuitBreaker);
+			onIgnored(concurrencyLimiter);
+			future.completeExceptionally(new APIException(e));
+		}
+	}
+	
+	/**
+	 * Runs the call on the calling thread and, if it has not answered within 
+	 * the hedge delay of the policy and the hedge budget allows, an identical 
+	 * hedge call on the default executor of {@link ExecutorUtils}. The 
+	 * scheduler thread only hands the hedge over. The first successful result 
+	 * is used and the other call is aborted, the call only fails once every 
+	 * call sent has failed. The hedge delay is updated with the latency of the 
+	 * call on the calling thread, whether or not it answered first.
+	 * 
+	 * @param processor		turns the response into the result
+	 * @param event			measurements of the call or null, the hedge is not measured
+	 * @param hedgingPolicy
+	 * @return result of the processor
+	 * @throws ConnectionException
+	 * @throws APIException
+	 */
+	private <T> T invokeHedged(final ResponseProcessor<T> processor, final UserInfoCallEvent event, 
+			final HedgingPolicy hedgingPolicy) throws ConnectionException, APIException {
+		
+		final CallCancellation primary = new CallCancellation();
+		final CallCancellation hedge = new CallCancellation();
+		// the hedge in flight, sent and read under its lock
+		final AtomicReference<CompletableFuture<T>> hedgeFuture = new AtomicReference<CompletableFuture<T>>();
+		final AtomicBoolean ended = new AtomicBoolean();
+		final AtomicBoolean answered = new AtomicBoolean();
+		final long start = System.nanoTime();
+		
+		hedgingPolicy.callStarted();
+		
+		ScheduledFuture<?> hedgeTimer;
+		try {
+			hedgeTimer = ExecutorUtils.getInstance().getScheduler().schedule(new Runnable() {
+				public void run() {
+					
+					CompletableFuture<T> future;
+					synchronized (hedgeFuture) {
+						if ( ended.get() || !hedgingPolicy.tryHedge() ) {
+							return;
+						}
+						if ( event != null ) {
+							event.setHedged(true);
+						}
+						// only submitted to the default executor, the scheduler does not wait for it
+						future = startAttempt(processor, null, hedge);
+						hedgeFuture.set(future);
+					}
+					
+					future.whenComplete(new BiConsumer<T, Throwable>() {
+						public void accept(T result, Throwable throwable) {
+							if ( throwable == null && answered.compareAndSet(false, true) ) {
+								hedgingPolicy.hedgeWon();
+								primary.cancel();
+							}
+						}
+					});
+				}
+			}, hedgingPolicy.getHedgeDelayNanos(), TimeUnit.NANOSECONDS);
+		} catch (RejectedExecutionException e) {
+			return invokeAPI(processor, event, null);
+		}
+		
+		T result = null;
+		Exception failure = null;
+		try {
+			result = invokeAPI(processor, event, primary);
+		} catch (Exception e) {
+			failure = e;
+		}
+		
+		CompletableFuture<T> future;
+		synchronized (hedgeFuture) {
+			ended.set(true);
+			future = hedgeFuture.get();
+		}
+		hedgeTimer.cancel(false);
+		
+		// the delay follows this call, up to its abort when the hedge won
+		if ( failure == null || primary.isCancelled() ) {
+			hedgingPolicy.recordLatency(System.nanoTime() - start);
+		}
+		
+		if ( failure == null ) {
+			if ( future != null && answered.compareAndSet(false, true) ) {
+				hedge.cancel();
+			}
+			return result;
+		}
+		
+		if ( future != null ) {
+			return awaitResult(future);
+		}
+		
+		if ( failure instanceof ConnectionException ) {
+			throw (ConnectionException) failure;
+		} else if ( failure instanceof APIException ) {
+			throw (APIException) failure;
+		}
+		throw (RuntimeException) failure;
+	}
+	
+	/**
+	 * Runs the call and, if it has not answered within the hedge delay of the 
+	 * policy and the hedge budget allows, an identical hedge call. The first 
+	 * successful result is used and the other call is aborted, the call only 
+	 * fails once every call sent has failed. The hedge delay is updated with 
+	 * the latency of the first call, whether or not it answered first.
+	 * 
+	 * @param processor		turns the response into the result
+	 * @param event			measurements of the call or null, the hedge is not measured
+	 * @param hedgingPolicy
+	 * @return CompletableFuture completed with the result of the processor or 
+	 * 							 exceptionally with {@link APIException}
+	 */
+	private <T> CompletableFuture<T> invokeHedgedAsync(final ResponseProcessor<T> processor, 
+			final UserInfoCallEvent event, final HedgingPolicy hedgingPolicy) {
+		
+		final CompletableFuture<T> future = new CompletableFuture<T>();
+		final CallCancellation primary = new CallCancellation();
+		final CallCancellation hedge = new CallCancellation();
+		final AtomicInteger pending = new AtomicInteger(1);
+		final long start = System.nanoTime();
+		
+		hedgingPolicy.callStarted();
+		
+		final ScheduledFuture<?> hedgeTimer;
+		try {
+			hedgeTimer = ExecutorUtils.getInstance().getScheduler().schedule(new Runnable() {
+				public void run() {
+					
+					if ( future.isDone() || !hedgingPolicy.tryHedge() ) {
+						return;
+					}
+					
+					pending.incrementAndGet();
+					if ( event != null ) {
+						event.setHedged(true);
+					}
+					
+					startAttempt(processor, null, hedge).whenComplete(new BiConsumer<T, Throwable>() {
+						public void accept(T result, Throwable throwable) {
+							if ( throwable == null && future.complete(result) ) {
+								hedgingPolicy.hedgeWon();
+								primary.cancel();
+							} else if ( pending.decrementAndGet() == 0 ) {
+								future.completeExceptionally(RequestCoalescer.unwrap(throwable));
+							}
+						}
+					});
+				}
+			}, hedgingPolicy.getHedgeDelayNanos(), TimeUnit.NANOSECONDS);
+		} catch (RejectedExecutionException e) {
+			return startAttempt(processor, event, null);
+		}
+		
+		startAttempt(processor, event, primary).whenComplete(new BiConsumer<T, Throwable>() {
+			public void accept(T result, Throwable throwable) {
+				// the delay follows the first request, up to its abort when the hedge won
+				if ( throwable == null || primary.isCancelled() ) {
+					hedgingPolicy.recordLatency(System.nanoTime() - start);
+				}
+				if ( throwable == null && future.complete(result) ) {
+					hedgeTimer.cancel(false);
+					hedge.cancel();
+				} else if ( pending.decrementAndGet() == 0 ) {
+					hedgeTimer.cancel(false);
+					future.completeExceptionally(RequestCoalescer.unwrap(throwable));
+				}
+			}
+		});
+		
+		return future;
+	}
+	
+	/**
+	 * Starts one call of a hedged call
+	 * 
+	 * @param processor		turns the response into the result
+	 * @param event			measurements of the call or null
+	 * @param cancellation	aborts the call or null
+	 * @return CompletableFuture
+	 */
+	private <T> CompletableFuture<T> startAttempt(final ResponseProcessor<T> processor, 
+			final UserInfoCallEvent event, final CallCancellation cancellation) {
+		
+		if ( userInfoConfiguration.getTransport() == UserInfoTransport.NIO ) {
+			return invokeAPIAsync(processor, event, cancellation);
+		}
+		
+		final CompletableFuture<T> future = new CompletableFuture<T>();
+		
+		try {
+			ExecutorUtils.getInstance().getDefaultExecutor().execute(new Runnable() {
+				public void run() {
+					try {
+						future.complete(invokeAPI(processor, event, cancellation));
+					} catch (ConnectionException e) {
+						future.completeExceptionally(toAPIException(e));
+					} catch (Throwable e) {
+						future.completeExceptionally(e);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(new APIException(e));
+		}
+		
+		return future;
+	}
+	
+	/**
+	 * @param cancellation cancellation of the call or null
+	 * @throws APIException in case the call is cancelled
+	 */
+	private static void checkCancelled(CallCancellation cancellation) throws APIException {
+		
+		if ( cancellation != null && cancellation.isCancelled() ) {
+			throw APIException.stackless("Error: User Info API call was cancelled.");
+		}
+	}
+	
+	/**
+	 * Asks the circuit breaker, if any, for permission to make a call
+	 * 
+	 * @param circuitBreaker breaker or null
+	 * @throws APIException in case the breaker is open
+	 */
+	private static void acquirePermission(CircuitBreaker circuitBreaker) throws APIException {
+		
+		if ( circuitBreaker != null && !circuitBreaker.tryAcquirePermission() ) {
+			throw APIException.stackless("Error: User Info API circuit breaker is open.");
+		}
+	}
+	
+	private static void onSuccess(CircuitBreaker circuitBreaker) {
+		
+		if ( circuitBreaker != null ) {
+			circuitBreaker.onSuccess();
+		}
+	}
+	
+	private static void onFailure(CircuitBreaker circuitBreaker) {
+		
+		if ( circuitBreaker != null ) {
+			circuitBreaker.onFailure();
+		}
+	}
+	
+	private static void onIgnored(CircuitBreaker circuitBreaker) {
+		
+		if ( circuitBreaker != null ) {
+			circuitBreaker.onIgnored();
+		}
+	}
+	
+	/**
+	 * Asks the concurrency limiter, if any, for a permit to make a call. The 
+	 * permission of the circuit breaker is given back when the call is shed.
+	 * 
+	 * @param concurrencyLimiter	limiter or null
+	 * @param circuitBreaker		breaker or null
+	 * @param queue					true to queue while the limit is reached
+	 * @throws APIException in case the call is shed
+	 */
+	private static void acquirePermit(ConcurrencyLimiter concurrencyLimiter, CircuitBreaker circuitBreaker, 
+			boolean queue) throws APIException {
+		
+		if ( concurrencyLimiter == null ) {
+			return;
+		}
+		
+		boolean acquired;
+		try {
+			acquired = queue ? concurrencyLimiter.acquire() : concurrencyLimiter.tryAcquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			onIgnored(circuitBreaker);
+			throw new APIException("Error: Interrupted while waiting for User Info API response.");
+		}
+		
+		if ( !acquired ) {
+			onIgnored(circuitBreaker);
+			throw APIException.stackless("Error: User Info API concurrency limit reached.");
+		}
+	}
+	
+	/**
+	 * Releases the permit of an answered call, a retryable response (429 
+	 * or 5xx) cuts the limit and any other response is a latency sample
+	 * 
+	 * @param concurrencyLimiter	limiter or null
+	 * @param httpResponse
+	 * @param latencyNanos			time from sending the request to the response
+	 */
+	private static void onResponse(ConcurrencyLimiter concurrencyLimiter, HttpResponse httpResponse, 
+			long latencyNanos) {
+		
+		if ( concurrencyLimiter == null ) {
+			return;
+		}
+		
+		if ( isRetryableStatus(httpResponse) ) {
+			concurrencyLimiter.onDropped();
+		} else {
+			concurrencyLimiter.onSuccess(latencyNanos);
+		}
+	}
+	
+	private static void onDropped(ConcurrencyLimiter concurrencyLimiter) {
+		
+		if ( concurrencyLimiter != null ) {
+			concurrencyLimiter.onDropped();
+		}
+	}
+	
+	private static void onIgnored(ConcurrencyLimiter concurrencyLimiter) {
+		
+		if ( concurrencyLimiter != null ) {
+			concurrencyLimiter.onIgnored();
+		}
+	}
 	
 	/**
-	 * constructor
+	 * @param httpResponse
+	 * @return true for 429 and 5xx responses, which are worth retrying a GET for
+	 */
+	private static boolean isRetryableStatus(HttpResponse httpResponse) {
+		
+		if ( httpResponse == null || httpResponse.getStatusLine() == null ) {
+			return false;
+		}
+		
+		int status = httpResponse.getStatusLine().getStatusCode();
+		return status == 429 || (status >= 500 && status < 600);
+	}
+	
+	/**
+	 * Returns the delay before the retry following attempt: the Retry-After 
+	 * seconds of the response when given, otherwise a random delay up to the 
+	 * exponentially growing backoff, both capped at the maximum backoff
 	 * 
-	 * @param apiConnection current connection
+	 * @param attempt		0 for the first attempt
+	 * @param httpResponse	response of the attempt or null
+	 * @return delay in milliseconds
 	 */
-	public UserInfoHelper(ADPAPIConnection apiConnection) {
-		this.connection = apiConnection;
+	long retryDelay(int attempt, HttpResponse httpResponse) {
+		
+		long maxBackoff = Math.max(0, userInfoConfiguration.getMaxRetryBackoff());
+		
+		Header retryAfter = httpResponse != null ? httpResponse.getFirstHeader("Retry-After") : null;
+		if ( retryAfter != null ) {
+			try {
+				long seconds = Long.parseLong(retryAfter.getValue().trim());
+				if ( seconds >= 0 ) {
+					return Math.min(seconds * 1000L, maxBackoff);
+				}
+			} catch (NumberFormatException e) {
+				// an HTTP date, fall back to the backoff
+			}
+		}
+		
+		long backoff = Math.max(0, userInfoConfiguration.getRetryBackoff()) << Math.min(attempt, 30);
+		long ceiling = Math.min(backoff, maxBackoff);
+		
+		return ceiling > 0 ? ThreadLocalRandom.current().nextLong(ceiling + 1) : 0;
 	}
+	
+	/**
+	 * Waits before a retry of a blocking call
+	 * 
+	 * @param delay	milliseconds
+	 * @param event	measurements of the call or null
+	 * @throws APIException in case the thread is interrupted
+	 */
+	private static void sleepBeforeRetry(long delay, UserInfoCallEvent event) throws APIException {
+		
+		if ( event != null ) {
+			event.setRetries(event.getRetries() + 1);
+		}
 		
+		try {
+			Thread.sleep(delay);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new APIException("Error: Interrupted while waiting to retry User Info API call.");
+		}
+	}
+	
 	/**
-	 * Returns UserInfo for the connected entity
+	 * Builds the User Info API request of the configuration
 	 * 
-	 * @return UserInfo
-	 * @throws APIException  throws an exception with message
+	 * @param authorizationCodeConfiguration
+	 * @return HttpGet
+	 * @throws URISyntaxException
+	 * @throws ConnectionException
 	 */
-	public String getUserInfo() throws APIException {
+	private HttpGet buildRequest(AuthorizationCodeConfiguration authorizationCodeConfiguration) 
+			throws URISyntaxException, ConnectionException {
+		
+		Token token = connection.getToken();
+		if ( token == null ) {
+			throw new StacklessConnectionException("Token is Null!", Category.AUTHENTICATION);
+		}
+		
+		RequestTemplate requestTemplate = UserInfoUtils.getInstance().getRequestTemplate(authorizationCodeConfiguration);
+		
+		//create a GET request to retrieve data 
+		HttpGet getRequest = new HttpGet(requestTemplate.createURI(token.getAccess_token()));
+		getRequest.addHeader(USER_AGENT_HEADER);
+		
+		if ( userInfoConfiguration.isCompression() ) {
+			getRequest.addHeader(ACCEPT_ENCODING_HEADER);
+		}
+		
+		long requestTimeout = userInfoConfiguration.getRequestTimeout();
+		if ( requestTimeout > 0 ) {
+			int timeout = (int) Math.min(requestTimeout, Integer.MAX_VALUE);
+			getRequest.setConfig(RequestConfig.custom().setConnectionRequestTimeout(timeout)
+					.setConnectTimeout(timeout).setSocketTimeout(timeout).build());
+		}
+		
+		return getRequest;
+	}
 	
-		try {		
-			this.response = invokeAPI();
-		} catch (ConnectionException e) {
-			throw new APIException(e);
-		} 
+	/**
+	 * Notifies the listener that a call started
+	 * 
+	 * @param listener
+	 * @param operation
+	 * @return UserInfoCallEvent collecting the measurements of the call
+	 */
+	private static UserInfoCallEvent callStarted(UserInfoMetricsListener listener, String operation) {
 		
-		return response;
+		try {
+			listener.callStarted(operation);
+		} catch (RuntimeException e) {
+			LOGGER.log(Level.WARNING, "UserInfoMetricsListener callStarted failed", e);
+		}
+		
+		return new UserInfoCallEvent(operation);
 	}
 	
 	/**
-	 * Process the actual call to User Info API
+	 * Notifies the listener that a call ended
 	 * 
-	 * @return String
-	 * @throws ConnectionException 
-	 * @throws APIException 
-	 * @throws UserInfoHelperException
+	 * @param listener
+	 * @param event
+	 * @param start {@link System#nanoTime()} the call started at
+	 */
+	private static void callEnded(UserInfoMetricsListener listener, UserInfoCallEvent event, long start) {
+		
+		event.setDurationNanos(System.nanoTime() - start);
+		
+		try {
+			listener.callEnded(event);
+		} catch (RuntimeException e) {
+			LOGGER.log(Level.WARNING, "UserInfoMetricsListener callEnded failed", e);
+		}
+	}
+	
+	/**
+	 * Records the lease, DNS, connect, TLS handshake and time to first byte 
+	 * phases of a blocking call from the stamps HttpClientUtils left in the 
+	 * context. The connection phases are only recorded for a new connection.
+	 * 
+	 * @param context			context of the request
+	 * @param event
+	 * @param requestStart		nanoTime the request was handed to the client
+	 * @param responseReceived	nanoTime the response headers were returned
 	 */
-	private String invokeAPI() throws ConnectionException, APIException {
+	private static void recordConnectionPhases(HttpClientContext context, UserInfoCallEvent event, 
+			long requestStart, long responseReceived) {
+		
+		Long requestSent = (Long) context.getAttribute(HttpClientUtils.REQUEST_SENT_NANOS);
+		if ( requestSent == null ) {
+			return;
+		}
+		
+		long openNanos = 0;
+		Long connectNanos = (Long) context.getAttribute(HttpClientUtils.CONNECT_NANOS);
+		if ( connectNanos != null ) {
+			Long dnsNanos = (Long) context.getAttribute(HttpClientUtils.DNS_NANOS);
+			Long tlsNanos = (Long) context.getAttribute(HttpClientUtils.TLS_HANDSHAKE_NANOS);
+			long dns = dnsNanos != null ? dnsNanos.longValue() : 0;
+			long tls = tlsNanos != null ? tlsNanos.longValue() : 0;
 			
-		String response = null;
-		StringBuilder stringBuilder = null;
+			event.setPhaseNanos(UserInfoPhase.DNS, dns);
+			event.setPhaseNanos(UserInfoPhase.CONNECT, connectNanos.longValue() - tls);
+			if ( tlsNanos != null ) {
+				event.setPhaseNanos(UserInfoPhase.TLS_HANDSHAKE, tls);
+			}
+			openNanos = dns + connectNanos.longValue();
+		}
 		
-		URI endPointURL = null;	
+		event.setPhaseNanos(UserInfoPhase.LEASE, Math.max(0, requestSent.longValue() - requestStart - openNanos));
+		event.setPhaseNanos(UserInfoPhase.TIME_TO_FIRST_BYTE, responseReceived - requestSent.longValue());
+	}
+	
+	/**
+	 * Records the status of the response and counts the body bytes read from 
+	 * it, before and after decompression when it is compressed
+	 * 
+	 * @param httpResponse
+	 * @param event
+	 * @param timeTransfer	true to add the time spent reading the body as received to the transfer phase
+	 * @throws APIException in case the Content-Encoding is not supported
+	 */
+	private static void recordResponse(HttpResponse httpResponse, UserInfoCallEvent event, boolean timeTransfer) 
+			throws APIException {
 		
-		CloseableHttpClient httpClient = null;
-		CloseableHttpResponse httpResponse = null;
+		if ( httpResponse.getStatusLine() != null ) {
+			event.setHttpStatus(httpResponse.getStatusLine().getStatusCode());
+		}
 		
-		if ( connection != null ) {
-			if ( connection instanceof ClientCredentialsConnection ) {
-				throw new ConnectionException("Unimplemented method - UserInfo API access not "
-						+ "available for GrantType:ClientCredentials");
-			} else if ( !connection.isConnectionIndicator() ) {
-				throw new ConnectionException("Connection Token is expired!");
+		HttpEntity entity = httpResponse.getEntity();
+		if ( entity != null ) {
+			event.setResponseBytes(0);
+			
+			HttpEntity received = new ByteCountingEntity(entity, event, false, timeTransfer);
+			HttpEntity decompressed = ResponseUtils.getInstance().decompress(received);
+			
+			if ( decompressed != received ) {
+				event.setUncompressedBytes(0);
+				decompressed = new ByteCountingEntity(decompressed, event, true, false);
 			}
-		} else {
-			throw new ConnectionException("ADPAPIConnection is null!");
+			
+			httpResponse.setEntity(decompressed);
 		}
+	}
+	
+	/**
+	 * Waits for the result of a non-blocking call
+	 * 
+	 * @param future
+	 * @return result of the call
+	 * @throws APIException in case the call fails or the thread is interrupted
+	 */
+	private static <T> T awaitResult(CompletableFuture<T> future) throws APIException {
+		
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if ( cause instanceof APIException ) {
+				throw (APIException) cause;
+			} else if ( cause instanceof RuntimeException ) {
+				throw (RuntimeException) cause;
+			} else if ( cause instanceof Error ) {
+				throw (Error) cause;
+			}
+			throw new APIException(cause);
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new APIException("Error: Interrupted while waiting for User Info API response.");
+		}
+	}
+	
+	private static <T> CompletableFuture<T> failedFuture(Throwable throwable) {
+		
+		CompletableFuture<T> future = new CompletableFuture<T>();
+		future.completeExceptionally(throwable);
+		return future;
+	}
+	
+	/**
+	 * Returns a response after processing {@link HttpResponse} and throws exception
+	 * 
+	 * @param response 	       
+	 * @return String
+	 * @throws IOException
+	 * @throws APIException
+	 */
+	private String processAPIResponse(HttpResponse response) throws IOException, APIException {
+		
+		String body = null;
 		
 		try {
-			if ( connection instanceof AuthorizationCodeConnection) {
 			
-				AuthorizationCodeConnection authorizationCodeConnection = (AuthorizationCodeConnection) connection;
-				AuthorizationCodeConfiguration authorizationCodeConfiguration = 
-						(AuthorizationCodeConfiguration) authorizationCodeConnection.getConnectionConfiguration();
-				
-				//create a HTTP Client
-				httpClient = SSLUtils.getInstance().getHttpsClient(authorizationCodeConfiguration);
-									
-				//create a GET request to retrieve data 
-				HttpGet getRequest = new HttpGet();
-				getRequest.addHeader("User-Agent", Constants.USERINFO_USER_AGENT);
-					
-				List<NameValuePair> nameValuePairs = UserInfoUtils.getInstance().getNameValuePairs((AuthorizationCodeConnection)connection);
-					
-				endPointURL = new URIBuilder(authorizationCodeConfiguration.getApiRequestUrl()).setParameters(nameValuePairs).build();
-					
-				// map end point url
-				getRequest.setURI(endPointURL);
-					
-				//invoke the service for response
-				httpResponse = (CloseableHttpResponse) httpClient.execute(getRequest);
-					
-				if ( httpResponse !=  null) {					
-					stringBuilder = processAPIResponse(httpResponse);
-				}
-			} 
+			if ( response != null ) {
+				checkStatus(response);
+				body = ResponseUtils.getInstance().readBody(response.getEntity(), 
+						userInfoConfiguration.getMaxResponseBodySize());
+			}			
+		} catch (IOException e) {
+			throw new APIException("Error: Unable to get API response.");
+		} finally {
+			closeResponse(response);
+		}
+
+		return body;
+	}
+
+	/**
+	 * Writes the body of {@link HttpResponse} to the sink and throws exception
+	 * 
+	 * @param response
+	 * @param sink
+	 * @return Long		number of bytes written or null if there is no body
+	 * @throws IOException
+	 * @throws APIException
+	 */
+	private Long processAPIResponse(HttpResponse response, OutputStream sink) throws IOException, APIException {
+		
+		long written = -1;
+		
+		try {
 			
-		} catch (ConnectionException e) {
-			throw new APIException(e);
+			if ( response != null ) {
+				checkStatus(response);
+				written = ResponseUtils.getInstance().writeBody(response.getEntity(), sink, 
+						userInfoConfiguration.getMaxResponseBodySize());
+			}			
 		} catch (IOException e) {
-			throw new APIException(e);   
-		} catch (URISyntaxException e) {
-			throw new APIException(e);		    
-		} catch (APIException e) {
-			throw e;
+			throw new APIException("Error: Unable to get API response.");
 		} finally {
-	       	try {
-	       		if ( httpResponse != null) {
-	       			httpResponse.close();
-	       		}
-				if ( httpClient != null) {
-					httpClient.close();
-				}
-			} catch (IOException e) {
-				throw new APIException(e);
-			} finally {}
+			closeResponse(response);
 		}
+
+		return written >= 0 ? Long.valueOf(written) : null;
+	}
+
+	/**
+	 * Returns the outcome of {@link HttpResponse} with its status and body, 
+	 * error statuses included
+	 * 
+	 * @param response
+	 * @return UserInfoResult or null if there is no response
+	 * @throws IOException
+	 * @throws APIException in case a successful body cannot be read
+	 */
+	private UserInfoResult processResultResponse(HttpResponse response) throws IOException, APIException {
 		
-		if ( stringBuilder != null) {
-			response = stringBuilder.toString();
+		if ( response == null ) {
+			return null;
 		}
 		
-		return response;
+		StatusLine statusLine = response.getStatusLine();
+		int status = statusLine != null ? statusLine.getStatusCode() : HttpStatus.SC_OK;
+		String body = null;
+		
+		try {
+			body = ResponseUtils.getInstance().readBody(response.getEntity(), 
+					userInfoConfiguration.getMaxResponseBodySize());
+		} catch (IOException e) {
+			if ( Category.forStatus(status) == Category.SUCCESS ) {
+				throw new APIException("Error: Unable to get API response.");
+			}
+		} catch (APIException e) {
+			// an error status is reported without an unreadable error body
+			if ( Category.forStatus(status) == Category.SUCCESS ) {
+				throw e;
+			}
+		} finally {
+			closeResponse(response);
+		}
+		
+		return UserInfoResult.forResponse(status, body);
 	}
-	
+
 	/**
-	 * Returns a response after processing {@link CloseableHttpResponse} and throws exception
+	 * Returns {@link UserInfo} parsed from {@link HttpResponse} and throws exception
 	 * 
 	 * @param response 	       
-	 * @return StringBuilder
+	 * @return UserInfo
+	 * @throws IOException
+	 * @throws APIException
+	 */
+	private UserInfo processUserInfoResponse(HttpResponse response) throws IOException, APIException {
+		return processUserInfoResponse(response, null);
+	}
+	
+	/**
+	 * Returns {@link UserInfo} with the requested fields parsed from {@link HttpResponse}
+	 * 
+	 * @param response
+	 * @param fields	fields to read, null for all of them
+	 * @return UserInfo
 	 * @throws IOException
 	 * @throws APIException
 	 */
-	private StringBuilder processAPIResponse(CloseableHttpResponse response) throws IOException, APIException {
+	private UserInfo processUserInfoResponse(HttpResponse response, Set<UserInfoField> fields) 
+			throws IOException, APIException {
 		
-		StringBuilder stringBuilder = null;
-		int value = -1;
+		UserInfo userInfo = null;
 		
 		try {
 			
 			if ( response != null ) {
-				
-				stringBuilder = new StringBuilder();
-				
-				InputStreamReader inputStreamReader = new InputStreamReader(response.getEntity().getContent());
-				BufferedReader bufferedReader = new BufferedReader(inputStreamReader);
-								
-				// reads to the end of the stream 
-		         while((value = bufferedReader.read()) != -1) {		        	 
-		            // add character
-		        	 stringBuilder.append((char)value);
-		         }				
+				checkStatus(response);
+				userInfo = ResponseUtils.getInstance().readUserInfo(response.getEntity(), 
+						userInfoConfiguration.getMaxResponseBodySize(), fields);
 			}			
 		} catch (IOException e) {
 			throw new APIException("Error: Unable to get API response.");
 		} finally {
-			if ( response != null ) {
-				response.close();
-			}
+			closeResponse(response);
+		}
+
+		return userInfo;
+	}
+
+	/**
+	 * Verifies the response is a 2xx one, the body of any other response 
+	 * is an error and not User Info
+	 * 
+	 * @param response
+	 * @throws APIException with the status and error body in case of another status
+	 */
+	private void checkStatus(HttpResponse response) throws APIException {
+		
+		StatusLine statusLine = response.getStatusLine();
+		if ( statusLine == null ) {
+			return;
+		}
+		
+		int status = statusLine.getStatusCode();
+		if ( status >= 200 && status < 300 ) {
+			return;
+		}
+		
+		String errorResponse = null;
+		try {
+			errorResponse = ResponseUtils.getInstance().readBody(response.getEntity(), 
+					userInfoConfiguration.getMaxResponseBodySize());
+		} catch (IOException e) {
+			// the status is reported without the error body
+		} catch (APIException e) {
+			// the status is reported without the error body
+		}
+		
+		throw APIException.stackless(status, "Error: User Info API returned HTTP status " + status + " " 
+				+ statusLine.getReasonPhrase() + ".", errorResponse);
+	}
+	
+	/**
+	 * @param response
+	 * @param name
+	 * @return value of the first header with the name or null
+	 */
+	private static String getHeader(HttpResponse response, String name) {
+		
+		Header header = response != null ? response.getFirstHeader(name) : null;
+		return header != null ? header.getValue() : null;
+	}
+	
+	/**
+	 * Closes responses of the blocking transport, responses of the 
+	 * non-blocking transport are already buffered
+	 * 
+	 * @param response
+	 * @throws IOException
+	 */
+	private static void closeResponse(HttpResponse response) throws IOException {
+		
+		if ( response instanceof CloseableHttpResponse ) {
+			((CloseableHttpResponse) response).close();
+		}
+	}
+
+	/**
+	 * ConnectionException for expected failures, it does not capture a 
+	 * stack trace and carries the category of the failure
+	 */
+	private static class StacklessConnectionException extends ConnectionException {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final Category category;
+		
+		StacklessConnectionException(String message, Category category) {
+			super(message);
+			this.category = category;
+		}
+		
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			return this;
 		}
+	}
 
-		return stringBuilder;
+	/**
+	 * Entity that adds the bytes read from its content to the event, and 
+	 * the time spent in the reads to its transfer phase if timed
+	 */
+	private static class ByteCountingEntity extends HttpEntityWrapper {
+		
+		private final UserInfoCallEvent event;
+		private final boolean uncompressed;
+		private final boolean timed;
+		
+		/**
+		 * @param wrappedEntity
+		 * @param event
+		 * @param uncompressed	true to count bytes after decompression
+		 * @param timed			true to time the reads
+		 */
+		ByteCountingEntity(HttpEntity wrappedEntity, UserInfoCallEvent event, boolean uncompressed, boolean timed) {
+			super(wrappedEntity);
+			this.event = event;
+			this.uncompressed = uncompressed;
+			this.timed = timed;
+		}
+		
+		private void count(long bytes) {
+			
+			if ( uncompressed ) {
+				event.addUncompressedBytes(bytes);
+			} else {
+				event.addResponseBytes(bytes);
+			}
+		}
+		
+		@Override
+		public InputStream getContent() throws IOException {
+			
+			InputStream content = super.getContent();
+			if ( content == null ) {
+				return null;
+			}
+			
+			return new FilterInputStream(content) {
+				
+				@Override
+				public int read() throws IOException {
+					long start = timed ? System.nanoTime() : 0;
+					int value = super.read();
+					if ( timed ) {
+						event.addPhaseNanos(UserInfoPhase.TRANSFER, System.nanoTime() - start);
+					}
+					if ( value != -1 ) {
+						count(1);
+					}
+					return value;
+				}
+				
+				@Override
+				public int read(byte[] b, int off, int len) throws IOException {
+					long start = timed ? System.nanoTime() : 0;
+					int read = super.read(b, off, len);
+					if ( timed ) {
+						event.addPhaseNanos(UserInfoPhase.TRANSFER, System.nanoTime() - start);
+					}
+					if ( read > 0 ) {
+						count(read);
+					}
+					return read;
+				}
+			};
+		}
 	}
 
 }
@@ -71,6 +71,52 @@ public class APIException extends Exception {
     public APIException(Throwable cause) {
         super(cause);
     }
+    
+    /**
+     * @param httpStatus			HTTP status, 0 when there was no response
+     * @param message				error message
+     * @param response				error body
+     * @param cause					cause or null
+     * @param writableStackTrace	false to not capture the stack trace
+     */
+    protected APIException(int httpStatus, String message, String response, Throwable cause, 
+    		boolean writableStackTrace) {
+    	super(message, cause, true, writableStackTrace);
+    	this.httpStatus = httpStatus;
+    	this.message = message;
+    	this.response = response;
+    }
+    
+    /**
+     * Returns an APIException without stack trace for expected failures, 
+     * such as an expired token or an error status of User Info API. 
+     * Capturing the stack trace is most of the cost of an exception and 
+     * tells nothing the message does not.
+     * 
+     * @param httpStatus	HTTP status, 0 when there was no response
+     * @param message		error message
+     * @param response		error body
+     * @return APIException
+     */
+    public static APIException stackless(int httpStatus, String message, String response) {
+    	return new APIException(httpStatus, message, response, null, false);
+    }
+    
+    /**
+     * @param message	error message
+     * @return APIException without stack trace, see {@link #stackless(int, String, String)}
+     */
+    public static APIException stackless(String message) {
+    	return new APIException(0, message, null, null, false);
+    }
+    
+    /**
+     * @param cause		cause of the failure
+     * @return APIException without stack trace, see {@link #stackless(int, String, String)}
+     */
+    public static APIException stackless(Throwable cause) {
+    	return new APIException(0, null, null, cause, false);
+    }
 
 	public int getHttpStatus() {
 		return httpStatus;
@@ -0,0 +1,332 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.metrics;
+
+import java.lang.reflect.Modifier;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * <p>
+ * Lock-free in-memory {@link UserInfoMetricsListener} that counts calls, 
+ * outcomes, retries, hedges, coalesced calls, HTTP statuses, exception types and response bytes and keeps 
+ * latency histograms of the whole call and of its connect, time to first 
+ * byte and body read phases.
+ * <p>
+ * Values are cumulative since creation and can be read at any time, e.g. by 
+ * a metrics endpoint. Comparing time to first byte with body read tells a 
+ * slow upstream apart from slow local parsing.
+ * <p>
+ * A histogram per {@link UserInfoPhase} breaks calls down further, from 
+ * the pool lease to decoding the body. Phase histograms can be read as 
+ * snapshots, or swapped for empty ones to report each interval on its own. 
+ * A call records all its phases into the histograms it read when it ended, 
+ * so it is never split between intervals.
+ * 
+ * @author tallaprs
+ *
+ */
+public class InMemoryUserInfoMetrics implements UserInfoMetricsListener {
+
+	private final LongAdder callsStarted = new LongAdder();
+	private final LongAdder callsSucceeded = new LongAdder();
+	private final LongAdder callsFailed = new LongAdder();
+	private final LongAdder cacheHits = new LongAdder();
+	private final LongAdder responseBytes = new LongAdder();
+	private final LongAdder uncompressedBytes = new LongAdder();
+	private final LongAdder retries = new LongAdder();
+	private final LongAdder hedges = new LongAdder();
+	private final LongAdder coalesced = new LongAdder();
+	
+	private final ConcurrentMap<Integer, LongAdder> statusCounts = new ConcurrentHashMap<Integer, LongAdder>();
+	private final ConcurrentMap<String, LongAdder> exceptionCounts = new ConcurrentHashMap<String, LongAdder>();
+	
+	private final LatencyHistogram duration = new LatencyHistogram();
+	private final LatencyHistogram connect = new LatencyHistogram();
+	private final LatencyHistogram timeToFirstByte = new LatencyHistogram();
+	private final LatencyHistogram bodyRead = new LatencyHistogram();
+	
+	private volatile Map<UserInfoPhase, LatencyHistogram> phases = newPhaseHistograms();
+	
+	public void callStarted(String operation) {
+		callsStarted.increment();
+	}
+
+	public void callEnded(UserInfoCallEvent event) {
+		
+		if ( event.isSuccess() ) {
+			callsSucceeded.increment();
+		} else {
+			callsFailed.increment();
+			increment(exceptionCounts, exceptionType(event.getException()));
+		}
+		
+		if ( event.isServedFromCache() ) {
+			cacheHits.increment();
+		}
+		
+		if ( event.getHttpStatus() > 0 ) {
+			increment(statusCounts, event.getHttpStatus());
+		}
+		
+		if ( event.getRetries() > 0 ) {
+			retries.add(event.getRetries());
+		}
+		
+		if ( event.isHedged() ) {
+			hedges.increment();
+		}
+		
+		if ( event.isCoalesced() ) {
+			coalesced.increment();
+		}
+		
+		if ( event.getResponseBytes() > 0 ) {
+			responseBytes.add(event.getResponseBytes());
+		}
+		
+		if ( event.getUncompressedBytes() > 0 ) {
+			uncompressedBytes.add(event.getUncompressedBytes());
+		}
+		
+		recordIfMeasured(duration, event.getDurationNanos());
+		recordIfMeasured(connect, event.getConnectNanos());
+		recordIfMeasured(timeToFirstByte, event.getTimeToFirstByteNanos());
+		recordIfMeasured(bodyRead, event.getBodyReadNanos());
+		
+		// read once, a concurrent swap does not split the phases of the call
+		Map<UserInfoPhase, LatencyHistogram> current = phases;
+		for ( Map.Entry<UserInfoPhase, LatencyHistogram> entry : current.entrySet() ) {
+			recordIfMeasured(entry.getValue(), event.getPhaseNanos(entry.getKey()));
+		}
+	}
+	
+	public long getCallsStarted() {
+		return callsStarted.sum();
+	}
+	
+	public long getCallsSucceeded() {
+		return callsSucceeded.sum();
+	}
+	
+	public long getCallsFailed() {
+		return callsFailed.sum();
+	}
+	
+	/**
+	 * @return number of calls started but not yet ended
+	 */
+	public long getCallsInFlight() {
+		return Math.max(0, callsStarted.sum() - callsSucceeded.sum() - callsFailed.sum());
+	}
+	
+	public long getCacheHits() {
+		return cacheHits.sum();
+	}
+	
+	/**
+	 * @return total number of retries
+	 */
+	public long getRetries() {
+		return retries.sum();
+	}
+	
+	/**
+	 * @return number of calls a hedge request was sent for
+	 */
+	public long getHedges() {
+		return hedges.sum();
+	}
+	
+	/**
+	 * @return number of calls that shared an identical call in flight
+	 */
+	public long getCoalescedCalls() {
+		return coalesced.sum();
+	}
+	
+	/**
+	 * @return total number of response body bytes read as received
+	 */
+	public long getResponseBytes() {
+		return responseBytes.sum();
+	}
+	
+	/**
+	 * @return total number of response body bytes after decompression, 
+	 * 		   compare with {@link #getResponseBytes()} for the savings
+	 */
+	public long getUncompressedBytes() {
+		return uncompressedBytes.sum();
+	}
+	
+	/**
+	 * @return number of responses by HTTP status
+	 */
+	public Map<Integer, Long> getStatusCounts() {
+		return snapshot(statusCounts);
+	}
+	
+	/**
+	 * @return number of failed calls by exception type, the type of the 
+	 * 		   cause is appended after a slash
+	 */
+	public Map<String, Long> getExceptionCounts() {
+		return snapshot(exceptionCounts);
+	}
+	
+	/**
+	 * @return latency of whole calls, including those served from the cache
+	 */
+	public LatencyHistogram getDuration() {
+		return duration;
+	}
+	
+	/**
+	 * @return connect latency of calls that invoked User Info API, 0 for reused connections
+	 */
+	public LatencyHistogram getConnect() {
+		return connect;
+	}
+	
+	public LatencyHistogram getTimeToFirstByte() {
+		return timeToFirstByte;
+	}
+	
+	public LatencyHistogram getBodyRead() {
+		return bodyRead;
+	}
+	
+	/**
+	 * @param phase
+	 * @return latency of the phase in the calls it happened in, since 
+	 * 		   creation or the last {@link #snapshotAndResetPhases()}
+	 */
+	public LatencyHistogram getPhase(UserInfoPhase phase) {
+		return phases.get(phase);
+	}
+	
+	/**
+	 * @return copies of the phase histograms
+	 */
+	public Map<UserInfoPhase, LatencyHistogram> getPhaseSnapshots() {
+		
+		Map<UserInfoPhase, LatencyHistogram> snapshots = new EnumMap<UserInfoPhase, LatencyHistogram>(UserInfoPhase.class);
+		for ( Map.Entry<UserInfoPhase, LatencyHistogram> entry : phases.entrySet() ) {
+			snapshots.put(entry.getKey(), entry.getValue().snapshot());
+		}
+		return snapshots;
+	}
+	
+	/**
+	 * Replaces the phase histograms with empty ones, so the next call 
+	 * returns the phases of the calls ended in between. A call ending during 
+	 * the swap may still be added to the returned histograms, copy them with 
+	 * {@link LatencyHistogram#snapshot()} for reads that must agree.
+	 * 
+	 * @return phase histograms of the calls ended since the previous call
+	 */
+	public synchronized Map<UserInfoPhase, LatencyHistogram> snapshotAndResetPhases() {
+		
+		Map<UserInfoPhase, LatencyHistogram> interval = phases;
+		phases = newPhaseHistograms();
+		return interval;
+	}
+	
+	@Override
+	public String toString() {
+		return "InMemoryUserInfoMetrics [callsStarted=" + getCallsStarted() 
+				+ ", callsSucceeded=" + getCallsSucceeded() + ", callsFailed=" + getCallsFailed() 
+				+ ", cacheHits=" + getCacheHits() + ", retries=" + getRetries() + ", hedges=" + getHedges() 
+				+ ", coalescedCalls=" + getCoalescedCalls()
+				+ ", responseBytes=" + getResponseBytes() + ", uncompressedBytes=" + getUncompressedBytes() 
+				+ ", statusCounts=" + getStatusCounts() + ", exceptionCounts=" + getExceptionCounts() 
+				+ ", duration=" + duration + ", connect=" + connect 
+				+ ", timeToFirstByte=" + timeToFirstByte + ", bodyRead=" + bodyRead + ", phases=" + phases + "]";
+	}
+	
+	private static Map<UserInfoPhase, LatencyHistogram> newPhaseHistograms() {
+		
+		Map<UserInfoPhase, LatencyHistogram> histograms = new EnumMap<UserInfoPhase, LatencyHistogram>(UserInfoPhase.class);
+		for ( UserInfoPhase phase : UserInfoPhase.values() ) {
+			histograms.put(phase, new LatencyHistogram());
+		}
+		return histograms;
+	}
+	
+	private static void recordIfMeasured(LatencyHistogram histogram, long nanos) {
+		
+		if ( nanos >= 0 ) {
+			histogram.record(nanos);
+		}
+	}
+	
+	private static <K> void increment(ConcurrentMap<K, LongAdder> counts, K key) {
+		
+		LongAdder counter = counts.get(key);
+		if ( counter == null ) {
+			LongAdder newCounter = new LongAdder();
+			counter = counts.putIfAbsent(key, newCounter);
+			if ( counter == null ) {
+				counter = newCounter;
+			}
+		}
+		counter.increment();
+	}
+	
+	private static <K extends Comparable<K>> Map<K, Long> snapshot(ConcurrentMap<K, LongAdder> counts) {
+		
+		Map<K, Long> snapshot = new TreeMap<K, Long>();
+		for ( Map.Entry<K, LongAdder> entry : counts.entrySet() ) {
+			snapshot.put(entry.getKey(), entry.getValue().sum());
+		}
+		return snapshot;
+	}
+	
+	private static String exceptionType(Throwable exception) {
+		
+		if ( exception == null ) {
+			return "unknown";
+		}
+		
+		Throwable cause = exception.getCause();
+		if ( cause != null && cause != exception ) {
+			return typeName(exception) + "/" + typeName(cause);
+		}
+		return typeName(exception);
+	}
+	
+	/**
+	 * Internal subclasses, such as the stackless ones of expected failures, 
+	 * are counted as the public exception they extend
+	 */
+	private static String typeName(Throwable exception) {
+		
+		Class<?> type = exception.getClass();
+		while ( !Modifier.isPublic(type.getModifiers()) && type.getSuperclass() != null ) {
+			type = type.getSuperclass();
+		}
+		return type.getSimpleName();
+	}
+	
+}
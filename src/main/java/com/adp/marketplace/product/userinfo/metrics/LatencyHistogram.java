@@ -0,0 +1,225 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * <p>
+ * Lock-free histogram of non-negative values, typically nanoseconds.
+ * <p>
+ * Values are counted in log-linear buckets: every power of two range is 
+ * split into 32 equal buckets, so a recorded value is reported within about 
+ * 3% of its true value across the whole long range, in fixed memory. 
+ * Recording is a few atomic increments and never blocks.
+ * <p>
+ * {@link #snapshot()} copies the histogram for consistent reads and 
+ * {@link #snapshotAndReset()} also empties it. A value recorded while 
+ * either runs is never lost, but the reset moves buckets, sum and max one 
+ * after the other, so such a value can be counted in one interval and 
+ * added to the sum or max of the next. For exact intervals, record into a 
+ * new histogram and read the previous one once recording into it has 
+ * stopped, as InMemoryUserInfoMetrics and HedgingPolicy do.
+ * 
+ * @author tallaprs
+ *
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+	
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+	
+	/**
+	 * Records a value, negative values are recorded as 0
+	 * 
+	 * @param value
+	 */
+	public void record(long value) {
+		
+		if ( value < 0 ) {
+			value = 0;
+		}
+		
+		counts.incrementAndGet(bucketIndex(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		
+		long currentMax = max.get();
+		while ( value > currentMax && !max.compareAndSet(currentMax, value) ) {
+			currentMax = max.get();
+		}
+	}
+	
+	/**
+	 * @return number of recorded values
+	 */
+	public long getCount() {
+		return count.get();
+	}
+	
+	/**
+	 * @return sum of recorded values
+	 */
+	public long getSum() {
+		return sum.get();
+	}
+	
+	/**
+	 * @return largest recorded value or 0
+	 */
+	public long getMax() {
+		return max.get();
+	}
+	
+	/**
+	 * @return mean of recorded values or 0
+	 */
+	public double getMean() {
+		
+		long currentCount = count.get();
+		return currentCount == 0 ? 0 : (double) sum.get() / currentCount;
+	}
+	
+	/**
+	 * Returns the value at or below which the percentile of recorded values fall, 
+	 * as the highest value of its bucket
+	 * 
+	 * @param percentile between 0 and 100
+	 * @return long value or 0 when nothing was recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		
+		long[] snapshot = new long[BUCKET_COUNT];
+		long total = 0;
+		
+		for ( int i = 0; i < BUCKET_COUNT; i++ ) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+		
+		if ( total == 0 ) {
+			return 0;
+		}
+		
+		double clamped = Math.min(Math.max(percentile, 0), 100);
+		long rank = Math.max(1, (long) Math.ceil(clamped / 100 * total));
+		long cumulative = 0;
+		
+		for ( int i = 0; i < BUCKET_COUNT; i++ ) {
+			cumulative += snapshot[i];
+			if ( cumulative >= rank ) {
+				return Math.min(highestValue(i), max.get());
+			}
+		}
+		
+		return max.get();
+	}
+	
+	/**
+	 * @return copy of the histogram
+	 */
+	public LatencyHistogram snapshot() {
+		return copy(false);
+	}
+	
+	/**
+	 * @return copy of the histogram, which is emptied; a value recorded 
+	 * 		   meanwhile may be split between the copy and the histogram
+	 */
+	public LatencyHistogram snapshotAndReset() {
+		return copy(true);
+	}
+	
+	/**
+	 * Empties the histogram
+	 */
+	public void reset() {
+		copy(true);
+	}
+	
+	@Override
+	public String toString() {
+		return "LatencyHistogram [count=" + getCount() + ", mean=" + (long) getMean() 
+				+ ", p50=" + getValueAtPercentile(50) + ", p99=" + getValueAtPercentile(99) 
+				+ ", p999=" + getValueAtPercentile(99.9) + ", max=" + getMax() + "]";
+	}
+	
+	/**
+	 * Copies the buckets, moving their counts to the copy when reset. The 
+	 * count of the copy is that of its buckets, so its percentiles agree 
+	 * with it while values are recorded concurrently.
+	 */
+	private LatencyHistogram copy(boolean reset) {
+		
+		LatencyHistogram copy = new LatencyHistogram();
+		long total = 0;
+		
+		for ( int i = 0; i < BUCKET_COUNT; i++ ) {
+			long bucket = reset ? counts.getAndSet(i, 0) : counts.get(i);
+			if ( bucket > 0 ) {
+				copy.counts.set(i, bucket);
+				total += bucket;
+			}
+		}
+		
+		copy.count.set(total);
+		if ( reset ) {
+			count.addAndGet(-total);
+			copy.sum.set(sum.getAndSet(0));
+			copy.max.set(max.getAndSet(0));
+		} else {
+			copy.sum.set(sum.get());
+			copy.max.set(max.get());
+		}
+		return copy;
+	}
+	
+	static int bucketIndex(long value) {
+		
+		if ( value < SUB_BUCKET_COUNT ) {
+			return (int) value;
+		}
+		
+		int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+		
+		return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+	}
+	
+	static long highestValue(int index) {
+		
+		if ( index < SUB_BUCKET_COUNT ) {
+			return index;
+		}
+		
+		int shift = index / SUB_BUCKET_COUNT - 1;
+		long lowest = (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+		
+		return lowest + (1L << shift) - 1;
+	}
+	
+}
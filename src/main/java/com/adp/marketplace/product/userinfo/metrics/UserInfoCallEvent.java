@@ -0,0 +1,277 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.metrics;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Measurements and outcome of one User Info call, passed to 
+ * {@link UserInfoMetricsListener#callEnded(UserInfoCallEvent)}.
+ * <p>
+ * Times are in nanoseconds and -1 when the phase did not happen or was not
+ * measured, e.g. for calls served from the cache or joining a call in 
+ * flight, see {@link #isCoalesced()}. The connect time is 0 when a pooled connection was reused. 
+ * Phases of retried calls are those of the last attempt. Next to these 
+ * overlapping measurements, {@link #getPhaseNanos(UserInfoPhase)} breaks 
+ * the call down into consecutive {@link UserInfoPhase}s.
+ * 
+ * @author tallaprs
+ *
+ */
+public class UserInfoCallEvent {
+
+	private final String operation;
+	
+	private boolean servedFromCache;
+	private int httpStatus;
+	private long responseBytes = -1;
+	private long uncompressedBytes = -1;
+	private int retries;
+	private volatile boolean hedged;
+	private boolean coalesced;
+	
+	private long connectNanos = -1;
+	private long timeToFirstByteNanos = -1;
+	private long bodyReadNanos = -1;
+	private long durationNanos = -1;
+	
+	private final long[] phaseNanos = newPhaseNanos();
+	
+	private Throwable exception;
+	
+	/**
+	 * constructor
+	 * 
+	 * @param operation name of the call
+	 */
+	public UserInfoCallEvent(String operation) {
+		this.operation = operation;
+	}
+
+	/**
+	 * @return body for getUserInfo(), userInfo for getUserInfoObject(), 
+	 * 		   projection for getUserInfo(Set), stream for getUserInfo(OutputStream), 
+	 * 		   result for getUserInfoResult()
+	 */
+	public String getOperation() {
+		return operation;
+	}
+
+	public boolean isServedFromCache() {
+		return servedFromCache;
+	}
+
+	public void setServedFromCache(boolean servedFromCache) {
+		this.servedFromCache = servedFromCache;
+	}
+
+	/**
+	 * @return HTTP status of the response or 0 when none was received
+	 */
+	public int getHttpStatus() {
+		return httpStatus;
+	}
+
+	public void setHttpStatus(int httpStatus) {
+		this.httpStatus = httpStatus;
+	}
+
+	/**
+	 * @return number of response body bytes read as received, compressed 
+	 * 		   when the response was, or -1
+	 */
+	public long getResponseBytes() {
+		return responseBytes;
+	}
+
+	public void setResponseBytes(long responseBytes) {
+		this.responseBytes = responseBytes;
+	}
+	
+	/**
+	 * Adds to the number of response body bytes read
+	 * 
+	 * @param bytes
+	 */
+	public void addResponseBytes(long bytes) {
+		this.responseBytes = Math.max(responseBytes, 0) + bytes;
+	}
+
+	/**
+	 * @return number of response body bytes after decompression, the 
+	 * 		   response bytes when the response was not compressed
+	 */
+	public long getUncompressedBytes() {
+		return uncompressedBytes >= 0 ? uncompressedBytes : responseBytes;
+	}
+
+	public void setUncompressedBytes(long uncompressedBytes) {
+		this.uncompressedBytes = uncompressedBytes;
+	}
+
+	/**
+	 * Adds to the number of response body bytes after decompression
+	 * 
+	 * @param bytes
+	 */
+	public void addUncompressedBytes(long bytes) {
+		this.uncompressedBytes = Math.max(uncompressedBytes, 0) + bytes;
+	}
+
+	/**
+	 * @return number of times the call was retried after a transport error 
+	 * 		   or a 429 or 5xx response
+	 */
+	public int getRetries() {
+		return retries;
+	}
+
+	public void setRetries(int retries) {
+		this.retries = retries;
+	}
+
+	/**
+	 * @return true if a hedge request was sent because the call was slow. 
+	 * 		   Only the first request is measured, so the phases are not 
+	 * 		   reported when the hedge answered first.
+	 */
+	public boolean isHedged() {
+		return hedged;
+	}
+
+	public void setHedged(boolean hedged) {
+		this.hedged = hedged;
+	}
+
+	/**
+	 * @return true when the call shared the response of an identical call 
+	 * 		   in flight, its HTTP phases were measured on that call only
+	 */
+	public boolean isCoalesced() {
+		return coalesced;
+	}
+
+	public void setCoalesced(boolean coalesced) {
+		this.coalesced = coalesced;
+	}
+
+	/**
+	 * @return time to open the connection including the TLS handshake, 
+	 * 		   0 for a reused connection
+	 */
+	public long getConnectNanos() {
+		return connectNanos;
+	}
+
+	public void setConnectNanos(long connectNanos) {
+		this.connectNanos = connectNanos;
+	}
+
+	/**
+	 * @return time from sending the request until the response headers 
+	 * 		   arrived, including the pool lease and connect time
+	 */
+	public long getTimeToFirstByteNanos() {
+		return timeToFirstByteNanos;
+	}
+
+	public void setTimeToFirstByteNanos(long timeToFirstByteNanos) {
+		this.timeToFirstByteNanos = timeToFirstByteNanos;
+	}
+
+	/**
+	 * @return time from the response headers until the body was read and 
+	 * 		   processed
+	 */
+	public long getBodyReadNanos() {
+		return bodyReadNanos;
+	}
+
+	public void setBodyReadNanos(long bodyReadNanos) {
+		this.bodyReadNanos = bodyReadNanos;
+	}
+
+	/**
+	 * @param phase
+	 * @return time spent in the phase or -1 when it did not happen or was not measured
+	 */
+	public long getPhaseNanos(UserInfoPhase phase) {
+		return phaseNanos[phase.ordinal()];
+	}
+
+	public void setPhaseNanos(UserInfoPhase phase, long nanos) {
+		this.phaseNanos[phase.ordinal()] = nanos;
+	}
+
+	/**
+	 * Adds to the time spent in the phase
+	 * 
+	 * @param phase
+	 * @param nanos
+	 */
+	public void addPhaseNanos(UserInfoPhase phase, long nanos) {
+		this.phaseNanos[phase.ordinal()] = Math.max(phaseNanos[phase.ordinal()], 0) + nanos;
+	}
+
+	/**
+	 * @return total time of the call
+	 */
+	public long getDurationNanos() {
+		return durationNanos;
+	}
+
+	public void setDurationNanos(long durationNanos) {
+		this.durationNanos = durationNanos;
+	}
+
+	/**
+	 * @return exception the call failed with or null
+	 */
+	public Throwable getException() {
+		return exception;
+	}
+
+	public void setException(Throwable exception) {
+		this.exception = exception;
+	}
+	
+	public boolean isSuccess() {
+		return exception == null;
+	}
+
+	@Override
+	public String toString() {
+		return "UserInfoCallEvent [operation=" + operation + ", servedFromCache=" + servedFromCache
+				+ ", httpStatus=" + httpStatus + ", responseBytes=" + responseBytes 
+				+ ", uncompressedBytes=" + uncompressedBytes + ", retries=" + retries + ", hedged=" + hedged
+				+ ", coalesced=" + coalesced
+				+ ", connectNanos=" + connectNanos + ", timeToFirstByteNanos=" + timeToFirstByteNanos 
+				+ ", bodyReadNanos=" + bodyReadNanos + ", durationNanos=" + durationNanos 
+				+ ", phaseNanos=" + Arrays.toString(phaseNanos)
+				+ ", exception=" + exception + "]";
+	}
+	
+	private static long[] newPhaseNanos() {
+		
+		long[] phaseNanos = new long[UserInfoPhase.values().length];
+		Arrays.fill(phaseNanos, -1);
+		return phaseNanos;
+	}
+	
+}
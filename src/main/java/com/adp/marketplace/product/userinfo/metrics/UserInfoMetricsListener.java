@@ -0,0 +1,52 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.metrics;
+
+
+/**
+ * <p>
+ * Instrumentation SPI of UserInfoHelper, registered with
+ * {@link com.adp.marketplace.product.userinfo.configuration.UserInfoConfiguration#setMetricsListener(UserInfoMetricsListener)}.
+ * <p>
+ * Callbacks run on the thread making the call, or on an I/O dispatch thread
+ * with the non-blocking transport, so implementations must be thread safe 
+ * and fast. Exceptions thrown by a listener are logged and otherwise ignored.
+ * 
+ * @author tallaprs
+ *
+ */
+public interface UserInfoMetricsListener {
+
+	/**
+	 * Called when a User Info call starts, before the cache is consulted
+	 * 
+	 * @param operation body for getUserInfo(), userInfo for getUserInfoObject(), 
+	 * 					projection for getUserInfo(Set), stream for getUserInfo(OutputStream), 
+	 * 					result for getUserInfoResult()
+	 */
+	void callStarted(String operation);
+	
+	/**
+	 * Called once for every started call when it ends, successfully or not
+	 * 
+	 * @param event measurements and outcome of the call, only valid 
+	 * 				for the duration of the callback
+	 */
+	void callEnded(UserInfoCallEvent event);
+	
+}
@@ -0,0 +1,72 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.metrics;
+
+
+/**
+ * <p>
+ * Consecutive phases of a User Info API call, timed per call in 
+ * {@link UserInfoCallEvent#getPhaseNanos(UserInfoPhase)}. The phases do not 
+ * overlap, so the slowest one is where the time of a slow call went.
+ * <p>
+ * DNS, CONNECT and TLS_HANDSHAKE only happen when a new connection is 
+ * opened. The non-blocking transport leases and opens connections on its 
+ * IO threads, there they are not timed apart and count as 
+ * TIME_TO_FIRST_BYTE.
+ * 
+ * @author tallaprs
+ *
+ */
+public enum UserInfoPhase {
+
+	/**
+	 * waiting for a pooled connection, including request preparation by the client
+	 */
+	LEASE,
+	
+	/**
+	 * resolving the host name of a new connection
+	 */
+	DNS,
+	
+	/**
+	 * opening the TCP connection
+	 */
+	CONNECT,
+	
+	/**
+	 * TLS handshake of a new connection
+	 */
+	TLS_HANDSHAKE,
+	
+	/**
+	 * from sending the request until the response headers arrived
+	 */
+	TIME_TO_FIRST_BYTE,
+	
+	/**
+	 * receiving the response body
+	 */
+	TRANSFER,
+	
+	/**
+	 * decompressing, decoding and parsing the response body
+	 */
+	DECODE
+	
+}
@@ -0,0 +1,451 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLException;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.protocol.BasicAsyncResponseConsumer;
+import org.apache.http.nio.reactor.IOSession;
+import org.apache.http.protocol.HttpContext;
+
+import com.adp.marketplace.connection.configuration.AuthorizationCodeConfiguration;
+import com.adp.marketplace.connection.constants.Constants;
+import com.adp.marketplace.connection.exception.ConnectionException;
+import com.adp.marketplace.product.userinfo.configuration.UserInfoConfiguration;
+
+
+/**
+ * <p>
+ * AsyncHttpClientUtils is a singleton utility class that keeps one long-lived,
+ * pooled {@link CloseableHttpAsyncClient} per {@link AuthorizationCodeConfiguration}
+ * and pool settings of the {@link UserInfoConfiguration} for the non-blocking User Info API transport. A few I/O dispatch threads 
+ * multiplex all outstanding calls of a client.
+ * <p>
+ * Clients are closed by {@link #close(AuthorizationCodeConfiguration)},
+ * {@link #close()} or by a JVM shutdown hook.
+ *
+ * @author tallaprs
+ *
+ */
+public class AsyncHttpClientUtils {
+
+	private static volatile AsyncHttpClientUtils INSTANCE = null;
+
+	private static final Logger LOGGER = Logger.getLogger(AsyncHttpClientUtils.class.getName());
+
+	private static final long EVICTION_PERIOD = 5000L;
+
+	/**
+	 * HttpContext attribute set to the {@link System#nanoTime()} the 
+	 * response headers of the request arrived at
+	 */
+	public static final String RESPONSE_RECEIVED_NANOS = "userinfo.response.received.nanos";
+
+	private final ConcurrentMap<PooledClientKey, PooledAsyncClient> httpAsyncClients =
+			new ConcurrentHashMap<PooledClientKey, PooledAsyncClient>();
+
+	private final ScheduledExecutorService evictor;
+
+	/**
+	 * constructor
+	 */
+	private AsyncHttpClientUtils() {
+
+		ScheduledThreadPoolExecutor scheduledExecutor = 
+				new ScheduledThreadPoolExecutor(1, new ExecutorUtils.DaemonThreadFactory("userinfo-nio-evictor-"));
+		scheduledExecutor.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				evictConnections();
+			}
+		}, EVICTION_PERIOD, EVICTION_PERIOD, TimeUnit.MILLISECONDS);
+		this.evictor = scheduledExecutor;
+
+		Runtime.getRuntime().addShutdownHook(new Thread("userinfo-httpasyncclient-shutdown") {
+			@Override
+			public void run() {
+				AsyncHttpClientUtils.this.close();
+			}
+		});
+	}
+
+	/**
+	 * this method returns a singleton instance of AsyncHttpClientUtils class
+	 * @return AsyncHttpClientUtils
+	 */
+	public static AsyncHttpClientUtils getInstance() {
+
+		if ( INSTANCE == null ) {
+			synchronized (AsyncHttpClientUtils.class) {
+				if ( INSTANCE == null ) {
+					INSTANCE = new AsyncHttpClientUtils();
+				}
+			}
+		}
+
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the shared, started non-blocking client for the configuration, 
+	 * creating it on first use with the settings of userInfoConfiguration. A 
+	 * client of the configuration with other settings is replaced, and it and 
+	 * its IO reactor are closed after 
+	 * {@link HttpClientUtils#RETIRED_CLIENT_GRACE_PERIOD}.
+	 *
+	 * @param configuration				AuthorizationCode configuration
+	 * @param userInfoConfiguration		pool and I/O thread settings
+	 * @return CloseableHttpAsyncClient	shared client, callers must not close it
+	 * @throws ConnectionException		in case of null configuration or setup errors
+	 */
+	public CloseableHttpAsyncClient getHttpAsyncClient(AuthorizationCodeConfiguration configuration,
+			UserInfoConfiguration userInfoConfiguration) throws ConnectionException {
+
+		if ( configuration == null ) {
+			throw new ConnectionException("Configuration is Null!");
+		}
+
+		PooledClientKey key = PooledClientKey.forNonBlocking(configuration, 
+				userInfoConfiguration != null ? userInfoConfiguration : UserInfoConfiguration.getDefault());
+
+		PooledAsyncClient pooledClient = httpAsyncClients.get(key);
+		if ( pooledClient == null ) {
+			synchronized (httpAsyncClients) {
+				pooledClient = httpAsyncClients.get(key);
+				if ( pooledClient == null ) {
+					pooledClient = createHttpAsyncClient(key);
+					for ( PooledClientKey other : new ArrayList<PooledClientKey>(httpAsyncClients.keySet()) ) {
+						if ( other.getConfiguration().equals(configuration) ) {
+							closeLater(httpAsyncClients.remove(other));
+						}
+					}
+					httpAsyncClients.put(key, pooledClient);
+				}
+			}
+		}
+
+		return pooledClient.httpAsyncClient;
+	}
+
+	/**
+	 * Sends the request and buffers the response, failing the call when the 
+	 * declared Content-Length is larger than maxBodySize
+	 *
+	 * @param httpAsyncClient	client from getHttpAsyncClient
+	 * @param request			request to send
+	 * @param maxBodySize		maximum number of body bytes accepted
+	 * @param context			request context or null
+	 * @param callback			notified on the I/O dispatch thread
+	 * @return Future
+	 */
+	public Future<HttpResponse> execute(CloseableHttpAsyncClient httpAsyncClient, HttpUriRequest request,
+			long maxBodySize, HttpContext context, FutureCallback<HttpResponse> callback) {
+
+		return httpAsyncClient.execute(HttpAsyncMethods.create(request), 
+				new LimitedResponseConsumer(maxBodySize, context), context, callback);
+	}
+
+	/**
+	 * Closes and discards the shared clients of the configuration, if any.
+	 * The next call to getHttpAsyncClient creates a new one.
+	 *
+	 * @param configuration AuthorizationCode configuration
+	 */
+	public void close(AuthorizationCodeConfiguration configuration) {
+
+		if ( configuration != null ) {
+			for ( PooledClientKey key : new ArrayList<PooledClientKey>(httpAsyncClients.keySet()) ) {
+				if ( configuration.equals(key.getConfiguration()) ) {
+					closeQuietly(httpAsyncClients.remove(key));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Closes and discards all shared clients
+	 */
+	public void close() {
+
+		for ( PooledClientKey key : new ArrayList<PooledClientKey>(httpAsyncClients.keySet()) ) {
+			closeQuietly(httpAsyncClients.remove(key));
+		}
+	}
+
+	/**
+	 * Closes a replaced client once its calls in flight had time to complete. 
+	 * Closing waits for its IO reactor, so it runs on the default executor.
+	 */
+	private void closeLater(final PooledAsyncClient pooledClient) {
+
+		if ( pooledClient == null ) {
+			return;
+		}
+
+		final Runnable close = new Runnable() {
+			public void run() {
+				closeQuietly(pooledClient);
+			}
+		};
+
+		try {
+			ExecutorUtils.getInstance().getScheduler().schedule(new Runnable() {
+				public void run() {
+					try {
+						ExecutorUtils.getInstance().getDefaultExecutor().execute(close);
+					} catch (RejectedExecutionException e) {
+						close.run();
+					}
+				}
+			}, HttpClientUtils.RETIRED_CLIENT_GRACE_PERIOD, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			close.run();
+		}
+	}
+
+	private void closeQuietly(PooledAsyncClient pooledClient) {
+
+		if ( pooledClient != null ) {
+			try {
+				pooledClient.httpAsyncClient.close();
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Unable to close pooled http async client", e);
+			}
+		}
+	}
+
+	/**
+	 * Builds and starts a pooled non-blocking client with the client 
+	 * certificate of the configuration and the settings of the key
+	 *
+	 * @param key
+	 * @return PooledAsyncClient
+	 * @throws ConnectionException
+	 */
+	private PooledAsyncClient createHttpAsyncClient(PooledClientKey key) throws ConnectionException {
+
+		AuthorizationCodeConfiguration configuration = key.getConfiguration();
+
+		// fails fast on an invalid SSL configuration instead of on the first connection
+		SSLContextUtils.getInstance().getSSLContext(configuration);
+
+		Registry<SchemeIOSessionStrategy> registry = RegistryBuilder.<SchemeIOSessionStrategy>create()
+				.register("https", new ReloadingSSLIOSessionStrategy(configuration))
+				.register("http", NoopIOSessionStrategy.INSTANCE)
+				.build();
+
+		PoolingNHttpClientConnectionManager connectionManager = null;
+
+		try {
+			IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+					.setIoThreadCount(key.getIoThreadCount())
+					.build();
+
+			connectionManager = new PoolingNHttpClientConnectionManager(
+					new DefaultConnectingIOReactor(ioReactorConfig), registry);
+		} catch (IOException e) {
+			throw new ConnectionException(e);
+		}
+
+		connectionManager.setMaxTotal(key.getMaxTotalConnections());
+		connectionManager.setDefaultMaxPerRoute(key.getMaxConnectionsPerRoute());
+
+		CloseableHttpAsyncClient httpAsyncClient = HttpAsyncClients.custom()
+				.setConnectionManager(connectionManager)
+				.setKeepAliveStrategy(new HttpClientUtils.BoundedKeepAliveStrategy(key.getKeepAliveDuration()))
+				.build();
+		httpAsyncClient.start();
+
+		return new PooledAsyncClient(httpAsyncClient, connectionManager, key.getIdleConnectionTimeout());
+	}
+
+	/**
+	 * Closes expired and idle connections of all shared clients
+	 */
+	private void evictConnections() {
+
+		for ( PooledAsyncClient pooledClient : httpAsyncClients.values() ) {
+			try {
+				pooledClient.connectionManager.closeExpiredConnections();
+				pooledClient.connectionManager.closeIdleConnections(pooledClient.idleConnectionTimeout, 
+						TimeUnit.MILLISECONDS);
+			} catch (RuntimeException e) {
+				LOGGER.log(Level.FINE, "Unable to evict pooled connections", e);
+			}
+		}
+	}
+
+	/**
+	 * Shared client with the connection manager its idle connections are evicted from
+	 */
+	private static class PooledAsyncClient {
+
+		private final CloseableHttpAsyncClient httpAsyncClient;
+		private final PoolingNHttpClientConnectionManager connectionManager;
+		private final long idleConnectionTimeout;
+
+		PooledAsyncClient(CloseableHttpAsyncClient httpAsyncClient,
+				PoolingNHttpClientConnectionManager connectionManager, long idleConnectionTimeout) {
+			this.httpAsyncClient = httpAsyncClient;
+			this.connectionManager = connectionManager;
+			this.idleConnectionTimeout = idleConnectionTimeout;
+		}
+	}
+
+	/**
+	 * Buffering response consumer that rejects responses declaring a 
+	 * Content-Length larger than the limit before buffering them, fails 
+	 * chunked or undeclared bodies once more than the limit arrived and 
+	 * records when the response headers arrived
+	 */
+	private static class LimitedResponseConsumer extends BasicAsyncResponseConsumer {
+
+		private final long maxBodySize;
+		private final HttpContext context;
+
+		private long bodySize;
+
+		LimitedResponseConsumer(long maxBodySize, HttpContext context) {
+			this.maxBodySize = maxBodySize;
+			this.context = context;
+		}
+
+		@Override
+		protected void onResponseReceived(HttpResponse response) throws IOException {
+
+			if ( context != null ) {
+				context.setAttribute(RESPONSE_RECEIVED_NANOS, Long.valueOf(System.nanoTime()));
+			}
+			super.onResponseReceived(response);
+		}
+
+		@Override
+		protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) throws IOException {
+
+			if ( entity.getContentLength() > maxBodySize ) {
+				throw new IOException("Error: API response of " + entity.getContentLength()
+						+ " bytes exceeds maximum size of " + maxBodySize + " bytes.");
+			}
+			super.onEntityEnclosed(entity, contentType);
+		}
+
+		@Override
+		protected void onContentReceived(final ContentDecoder decoder, IOControl ioctrl) throws IOException {
+
+			super.onContentReceived(new ContentDecoder() {
+				public int read(ByteBuffer dst) throws IOException {
+
+					int read = decoder.read(dst);
+					if ( read > 0 ) {
+						bodySize += read;
+						if ( bodySize > maxBodySize ) {
+							throw new IOException("Error: API response exceeds maximum size of " 
+									+ maxBodySize + " bytes.");
+						}
+					}
+					return read;
+				}
+
+				public boolean isCompleted() {
+					return decoder.isCompleted();
+				}
+			}, ioctrl);
+		}
+	}
+
+	/**
+	 * SSL session strategy that takes the SSL context of each new connection 
+	 * from {@link SSLContextUtils}, the non-blocking counterpart of 
+	 * {@link HttpClientUtils.ReloadingSSLSocketFactory}
+	 */
+	static class ReloadingSSLIOSessionStrategy implements SchemeIOSessionStrategy {
+
+		private final AuthorizationCodeConfiguration configuration;
+
+		private volatile SSLIOSessionStrategy delegate;
+		private volatile SSLContext sslContext;
+
+		ReloadingSSLIOSessionStrategy(AuthorizationCodeConfiguration configuration) {
+			this.configuration = configuration;
+		}
+
+		public IOSession upgrade(HttpHost host, IOSession ioSession) throws IOException {
+			return getDelegate().upgrade(host, ioSession);
+		}
+
+		public boolean isLayeringRequired() {
+			return true;
+		}
+
+		/**
+		 * Returns the session strategy of the current SSL context, rebuilding 
+		 * it only when the SSL context changed
+		 */
+		private SSLIOSessionStrategy getDelegate() throws IOException {
+
+			SSLContext current;
+			try {
+				current = SSLContextUtils.getInstance().getSSLContext(configuration);
+			} catch (ConnectionException e) {
+				throw new SSLException(e.getMessage(), e);
+			}
+
+			SSLIOSessionStrategy sessionStrategy = delegate;
+			if ( sessionStrategy == null || current != sslContext ) {
+				sessionStrategy = new SSLIOSessionStrategy(current, new String[] { Constants.TLS_VERSION }, null, 
+						SSLIOSessionStrategy.getDefaultHostnameVerifier());
+				delegate = sessionStrategy;
+				sslContext = current;
+			}
+			return sessionStrategy;
+		}
+	}
+
+}
@@ -0,0 +1,182 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * <p>
+ * ExecutorUtils is a singleton utility class that provides the executor 
+ * asynchronous User Info API calls run on when the caller supplies none.
+ * <p>
+ * On Java 21 and later the executor starts a virtual thread per call, 
+ * on earlier versions it is a cached pool of daemon threads.
+ * <p>
+ * It also provides the scheduler delayed work such as retries of 
+ * non-blocking calls is run on, and the bounded executor background 
+ * refreshes of cached values run on.
+ * 
+ * @author tallaprs
+ *
+ */
+public class ExecutorUtils {
+
+	private static volatile ExecutorUtils INSTANCE = null;
+	
+	private static final Logger LOGGER = Logger.getLogger(ExecutorUtils.class.getName());
+	
+	private final ExecutorService defaultExecutor;
+	
+	private final ScheduledExecutorService scheduler;
+	private final ExecutorService refreshExecutor;
+
+	/**
+	 * threads reloading cached values in the background
+	 */
+	public static final int REFRESH_THREADS = 2;
+
+	/**
+	 * refreshes waiting for a thread, further ones are rejected
+	 */
+	public static final int REFRESH_QUEUE_SIZE = 1024;
+	
+	/**
+	 * constructor
+	 */
+	private ExecutorUtils() {
+		
+		ExecutorService executorService = newVirtualThreadPerTaskExecutor();
+		if ( executorService == null ) {
+			executorService = Executors.newCachedThreadPool(new DaemonThreadFactory("userinfo-async-"));
+		}
+		this.defaultExecutor = executorService;
+		
+		ScheduledThreadPoolExecutor scheduledExecutor = 
+				new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("userinfo-scheduler-"));
+		scheduledExecutor.setRemoveOnCancelPolicy(true);
+		this.scheduler = scheduledExecutor;
+		
+		ThreadPoolExecutor refreshPool = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS, 
+				60L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(REFRESH_QUEUE_SIZE), 
+				new DaemonThreadFactory("userinfo-refresh-"));
+		refreshPool.allowCoreThreadTimeOut(true);
+		this.refreshExecutor = refreshPool;
+	}
+	
+	/**
+	 * this method returns a singleton instance of ExecutorUtils class
+	 * @return ExecutorUtils
+	 */
+	public static ExecutorUtils getInstance() {
+		
+		if ( INSTANCE == null ) {		
+			synchronized (ExecutorUtils.class) {
+	            if ( INSTANCE == null ) {
+	                INSTANCE = new ExecutorUtils();
+	            }
+	        }
+	    }
+		
+	    return INSTANCE;
+	}
+	
+	/**
+	 * Returns the executor used for asynchronous calls without a caller 
+	 * supplied executor
+	 * 
+	 * @return ExecutorService
+	 */
+	public ExecutorService getDefaultExecutor() {
+		return defaultExecutor;
+	}
+	
+	/**
+	 * Returns the scheduler of delayed work, its single daemon thread 
+	 * must only run short non-blocking tasks
+	 * 
+	 * @return ScheduledExecutorService
+	 */
+	public ScheduledExecutorService getScheduler() {
+		return scheduler;
+	}
+	
+	/**
+	 * Returns the executor background refreshes of cached values run on. 
+	 * It has {@link #REFRESH_THREADS} threads and rejects refreshes once 
+	 * {@link #REFRESH_QUEUE_SIZE} are waiting, so a burst of refreshes 
+	 * cannot pile up.
+	 * 
+	 * @return ExecutorService
+	 */
+	public ExecutorService getRefreshExecutor() {
+		return refreshExecutor;
+	}
+	
+	/**
+	 * Returns Executors.newVirtualThreadPerTaskExecutor() when the runtime 
+	 * provides it. Looked up reflectively as the library is built for Java 8.
+	 * 
+	 * @return ExecutorService or null before Java 21
+	 */
+	private ExecutorService newVirtualThreadPerTaskExecutor() {
+		
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (NoSuchMethodException e) {
+			return null;
+		} catch (Exception e) {
+			LOGGER.log(Level.FINE, "Virtual threads not available", e);
+			return null;
+		}
+	}
+	
+	/**
+	 * Thread factory of named daemon threads, so idle pool threads 
+	 * never keep the JVM from exiting
+	 */
+	static class DaemonThreadFactory implements ThreadFactory {
+		
+		private final AtomicInteger threadNumber = new AtomicInteger(1);
+		private final String namePrefix;
+		
+		DaemonThreadFactory(String namePrefix) {
+			this.namePrefix = namePrefix;
+		}
+		
+		public Thread newThread(Runnable runnable) {
+			
+			Thread thread = new Thread(runnable, namePrefix + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
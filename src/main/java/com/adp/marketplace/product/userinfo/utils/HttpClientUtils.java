@@ -0,0 +1,483 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.utils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLException;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+
+import com.adp.marketplace.connection.configuration.AuthorizationCodeConfiguration;
+import com.adp.marketplace.connection.constants.Constants;
+import com.adp.marketplace.connection.exception.ConnectionException;
+import com.adp.marketplace.product.userinfo.configuration.UserInfoConfiguration;
+
+
+/**
+ * <p>
+ * HttpClientUtils is a singleton utility class that keeps one long-lived,
+ * pooled {@link CloseableHttpClient} per {@link AuthorizationCodeConfiguration}
+ * and pool settings of the {@link UserInfoConfiguration} so that User Info API calls reuse open TLS connections instead of
+ * performing a new handshake on every request.
+ * <p>
+ * Clients are closed by {@link #close(AuthorizationCodeConfiguration)},
+ * {@link #close()} or by a JVM shutdown hook.
+ *
+ * @author tallaprs
+ *
+ */
+public class HttpClientUtils {
+
+	private static volatile HttpClientUtils INSTANCE = null;
+
+	private static final Logger LOGGER = Logger.getLogger(HttpClientUtils.class.getName());
+
+	/**
+	 * HttpContext attribute set to the nanoseconds spent opening a new 
+	 * connection of the request, including the TLS handshake
+	 */
+	public static final String CONNECT_NANOS = "userinfo.connect.nanos";
+
+	/**
+	 * HttpContext attribute set to the nanoseconds of the TLS handshake of 
+	 * a new connection of the request, part of {@link #CONNECT_NANOS}
+	 */
+	public static final String TLS_HANDSHAKE_NANOS = "userinfo.tls.handshake.nanos";
+
+	/**
+	 * HttpContext attribute set to the nanoseconds spent resolving the host 
+	 * of a new connection of the request
+	 */
+	public static final String DNS_NANOS = "userinfo.dns.nanos";
+
+	/**
+	 * HttpContext attribute set to the System.nanoTime() at which the 
+	 * request started to be sent on its connection
+	 */
+	public static final String REQUEST_SENT_NANOS = "userinfo.request.sent.nanos";
+
+	/**
+	 * milliseconds a client replaced by one with other pool settings keeps 
+	 * serving its calls in flight before it is closed
+	 */
+	public static final long RETIRED_CLIENT_GRACE_PERIOD = 60000L;
+
+	private final ConcurrentMap<PooledClientKey, CloseableHttpClient> httpClients =
+			new ConcurrentHashMap<PooledClientKey, CloseableHttpClient>();
+
+	/**
+	 * constructor
+	 */
+	private HttpClientUtils() {
+		Runtime.getRuntime().addShutdownHook(new Thread("userinfo-httpclient-shutdown") {
+			@Override
+			public void run() {
+				HttpClientUtils.this.close();
+			}
+		});
+	}
+
+	/**
+	 * this method returns a singleton instance of HttpClientUtils class
+	 * @return HttpClientUtils
+	 */
+	public static HttpClientUtils getInstance() {
+
+		if ( INSTANCE == null ) {
+			synchronized (HttpClientUtils.class) {
+				if ( INSTANCE == null ) {
+					INSTANCE = new HttpClientUtils();
+				}
+			}
+		}
+
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the shared pooled client for the configuration and the current 
+	 * pool settings of userInfoConfiguration, creating it on first use. A 
+	 * client of the configuration with other pool settings is replaced and 
+	 * closed after {@link #RETIRED_CLIENT_GRACE_PERIOD}.
+	 *
+	 * @param configuration			AuthorizationCode configuration
+	 * @param userInfoConfiguration	pool settings
+	 * @return CloseableHttpClient	shared client, callers must not close it
+	 * @throws ConnectionException	in case of null configuration or SSL setup errors
+	 */
+	public CloseableHttpClient getHttpClient(AuthorizationCodeConfiguration configuration,
+			UserInfoConfiguration userInfoConfiguration) throws ConnectionException {
+
+		if ( configuration == null ) {
+			throw new ConnectionException("Configuration is Null!");
+		}
+
+		PooledClientKey key = PooledClientKey.forBlocking(configuration, 
+				userInfoConfiguration != null ? userInfoConfiguration : UserInfoConfiguration.getDefault());
+
+		CloseableHttpClient httpClient = httpClients.get(key);
+		if ( httpClient == null ) {
+			synchronized (httpClients) {
+				httpClient = httpClients.get(key);
+				if ( httpClient == null ) {
+					httpClient = createHttpClient(key);
+					for ( PooledClientKey other : new ArrayList<PooledClientKey>(httpClients.keySet()) ) {
+						if ( other.getConfiguration().equals(configuration) ) {
+							closeLater(httpClients.remove(other));
+						}
+					}
+					httpClients.put(key, httpClient);
+				}
+			}
+		}
+
+		return httpClient;
+	}
+
+	/**
+	 * Closes and discards the shared clients of the configuration, if any.
+	 * The next call to getHttpClient creates a new one.
+	 *
+	 * @param configuration AuthorizationCode configuration
+	 */
+	public void close(AuthorizationCodeConfiguration configuration) {
+
+		if ( configuration != null ) {
+			for ( PooledClientKey key : new ArrayList<PooledClientKey>(httpClients.keySet()) ) {
+				if ( configuration.equals(key.getConfiguration()) ) {
+					closeQuietly(httpClients.remove(key));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Closes and discards all shared clients
+	 */
+	public void close() {
+
+		for ( PooledClientKey key : new ArrayList<PooledClientKey>(httpClients.keySet()) ) {
+			closeQuietly(httpClients.remove(key));
+		}
+	}
+
+	/**
+	 * Closes a replaced client once its calls in flight had time to complete
+	 */
+	private void closeLater(final CloseableHttpClient httpClient) {
+
+		if ( httpClient == null ) {
+			return;
+		}
+
+		try {
+			ExecutorUtils.getInstance().getScheduler().schedule(new Runnable() {
+				public void run() {
+					closeQuietly(httpClient);
+				}
+			}, RETIRED_CLIENT_GRACE_PERIOD, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			closeQuietly(httpClient);
+		}
+	}
+
+	/**
+	 * Builds a pooled client with the client certificate of the configuration 
+	 * and the pool settings of the key
+	 *
+	 * @param key
+	 * @return CloseableHttpClient
+	 * @throws ConnectionException
+	 */
+	private CloseableHttpClient createHttpClient(PooledClientKey key) throws ConnectionException {
+
+		AuthorizationCodeConfiguration configuration = key.getConfiguration();
+
+		// fails fast on an invalid SSL configuration instead of on the first connection
+		SSLContextUtils.getInstance().getSSLContext(configuration);
+
+		Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+				.register("https", new ConnectTimingSocketFactory(new ReloadingSSLSocketFactory(configuration)))
+				.register("http", new ConnectTimingSocketFactory(PlainConnectionSocketFactory.getSocketFactory()))
+				.build();
+
+		PoolingHttpClientConnectionManager connectionManager = new ConnectTimingConnectionManager(registry);
+		connectionManager.setMaxTotal(key.getMaxTotalConnections());
+		connectionManager.setDefaultMaxPerRoute(key.getMaxConnectionsPerRoute());
+
+		return HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setKeepAliveStrategy(new BoundedKeepAliveStrategy(key.getKeepAliveDuration()))
+				.setRequestExecutor(new SendTimingRequestExecutor())
+				// Accept-Encoding is negotiated per request and decoded by ResponseUtils on both transports
+				.disableContentCompression()
+				.evictExpiredConnections()
+				.evictIdleConnections(key.getIdleConnectionTimeout(), TimeUnit.MILLISECONDS)
+				.build();
+	}
+
+	private void closeQuietly(CloseableHttpClient httpClient) {
+
+		if ( httpClient != null ) {
+			try {
+				httpClient.close();
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Unable to close pooled http client", e);
+			}
+		}
+	}
+
+	/**
+	 * Keep alive strategy that honours the server Keep-Alive header
+	 * but never keeps a connection longer than the configured duration
+	 */
+	static class BoundedKeepAliveStrategy implements ConnectionKeepAliveStrategy {
+
+		private final long maxKeepAlive;
+
+		BoundedKeepAliveStrategy(long maxKeepAlive) {
+			this.maxKeepAlive = maxKeepAlive;
+		}
+
+		public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+
+			long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+
+			if ( keepAlive <= 0 || keepAlive > maxKeepAlive ) {
+				keepAlive = maxKeepAlive;
+			}
+			return keepAlive;
+		}
+	}
+
+	/**
+	 * Connection manager that records the time spent resolving the host of 
+	 * a new connection in the {@link #DNS_NANOS} attribute of the request 
+	 * context, as the time spent opening it less the time of its socket
+	 */
+	static class ConnectTimingConnectionManager extends PoolingHttpClientConnectionManager {
+
+		ConnectTimingConnectionManager(Registry<ConnectionSocketFactory> registry) {
+			super(registry);
+		}
+
+		@Override
+		public void connect(HttpClientConnection managedConn, HttpRoute route, int connectTimeout,
+				HttpContext context) throws IOException {
+
+			long start = System.nanoTime();
+			super.connect(managedConn, route, connectTimeout, context);
+
+			if ( context != null ) {
+				Long connectNanos = (Long) context.getAttribute(CONNECT_NANOS);
+				long socketNanos = connectNanos != null ? connectNanos.longValue() : 0;
+				context.setAttribute(DNS_NANOS, Long.valueOf(Math.max(0, System.nanoTime() - start - socketNanos)));
+			}
+		}
+	}
+
+	/**
+	 * Request executor that records when the request starts to be sent in 
+	 * the {@link #REQUEST_SENT_NANOS} attribute of the request context, 
+	 * i.e. once the connection is leased and open
+	 */
+	static class SendTimingRequestExecutor extends HttpRequestExecutor {
+
+		@Override
+		public HttpResponse execute(HttpRequest request, HttpClientConnection conn, HttpContext context)
+				throws IOException, HttpException {
+
+			if ( context != null ) {
+				context.setAttribute(REQUEST_SENT_NANOS, Long.valueOf(System.nanoTime()));
+			}
+			return super.execute(request, conn, context);
+		}
+	}
+
+	/**
+	 * Socket factory that records the time spent opening a connection 
+	 * in the {@link #CONNECT_NANOS} attribute of the request context and 
+	 * that of its TLS handshake in {@link #TLS_HANDSHAKE_NANOS}
+	 */
+	static class ConnectTimingSocketFactory implements LayeredConnectionSocketFactory {
+
+		private final ConnectionSocketFactory delegate;
+
+		ConnectTimingSocketFactory(ConnectionSocketFactory delegate) {
+			this.delegate = delegate;
+		}
+
+		public Socket createSocket(HttpContext context) throws IOException {
+			return delegate.createSocket(context);
+		}
+
+		public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress,
+				InetSocketAddress localAddress, HttpContext context) throws IOException {
+
+			long start = System.nanoTime();
+
+			Socket plain = socket != null ? socket : delegate.createSocket(context);
+			if ( !(delegate instanceof LayeredConnectionSocketFactory) || plain instanceof SSLSocket ) {
+				Socket connected = delegate.connectSocket(connectTimeout, plain, host, remoteAddress, localAddress, 
+						context);
+				record(context, start, -1);
+				return connected;
+			}
+
+			// the TCP connect of SSLConnectionSocketFactory, so the handshake is timed apart
+			if ( localAddress != null ) {
+				plain.bind(localAddress);
+			}
+			try {
+				if ( connectTimeout > 0 && plain.getSoTimeout() == 0 ) {
+					plain.setSoTimeout(connectTimeout);
+				}
+				plain.connect(remoteAddress, connectTimeout);
+			} catch (IOException e) {
+				closeQuietly(plain);
+				throw e;
+			}
+
+			long connected = System.nanoTime();
+			Socket layered = ((LayeredConnectionSocketFactory) delegate).createLayeredSocket(plain, 
+					host.getHostName(), remoteAddress.getPort(), context);
+
+			record(context, start, connected);
+			return layered;
+		}
+
+		/**
+		 * @param connected nanoTime the TCP connection was open at, -1 without TLS
+		 */
+		private static void record(HttpContext context, long start, long connected) {
+
+			if ( context != null ) {
+				long now = System.nanoTime();
+				context.setAttribute(CONNECT_NANOS, Long.valueOf(now - start));
+				if ( connected >= 0 ) {
+					context.setAttribute(TLS_HANDSHAKE_NANOS, Long.valueOf(now - connected));
+				}
+			}
+		}
+
+		private static void closeQuietly(Socket socket) {
+
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// the connect failure is reported
+			}
+		}
+
+		public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context)
+				throws IOException {
+
+			if ( !(delegate instanceof LayeredConnectionSocketFactory) ) {
+				throw new IOException("Protocol does not support TLS over a proxy tunnel");
+			}
+			return ((LayeredConnectionSocketFactory) delegate).createLayeredSocket(socket, target, port, context);
+		}
+	}
+
+	/**
+	 * SSL socket factory that takes the SSL context of each new connection 
+	 * from {@link SSLContextUtils}, so connections opened after the keystore 
+	 * changed use its new key material while connections already pooled 
+	 * keep theirs until they are closed. TLS sessions are resumed through 
+	 * the session cache of the shared SSL context.
+	 */
+	static class ReloadingSSLSocketFactory implements LayeredConnectionSocketFactory {
+
+		private final AuthorizationCodeConfiguration configuration;
+
+		private volatile SSLConnectionSocketFactory delegate;
+		private volatile SSLContext sslContext;
+
+		ReloadingSSLSocketFactory(AuthorizationCodeConfiguration configuration) {
+			this.configuration = configuration;
+		}
+
+		public Socket createSocket(HttpContext context) throws IOException {
+			return getDelegate().createSocket(context);
+		}
+
+		public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress,
+				InetSocketAddress localAddress, HttpContext context) throws IOException {
+			return getDelegate().connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+		}
+
+		public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context)
+				throws IOException {
+			return getDelegate().createLayeredSocket(socket, target, port, context);
+		}
+
+		/**
+		 * Returns the socket factory of the current SSL context, rebuilding 
+		 * it only when the SSL context changed
+		 */
+		private SSLConnectionSocketFactory getDelegate() throws IOException {
+
+			SSLContext current;
+			try {
+				current = SSLContextUtils.getInstance().getSSLContext(configuration);
+			} catch (ConnectionException e) {
+				throw new SSLException(e.getMessage(), e);
+			}
+
+			SSLConnectionSocketFactory socketFactory = delegate;
+			if ( socketFactory == null || current != sslContext ) {
+				socketFactory = new SSLConnectionSocketFactory(current, new String[] { Constants.TLS_VERSION },
+						null, SSLConnectionSocketFactory.getDefaultHostnameVerifier());
+				delegate = socketFactory;
+				sslContext = current;
+			}
+			return socketFactory;
+		}
+	}
+
+}
@@ -0,0 +1,124 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.utils;
+
+import com.adp.marketplace.connection.configuration.AuthorizationCodeConfiguration;
+import com.adp.marketplace.product.userinfo.configuration.UserInfoConfiguration;
+
+
+/**
+ * Identifies a shared pooled client: the AuthorizationCodeConfiguration it 
+ * connects with and the pool settings of the UserInfoConfiguration it was 
+ * built from, taken when the key is made. A key with other settings for 
+ * the same configuration gets a new client that replaces the previous one.
+ * 
+ * @author tallaprs
+ *
+ */
+final class PooledClientKey {
+
+	private final AuthorizationCodeConfiguration configuration;
+	private final int maxTotalConnections;
+	private final int maxConnectionsPerRoute;
+	private final long idleConnectionTimeout;
+	private final long keepAliveDuration;
+	private final int ioThreadCount;
+	
+	private PooledClientKey(AuthorizationCodeConfiguration configuration, 
+			UserInfoConfiguration userInfoConfiguration, int ioThreadCount) {
+		
+		this.configuration = configuration;
+		this.maxTotalConnections = userInfoConfiguration.getMaxTotalConnections();
+		this.maxConnectionsPerRoute = userInfoConfiguration.getMaxConnectionsPerRoute();
+		this.idleConnectionTimeout = userInfoConfiguration.getIdleConnectionTimeout();
+		this.keepAliveDuration = userInfoConfiguration.getKeepAliveDuration();
+		this.ioThreadCount = ioThreadCount;
+	}
+	
+	/**
+	 * @return key of a blocking client, which has no I/O threads of its own
+	 */
+	static PooledClientKey forBlocking(AuthorizationCodeConfiguration configuration, 
+			UserInfoConfiguration userInfoConfiguration) {
+		return new PooledClientKey(configuration, userInfoConfiguration, 0);
+	}
+	
+	/**
+	 * @return key of a non-blocking client
+	 */
+	static PooledClientKey forNonBlocking(AuthorizationCodeConfiguration configuration, 
+			UserInfoConfiguration userInfoConfiguration) {
+		return new PooledClientKey(configuration, userInfoConfiguration, 
+				Math.max(1, userInfoConfiguration.getIoThreadCount()));
+	}
+	
+	AuthorizationCodeConfiguration getConfiguration() {
+		return configuration;
+	}
+	
+	int getMaxTotalConnections() {
+		return maxTotalConnections;
+	}
+	
+	int getMaxConnectionsPerRoute() {
+		return maxConnectionsPerRoute;
+	}
+	
+	long getIdleConnectionTimeout() {
+		return idleConnectionTimeout;
+	}
+	
+	long getKeepAliveDuration() {
+		return keepAliveDuration;
+	}
+	
+	int getIoThreadCount() {
+		return ioThreadCount;
+	}
+	
+	@Override
+	public int hashCode() {
+		
+		int hash = configuration.hashCode();
+		hash = 31 * hash + maxTotalConnections;
+		hash = 31 * hash + maxConnectionsPerRoute;
+		hash = 31 * hash + (int) (idleConnectionTimeout ^ (idleConnectionTimeout >>> 32));
+		hash = 31 * hash + (int) (keepAliveDuration ^ (keepAliveDuration >>> 32));
+		return 31 * hash + ioThreadCount;
+	}
+	
+	@Override
+	public boolean equals(Object object) {
+		
+		if ( this == object ) {
+			return true;
+		}
+		if ( !(object instanceof PooledClientKey) ) {
+			return false;
+		}
+		
+		PooledClientKey other = (PooledClientKey) object;
+		return configuration.equals(other.configuration) 
+				&& maxTotalConnections == other.maxTotalConnections
+				&& maxConnectionsPerRoute == other.maxConnectionsPerRoute
+				&& idleConnectionTimeout == other.idleConnectionTimeout
+				&& keepAliveDuration == other.keepAliveDuration
+				&& ioThreadCount == other.ioThreadCount;
+	}
+	
+}
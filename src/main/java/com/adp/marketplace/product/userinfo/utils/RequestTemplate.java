@@ -0,0 +1,157 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.utils;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.http.Consts;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.apache.http.message.BasicNameValuePair;
+
+import com.adp.marketplace.connection.configuration.AuthorizationCodeConfiguration;
+import com.adp.marketplace.connection.constants.Constants;
+import com.adp.marketplace.connection.constants.GrantType;
+import com.adp.marketplace.connection.exception.ConnectionException;
+import com.adp.marketplace.connection.utils.ConnectionUtils;
+
+
+/**
+ * <p>
+ * RequestTemplate is the immutable, pre-encoded User Info API request URI 
+ * of an {@link AuthorizationCodeConfiguration}. It holds the endpoint and 
+ * the encoded scope and client credential parameters, so a request URI 
+ * only needs the access token spliced in.
+ * <p>
+ * The URI is the one URIBuilder builds from the parameters of 
+ * {@link UserInfoUtils#getNameValuePairs(com.adp.marketplace.connection.core.ADPAPIConnection)}, 
+ * in the same order.
+ *
+ * @author tallaprs
+ *
+ */
+public final class RequestTemplate {
+
+	private final String apiRequestUrl;
+	private final String scope;
+	private final String clientID;
+	private final String clientSecret;
+	private final GrantType grantType;
+
+	// endpoint up to and including the '?' of the query
+	private final String prefix;
+	// '&' and the encoded parameters following the access token
+	private final String suffix;
+
+	/**
+	 * constructor
+	 *
+	 * @param configuration
+	 * @throws ConnectionException	in case the configuration is null
+	 * @throws URISyntaxException	in case the API request URL is not valid
+	 */
+	RequestTemplate(AuthorizationCodeConfiguration configuration) throws ConnectionException, URISyntaxException {
+
+		if ( configuration == null ) {
+			throw new ConnectionException("Connection Configuration is Null!");
+		}
+
+		this.apiRequestUrl = configuration.getApiRequestUrl();
+		this.scope = configuration.getScope();
+		this.clientID = configuration.getClientID();
+		this.clientSecret = configuration.getClientSecret();
+		this.grantType = configuration.getGrantType();
+
+		List<NameValuePair> nameValuePairs = new ArrayList<NameValuePair>();
+		nameValuePairs.add(new BasicNameValuePair(Constants.SCOPE, scope));
+		nameValuePairs.addAll(ConnectionUtils.getClientCredentials(configuration));
+
+		URI endpoint = new URIBuilder(apiRequestUrl).removeQuery().setFragment(null).build();
+
+		this.prefix = endpoint.toString() + "?";
+		this.suffix = "&" + URLEncodedUtils.format(nameValuePairs, Consts.UTF_8);
+	}
+
+	/**
+	 * Returns the request URI of the access token
+	 *
+	 * @param accessToken	access token of the connection
+	 * @return URI
+	 * @throws URISyntaxException
+	 */
+	public URI createURI(String accessToken) throws URISyntaxException {
+
+		if ( accessToken == null || !isUnreserved(accessToken) ) {
+			return new URI(prefix + URLEncodedUtils.format(Collections.singletonList(
+					new BasicNameValuePair(Constants.ACCESS_TOKEN, accessToken)), Consts.UTF_8) + suffix);
+		}
+
+		StringBuilder stringBuilder = new StringBuilder(prefix.length() + Constants.ACCESS_TOKEN.length() 
+				+ 1 + accessToken.length() + suffix.length());
+
+		stringBuilder.append(prefix).append(Constants.ACCESS_TOKEN).append('=')
+				.append(accessToken).append(suffix);
+
+		return new URI(stringBuilder.toString());
+	}
+
+	/**
+	 * @param configuration
+	 * @return true if the template was built from the current values of the configuration
+	 */
+	boolean matches(AuthorizationCodeConfiguration configuration) {
+
+		return same(apiRequestUrl, configuration.getApiRequestUrl())
+				&& same(scope, configuration.getScope())
+				&& same(clientID, configuration.getClientID())
+				&& same(clientSecret, configuration.getClientSecret())
+				&& grantType == configuration.getGrantType();
+	}
+
+	private static boolean same(String value, String other) {
+		return value == null ? other == null : value.equals(other);
+	}
+
+	/**
+	 * Returns true if the value contains only characters form encoding leaves 
+	 * as they are, as access tokens usually do
+	 */
+	private static boolean isUnreserved(String value) {
+
+		for ( int i = 0; i < value.length(); i++ ) {
+			char c = value.charAt(i);
+			boolean unreserved = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+					|| c == '-' || c == '_' || c == '.' || c == '*';
+			if ( !unreserved ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "RequestTemplate [apiRequestUrl=" + apiRequestUrl + ", scope=" + scope + "]";
+	}
+
+}
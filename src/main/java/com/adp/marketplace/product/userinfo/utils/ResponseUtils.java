@@ -0,0 +1,400 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.http.Consts;
+import org.apache.http.HttpEntity;
+import org.apache.http.ParseException;
+import org.apache.http.client.entity.DeflateDecompressingEntity;
+import org.apache.http.client.entity.GzipDecompressingEntity;
+import org.apache.http.entity.ContentType;
+
+import com.adp.marketplace.product.userinfo.exception.APIException;
+import com.adp.marketplace.product.userinfo.vo.UserInfo;
+import com.adp.marketplace.product.userinfo.vo.UserInfoField;
+
+
+/**
+ * <p>
+ * ResponseUtils is a singleton utility class that reads User Info API
+ * response entities.
+ * <p>
+ * The body is decoded in bulk with the charset of the entity Content-Type,
+ * UTF-8 when none is given, and is rejected with {@link APIException}
+ * once it grows past the configured maximum size.
+ * <p>
+ * A gzip or deflate Content-Encoding is decompressed as the body is read, 
+ * the maximum size applies to the decompressed bytes.
+ * <p>
+ * A body can also be copied as bytes to a caller stream, without being 
+ * decoded, through a buffer kept per thread.
+ *
+ * @author tallaprs
+ *
+ */
+public class ResponseUtils {
+
+	public static final int BUFFER_SIZE = 4096;
+
+	public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+	private static volatile ResponseUtils INSTANCE = null;
+
+	private static final ThreadLocal<byte[]> COPY_BUFFER = new ThreadLocal<byte[]>() {
+		@Override
+		protected byte[] initialValue() {
+			return new byte[BUFFER_SIZE];
+		}
+	};
+
+	/**
+	 * constructor
+	 */
+	private ResponseUtils() {}
+
+	/**
+	 * this method returns a singleton instance of ResponseUtils class
+	 * @return ResponseUtils
+	 */
+	public static ResponseUtils getInstance() {
+
+		if ( INSTANCE == null ) {
+			synchronized (ResponseUtils.class) {
+				if ( INSTANCE == null ) {
+					INSTANCE = new ResponseUtils();
+				}
+			}
+		}
+
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the charset declared by the entity Content-Type or UTF-8
+	 * when it is missing, invalid or not supported
+	 *
+	 * @param entity	response entity
+	 * @return Charset
+	 */
+	public Charset getCharset(HttpEntity entity) {
+
+		Charset charset = null;
+
+		try {
+			ContentType contentType = ContentType.get(entity);
+			if ( contentType != null ) {
+				charset = contentType.getCharset();
+			}
+		} catch (ParseException e) {
+			charset = null;
+		} catch (UnsupportedCharsetException e) {
+			charset = null;
+		}
+
+		return charset != null ? charset : Consts.UTF_8;
+	}
+
+	/**
+	 * Returns an entity whose content is decompressed as it is read when 
+	 * the entity has a gzip or deflate Content-Encoding, otherwise the 
+	 * entity itself
+	 *
+	 * @param entity		response entity
+	 * @return HttpEntity	decompressing entity, entity or null if the entity is null
+	 * @throws APIException	in case the Content-Encoding is not supported
+	 */
+	public HttpEntity decompress(HttpEntity entity) throws APIException {
+
+		if ( entity == null || entity.getContentEncoding() == null ) {
+			return entity;
+		}
+
+		String contentEncoding = entity.getContentEncoding().getValue();
+		String coding = contentEncoding != null ? contentEncoding.trim().toLowerCase(Locale.ROOT) : "";
+
+		if ( coding.isEmpty() || "identity".equals(coding) ) {
+			return entity;
+		} else if ( "gzip".equals(coding) || "x-gzip".equals(coding) ) {
+			return new GzipDecompressingEntity(entity);
+		} else if ( "deflate".equals(coding) ) {
+			return new DeflateDecompressingEntity(entity);
+		}
+
+		throw new APIException("Error: API response Content-Encoding " + contentEncoding + " is not supported.");
+	}
+
+	/**
+	 * Reads the entity body to a String
+	 *
+	 * @param entity		response entity
+	 * @param maxBodySize	maximum number of body bytes accepted
+	 * @return String		body or null if the entity is null
+	 * @throws IOException	in case the body cannot be read
+	 * @throws APIException	in case the body is larger than maxBodySize
+	 */
+	public String readBody(HttpEntity entity, long maxBodySize) throws IOException, APIException {
+
+		Reader reader = openReader(entity, maxBodySize);
+		if ( reader == null ) {
+			return null;
+		}
+
+		// chars never outnumber bytes for the charsets the API returns, the 
+		// Content-Length of a compressed body says nothing about its size
+		long contentLength = isEncoded(entity) ? -1 : Math.min(entity.getContentLength(), maxBodySize);
+		int capacity = contentLength >= 0 ? (int) Math.min(contentLength, Integer.MAX_VALUE - 8) : BUFFER_SIZE;
+		StringBuilder stringBuilder = new StringBuilder(capacity);
+
+		try {
+			char[] buffer = new char[BUFFER_SIZE];
+			int count;
+
+			while ( (count = reader.read(buffer)) != -1 ) {
+				stringBuilder.append(buffer, 0, count);
+			}
+		} catch (ResponseTooLargeException e) {
+			throw new APIException(e.getMessage());
+		}
+		reader.close();
+
+		return stringBuilder.toString();
+	}
+
+	/**
+	 * Copies the decompressed entity body to the sink as it is read, without 
+	 * decoding it. The sink is neither flushed nor closed.
+	 *
+	 * @param entity		response entity
+	 * @param sink			stream the body is written to
+	 * @param maxBodySize	maximum number of body bytes accepted
+	 * @return long			number of bytes written, -1 if the entity is null
+	 * @throws IOException	in case the body cannot be read or written
+	 * @throws APIException	in case the body is larger than maxBodySize
+	 */
+	public long writeBody(HttpEntity entity, OutputStream sink, long maxBodySize) throws IOException, APIException {
+
+		InputStream inputStream = openStream(entity, maxBodySize);
+		if ( inputStream == null ) {
+			return -1;
+		}
+
+		long total = 0;
+
+		try {
+			byte[] buffer = COPY_BUFFER.get();
+			int count;
+
+			while ( (count = inputStream.read(buffer)) != -1 ) {
+				sink.write(buffer, 0, count);
+				total += count;
+			}
+		} catch (ResponseTooLargeException e) {
+			throw new APIException(e.getMessage());
+		}
+		inputStream.close();
+
+		return total;
+	}
+
+	/**
+	 * Parses the entity body to {@link UserInfo} while it is read, without
+	 * building an intermediate String
+	 *
+	 * @param entity		response entity
+	 * @param maxBodySize	maximum number of body bytes accepted
+	 * @return UserInfo		parsed user info or null if the entity is null
+	 * @throws IOException	in case the body cannot be read or is not valid JSON
+	 * @throws APIException	in case the body is larger than maxBodySize
+	 */
+	public UserInfo readUserInfo(HttpEntity entity, long maxBodySize) throws IOException, APIException {
+		return readUserInfo(entity, maxBodySize, null);
+	}
+
+	/**
+	 * Parses the requested fields of the entity body to {@link UserInfo} while 
+	 * it is read. Parsing stops once every requested field is found, closing 
+	 * the reader then discards the rest of the body unparsed.
+	 *
+	 * @param entity		response entity
+	 * @param maxBodySize	maximum number of body bytes accepted
+	 * @param fields		fields to read, null for all of them
+	 * @return UserInfo		parsed user info or null if the entity is null
+	 * @throws IOException	in case the body cannot be read or is not valid JSON
+	 * @throws APIException	in case the body is larger than maxBodySize
+	 */
+	public UserInfo readUserInfo(HttpEntity entity, long maxBodySize, Set<UserInfoField> fields) 
+			throws IOException, APIException {
+
+		Reader reader = openReader(entity, maxBodySize);
+		if ( reader == null ) {
+			return null;
+		}
+
+		UserInfo userInfo = null;
+
+		try {
+			userInfo = UserInfoUtils.getInstance().parseUserInfo(reader, fields);
+		} catch (ResponseTooLargeException e) {
+			throw new APIException(e.getMessage());
+		}
+		reader.close();
+
+		return userInfo;
+	}
+
+	/**
+	 * Returns a reader over the entity content that decodes with the entity
+	 * charset and fails once more than maxBodySize bytes are read
+	 *
+	 * @param entity
+	 * @param maxBodySize
+	 * @return Reader or null if there is no content
+	 * @throws IOException
+	 * @throws APIException
+	 */
+	private Reader openReader(HttpEntity entity, long maxBodySize) throws IOException, APIException {
+
+		InputStream inputStream = openStream(entity, maxBodySize);
+		if ( inputStream == null ) {
+			return null;
+		}
+
+		// left open on failure so closing the response aborts instead of draining it
+		return new InputStreamReader(inputStream, getCharset(entity));
+	}
+
+	/**
+	 * Returns the decompressed entity content that fails once more than 
+	 * maxBodySize bytes are read
+	 *
+	 * @param entity
+	 * @param maxBodySize
+	 * @return InputStream or null if there is no content
+	 * @throws IOException
+	 * @throws APIException
+	 */
+	private InputStream openStream(HttpEntity entity, long maxBodySize) throws IOException, APIException {
+
+		if ( entity == null ) {
+			return null;
+		}
+
+		// the limit applies to decompressed bytes, which are counted as read
+		long contentLength = entity.getContentLength();
+		if ( !isEncoded(entity) && contentLength > maxBodySize ) {
+			throw new APIException("Error: API response of " + contentLength
+					+ " bytes exceeds maximum size of " + maxBodySize + " bytes.");
+		}
+
+		InputStream inputStream = decompress(entity).getContent();
+		if ( inputStream == null ) {
+			return null;
+		}
+
+		return new LimitedInputStream(inputStream, maxBodySize);
+	}
+
+	/**
+	 * @param entity
+	 * @return true when the entity has a Content-Encoding other than identity
+	 */
+	private static boolean isEncoded(HttpEntity entity) {
+
+		if ( entity.getContentEncoding() == null || entity.getContentEncoding().getValue() == null ) {
+			return false;
+		}
+
+		String coding = entity.getContentEncoding().getValue().trim();
+		return !coding.isEmpty() && !"identity".equalsIgnoreCase(coding);
+	}
+
+	/**
+	 * Thrown by {@link LimitedInputStream} once the limit is passed
+	 */
+	static class ResponseTooLargeException extends IOException {
+
+		private static final long serialVersionUID = 1L;
+
+		ResponseTooLargeException(long limit) {
+			super("Error: API response exceeds maximum size of " + limit + " bytes.");
+		}
+	}
+
+	/**
+	 * Input stream that counts the bytes read through it and fails
+	 * once more than limit bytes are read
+	 */
+	static class LimitedInputStream extends FilterInputStream {
+
+		private final long limit;
+		private long count;
+
+		LimitedInputStream(InputStream in, long limit) {
+			super(in);
+			this.limit = limit;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int value = super.read();
+			if ( value != -1 ) {
+				count(1);
+			}
+			return value;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if ( read > 0 ) {
+				count(read);
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count(skipped);
+			return skipped;
+		}
+
+		long getCount() {
+			return count;
+		}
+
+		private void count(long read) throws ResponseTooLargeException {
+			count += read;
+			if ( count > limit ) {
+				throw new ResponseTooLargeException(limit);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,333 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.ssl.SSLContexts;
+
+import com.adp.marketplace.connection.configuration.AuthorizationCodeConfiguration;
+import com.adp.marketplace.connection.exception.ConnectionException;
+
+
+/**
+ * <p>
+ * SSLContextUtils is a singleton utility class that builds the 
+ * {@link SSLContext} with the client certificate of an 
+ * {@link AuthorizationCodeConfiguration} once, and shares it for as long 
+ * as the keystore file does not change.
+ * <p>
+ * SSLContexts are cached by fingerprint, a SHA-256 digest of the keystore 
+ * content and its passwords, so configurations using the same keystore 
+ * share one SSLContext and its TLS session cache. Reconnects to a host 
+ * resume a cached session instead of performing a full handshake.
+ * <p>
+ * The keystore file is checked for changes at most every 
+ * {@link #FILE_CHECK_INTERVAL} milliseconds, by one thread while the others 
+ * keep waiting for its outcome. A check compares the fingerprint of the 
+ * content, so a keystore replaced with the same size and modification 
+ * time is noticed too, and a new SSLContext is built only when the 
+ * content changed.
+ *
+ * @author tallaprs
+ *
+ */
+public class SSLContextUtils {
+
+	private static volatile SSLContextUtils INSTANCE = null;
+
+	private static final Logger LOGGER = Logger.getLogger(SSLContextUtils.class.getName());
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * milliseconds between checks of a keystore file for changes
+	 */
+	public static final long FILE_CHECK_INTERVAL = 10L * 1000L;
+
+	/**
+	 * number of TLS sessions kept for resumption by each SSLContext
+	 */
+	public static final int SESSION_CACHE_SIZE = 10000;
+
+	/**
+	 * seconds a TLS session can be resumed for
+	 */
+	public static final int SESSION_TIMEOUT = 24 * 60 * 60;
+
+	private final ConcurrentMap<AuthorizationCodeConfiguration, KeyMaterial> keyMaterials =
+			new ConcurrentHashMap<AuthorizationCodeConfiguration, KeyMaterial>();
+
+	private final ConcurrentMap<String, SSLContext> sslContexts = new ConcurrentHashMap<String, SSLContext>();
+
+	private volatile long fileCheckInterval = FILE_CHECK_INTERVAL;
+
+	/**
+	 * constructor
+	 */
+	private SSLContextUtils() {}
+
+	/**
+	 * this method returns a singleton instance of SSLContextUtils class
+	 * @return SSLContextUtils
+	 */
+	public static SSLContextUtils getInstance() {
+
+		if ( INSTANCE == null ) {
+			synchronized (SSLContextUtils.class) {
+				if ( INSTANCE == null ) {
+					INSTANCE = new SSLContextUtils();
+				}
+			}
+		}
+
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the SSL context with the client certificate of the keystore 
+	 * referenced by the configuration, building it when the keystore is 
+	 * first used or has changed
+	 *
+	 * @param configuration			AuthorizationCode configuration
+	 * @return SSLContext			shared SSL context
+	 * @throws ConnectionException	in case of invalid SSL configuration or keystore
+	 */
+	public SSLContext getSSLContext(AuthorizationCodeConfiguration configuration) throws ConnectionException {
+
+		if ( configuration == null ) {
+			throw new ConnectionException("Configuration is Null!");
+		}
+
+		if ( StringUtils.isBlank(configuration.getSslCertPath())
+				|| StringUtils.isBlank(configuration.getKeyPassword())
+				|| StringUtils.isBlank(configuration.getStorePassword()) ) {
+			throw new ConnectionException("Invalid SSL configuration - sslCertPath, keyPassword and "
+					+ "storePassword are required!");
+		}
+
+		File keyStoreFile = new File(configuration.getSslCertPath().trim());
+		String storePassword = configuration.getStorePassword().trim();
+		String keyPassword = configuration.getKeyPassword().trim();
+
+		KeyMaterial keyMaterial = keyMaterials.get(configuration);
+		if ( isCurrent(keyMaterial, keyStoreFile, storePassword, keyPassword) ) {
+			return keyMaterial.sslContext;
+		}
+
+		synchronized (this) {
+			// another thread may have checked the keystore meanwhile
+			keyMaterial = keyMaterials.get(configuration);
+			if ( isCurrent(keyMaterial, keyStoreFile, storePassword, keyPassword) ) {
+				return keyMaterial.sslContext;
+			}
+
+			keyMaterial = loadKeyMaterial(keyStoreFile, storePassword, keyPassword, keyMaterial);
+			keyMaterials.put(configuration, keyMaterial);
+		}
+
+		return keyMaterial.sslContext;
+	}
+
+	/**
+	 * @return true if the key material is for the keystore and not due for a check
+	 */
+	private static boolean isCurrent(KeyMaterial keyMaterial, File keyStoreFile, String storePassword, 
+			String keyPassword) {
+		return keyMaterial != null && System.nanoTime() < keyMaterial.nextCheck 
+				&& keyMaterial.isFor(keyStoreFile, storePassword, keyPassword);
+	}
+
+	/**
+	 * Returns the fingerprint of the key material of the configuration, 
+	 * it changes when the keystore or its passwords change
+	 *
+	 * @param configuration			AuthorizationCode configuration
+	 * @return String				hex encoded SHA-256 digest
+	 * @throws ConnectionException	in case of invalid SSL configuration or keystore
+	 */
+	public String getFingerprint(AuthorizationCodeConfiguration configuration) throws ConnectionException {
+
+		getSSLContext(configuration);
+		return keyMaterials.get(configuration).fingerprint;
+	}
+
+	/**
+	 * Discards the key material of the configuration, the next call reads 
+	 * the keystore again
+	 *
+	 * @param configuration AuthorizationCode configuration
+	 */
+	public void invalidate(AuthorizationCodeConfiguration configuration) {
+
+		if ( configuration != null ) {
+			keyMaterials.remove(configuration);
+		}
+	}
+
+	/**
+	 * @param fileCheckInterval milliseconds between checks of a keystore file for changes
+	 */
+	void setFileCheckInterval(long fileCheckInterval) {
+		this.fileCheckInterval = fileCheckInterval;
+	}
+
+	/**
+	 * Reads the keystore and returns its key material, with the SSL context 
+	 * of the previous key material if the content did not change
+	 */
+	private KeyMaterial loadKeyMaterial(File keyStoreFile, String storePassword, String keyPassword, 
+			KeyMaterial previous) throws ConnectionException {
+
+		byte[] keyStoreBytes;
+		try {
+			keyStoreBytes = Files.readAllBytes(keyStoreFile.toPath());
+		} catch (IOException e) {
+			throw new ConnectionException(e);
+		}
+
+		String fingerprint = fingerprint(keyStoreBytes, storePassword, keyPassword);
+
+		SSLContext sslContext = sslContexts.get(fingerprint);
+		if ( sslContext == null ) {
+
+			sslContext = createSSLContext(keyStoreBytes, storePassword, keyPassword);
+			sslContexts.put(fingerprint, sslContext);
+
+			if ( previous != null ) {
+				LOGGER.info("Keystore " + keyStoreFile + " changed, new connections use its new key material");
+				removeUnused(previous.fingerprint);
+			}
+		}
+
+		return new KeyMaterial(keyStoreFile, storePassword, keyPassword, fingerprint, sslContext, 
+				System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(fileCheckInterval));
+	}
+
+	/**
+	 * Builds an SSL context with the key material of the keystore content, 
+	 * keeping TLS sessions for resumption
+	 */
+	private SSLContext createSSLContext(byte[] keyStoreBytes, String storePassword, String keyPassword) 
+			throws ConnectionException {
+
+		try {
+			KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+			keyStore.load(new ByteArrayInputStream(keyStoreBytes), storePassword.toCharArray());
+
+			SSLContext sslContext = SSLContexts.custom()
+					.loadKeyMaterial(keyStore, keyPassword.toCharArray())
+					.build();
+
+			SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+			if ( sessionContext != null ) {
+				sessionContext.setSessionCacheSize(SESSION_CACHE_SIZE);
+				sessionContext.setSessionTimeout(SESSION_TIMEOUT);
+			}
+
+			return sslContext;
+		} catch (Exception e) {
+			throw new ConnectionException(e);
+		}
+	}
+
+	/**
+	 * Discards the SSL context of the fingerprint once no configuration uses it
+	 */
+	private void removeUnused(String fingerprint) {
+
+		int users = 0;
+		for ( KeyMaterial keyMaterial : keyMaterials.values() ) {
+			if ( keyMaterial.fingerprint.equals(fingerprint) ) {
+				users++;
+			}
+		}
+
+		// the configuration being reloaded still counts as a user
+		if ( users <= 1 ) {
+			sslContexts.remove(fingerprint);
+		}
+	}
+
+	private static String fingerprint(byte[] keyStoreBytes, String storePassword, String keyPassword) 
+			throws ConnectionException {
+
+		try {
+			MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+			messageDigest.update(keyStoreBytes);
+			messageDigest.update((byte) 0);
+			messageDigest.update(storePassword.getBytes(UTF_8));
+			messageDigest.update((byte) 0);
+			messageDigest.update(keyPassword.getBytes(UTF_8));
+
+			StringBuilder stringBuilder = new StringBuilder(64);
+			for ( byte b : messageDigest.digest() ) {
+				stringBuilder.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+			}
+			return stringBuilder.toString();
+		} catch (Exception e) {
+			throw new ConnectionException(e);
+		}
+	}
+
+	/**
+	 * The SSL context built from a keystore file and what it was built from
+	 */
+	private static final class KeyMaterial {
+
+		private final File keyStoreFile;
+		private final String storePassword;
+		private final String keyPassword;
+		private final String fingerprint;
+		private final SSLContext sslContext;
+		private final long nextCheck;
+
+		KeyMaterial(File keyStoreFile, String storePassword, String keyPassword, String fingerprint, 
+				SSLContext sslContext, long nextCheck) {
+			this.keyStoreFile = keyStoreFile;
+			this.storePassword = storePassword;
+			this.keyPassword = keyPassword;
+			this.fingerprint = fingerprint;
+			this.sslContext = sslContext;
+			this.nextCheck = nextCheck;
+		}
+
+		/**
+		 * The configuration may have been changed to another keystore
+		 */
+		boolean isFor(File keyStoreFile, String storePassword, String keyPassword) {
+			return this.keyStoreFile.equals(keyStoreFile) && this.storePassword.equals(storePassword) 
+					&& this.keyPassword.equals(keyPassword);
+		}
+	}
+
+}
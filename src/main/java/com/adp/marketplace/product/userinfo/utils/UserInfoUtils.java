@@ -17,8 +17,16 @@
 */
 package com.adp.marketplace.product.userinfo.utils;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.logging.Logger;
 
 import org.apache.http.NameValuePair;
@@ -33,6 +41,11 @@ import com.adp.marketplace.connection.core.ClientCredentialsConnection;
 import com.adp.marketplace.connection.exception.ConnectionException;
 import com.adp.marketplace.connection.utils.ConnectionUtils;
 import com.adp.marketplace.connection.vo.Token;
+import com.adp.marketplace.product.userinfo.vo.UserInfo;
+import com.adp.marketplace.product.userinfo.vo.UserInfoField;
+import com.adp.marketplace.product.userinfo.vo.WorkAssignment;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
 
 /**
@@ -47,10 +60,14 @@ import com.adp.marketplace.connection.vo.Token;
  */
 public class UserInfoUtils {
 	
-	private static UserInfoUtils INSTANCE = null;
+	private static volatile UserInfoUtils INSTANCE = null;
 	
 	private static final Logger LOGGER = Logger.getLogger(UserInfoUtils.class.getName());
 	
+	// weak keys, so a template is dropped with its configuration
+	private final Map<AuthorizationCodeConfiguration, RequestTemplate> requestTemplates =
+			Collections.synchronizedMap(new WeakHashMap<AuthorizationCodeConfiguration, RequestTemplate>());
+	
 	/**
 	 * constructor
 	 */
@@ -171,4 +188,274 @@ public class UserInfoUtils {
 		return nameValuePairs;
 	}
 
+	/**
+	 * Returns the request template of the configuration. The template is 
+	 * built once per configuration and rebuilt when the endpoint, scope or 
+	 * client credentials of the configuration change. Templates are held 
+	 * only as long as their configuration is referenced elsewhere.
+	 * 
+	 * @param configuration			 AuthorizationCode configuration
+	 * @return RequestTemplate		 request template of the configuration
+	 * @throws ConnectionException   in case the configuration is null
+	 * @throws URISyntaxException	 in case the API request URL is not valid
+	 */
+	public RequestTemplate getRequestTemplate(AuthorizationCodeConfiguration configuration) 
+			throws ConnectionException, URISyntaxException {
+		
+		if ( configuration == null ) {
+			throw new ConnectionException("Connection Configuration is Null!");
+		}
+		
+		RequestTemplate requestTemplate = requestTemplates.get(configuration);
+		if ( requestTemplate == null || !requestTemplate.matches(configuration) ) {
+			requestTemplate = new RequestTemplate(configuration);
+			requestTemplates.put(configuration, requestTemplate);
+		}
+		
+		return requestTemplate;
+	}
+
+	/**
+	 * Returns UserInfo parsed from a User Info API JSON response. The 
+	 * response is read with a streaming JSON reader, unknown members are 
+	 * skipped without being materialized. Both the OpenID member names 
+	 * (given_name, family_name) and the ADP ones (givenName, familyName) are 
+	 * accepted, as is a response wrapped in a userInfo object.
+	 * 
+	 * @param reader			 reader over the JSON response
+	 * @return UserInfo			 parsed user info
+	 * @throws IOException		 in case the response cannot be read or is not valid JSON
+	 */
+	public UserInfo parseUserInfo(Reader reader) throws IOException {
+		return parseUserInfo(reader, null);
+	}
+	
+	/**
+	 * Returns UserInfo with the requested fields parsed from a User Info 
+	 * API JSON response. Members of other fields are skipped without being 
+	 * materialized and reading stops once every requested field is found, 
+	 * the rest of the response is not parsed.
+	 * 
+	 * @param reader			 reader over the JSON response
+	 * @param fields			 fields to read, null for all of them
+	 * @return UserInfo			 user info with the requested fields
+	 * @throws IOException		 in case the response cannot be read or is not valid JSON
+	 */
+	public UserInfo parseUserInfo(Reader reader, Set<UserInfoField> fields) throws IOException {
+		
+		UserInfo userInfo = new UserInfo();
+		JsonReader jsonReader = new JsonReader(reader);
+		
+		// fields still to be found, null while all of them are read
+		EnumSet<UserInfoField> remaining = null;
+		if ( fields != null ) {
+			remaining = EnumSet.noneOf(UserInfoField.class);
+			remaining.addAll(fields);
+			if ( remaining.isEmpty() ) {
+				return userInfo;
+			}
+		}
+		
+		try {
+			if ( jsonReader.peek() == JsonToken.BEGIN_OBJECT ) {
+				readUserInfo(jsonReader, userInfo, remaining);
+			} else {
+				throw new IOException("User Info response is not a JSON object!");
+			}
+		} catch (IllegalStateException e) {
+			throw new IOException(e);
+		} catch (NumberFormatException e) {
+			throw new IOException(e);
+		}
+		
+		return userInfo;
+	}
+	
+	/**
+	 * Returns a copy of the user info with the requested fields only
+	 * 
+	 * @param userInfo			 user info to copy
+	 * @param fields			 fields to copy
+	 * @return UserInfo			 user info with the requested fields or null
+	 */
+	public UserInfo projectUserInfo(UserInfo userInfo, Set<UserInfoField> fields) {
+		
+		if ( userInfo == null ) {
+			return null;
+		}
+		
+		UserInfo projection = new UserInfo();
+		
+		for ( UserInfoField field : fields ) {
+			switch ( field ) {
+			case SUB:
+				projection.setSub(userInfo.getSub());
+				break;
+			case ASSOCIATE_OID:
+				projection.setAssociateOID(userInfo.getAssociateOID());
+				break;
+			case ORGANIZATION_OID:
+				projection.setOrganizationOID(userInfo.getOrganizationOID());
+				break;
+			case GIVEN_NAME:
+				projection.setGivenName(userInfo.getGivenName());
+				break;
+			case FAMILY_NAME:
+				projection.setFamilyName(userInfo.getFamilyName());
+				break;
+			case EMAIL:
+				projection.setEmail(userInfo.getEmail());
+				break;
+			case WORK_ASSIGNMENTS:
+				projection.getWorkAssignments().addAll(userInfo.getWorkAssignments());
+				break;
+			}
+		}
+		
+		return projection;
+	}
+	
+	/**
+	 * Reads the members of a user info object, returns once every remaining 
+	 * field is found without reading the rest of the object
+	 * 
+	 * @param jsonReader
+	 * @param userInfo
+	 * @param remaining	fields still to be found, null to read all of them
+	 * @return true if every requested field has been found
+	 * @throws IOException
+	 */
+	private boolean readUserInfo(JsonReader jsonReader, UserInfo userInfo, EnumSet<UserInfoField> remaining) 
+			throws IOException {
+		
+		jsonReader.beginObject();
+		
+		while ( jsonReader.hasNext() ) {
+			
+			String name = jsonReader.nextName();
+			JsonToken token = jsonReader.peek();
+			
+			if ( "userInfo".equalsIgnoreCase(name) && token == JsonToken.BEGIN_OBJECT ) {
+				if ( readUserInfo(jsonReader, userInfo, remaining) ) {
+					return true;
+				}
+				continue;
+			}
+			
+			UserInfoField field = UserInfoField.forMemberName(name);
+			if ( field == null || (remaining != null && !remaining.contains(field)) ) {
+				jsonReader.skipValue();
+				continue;
+			}
+			
+			switch ( field ) {
+			case SUB:
+				userInfo.setSub(nextString(jsonReader));
+				break;
+			case ASSOCIATE_OID:
+				userInfo.setAssociateOID(nextString(jsonReader));
+				break;
+			case ORGANIZATION_OID:
+				userInfo.setOrganizationOID(nextString(jsonReader));
+				break;
+			case GIVEN_NAME:
+				userInfo.setGivenName(nextString(jsonReader));
+				break;
+			case FAMILY_NAME:
+				userInfo.setFamilyName(nextString(jsonReader));
+				break;
+			case EMAIL:
+				userInfo.setEmail(nextString(jsonReader));
+				break;
+			case WORK_ASSIGNMENTS:
+				if ( token == JsonToken.BEGIN_ARRAY ) {
+					readWorkAssignments(jsonReader, userInfo.getWorkAssignments());
+				} else {
+					jsonReader.skipValue();
+				}
+				break;
+			}
+			
+			if ( remaining != null ) {
+				remaining.remove(field);
+				if ( remaining.isEmpty() ) {
+					return true;
+				}
+			}
+		}
+		
+		jsonReader.endObject();
+		return false;
+	}
+	
+	/**
+	 * Reads an array of work assignment objects
+	 * 
+	 * @param jsonReader
+	 * @param workAssignments
+	 * @throws IOException
+	 */
+	private void readWorkAssignments(JsonReader jsonReader, List<WorkAssignment> workAssignments) 
+			throws IOException {
+		
+		jsonReader.beginArray();
+		
+		while ( jsonReader.hasNext() ) {
+			
+			if ( jsonReader.peek() != JsonToken.BEGIN_OBJECT ) {
+				jsonReader.skipValue();
+				continue;
+			}
+			
+			WorkAssignment workAssignment = new WorkAssignment();
+			jsonReader.beginObject();
+			
+			while ( jsonReader.hasNext() ) {
+				
+				String name = jsonReader.nextName();
+				
+				if ( "itemID".equals(name) ) {
+					workAssignment.setItemID(nextString(jsonReader));
+				} else if ( "positionID".equals(name) ) {
+					workAssignment.setPositionID(nextString(jsonReader));
+				} else if ( "jobTitle".equals(name) ) {
+					workAssignment.setJobTitle(nextString(jsonReader));
+				} else if ( "primaryIndicator".equals(name) ) {
+					workAssignment.setPrimaryIndicator(Boolean.parseBoolean(nextString(jsonReader)));
+				} else {
+					jsonReader.skipValue();
+				}
+			}
+			
+			jsonReader.endObject();
+			workAssignments.add(workAssignment);
+		}
+		
+		jsonReader.endArray();
+	}
+	
+	/**
+	 * Returns the next value as String if it is a primitive, 
+	 * null if it is null, an object or an array
+	 * 
+	 * @param jsonReader
+	 * @return String
+	 * @throws IOException
+	 */
+	private String nextString(JsonReader jsonReader) throws IOException {
+		
+		String value = null;
+		JsonToken token = jsonReader.peek();
+		
+		if ( token == JsonToken.STRING || token == JsonToken.NUMBER ) {
+			value = jsonReader.nextString();
+		} else if ( token == JsonToken.BOOLEAN ) {
+			value = String.valueOf(jsonReader.nextBoolean());
+		} else {
+			jsonReader.skipValue();
+		}
+		
+		return value;
+	}
+
 }
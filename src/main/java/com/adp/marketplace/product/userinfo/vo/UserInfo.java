@@ -0,0 +1,134 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.vo;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * UserInfo holds the details of the connected user returned by User Info API
+ * 
+ * @author tallaprs
+ *
+ */
+public class UserInfo implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private String sub;
+	private String associateOID;
+	private String organizationOID;
+	private String givenName;
+	private String familyName;
+	private String email;
+	private List<WorkAssignment> workAssignments = new ArrayList<WorkAssignment>();
+
+	public UserInfo() {
+	}
+
+	/**
+	 * copy constructor, the work assignments are copied too
+	 * 
+	 * @param userInfo user info to copy
+	 */
+	public UserInfo(UserInfo userInfo) {
+
+		this.sub = userInfo.sub;
+		this.associateOID = userInfo.associateOID;
+		this.organizationOID = userInfo.organizationOID;
+		this.givenName = userInfo.givenName;
+		this.familyName = userInfo.familyName;
+		this.email = userInfo.email;
+
+		if ( userInfo.workAssignments == null ) {
+			this.workAssignments = null;
+		} else {
+			this.workAssignments = new ArrayList<WorkAssignment>(userInfo.workAssignments.size());
+			for ( WorkAssignment workAssignment : userInfo.workAssignments ) {
+				this.workAssignments.add(workAssignment != null ? new WorkAssignment(workAssignment) : null);
+			}
+		}
+	}
+
+	public String getSub() {
+		return sub;
+	}
+
+	public void setSub(String sub) {
+		this.sub = sub;
+	}
+
+	public String getAssociateOID() {
+		return associateOID;
+	}
+
+	public void setAssociateOID(String associateOID) {
+		this.associateOID = associateOID;
+	}
+
+	public String getOrganizationOID() {
+		return organizationOID;
+	}
+
+	public void setOrganizationOID(String organizationOID) {
+		this.organizationOID = organizationOID;
+	}
+
+	public String getGivenName() {
+		return givenName;
+	}
+
+	public void setGivenName(String givenName) {
+		this.givenName = givenName;
+	}
+
+	public String getFamilyName() {
+		return familyName;
+	}
+
+	public void setFamilyName(String familyName) {
+		this.familyName = familyName;
+	}
+
+	public String getEmail() {
+		return email;
+	}
+
+	public void setEmail(String email) {
+		this.email = email;
+	}
+
+	public List<WorkAssignment> getWorkAssignments() {
+		return workAssignments;
+	}
+
+	public void setWorkAssignments(List<WorkAssignment> workAssignments) {
+		this.workAssignments = workAssignments;
+	}
+
+	@Override
+	public String toString() {
+		return "UserInfo [sub=" + sub + ", associateOID=" + associateOID 
+				+ ", organizationOID=" + organizationOID + ", givenName=" + givenName 
+				+ ", familyName=" + familyName + ", email=" + email 
+				+ ", workAssignments=" + workAssignments + "]";
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.vo;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.adp.marketplace.connection.core.ADPAPIConnection;
+import com.adp.marketplace.product.userinfo.exception.APIException;
+
+
+/**
+ * UserInfoBatchResult holds the outcome of a batch of User Info API calls, 
+ * the response of each connection that succeeded and the exception of 
+ * each connection that failed
+ * 
+ * @author tallaprs
+ *
+ */
+public class UserInfoBatchResult {
+
+	private final Map<ADPAPIConnection, String> responses = 
+			new ConcurrentHashMap<ADPAPIConnection, String>();
+	private final Map<ADPAPIConnection, APIException> failures = 
+			new ConcurrentHashMap<ADPAPIConnection, APIException>();
+
+	/**
+	 * @return responses by connection, a connection without response is absent
+	 */
+	public Map<ADPAPIConnection, String> getResponses() {
+		return responses;
+	}
+
+	/**
+	 * @return exceptions by connection
+	 */
+	public Map<ADPAPIConnection, APIException> getFailures() {
+		return failures;
+	}
+
+	public int getSuccessCount() {
+		return responses.size();
+	}
+
+	public int getFailureCount() {
+		return failures.size();
+	}
+
+	public void addResponse(ADPAPIConnection connection, String response) {
+		if ( response != null ) {
+			responses.put(connection, response);
+		}
+	}
+
+	public void addFailure(ADPAPIConnection connection, APIException exception) {
+		failures.put(connection, exception);
+	}
+
+	@Override
+	public String toString() {
+		return "UserInfoBatchResult [successCount=" + getSuccessCount() 
+				+ ", failureCount=" + getFailureCount() + "]";
+	}
+
+}
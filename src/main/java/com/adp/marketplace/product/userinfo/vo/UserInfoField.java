@@ -0,0 +1,71 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.vo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Fields of {@link UserInfo} a caller can ask for, with the names of the 
+ * User Info API response members each one is read from
+ * 
+ * @author tallaprs
+ *
+ */
+public enum UserInfoField {
+
+	SUB("sub"),
+	
+	ASSOCIATE_OID("associateOID"),
+	
+	ORGANIZATION_OID("organizationOID"),
+	
+	GIVEN_NAME("given_name", "givenName"),
+	
+	FAMILY_NAME("family_name", "familyName"),
+	
+	EMAIL("email", "emailAddress"),
+	
+	WORK_ASSIGNMENTS("workAssignments");
+	
+	private static final Map<String, UserInfoField> MEMBER_FIELDS = new HashMap<String, UserInfoField>();
+	
+	static {
+		for ( UserInfoField field : values() ) {
+			for ( String memberName : field.memberNames ) {
+				MEMBER_FIELDS.put(memberName, field);
+			}
+		}
+	}
+	
+	private final String[] memberNames;
+	
+	private UserInfoField(String... memberNames) {
+		this.memberNames = memberNames;
+	}
+	
+	/**
+	 * @param memberName	name of a User Info API response member
+	 * @return UserInfoField read from the member or null
+	 */
+	public static UserInfoField forMemberName(String memberName) {
+		return MEMBER_FIELDS.get(memberName);
+	}
+	
+}
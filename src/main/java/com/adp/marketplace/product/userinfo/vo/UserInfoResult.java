@@ -0,0 +1,164 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.vo;
+
+import com.adp.marketplace.product.userinfo.exception.APIException;
+
+
+/**
+ * UserInfoResult holds the outcome of a User Info API call without 
+ * throwing, the HTTP status, the response or error body and the category 
+ * of the outcome
+ * 
+ * @author tallaprs
+ *
+ */
+public class UserInfoResult {
+
+	/**
+	 * Category of the outcome of a call
+	 */
+	public enum Category {
+		
+		/** 2xx response, the body is the user info */
+		SUCCESS,
+		
+		/** missing or expired token, 401 or 403 response */
+		AUTHENTICATION,
+		
+		/** 429 response */
+		THROTTLED,
+		
+		/** any other 4xx response */
+		CLIENT_ERROR,
+		
+		/** 5xx response */
+		SERVER_ERROR,
+		
+		/** null or unsupported connection, invalid configuration */
+		CONFIGURATION,
+		
+		/** no response, the call failed, timed out, was cancelled or rejected by the circuit breaker */
+		UNAVAILABLE;
+		
+		/**
+		 * @param httpStatus	HTTP status of a response
+		 * @return Category		category of a response with the status
+		 */
+		public static Category forStatus(int httpStatus) {
+			
+			if ( httpStatus >= 200 && httpStatus < 300 ) {
+				return SUCCESS;
+			} else if ( httpStatus == 401 || httpStatus == 403 ) {
+				return AUTHENTICATION;
+			} else if ( httpStatus == 429 ) {
+				return THROTTLED;
+			} else if ( httpStatus >= 400 && httpStatus < 500 ) {
+				return CLIENT_ERROR;
+			} else if ( httpStatus >= 500 ) {
+				return SERVER_ERROR;
+			}
+			return UNAVAILABLE;
+		}
+	}
+	
+	private final Category category;
+	private final int httpStatus;
+	private final String body;
+	private final String message;
+	private final APIException exception;
+	
+	/**
+	 * @param category		category of the outcome
+	 * @param httpStatus	HTTP status, 0 when there was no response
+	 * @param body			user info or error body
+	 * @param message		error message or null
+	 * @param exception		exception the call failed with or null
+	 */
+	public UserInfoResult(Category category, int httpStatus, String body, String message, APIException exception) {
+		this.category = category;
+		this.httpStatus = httpStatus;
+		this.body = body;
+		this.message = message;
+		this.exception = exception;
+	}
+	
+	/**
+	 * @param httpStatus	HTTP status of the response
+	 * @param body			body of the response
+	 * @return UserInfoResult with the category of the status
+	 */
+	public static UserInfoResult forResponse(int httpStatus, String body) {
+		
+		Category category = Category.forStatus(httpStatus);
+		String message = category == Category.SUCCESS ? null : 
+				"Error: User Info API returned HTTP status " + httpStatus + ".";
+		
+		return new UserInfoResult(category, httpStatus, body, message, null);
+	}
+	
+	/**
+	 * @return category of the outcome
+	 */
+	public Category getCategory() {
+		return category;
+	}
+	
+	/**
+	 * @return true for a 2xx response
+	 */
+	public boolean isSuccess() {
+		return category == Category.SUCCESS;
+	}
+	
+	/**
+	 * @return HTTP status of the response, 0 when there was no response
+	 */
+	public int getHttpStatus() {
+		return httpStatus;
+	}
+	
+	/**
+	 * @return user info on success, otherwise the error body or null
+	 */
+	public String getBody() {
+		return body;
+	}
+	
+	/**
+	 * @return error message, null on success
+	 */
+	public String getMessage() {
+		return message;
+	}
+	
+	/**
+	 * @return exception the call failed with, null on success and for 
+	 * 		   failures detected without one
+	 */
+	public APIException getException() {
+		return exception;
+	}
+	
+	@Override
+	public String toString() {
+		return "UserInfoResult [category=" + category + ", httpStatus=" + httpStatus 
+				+ ", message=" + message + "]";
+	}
+
+}
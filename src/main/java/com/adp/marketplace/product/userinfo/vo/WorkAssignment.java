@@ -0,0 +1,92 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.vo;
+
+import java.io.Serializable;
+
+
+/**
+ * WorkAssignment holds a work assignment of the user returned by User Info API
+ * 
+ * @author tallaprs
+ *
+ */
+public class WorkAssignment implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private String itemID;
+	private String positionID;
+	private String jobTitle;
+	private boolean primaryIndicator;
+
+	public WorkAssignment() {
+	}
+
+	/**
+	 * copy constructor
+	 * 
+	 * @param workAssignment work assignment to copy
+	 */
+	public WorkAssignment(WorkAssignment workAssignment) {
+
+		this.itemID = workAssignment.itemID;
+		this.positionID = workAssignment.positionID;
+		this.jobTitle = workAssignment.jobTitle;
+		this.primaryIndicator = workAssignment.primaryIndicator;
+	}
+
+	public String getItemID() {
+		return itemID;
+	}
+
+	public void setItemID(String itemID) {
+		this.itemID = itemID;
+	}
+
+	public String getPositionID() {
+		return positionID;
+	}
+
+	public void setPositionID(String positionID) {
+		this.positionID = positionID;
+	}
+
+	public String getJobTitle() {
+		return jobTitle;
+	}
+
+	public void setJobTitle(String jobTitle) {
+		this.jobTitle = jobTitle;
+	}
+
+	public boolean isPrimaryIndicator() {
+		return primaryIndicator;
+	}
+
+	public void setPrimaryIndicator(boolean primaryIndicator) {
+		this.primaryIndicator = primaryIndicator;
+	}
+
+	@Override
+	public String toString() {
+		return "WorkAssignment [itemID=" + itemID + ", positionID=" + positionID 
+				+ ", jobTitle=" + jobTitle + ", primaryIndicator=" + primaryIndicator + "]";
+	}
+
+}
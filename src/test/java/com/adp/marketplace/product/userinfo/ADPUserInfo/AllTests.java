@@ -21,12 +21,36 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
+import com.adp.marketplace.product.userinfo.core.CircuitBreakerTest;
+import com.adp.marketplace.product.userinfo.core.ConcurrencyLimiterTest;
+import com.adp.marketplace.product.userinfo.core.HedgingPolicyTest;
+import com.adp.marketplace.product.userinfo.core.OffHeapUserInfoCacheTest;
+import com.adp.marketplace.product.userinfo.core.RequestCoalescerTest;
+import com.adp.marketplace.product.userinfo.core.UserInfoCacheTest;
+import com.adp.marketplace.product.userinfo.core.UserInfoDiskCacheTest;
 import com.adp.marketplace.product.userinfo.core.UserInfoHelperTest;
+import com.adp.marketplace.product.userinfo.metrics.InMemoryUserInfoMetricsTest;
+import com.adp.marketplace.product.userinfo.metrics.LatencyHistogramTest;
+import com.adp.marketplace.product.userinfo.utils.HttpClientUtilsTest;
+import com.adp.marketplace.product.userinfo.utils.ResponseUtilsTest;
+import com.adp.marketplace.product.userinfo.utils.SSLContextUtilsTest;
 import com.adp.marketplace.product.userinfo.utils.UserInfoUtilsTest;
 
 @RunWith(Suite.class)
 @SuiteClasses({ UserInfoHelperTest.class,
-	UserInfoUtilsTest.class})
+	UserInfoUtilsTest.class,
+	ResponseUtilsTest.class,
+	SSLContextUtilsTest.class,
+	HttpClientUtilsTest.class,
+	UserInfoCacheTest.class,
+	UserInfoDiskCacheTest.class,
+	OffHeapUserInfoCacheTest.class,
+	RequestCoalescerTest.class,
+	LatencyHistogramTest.class,
+	InMemoryUserInfoMetricsTest.class,
+	CircuitBreakerTest.class,
+	ConcurrencyLimiterTest.class,
+	HedgingPolicyTest.class})
 public class AllTests {
 
 } 
\ No newline at end of file
@@ -0,0 +1,119 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.adp.marketplace.product.userinfo.core.CircuitBreaker.State;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class CircuitBreakerTest {
+
+	/**
+	 * verifies the breaker stays closed until the minimum number of calls 
+	 * is in the window and opens once the failure rate reaches the threshold
+	 */
+	@Test
+	public void opensOnFailureRate() {
+		
+		CircuitBreaker circuitBreaker = new CircuitBreaker(0.5f, 10, 4, 60000, 1);
+		
+		for ( int i = 0; i < 3; i++ ) {
+			assertTrue(circuitBreaker.tryAcquirePermission());
+			circuitBreaker.onFailure();
+		}
+		assertEquals(State.CLOSED, circuitBreaker.getState());
+		
+		assertTrue(circuitBreaker.tryAcquirePermission());
+		circuitBreaker.onSuccess();
+		assertEquals(State.CLOSED, circuitBreaker.getState());
+		
+		assertTrue(circuitBreaker.tryAcquirePermission());
+		circuitBreaker.onFailure();
+		assertEquals(State.OPEN, circuitBreaker.getState());
+		assertEquals(1, circuitBreaker.getOpenedCount());
+	}
+	
+	/**
+	 * verifies calls are rejected while the breaker is open
+	 */
+	@Test
+	public void rejectsWhileOpen() {
+		
+		CircuitBreaker circuitBreaker = new CircuitBreaker(0.5f, 10, 1, 60000, 1);
+		
+		assertTrue(circuitBreaker.tryAcquirePermission());
+		circuitBreaker.onFailure();
+		
+		assertFalse(circuitBreaker.tryAcquirePermission());
+		assertFalse(circuitBreaker.tryAcquirePermission());
+		assertEquals(2, circuitBreaker.getRejectedCount());
+	}
+	
+	/**
+	 * verifies successful probes close the breaker after the open duration
+	 */
+	@Test
+	public void probesCloseBreaker() throws Exception {
+		
+		CircuitBreaker circuitBreaker = new CircuitBreaker(0.5f, 10, 1, 20, 2);
+		
+		assertTrue(circuitBreaker.tryAcquirePermission());
+		circuitBreaker.onFailure();
+		Thread.sleep(40);
+		
+		assertTrue(circuitBreaker.tryAcquirePermission());
+		assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+		assertTrue(circuitBreaker.tryAcquirePermission());
+		
+		// both probes are in flight
+		assertFalse(circuitBreaker.tryAcquirePermission());
+		
+		circuitBreaker.onSuccess();
+		circuitBreaker.onSuccess();
+		
+		assertEquals(State.CLOSED, circuitBreaker.getState());
+		assertEquals(0, circuitBreaker.getFailureRate(), 0);
+	}
+	
+	/**
+	 * verifies a failed probe opens the breaker again
+	 */
+	@Test
+	public void failedProbeReopensBreaker() throws Exception {
+		
+		CircuitBreaker circuitBreaker = new CircuitBreaker(0.5f, 10, 1, 20, 2);
+		
+		assertTrue(circuitBreaker.tryAcquirePermission());
+		circuitBreaker.onFailure();
+		Thread.sleep(40);
+		
+		assertTrue(circuitBreaker.tryAcquirePermission());
+		circuitBreaker.onFailure();
+		
+		assertEquals(State.OPEN, circuitBreaker.getState());
+		assertEquals(2, circuitBreaker.getOpenedCount());
+		assertFalse(circuitBreaker.tryAcquirePermission());
+	}
+	
+}
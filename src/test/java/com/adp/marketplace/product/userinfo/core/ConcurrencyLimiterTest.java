@@ -0,0 +1,144 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.core;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class ConcurrencyLimiterTest {
+
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+	
+	/**
+	 * verifies calls over the limit are shed when they may not queue
+	 */
+	@Test
+	public void shedsOverLimit() {
+		
+		ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(2, 1, 10, 100, 0.5, 0, 0);
+		
+		assertTrue(concurrencyLimiter.tryAcquire());
+		assertTrue(concurrencyLimiter.tryAcquire());
+		assertFalse(concurrencyLimiter.tryAcquire());
+		assertEquals(2, concurrencyLimiter.getInFlight());
+		assertEquals(1, concurrencyLimiter.getShedCount());
+		
+		concurrencyLimiter.onIgnored();
+		assertTrue(concurrencyLimiter.tryAcquire());
+	}
+	
+	/**
+	 * verifies fast calls using the limit raise it by one per limit worth 
+	 * of calls and throttled or slow calls cut it
+	 */
+	@Test
+	public void adaptsLimit() {
+		
+		ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(4, 1, 10, 100, 0.5, 0, 0);
+		
+		for ( int i = 0; i < 4; i++ ) {
+			assertTrue(concurrencyLimiter.tryAcquire());
+		}
+		// every call answered is replaced, the limit stays in use
+		for ( int i = 0; i < 4; i++ ) {
+			concurrencyLimiter.onSuccess(FAST);
+			assertTrue(concurrencyLimiter.tryAcquire());
+		}
+		assertEquals(4, concurrencyLimiter.getLimit());
+		
+		concurrencyLimiter.onSuccess(FAST);
+		assertTrue(concurrencyLimiter.tryAcquire());
+		assertEquals(5, concurrencyLimiter.getLimit());
+		
+		concurrencyLimiter.onDropped();
+		assertEquals(2, concurrencyLimiter.getLimit());
+		
+		concurrencyLimiter.onSuccess(SLOW);
+		assertEquals(1, concurrencyLimiter.getLimit());
+		
+		concurrencyLimiter.onDropped();
+		concurrencyLimiter.onIgnored();
+		assertEquals(1, concurrencyLimiter.getLimit());
+		assertEquals(0, concurrencyLimiter.getInFlight());
+	}
+	
+	/**
+	 * verifies the limit is not raised while it is barely used
+	 */
+	@Test
+	public void idleDoesNotRaiseLimit() {
+		
+		ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(4, 1, 10, 100, 0.5, 0, 0);
+		
+		for ( int i = 0; i < 100; i++ ) {
+			assertTrue(concurrencyLimiter.tryAcquire());
+			concurrencyLimiter.onSuccess(FAST);
+		}
+		assertEquals(4, concurrencyLimiter.getLimit());
+	}
+	
+	/**
+	 * verifies a queued call gets the permit released while it waits and 
+	 * is shed once the queue wait ends
+	 */
+	@Test
+	public void queuesUntilDeadline() throws Exception {
+		
+		final ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(1, 1, 10, 100, 0.5, 1, 2000);
+		
+		assertTrue(concurrencyLimiter.tryAcquire());
+		
+		final boolean[] acquired = new boolean[1];
+		Thread waiter = new Thread(new Runnable() {
+			public void run() {
+				try {
+					acquired[0] = concurrencyLimiter.acquire();
+				} catch (InterruptedException e) {
+				}
+			}
+		});
+		waiter.start();
+		
+		while ( concurrencyLimiter.getQueueDepth() == 0 ) {
+			Thread.sleep(5);
+		}
+		// the queue is full
+		assertFalse(concurrencyLimiter.acquire());
+		
+		concurrencyLimiter.onIgnored();
+		waiter.join(2000);
+		assertTrue(acquired[0]);
+		assertEquals(0, concurrencyLimiter.getQueueDepth());
+		
+		ConcurrencyLimiter shortWait = new ConcurrencyLimiter(1, 1, 10, 100, 0.5, 1, 20);
+		assertTrue(shortWait.tryAcquire());
+		long start = System.nanoTime();
+		assertFalse(shortWait.acquire());
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+		assertEquals(1, shortWait.getShedCount());
+	}
+	
+}
@@ -0,0 +1,111 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.core;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class HedgingPolicyTest {
+
+	/**
+	 * verifies the initial delay is used until enough latencies are measured
+	 * and the percentile of the measured latencies afterwards
+	 */
+	@Test
+	public void hedgeDelayFollowsPercentile() {
+		
+		HedgingPolicy hedgingPolicy = new HedgingPolicy(90, 0.1, 1, 200);
+		
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(200), hedgingPolicy.getHedgeDelayNanos());
+		
+		// one call in 20 is slow, so the 90th percentile is a fast call
+		for ( int i = 0; i < HedgingPolicy.MINIMUM_SAMPLES * 2; i++ ) {
+			hedgingPolicy.recordLatency(TimeUnit.MILLISECONDS.toNanos(i % 20 == 0 ? 1000 : 10));
+		}
+		
+		long delay = hedgingPolicy.getHedgeDelayNanos();
+		assertTrue(delay >= TimeUnit.MILLISECONDS.toNanos(9));
+		assertTrue(delay <= TimeUnit.MILLISECONDS.toNanos(11));
+	}
+	
+	/**
+	 * verifies the hedge delay never drops below the minimum delay
+	 */
+	@Test
+	public void hedgeDelayMinimum() {
+		
+		HedgingPolicy hedgingPolicy = new HedgingPolicy(50, 0.1, 5, 5);
+		
+		for ( int i = 0; i < HedgingPolicy.MINIMUM_SAMPLES * 2; i++ ) {
+			hedgingPolicy.recordLatency(1000);
+		}
+		
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(5), hedgingPolicy.getHedgeDelayNanos());
+	}
+	
+	/**
+	 * verifies hedges are limited to the ratio of calls
+	 */
+	@Test
+	public void hedgesLimitedByRatio() {
+		
+		HedgingPolicy hedgingPolicy = new HedgingPolicy(95, 0.1, 1, 1);
+		
+		assertFalse(hedgingPolicy.tryHedge());
+		
+		int hedges = 0;
+		for ( int i = 0; i < 100; i++ ) {
+			hedgingPolicy.callStarted();
+			if ( hedgingPolicy.tryHedge() ) {
+				hedges++;
+			}
+		}
+		
+		assertEquals(10, hedges);
+		assertEquals(100, hedgingPolicy.getCallCount());
+		assertEquals(10, hedgingPolicy.getHedgeCount());
+	}
+	
+	/**
+	 * verifies unused hedges are only saved up to a small burst
+	 */
+	@Test
+	public void hedgeBudgetIsCapped() {
+		
+		HedgingPolicy hedgingPolicy = new HedgingPolicy(95, 0.5, 1, 1);
+		
+		for ( int i = 0; i < 1000; i++ ) {
+			hedgingPolicy.callStarted();
+		}
+		
+		int hedges = 0;
+		while ( hedgingPolicy.tryHedge() ) {
+			hedges++;
+		}
+		
+		assertEquals(10, hedges);
+	}
+	
+}
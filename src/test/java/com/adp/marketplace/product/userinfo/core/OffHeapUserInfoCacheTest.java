@@ -0,0 +1,233 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.core;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.adp.marketplace.connection.vo.Token;
+import com.adp.marketplace.product.userinfo.vo.UserInfo;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class OffHeapUserInfoCacheTest {
+
+	private static final String RESPONSE = "{\"associateOID\":\"G3349PZGBADQY8H7\",\"givenName\":\"Zoë\"}";
+	
+	OffHeapUserInfoCache userInfoCache = null;
+	
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@Before
+	public void setUp() throws Exception {
+		userInfoCache = new OffHeapUserInfoCache(1000, 60000L, 64 * 1024, OffHeapUserInfoCache.MINIMUM_SLAB_SIZE);
+	}
+	
+	/**
+	 * verifies a cached response is decoded on every lookup of the same access token
+	 */
+	@Test
+	public void getCachedResponse() {
+		
+		userInfoCache.putResponse(token("token-1", 3600), RESPONSE);
+		
+		String response = userInfoCache.getResponse("token-1");
+		
+		assertEquals(RESPONSE, response);
+		assertNotSame(response, userInfoCache.getResponse("token-1"));
+		assertNull(userInfoCache.getResponse("token-2"));
+		assertNull(userInfoCache.getUserInfo("token-1"));
+		
+		assertEquals(2, userInfoCache.getHitCount());
+		assertEquals(2, userInfoCache.getMissCount());
+	}
+	
+	/**
+	 * verifies a cached user info is decoded with its work assignments
+	 */
+	@Test
+	public void getCachedUserInfo() {
+		
+		UserInfo userInfo = new UserInfo();
+		userInfo.setAssociateOID("G3349PZGBADQY8H7");
+		userInfo.setGivenName("Zoë");
+		
+		userInfoCache.putUserInfo(token("token-1", 3600), userInfo);
+		
+		UserInfo cached = userInfoCache.getUserInfo("token-1");
+		
+		assertNotSame(userInfo, cached);
+		assertEquals("G3349PZGBADQY8H7", cached.getAssociateOID());
+		assertEquals("Zoë", cached.getGivenName());
+		assertNotNull(cached.getWorkAssignments());
+	}
+	
+	/**
+	 * verifies values with validators are kept for revalidation after their time to live
+	 */
+	@Test
+	public void keepResponseWithValidators() throws InterruptedException {
+		
+		userInfoCache = new OffHeapUserInfoCache(1000, 50L, 64 * 1024, OffHeapUserInfoCache.MINIMUM_SLAB_SIZE);
+		userInfoCache.putResponse(token("token-1", 3600), RESPONSE, "\"v1\"", null);
+		userInfoCache.putResponse(token("token-2", 3600), RESPONSE);
+		
+		Thread.sleep(100L);
+		
+		assertNull(userInfoCache.getResponse("token-1"));
+		assertEquals("\"v1\"", userInfoCache.getRevalidatableResponse("token-1").getEtag());
+		assertEquals(RESPONSE, userInfoCache.getRevalidatableResponse("token-1").getValue());
+		
+		userInfoCache.cleanUp();
+		
+		assertEquals(1, userInfoCache.size());
+		assertNull(userInfoCache.getRevalidatableResponse("token-2"));
+	}
+	
+	/**
+	 * verifies the oldest values are evicted once the maximum size is reached
+	 */
+	@Test
+	public void evictAtMaximumSize() {
+		
+		userInfoCache = new OffHeapUserInfoCache(4, 60000L, 64 * 1024, OffHeapUserInfoCache.MINIMUM_SLAB_SIZE);
+		
+		for ( int i = 0; i < 10; i++ ) {
+			userInfoCache.putResponse(token("token-" + i, 3600), RESPONSE + i);
+		}
+		
+		assertTrue(userInfoCache.size() <= 4);
+		assertTrue(userInfoCache.getEvictionCount() >= 6);
+		assertEquals(RESPONSE + 9, userInfoCache.getResponse("token-9"));
+	}
+	
+	/**
+	 * verifies the memory used stays within the limit, the oldest slab is reused
+	 */
+	@Test
+	public void reuseSlabsAtMemoryLimit() {
+		
+		for ( int i = 0; i < 5000; i++ ) {
+			userInfoCache.putResponse(token("token-" + (i % 500), 3600), RESPONSE + i);
+		}
+		
+		assertEquals(64 * 1024, userInfoCache.getMemoryUsed());
+		assertEquals(RESPONSE + 4999, userInfoCache.getResponse("token-499"));
+		
+		// slabs are reused once every value in them has been replaced, nothing live is lost
+		assertEquals(500, userInfoCache.size());
+		assertEquals(0, userInfoCache.getEvictionCount());
+		
+		for ( int i = 0; i < 5000; i++ ) {
+			userInfoCache.putResponse(token("other-" + i, 3600), RESPONSE + i);
+		}
+		
+		assertEquals(64 * 1024, userInfoCache.getMemoryUsed());
+		assertTrue(userInfoCache.getEvictionCount() > 0);
+		assertTrue(userInfoCache.size() < 1000);
+		assertEquals(RESPONSE + 4999, userInfoCache.getResponse("other-4999"));
+	}
+	
+	/**
+	 * verifies lookups, replacements and removals against a map
+	 */
+	@Test
+	public void matchesMap() {
+		
+		userInfoCache = new OffHeapUserInfoCache(100000, 60000L, 64L * 1024 * 1024);
+		Map<String, String> expected = new HashMap<String, String>();
+		Random random = new Random(42);
+		
+		for ( int i = 0; i < 50000; i++ ) {
+			
+			String accessToken = "token-" + random.nextInt(5000);
+			if ( random.nextInt(4) == 0 ) {
+				userInfoCache.invalidate(accessToken);
+				expected.remove(accessToken);
+			} else {
+				userInfoCache.putResponse(token(accessToken, 3600), RESPONSE + i);
+				expected.put(accessToken, RESPONSE + i);
+			}
+		}
+		
+		assertEquals(expected.size(), userInfoCache.size());
+		for ( int i = 0; i < 5000; i++ ) {
+			assertEquals(expected.get("token-" + i), userInfoCache.getResponse("token-" + i));
+		}
+	}
+	
+	/**
+	 * verifies invalidated values are no longer served
+	 */
+	@Test
+	public void invalidate() {
+		
+		userInfoCache.putResponse(token("token-1", 3600), RESPONSE);
+		userInfoCache.putUserInfo(token("token-1", 3600), new UserInfo());
+		userInfoCache.putResponse(token("token-2", 3600), RESPONSE);
+		
+		userInfoCache.invalidate("token-1");
+		
+		assertNull(userInfoCache.getResponse("token-1"));
+		assertNull(userInfoCache.getUserInfo("token-1"));
+		assertEquals(RESPONSE, userInfoCache.getResponse("token-2"));
+		
+		userInfoCache.invalidateAll();
+		
+		assertNull(userInfoCache.getResponse("token-2"));
+		assertEquals(0, userInfoCache.size());
+	}
+	
+	/**
+	 * verifies the freshness of a value is reported only when a reload 
+	 * would keep it fresh for longer
+	 */
+	@Test
+	public void freshUntilForRefresh() {
+		
+		long start = System.currentTimeMillis();
+		userInfoCache.putResponse(token("token-1", 3600), RESPONSE);
+		userInfoCache.putResponse(token("token-2", 30), RESPONSE);
+		
+		long freshUntil = userInfoCache.getResponseFreshUntil("token-1");
+		assertTrue(freshUntil >= start + 60000L && freshUntil <= System.currentTimeMillis() + 60000L);
+		
+		// fresh until its token expires
+		assertEquals(0L, userInfoCache.getResponseFreshUntil("token-2"));
+		assertEquals(0L, userInfoCache.getUserInfoFreshUntil("token-1"));
+		assertEquals(0L, userInfoCache.getResponseFreshUntil("token-3"));
+	}
+	
+	private Token token(String accessToken, long expiresIn) {
+		
+		Token token = new Token();
+		token.setAccess_token(accessToken);
+		token.setExpires_in(expiresIn);
+		return token;
+	}
+	
+}
@@ -0,0 +1,262 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.core;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.adp.marketplace.product.userinfo.exception.APIException;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class RequestCoalescerTest {
+
+	private static final int CALLERS = 8;
+	
+	RequestCoalescer requestCoalescer = null;
+	ExecutorService executorService = null;
+	
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@Before
+	public void setUp() throws Exception {
+		requestCoalescer = new RequestCoalescer();
+		executorService = Executors.newFixedThreadPool(CALLERS);
+	}
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@After
+	public void tearDown() throws Exception {
+		executorService.shutdownNow();
+	}
+	
+	/**
+	 * verifies concurrent callers with the same key share one call and its result
+	 */
+	@Test
+	public void concurrentCallsShareOneCall() throws Exception {
+		
+		final AtomicInteger invocations = new AtomicInteger();
+		final CountDownLatch release = new CountDownLatch(1);
+		
+		List<Future<String>> futures = submit("token-1", new Callable<String>() {
+			public String call() throws Exception {
+				invocations.incrementAndGet();
+				release.await(5, TimeUnit.SECONDS);
+				return "user info";
+			}
+		}, 0);
+		
+		Thread.sleep(200);
+		release.countDown();
+		
+		for ( Future<String> future : futures ) {
+			assertEquals("user info", future.get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(1, invocations.get());
+		assertEquals(0, requestCoalescer.size());
+	}
+	
+	/**
+	 * verifies every caller gets the exception of the shared call
+	 */
+	@Test
+	public void concurrentCallsShareException() throws Exception {
+		
+		final CountDownLatch release = new CountDownLatch(1);
+		
+		List<Future<String>> futures = submit("token-1", new Callable<String>() {
+			public String call() throws Exception {
+				release.await(5, TimeUnit.SECONDS);
+				throw new APIException("upstream failed");
+			}
+		}, 0);
+		
+		Thread.sleep(200);
+		release.countDown();
+		
+		for ( Future<String> future : futures ) {
+			try {
+				future.get(5, TimeUnit.SECONDS);
+				fail("APIException expected");
+			} catch (java.util.concurrent.ExecutionException e) {
+				assertTrue(e.getCause() instanceof APIException);
+				assertEquals("upstream failed", e.getCause().getMessage());
+			}
+		}
+	}
+	
+	/**
+	 * verifies a caller joining a shared call gives up after its timeout
+	 */
+	@Test
+	public void joiningCallerTimesOut() throws Exception {
+		
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		
+		Future<String> leader = executorService.submit(new Callable<String>() {
+			public String call() throws Exception {
+				return requestCoalescer.execute("token-1", new Callable<String>() {
+					public String call() throws Exception {
+						started.countDown();
+						release.await(5, TimeUnit.SECONDS);
+						return "user info";
+					}
+				}, 50);
+			}
+		});
+		
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		
+		try {
+			requestCoalescer.execute("token-1", new Callable<String>() {
+				public String call() throws Exception {
+					return "not shared";
+				}
+			}, 50);
+			fail("APIException expected");
+		} catch (APIException e) {
+			assertTrue(e.getMessage().contains("timed out"));
+		}
+		
+		release.countDown();
+		assertEquals("user info", leader.get(5, TimeUnit.SECONDS));
+	}
+	
+	/**
+	 * verifies calls with different keys are not shared
+	 */
+	@Test
+	public void differentKeysAreNotShared() throws Exception {
+		
+		assertEquals("a", requestCoalescer.execute("token-1", constant("a"), 0));
+		assertEquals("b", requestCoalescer.execute("token-2", constant("b"), 0));
+	}
+	
+	/**
+	 * verifies non-blocking callers with the same key share one call and 
+	 * get independent futures
+	 */
+	@Test
+	public void concurrentAsyncCallsShareOneCall() throws Exception {
+		
+		final AtomicInteger invocations = new AtomicInteger();
+		final CompletableFuture<String> call = new CompletableFuture<String>();
+		
+		Supplier<CompletableFuture<String>> supplier = new Supplier<CompletableFuture<String>>() {
+			public CompletableFuture<String> get() {
+				invocations.incrementAndGet();
+				return call;
+			}
+		};
+		
+		CompletableFuture<String> first = requestCoalescer.executeAsync("token-1", supplier);
+		CompletableFuture<String> second = requestCoalescer.executeAsync("token-1", supplier);
+		CompletableFuture<String> third = requestCoalescer.executeAsync("token-1", supplier);
+		
+		assertEquals(1, invocations.get());
+		assertEquals(1, requestCoalescer.size());
+		
+		// cancelling one caller leaves the shared call and the others alone
+		third.cancel(false);
+		call.complete("user info");
+		
+		assertEquals("user info", first.get(5, TimeUnit.SECONDS));
+		assertEquals("user info", second.get(5, TimeUnit.SECONDS));
+		assertEquals(0, requestCoalescer.size());
+	}
+	
+	/**
+	 * verifies every non-blocking caller gets the exception of the shared call
+	 */
+	@Test
+	public void concurrentAsyncCallsShareException() throws Exception {
+		
+		final CompletableFuture<String> call = new CompletableFuture<String>();
+		
+		Supplier<CompletableFuture<String>> supplier = new Supplier<CompletableFuture<String>>() {
+			public CompletableFuture<String> get() {
+				return call;
+			}
+		};
+		
+		CompletableFuture<String> first = requestCoalescer.executeAsync("token-1", supplier);
+		CompletableFuture<String> second = requestCoalescer.executeAsync("token-1", supplier);
+		
+		call.completeExceptionally(new APIException("upstream failed"));
+		
+		for ( CompletableFuture<String> future : Arrays.asList(first, second) ) {
+			try {
+				future.get(5, TimeUnit.SECONDS);
+				fail("APIException expected");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof APIException);
+				assertEquals("upstream failed", e.getCause().getMessage());
+			}
+		}
+		assertEquals(0, requestCoalescer.size());
+	}
+	
+	private List<Future<String>> submit(final String key, final Callable<String> call, final long timeout) {
+		
+		List<Future<String>> futures = new ArrayList<Future<String>>();
+		
+		for ( int i = 0; i < CALLERS; i++ ) {
+			futures.add(executorService.submit(new Callable<String>() {
+				public String call() throws Exception {
+					return requestCoalescer.execute(key, call, timeout);
+				}
+			}));
+		}
+		
+		return futures;
+	}
+	
+	private Callable<String> constant(final String value) {
+		
+		return new Callable<String>() {
+			public String call() throws Exception {
+				return value;
+			}
+		};
+	}
+	
+}
@@ -0,0 +1,232 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.adp.marketplace.connection.vo.Token;
+import com.adp.marketplace.product.userinfo.vo.UserInfo;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class UserInfoCacheTest {
+
+	private static final String RESPONSE = "{\"associateOID\":\"G3349PZGBADQY8H7\"}";
+	
+	UserInfoCache userInfoCache = null;
+	
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@Before
+	public void setUp() throws Exception {
+		userInfoCache = new UserInfoCache(2, 60000L);
+	}
+	
+	/**
+	 * verifies a cached response is returned for the same access token only
+	 */
+	@Test
+	public void getCachedResponse() {
+		
+		userInfoCache.putResponse(token("token-1", 3600), RESPONSE);
+		
+		assertEquals(RESPONSE, userInfoCache.getResponse("token-1"));
+		assertNull(userInfoCache.getResponse("token-2"));
+		assertNull(userInfoCache.getUserInfo("token-1"));
+		
+		assertEquals(1, userInfoCache.getHitCount());
+		assertEquals(2, userInfoCache.getMissCount());
+	}
+	
+	/**
+	 * verifies the response and the user info of a token share one entry 
+	 * and every caller gets its own copy of the user info
+	 */
+	@Test
+	public void getCachedUserInfo() {
+		
+		UserInfo userInfo = new UserInfo();
+		userInfo.setAssociateOID("G3349PZGBADQY8H7");
+		
+		userInfoCache.putResponse(token("token-1", 3600), RESPONSE);
+		userInfoCache.putUserInfo(token("token-1", 3600), userInfo);
+		userInfo.setAssociateOID("changed");
+		
+		UserInfo cached = userInfoCache.getUserInfo("token-1");
+		assertEquals("G3349PZGBADQY8H7", cached.getAssociateOID());
+		cached.setAssociateOID("changed");
+		assertEquals("G3349PZGBADQY8H7", userInfoCache.getUserInfo("token-1").getAssociateOID());
+		assertEquals(RESPONSE, userInfoCache.getResponse("token-1"));
+		assertEquals(1, userInfoCache.size());
+	}
+	
+	/**
+	 * verifies the least recently used token is evicted when the cache is full
+	 */
+	@Test
+	public void evictLeastRecentlyUsed() {
+		
+		userInfoCache.putResponse(token("token-1", 3600), RESPONSE);
+		userInfoCache.putResponse(token("token-2", 3600), RESPONSE);
+		userInfoCache.getResponse("token-1");
+		userInfoCache.putResponse(token("token-3", 3600), RESPONSE);
+		
+		assertNotNull(userInfoCache.getResponse("token-1"));
+		assertNull(userInfoCache.getResponse("token-2"));
+		assertNotNull(userInfoCache.getResponse("token-3"));
+		assertEquals(1, userInfoCache.getEvictionCount());
+	}
+	
+	/**
+	 * verifies an entry is not served after its time to live
+	 */
+	@Test
+	public void expireAfterTimeToLive() throws InterruptedException {
+		
+		userInfoCache = new UserInfoCache(2, 1L);
+		userInfoCache.putResponse(token("token-1", 3600), RESPONSE);
+		
+		Thread.sleep(10);
+		
+		assertNull(userInfoCache.getResponse("token-1"));
+		assertEquals(0, userInfoCache.size());
+		assertEquals(1, userInfoCache.getEvictionCount());
+	}
+	
+	/**
+	 * verifies an entry does not outlive the expires_in of its token
+	 */
+	@Test
+	public void expireWithToken() throws InterruptedException {
+		
+		userInfoCache = new UserInfoCache(2, Long.MAX_VALUE / 2);
+		userInfoCache.putResponse(token("token-1", 1), RESPONSE);
+		
+		assertNotNull(userInfoCache.getResponse("token-1"));
+		
+		Thread.sleep(1100);
+		
+		assertNull(userInfoCache.getResponse("token-1"));
+	}
+	
+	/**
+	 * verifies the expires_in of a token is counted from when it was obtained
+	 */
+	@Test
+	public void expireWithObtainedToken() throws InterruptedException {
+		
+		Token token = token("token-1", 1);
+		TokenLifetime.obtained(token);
+		
+		Thread.sleep(1100);
+		
+		userInfoCache = new UserInfoCache(2, Long.MAX_VALUE / 2);
+		userInfoCache.putResponse(token, RESPONSE);
+		
+		assertNull(userInfoCache.getResponse("token-1"));
+	}
+	
+	/**
+	 * verifies a response with validators is kept for revalidation after its 
+	 * time to live and served again once it is put back
+	 */
+	@Test
+	public void keepResponseWithValidators() throws InterruptedException {
+		
+		userInfoCache = new UserInfoCache(2, 1L);
+		userInfoCache.putResponse(token("token-1", 3600), RESPONSE, "\"v1\"", null);
+		
+		Thread.sleep(10);
+		
+		assertNull(userInfoCache.getResponse("token-1"));
+		assertEquals(1, userInfoCache.size());
+		
+		AbstractUserInfoCache.CachedValue<String> cachedValue = userInfoCache.getRevalidatableResponse("token-1");
+		assertEquals(RESPONSE, cachedValue.getValue());
+		assertEquals("\"v1\"", cachedValue.getEtag());
+		assertNull(cachedValue.getLastModified());
+		
+		userInfoCache = new UserInfoCache(2, 60000L);
+		userInfoCache.putUserInfo(token("token-1", 3600), new UserInfo(), null, "Wed, 21 Oct 2015 07:28:00 GMT");
+		assertNotNull(userInfoCache.getRevalidatableUserInfo("token-1"));
+		assertNull(userInfoCache.getRevalidatableResponse("token-1"));
+	}
+	
+	/**
+	 * verifies a response without validators cannot be revalidated
+	 */
+	@Test
+	public void revalidateNeedsValidators() {
+		
+		userInfoCache.putResponse(token("token-1", 3600), RESPONSE);
+		
+		assertNull(userInfoCache.getRevalidatableResponse("token-1"));
+	}
+	
+	/**
+	 * verifies invalidate discards the entry of the token
+	 */
+	@Test
+	public void invalidate() {
+		
+		userInfoCache.putResponse(token("token-1", 3600), RESPONSE);
+		userInfoCache.putResponse(token("token-2", 3600), RESPONSE);
+		userInfoCache.invalidate("token-1");
+		
+		assertNull(userInfoCache.getResponse("token-1"));
+		assertNotNull(userInfoCache.getResponse("token-2"));
+		
+		userInfoCache.invalidateAll();
+		assertEquals(0, userInfoCache.size());
+	}
+	
+	/**
+	 * verifies the freshness of a value is reported only when a reload 
+	 * would keep it fresh for longer
+	 */
+	@Test
+	public void freshUntilForRefresh() {
+		
+		long start = System.currentTimeMillis();
+		userInfoCache.putResponse(token("token-1", 3600), RESPONSE);
+		userInfoCache.putResponse(token("token-2", 30), RESPONSE);
+		
+		long freshUntil = userInfoCache.getResponseFreshUntil("token-1");
+		assertTrue(freshUntil >= start + 60000L && freshUntil <= System.currentTimeMillis() + 60000L);
+		
+		// fresh until its token expires
+		assertEquals(0L, userInfoCache.getResponseFreshUntil("token-2"));
+		assertEquals(0L, userInfoCache.getUserInfoFreshUntil("token-1"));
+		assertEquals(0L, userInfoCache.getResponseFreshUntil("token-3"));
+	}
+	
+	private Token token(String accessToken, long expiresIn) {
+		
+		Token token = new Token();
+		token.setAccess_token(accessToken);
+		token.setExpires_in(expiresIn);
+		return token;
+	}
+	
+}
@@ -0,0 +1,271 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.core;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.adp.marketplace.connection.vo.Token;
+import com.adp.marketplace.product.userinfo.vo.UserInfo;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class UserInfoDiskCacheTest {
+
+	private static final String RESPONSE = "{\"associateOID\":\"G3349PZGBADQY8H7\",\"givenName\":\"Zoë\"}";
+	
+	File file = null;
+	SecretKey key = null;
+	UserInfoDiskCache diskCache = null;
+	
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@Before
+	public void setUp() throws Exception {
+		
+		file = File.createTempFile("userinfo", ".cache");
+		key = newKey();
+		diskCache = new UserInfoDiskCache(file, key, UserInfoDiskCache.MINIMUM_FILE_SIZE);
+	}
+	
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@After
+	public void tearDown() throws Exception {
+		
+		diskCache.close();
+		file.delete();
+	}
+	
+	/**
+	 * verifies a restarted cache warms from the file, validators included
+	 */
+	@Test
+	public void warmFromDisk() throws Exception {
+		
+		UserInfo userInfo = new UserInfo();
+		userInfo.setAssociateOID("G3349PZGBADQY8H7");
+		
+		UserInfoCache userInfoCache = new UserInfoCache(10, 60000L, diskCache);
+		userInfoCache.putResponse(token("token-1", 3600), RESPONSE, "\"v1\"", null);
+		userInfoCache.putUserInfo(token("token-1", 3600), userInfo);
+		
+		diskCache.close();
+		diskCache = new UserInfoDiskCache(file, key, UserInfoDiskCache.MINIMUM_FILE_SIZE);
+		userInfoCache = new UserInfoCache(10, 60000L, diskCache);
+		
+		assertEquals(2, diskCache.size());
+		assertEquals(RESPONSE, userInfoCache.getResponse("token-1"));
+		assertEquals("\"v1\"", userInfoCache.getRevalidatableResponse("token-1").getEtag());
+		assertEquals("G3349PZGBADQY8H7", userInfoCache.getUserInfo("token-1").getAssociateOID());
+		assertNull(userInfoCache.getResponse("token-2"));
+		
+		// kept in memory again, the disk is read once per value
+		assertEquals(RESPONSE, userInfoCache.getResponse("token-1"));
+		assertEquals(2, diskCache.getHitCount());
+	}
+	
+	/**
+	 * verifies neither the value nor the access token are written in the clear
+	 */
+	@Test
+	public void encryptedAtRest() throws Exception {
+		
+		diskCache.putResponse("token-1", cachedValue(RESPONSE), System.currentTimeMillis() + 60000L);
+		diskCache.close();
+		
+		String content = new String(Files.readAllBytes(file.toPath()), "ISO-8859-1");
+		
+		assertFalse(content.contains("G3349PZGBADQY8H7"));
+		assertFalse(content.contains("token-1"));
+	}
+	
+	/**
+	 * verifies entries written with another key are misses
+	 */
+	@Test
+	public void otherKeyMisses() throws Exception {
+		
+		diskCache.putResponse("token-1", cachedValue(RESPONSE), System.currentTimeMillis() + 60000L);
+		diskCache.close();
+		
+		diskCache = new UserInfoDiskCache(file, newKey(), UserInfoDiskCache.MINIMUM_FILE_SIZE);
+		
+		assertNull(diskCache.getResponse("token-1"));
+		assertEquals(1, diskCache.getMissCount());
+	}
+	
+	/**
+	 * verifies expired entries are not read or loaded again
+	 */
+	@Test
+	public void expiredEntriesMiss() throws Exception {
+		
+		diskCache.putResponse("token-1", cachedValue(RESPONSE), System.currentTimeMillis() + 50L);
+		assertNotNull(diskCache.getResponse("token-1"));
+		
+		Thread.sleep(100L);
+		
+		assertNull(diskCache.getResponse("token-1"));
+		
+		diskCache.close();
+		diskCache = new UserInfoDiskCache(file, key, UserInfoDiskCache.MINIMUM_FILE_SIZE);
+		
+		assertEquals(0, diskCache.size());
+	}
+	
+	/**
+	 * verifies an invalidated token stays invalidated after a restart
+	 */
+	@Test
+	public void invalidatePersists() throws Exception {
+		
+		diskCache.putResponse("token-1", cachedValue(RESPONSE), System.currentTimeMillis() + 60000L);
+		diskCache.putResponse("token-2", cachedValue(RESPONSE), System.currentTimeMillis() + 60000L);
+		diskCache.invalidate("token-1");
+		diskCache.close();
+		
+		diskCache = new UserInfoDiskCache(file, key, UserInfoDiskCache.MINIMUM_FILE_SIZE);
+		
+		assertNull(diskCache.getResponse("token-1"));
+		assertNotNull(diskCache.getResponse("token-2"));
+	}
+	
+	/**
+	 * verifies background updates are written in order and an invalidated 
+	 * token misses before its invalidation is written
+	 */
+	@Test
+	public void backgroundWritesInOrder() throws Exception {
+		
+		long expiresAt = System.currentTimeMillis() + 60000L;
+		diskCache.putResponse("token-1", cachedValue(RESPONSE), expiresAt);
+		
+		diskCache.putResponseInBackground("token-1", cachedValue(RESPONSE + 1), expiresAt);
+		diskCache.invalidateInBackground("token-1");
+		diskCache.putResponseInBackground("token-2", cachedValue(RESPONSE), expiresAt);
+		assertNull(diskCache.getResponse("token-1"));
+		
+		diskCache.flush();
+		assertNull(diskCache.getResponse("token-1"));
+		assertEquals(RESPONSE, diskCache.getResponse("token-2").getCachedValue().getValue());
+		
+		diskCache.putResponseInBackground("token-1", cachedValue(RESPONSE + 2), expiresAt);
+		diskCache.close();
+		diskCache = new UserInfoDiskCache(file, key, UserInfoDiskCache.MINIMUM_FILE_SIZE);
+		
+		assertEquals(RESPONSE + 2, diskCache.getResponse("token-1").getCachedValue().getValue());
+		assertEquals(2, diskCache.size());
+	}
+	
+	/**
+	 * verifies a full file is compacted to its live entries
+	 */
+	@Test
+	public void compactWhenFull() throws Exception {
+		
+		long expiresAt = System.currentTimeMillis() + 60000L;
+		
+		for ( int i = 0; i < 2000; i++ ) {
+			diskCache.putResponse("token-" + (i % 10), cachedValue(RESPONSE + i), expiresAt);
+		}
+		
+		assertTrue(diskCache.getCompactionCount() > 0);
+		assertEquals(10, diskCache.size());
+		assertEquals(RESPONSE + 1999, diskCache.getResponse("token-9").getCachedValue().getValue());
+		
+		diskCache.close();
+		diskCache = new UserInfoDiskCache(file, key, UserInfoDiskCache.MINIMUM_FILE_SIZE);
+		
+		assertEquals(10, diskCache.size());
+		assertEquals(RESPONSE + 1990, diskCache.getResponse("token-0").getCachedValue().getValue());
+	}
+	
+	/**
+	 * verifies a file full of live entries evicts those expiring soonest 
+	 * instead of being compacted on every write
+	 */
+	@Test
+	public void evictWhenFullOfLiveEntries() throws Exception {
+		
+		long now = System.currentTimeMillis();
+		int writes = 5000;
+		
+		for ( int i = 0; i < writes; i++ ) {
+			diskCache.putResponse("token-" + i, cachedValue(RESPONSE + i), now + 60000L + i);
+		}
+		
+		// a compaction frees a quarter of the file, about 90 records of this size
+		assertTrue(diskCache.getCompactionCount() > 0);
+		assertTrue("compactions " + diskCache.getCompactionCount(), diskCache.getCompactionCount() <= writes / 50);
+		assertTrue(diskCache.getEvictionCount() > 0);
+		assertEquals(writes, diskCache.size() + diskCache.getEvictionCount());
+		
+		assertEquals(RESPONSE + (writes - 1), 
+				diskCache.getResponse("token-" + (writes - 1)).getCachedValue().getValue());
+		assertNull(diskCache.getResponse("token-0"));
+	}
+	
+	/**
+	 * verifies a file is used by one cache at a time
+	 */
+	@Test
+	public void fileLocked() throws Exception {
+		
+		try {
+			new UserInfoDiskCache(file, key, UserInfoDiskCache.MINIMUM_FILE_SIZE);
+			fail("IOException expected");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("in use"));
+		}
+	}
+	
+	private static SecretKey newKey() throws Exception {
+		
+		KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+		keyGenerator.init(128);
+		return keyGenerator.generateKey();
+	}
+	
+	private static AbstractUserInfoCache.CachedValue<String> cachedValue(String value) {
+		return new AbstractUserInfoCache.CachedValue<String>(value, null, null, System.currentTimeMillis() + 60000L);
+	}
+	
+	private Token token(String accessToken, long expiresIn) {
+		
+		Token token = new Token();
+		token.setAccess_token(accessToken);
+		token.setExpires_in(expiresIn);
+		return token;
+	}
+	
+}
@@ -17,19 +17,41 @@
 */
 package com.adp.marketplace.product.userinfo.core;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
 import org.junit.Test;
 
 import com.adp.marketplace.connection.configuration.AuthorizationCodeConfiguration;
 import com.adp.marketplace.connection.configuration.ClientCredentialsConfiguration;
+import com.adp.marketplace.connection.core.ADPAPIConnection;
 import com.adp.marketplace.connection.core.ADPAPIConnectionFactory;
 import com.adp.marketplace.connection.core.AuthorizationCodeConnection;
 import com.adp.marketplace.connection.core.ClientCredentialsConnection;
 import com.adp.marketplace.connection.exception.ConnectionException;
+import com.adp.marketplace.connection.vo.Token;
+import com.adp.marketplace.product.userinfo.configuration.UserInfoConfiguration;
 import com.adp.marketplace.product.userinfo.exception.APIException;
+import com.adp.marketplace.product.userinfo.metrics.InMemoryUserInfoMetrics;
+import com.adp.marketplace.product.userinfo.vo.UserInfoBatchResult;
+import com.adp.marketplace.product.userinfo.vo.UserInfoResult;
+import com.adp.marketplace.product.userinfo.vo.UserInfoResult.Category;
 
 /**
  * @author tallaprs
@@ -105,6 +127,27 @@ public class UserInfoHelperTest {
 		
 	}
 	
+	/**
+	 * Test APIException is thrown and nothing is written when streaming 
+	 * with a null connection
+	 */
+	@Test
+	public void streamConnectionIsNull() {
+		
+		AuthorizationCodeConnection authorizationCodeConnection = null;
+		ByteArrayOutputStream sink = new ByteArrayOutputStream();
+		
+		try {
+			new UserInfoHelper(authorizationCodeConnection).getUserInfo(sink);
+			fail("APIException expected");
+		} catch (APIException e) {
+			assertTrue(e.getCause() instanceof ConnectionException);
+			assertTrue(e.getCause().getMessage().contains("ADPAPIConnection is null!"));
+		}
+		
+		assertEquals(0, sink.size());
+	}
+	
 	/**
 	 * Test verifies if Client Credentials Connection and throws APIConnection with
 	 * ConnectionException as cause and message as Unimplemented method
@@ -171,4 +214,325 @@ public class UserInfoHelperTest {
 		}
 	}
 
+	/**
+	 * Test an expired token is reported by the result without throwing, and 
+	 * by an exception without stack trace when the throwing API is used
+	 */
+	@Test
+	public void expiredTokenResult() throws Exception {
+		
+		AuthorizationCodeConnection authorizationCodeConnection = 
+				new AuthorizationCodeConnection(new AuthorizationCodeConfiguration()) {
+			@Override
+			public boolean isConnectionIndicator() {
+				return false;
+			}
+		};
+		UserInfoHelper userInfoHelper = new UserInfoHelper(authorizationCodeConnection);
+		
+		UserInfoResult result = userInfoHelper.getUserInfoResult();
+		
+		assertEquals(Category.AUTHENTICATION, result.getCategory());
+		assertFalse(result.isSuccess());
+		assertEquals(0, result.getHttpStatus());
+		assertTrue(result.getMessage().contains("Connection Token is expired!"));
+		
+		try {
+			userInfoHelper.getUserInfo();
+			fail("APIException expected");
+		} catch (APIException e) {
+			assertTrue(e.getCause() instanceof ConnectionException);
+			assertEquals(0, e.getStackTrace().length);
+			assertEquals(0, e.getCause().getStackTrace().length);
+		}
+	}
+	
+	/**
+	 * Test a null connection is reported as a configuration failure
+	 */
+	@Test
+	public void nullConnectionResult() {
+		
+		AuthorizationCodeConnection authorizationCodeConnection = null;
+		UserInfoResult result = new UserInfoHelper(authorizationCodeConnection).getUserInfoResult();
+		
+		assertEquals(Category.CONFIGURATION, result.getCategory());
+		assertTrue(result.getMessage().contains("ADPAPIConnection is null!"));
+		assertTrue(result.getException().getCause() instanceof ConnectionException);
+	}
+	
+	/**
+	 * Test HTTP statuses are mapped to result categories
+	 */
+	@Test
+	public void resultCategoryForStatus() {
+		
+		assertEquals(Category.SUCCESS, Category.forStatus(200));
+		assertEquals(Category.AUTHENTICATION, Category.forStatus(401));
+		assertEquals(Category.AUTHENTICATION, Category.forStatus(403));
+		assertEquals(Category.THROTTLED, Category.forStatus(429));
+		assertEquals(Category.CLIENT_ERROR, Category.forStatus(404));
+		assertEquals(Category.SERVER_ERROR, Category.forStatus(503));
+		
+		UserInfoResult result = UserInfoResult.forResponse(500, "{\"error\":\"internal\"}");
+		assertEquals(Category.SERVER_ERROR, result.getCategory());
+		assertEquals("{\"error\":\"internal\"}", result.getBody());
+		assertNotNull(result.getMessage());
+	}
+	
+	/**
+	 * Test the asynchronous call completes exceptionally with APIException 
+	 * when the connection is null
+	 */
+	@Test
+	public void asyncConnectionIsNull() throws Exception {
+		
+		AuthorizationCodeConnection authorizationCodeConnection = null;
+		UserInfoHelper userInfoHelper = new UserInfoHelper(authorizationCodeConnection);
+		
+		CompletableFuture<String> future = userInfoHelper.getUserInfoAsync();
+		
+		try {
+			future.get(5, TimeUnit.SECONDS);
+			assertTrue(false);
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof APIException);
+			assertTrue(e.getCause().getCause() instanceof ConnectionException);
+			assertTrue(e.getCause().getCause().getMessage().contains("ADPAPIConnection is null!"));
+		}
+	}
+	
+	/**
+	 * Test the asynchronous call runs on the caller supplied executor
+	 */
+	@Test
+	public void asyncRunsOnCallerExecutor() throws Exception {
+		
+		final Thread[] ranOn = new Thread[1];
+		Executor executor = new Executor() {
+			public void execute(Runnable command) {
+				ranOn[0] = Thread.currentThread();
+				command.run();
+			}
+		};
+		
+		AuthorizationCodeConnection authorizationCodeConnection = null;
+		UserInfoHelper userInfoHelper = new UserInfoHelper(authorizationCodeConnection);
+		
+		CompletableFuture<?> future = userInfoHelper.getUserInfoObjectAsync(executor);
+		
+		assertTrue(future.isCompletedExceptionally());
+		assertSame(Thread.currentThread(), ranOn[0]);
+	}
+	
+	/**
+	 * Test the asynchronous call completes exceptionally when the executor rejects it
+	 */
+	@Test
+	public void asyncRejectedByExecutor() throws Exception {
+		
+		Executor executor = new Executor() {
+			public void execute(Runnable command) {
+				throw new RejectedExecutionException("queue full");
+			}
+		};
+		
+		AuthorizationCodeConnection authorizationCodeConnection = null;
+		UserInfoHelper userInfoHelper = new UserInfoHelper(authorizationCodeConnection);
+		
+		try {
+			userInfoHelper.getUserInfoAsync(executor).get();
+			assertTrue(false);
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof APIException);
+			assertTrue(e.getCause().getCause() instanceof RejectedExecutionException);
+		}
+	}
+
+	/**
+	 * Test a batch records a failure per connection without stopping 
+	 * on the first one
+	 */
+	@Test
+	public void batchRecordsEachFailure() throws Exception {
+		
+		ADPAPIConnectionFactory INSTANCE = ADPAPIConnectionFactory.getInstance();
+		List<ADPAPIConnection> connections = new ArrayList<ADPAPIConnection>();
+		
+		for ( int i = 0; i < 5; i++ ) {
+			connections.add(INSTANCE.createConnection(new AuthorizationCodeConfiguration()));
+			connections.add(INSTANCE.createConnection(new ClientCredentialsConfiguration()));
+		}
+		connections.add(null);
+		
+		UserInfoBatchResult result = UserInfoHelper.getUserInfoBatch(connections, 2);
+		
+		assertEquals(0, result.getSuccessCount());
+		assertEquals(10, result.getFailureCount());
+		
+		for ( APIException e : result.getFailures().values() ) {
+			assertTrue(e.getCause() instanceof ConnectionException);
+		}
+	}
+
+	/**
+	 * Test a failed call is reported to the metrics listener with its exception type
+	 */
+	@Test
+	public void metricsListenerRecordsFailure() throws Exception {
+		
+		InMemoryUserInfoMetrics metrics = new InMemoryUserInfoMetrics();
+		UserInfoConfiguration userInfoConfiguration = new UserInfoConfiguration();
+		userInfoConfiguration.setMetricsListener(metrics);
+		
+		AuthorizationCodeConnection authorizationCodeConnection = null;
+		UserInfoHelper userInfoHelper = new UserInfoHelper(authorizationCodeConnection, userInfoConfiguration);
+		
+		try {
+			userInfoHelper.getUserInfo();
+			assertTrue(false);
+		} catch (APIException e) {
+			assertTrue(e.getCause() instanceof ConnectionException);
+		}
+		
+		assertEquals(1, metrics.getCallsStarted());
+		assertEquals(1, metrics.getCallsFailed());
+		assertEquals(0, metrics.getCallsInFlight());
+		assertEquals(Long.valueOf(1), metrics.getExceptionCounts().get("ConnectionException"));
+		assertEquals(1, metrics.getDuration().getCount());
+	}
+	
+	/**
+	 * verifies the retry delay is jittered under the exponential backoff, 
+	 * capped at the maximum backoff and follows Retry-After when given
+	 */
+	@Test
+	public void retryDelay() throws Exception {
+		
+		UserInfoConfiguration userInfoConfiguration = new UserInfoConfiguration();
+		userInfoConfiguration.setRetryBackoff(100);
+		userInfoConfiguration.setMaxRetryBackoff(1000);
+		
+		AuthorizationCodeConnection authorizationCodeConnection = null;
+		UserInfoHelper userInfoHelper = new UserInfoHelper(authorizationCodeConnection, userInfoConfiguration);
+		
+		for ( int i = 0; i < 100; i++ ) {
+			long first = userInfoHelper.retryDelay(0, null);
+			assertTrue(first >= 0 && first <= 100);
+			
+			long capped = userInfoHelper.retryDelay(10, null);
+			assertTrue(capped >= 0 && capped <= 1000);
+		}
+		
+		BasicHttpResponse httpResponse = new BasicHttpResponse(HttpVersion.HTTP_1_1, 503, "Service Unavailable");
+		httpResponse.setHeader("Retry-After", "0");
+		assertEquals(0, userInfoHelper.retryDelay(3, httpResponse));
+		
+		httpResponse.setHeader("Retry-After", "120");
+		assertEquals(1000, userInfoHelper.retryDelay(0, httpResponse));
+	}
+	
+	/**
+	 * verifies calls fail fast without reaching the connection while the 
+	 * circuit breaker is open
+	 */
+	@Test
+	public void openCircuitBreakerFailsFast() throws Exception {
+		
+		CircuitBreaker circuitBreaker = new CircuitBreaker(0.5f, 10, 1, 60000, 1);
+		circuitBreaker.tryAcquirePermission();
+		circuitBreaker.onFailure();
+		
+		UserInfoConfiguration userInfoConfiguration = new UserInfoConfiguration();
+		userInfoConfiguration.setCircuitBreaker(circuitBreaker);
+		userInfoConfiguration.setRequestCoalescing(false);
+		
+		AuthorizationCodeConnection authorizationCodeConnection = 
+				new AuthorizationCodeConnection(new AuthorizationCodeConfiguration()) {
+			@Override
+			public boolean isConnectionIndicator() {
+				return true;
+			}
+		};
+		UserInfoHelper userInfoHelper = new UserInfoHelper(authorizationCodeConnection, userInfoConfiguration);
+		
+		try {
+			userInfoHelper.getUserInfo();
+			assertTrue(false);
+		} catch (APIException e) {
+			assertTrue(e.getMessage().contains("circuit breaker is open"));
+		}
+		
+		assertEquals(1, circuitBreaker.getRejectedCount());
+	}
+	
+	/**
+	 * Test helpers of different configurations do not share calls in flight, 
+	 * a call blocked by the limiter of one is not joined by the other
+	 */
+	@Test
+	public void coalesceOnlyWithinConfiguration() throws Exception {
+		
+		final ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(1, 1, 1, 1000, 0.5, 1, 2000);
+		assertTrue(concurrencyLimiter.tryAcquire());
+		
+		UserInfoConfiguration limited = new UserInfoConfiguration();
+		limited.setConcurrencyLimiter(concurrencyLimiter);
+		
+		CircuitBreaker circuitBreaker = new CircuitBreaker(0.5f, 10, 1, 60000, 1);
+		circuitBreaker.tryAcquirePermission();
+		circuitBreaker.onFailure();
+		
+		InMemoryUserInfoMetrics metrics = new InMemoryUserInfoMetrics();
+		UserInfoConfiguration broken = new UserInfoConfiguration();
+		broken.setCircuitBreaker(circuitBreaker);
+		broken.setMetricsListener(metrics);
+		
+		final Token token = new Token();
+		token.setAccess_token("token-1");
+		token.setExpires_in(3600L);
+		AuthorizationCodeConnection authorizationCodeConnection = 
+				new AuthorizationCodeConnection(new AuthorizationCodeConfiguration()) {
+			@Override
+			public boolean isConnectionIndicator() {
+				return true;
+			}
+			@Override
+			public Token getToken() {
+				return token;
+			}
+		};
+		
+		final UserInfoHelper limitedHelper = new UserInfoHelper(authorizationCodeConnection, limited);
+		Thread queued = new Thread(new Runnable() {
+			public void run() {
+				try {
+					limitedHelper.getUserInfo();
+				} catch (APIException e) {
+					// shed once the limiter is released below
+				}
+			}
+		});
+		queued.start();
+		
+		try {
+			long deadline = System.currentTimeMillis() + 2000;
+			while ( concurrencyLimiter.getQueueDepth() == 0 && System.currentTimeMillis() < deadline ) {
+				Thread.sleep(5);
+			}
+			assertEquals(1, concurrencyLimiter.getQueueDepth());
+			
+			try {
+				new UserInfoHelper(authorizationCodeConnection, broken).getUserInfo();
+				fail("APIException expected");
+			} catch (APIException e) {
+				assertTrue(e.getMessage().contains("circuit breaker is open"));
+			}
+			assertEquals(0, metrics.getCoalescedCalls());
+		} finally {
+			concurrencyLimiter.onDropped();
+			queued.join(5000);
+		}
+	}
+
 }
@@ -0,0 +1,127 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.metrics;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.adp.marketplace.product.userinfo.exception.APIException;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class InMemoryUserInfoMetricsTest {
+
+	/**
+	 * verifies outcomes, statuses, bytes and phase latencies are aggregated
+	 */
+	@Test
+	public void aggregatesCallEvents() {
+		
+		InMemoryUserInfoMetrics metrics = new InMemoryUserInfoMetrics();
+		
+		metrics.callStarted("body");
+		UserInfoCallEvent success = new UserInfoCallEvent("body");
+		success.setHttpStatus(200);
+		success.addResponseBytes(700);
+		success.setConnectNanos(0);
+		success.setTimeToFirstByteNanos(2000000);
+		success.setBodyReadNanos(50000);
+		success.setDurationNanos(2100000);
+		metrics.callEnded(success);
+		
+		metrics.callStarted("body");
+		UserInfoCallEvent cached = new UserInfoCallEvent("body");
+		cached.setServedFromCache(true);
+		cached.setDurationNanos(1000);
+		metrics.callEnded(cached);
+		
+		metrics.callStarted("userInfo");
+		UserInfoCallEvent failure = new UserInfoCallEvent("userInfo");
+		failure.setHttpStatus(503);
+		failure.setException(new APIException(new IOException("reset")));
+		failure.setDurationNanos(3000000);
+		metrics.callEnded(failure);
+		
+		metrics.callStarted("body");
+		
+		assertEquals(4, metrics.getCallsStarted());
+		assertEquals(2, metrics.getCallsSucceeded());
+		assertEquals(1, metrics.getCallsFailed());
+		assertEquals(1, metrics.getCallsInFlight());
+		assertEquals(1, metrics.getCacheHits());
+		assertEquals(700, metrics.getResponseBytes());
+		
+		assertEquals(Long.valueOf(1), metrics.getStatusCounts().get(200));
+		assertEquals(Long.valueOf(1), metrics.getStatusCounts().get(503));
+		assertEquals(Long.valueOf(1), metrics.getExceptionCounts().get("APIException/IOException"));
+		
+		assertEquals(3, metrics.getDuration().getCount());
+		assertEquals(1, metrics.getConnect().getCount());
+		assertEquals(1, metrics.getTimeToFirstByte().getCount());
+		assertEquals(1, metrics.getBodyRead().getCount());
+	}
+	
+	/**
+	 * verifies only the phases that happened are recorded and that phase 
+	 * snapshots can be reset per interval
+	 */
+	@Test
+	public void phasesSnapshotAndReset() {
+		
+		InMemoryUserInfoMetrics metrics = new InMemoryUserInfoMetrics();
+		
+		UserInfoCallEvent newConnection = new UserInfoCallEvent("body");
+		newConnection.setPhaseNanos(UserInfoPhase.LEASE, 1000);
+		newConnection.setPhaseNanos(UserInfoPhase.DNS, 20000);
+		newConnection.setPhaseNanos(UserInfoPhase.CONNECT, 300000);
+		newConnection.setPhaseNanos(UserInfoPhase.TLS_HANDSHAKE, 4000000);
+		newConnection.setPhaseNanos(UserInfoPhase.TIME_TO_FIRST_BYTE, 5000000);
+		newConnection.addPhaseNanos(UserInfoPhase.TRANSFER, 600);
+		newConnection.addPhaseNanos(UserInfoPhase.TRANSFER, 400);
+		newConnection.setPhaseNanos(UserInfoPhase.DECODE, 70000);
+		metrics.callEnded(newConnection);
+		
+		UserInfoCallEvent pooled = new UserInfoCallEvent("body");
+		pooled.setPhaseNanos(UserInfoPhase.LEASE, 500);
+		pooled.setPhaseNanos(UserInfoPhase.TIME_TO_FIRST_BYTE, 3000000);
+		metrics.callEnded(pooled);
+		
+		assertEquals(-1, pooled.getPhaseNanos(UserInfoPhase.TLS_HANDSHAKE));
+		assertEquals(2, metrics.getPhase(UserInfoPhase.LEASE).getCount());
+		assertEquals(1, metrics.getPhase(UserInfoPhase.TLS_HANDSHAKE).getCount());
+		assertEquals(1000, metrics.getPhase(UserInfoPhase.TRANSFER).getMax());
+		
+		Map<UserInfoPhase, LatencyHistogram> interval = metrics.snapshotAndResetPhases();
+		assertEquals(UserInfoPhase.values().length, interval.size());
+		assertEquals(2, interval.get(UserInfoPhase.TIME_TO_FIRST_BYTE).getCount());
+		assertEquals(5000000, interval.get(UserInfoPhase.TIME_TO_FIRST_BYTE).getMax());
+		assertEquals(0, metrics.getPhase(UserInfoPhase.TIME_TO_FIRST_BYTE).getCount());
+		
+		metrics.callEnded(pooled);
+		assertEquals(1, metrics.getPhaseSnapshots().get(UserInfoPhase.LEASE).getCount());
+		assertEquals(1, metrics.getPhase(UserInfoPhase.LEASE).getCount());
+		assertEquals(2, interval.get(UserInfoPhase.LEASE).getCount());
+	}
+	
+}
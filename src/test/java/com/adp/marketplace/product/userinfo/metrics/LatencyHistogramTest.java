@@ -0,0 +1,116 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.metrics;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class LatencyHistogramTest {
+
+	/**
+	 * verifies every value falls in a bucket whose highest value is within 
+	 * the precision of the histogram
+	 */
+	@Test
+	public void bucketsCoverValuesWithinPrecision() {
+		
+		long[] values = { 0, 1, 31, 32, 33, 63, 64, 100, 1000, 123456789L, Long.MAX_VALUE };
+		
+		for ( long value : values ) {
+			long highest = LatencyHistogram.highestValue(LatencyHistogram.bucketIndex(value));
+			assertTrue(value + " <= " + highest, value <= highest);
+			assertTrue(value + " ~ " + highest, highest - value <= Math.max(1, value / 32));
+		}
+	}
+	
+	/**
+	 * verifies count, mean, max and percentiles of recorded values
+	 */
+	@Test
+	public void recordsPercentiles() {
+		
+		LatencyHistogram histogram = new LatencyHistogram();
+		
+		for ( long i = 1; i <= 1000; i++ ) {
+			histogram.record(i * 1000);
+		}
+		
+		assertEquals(1000, histogram.getCount());
+		assertEquals(500500.0, histogram.getMean(), 0.0001);
+		assertEquals(1000000, histogram.getMax());
+		
+		assertEquals(500000, histogram.getValueAtPercentile(50), 500000 / 32);
+		assertEquals(990000, histogram.getValueAtPercentile(99), 990000 / 32);
+		assertEquals(1000000, histogram.getValueAtPercentile(100));
+	}
+	
+	/**
+	 * verifies an empty histogram reports zeros and negative values count as 0
+	 */
+	@Test
+	public void emptyAndNegativeValues() {
+		
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getValueAtPercentile(99));
+		assertEquals(0.0, histogram.getMean(), 0.0);
+		
+		histogram.record(-5);
+		assertEquals(1, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+	}
+	
+	/**
+	 * verifies a snapshot keeps the values and a reset snapshot moves them 
+	 * out of the histogram
+	 */
+	@Test
+	public void snapshotAndReset() {
+		
+		LatencyHistogram histogram = new LatencyHistogram();
+		for ( long i = 1; i <= 100; i++ ) {
+			histogram.record(i * 1000);
+		}
+		
+		LatencyHistogram snapshot = histogram.snapshot();
+		assertEquals(100, snapshot.getCount());
+		assertEquals(100000, snapshot.getMax());
+		assertEquals(histogram.getValueAtPercentile(99), snapshot.getValueAtPercentile(99));
+		assertEquals(100, histogram.getCount());
+		
+		LatencyHistogram interval = histogram.snapshotAndReset();
+		assertEquals(100, interval.getCount());
+		assertEquals(5050000, interval.getSum());
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getValueAtPercentile(50));
+		
+		histogram.record(7);
+		assertEquals(1, histogram.snapshotAndReset().getCount());
+		
+		histogram.record(9);
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getSum());
+	}
+	
+}
@@ -0,0 +1,119 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.utils;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.adp.marketplace.connection.configuration.AuthorizationCodeConfiguration;
+import com.adp.marketplace.product.userinfo.configuration.UserInfoConfiguration;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class HttpClientUtilsTest {
+
+	File keyStoreFile = null;
+	AuthorizationCodeConfiguration configuration = null;
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@Before
+	public void setUp() throws Exception {
+
+		keyStoreFile = File.createTempFile("userinfo", ".p12");
+		SSLContextUtilsTest.writeKeyStore(keyStoreFile);
+		configuration = SSLContextUtilsTest.configuration(keyStoreFile);
+	}
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@After
+	public void tearDown() throws Exception {
+
+		HttpClientUtils.getInstance().close(configuration);
+		SSLContextUtils.getInstance().invalidate(configuration);
+		keyStoreFile.delete();
+	}
+
+	/**
+	 * verifies helpers with the same pool settings share one client
+	 */
+	@Test
+	public void shareClientOfSameSettings() throws Exception {
+
+		UserInfoConfiguration first = new UserInfoConfiguration();
+		UserInfoConfiguration second = new UserInfoConfiguration();
+		second.setRequestTimeout(1000L);
+
+		CloseableHttpClient httpClient = HttpClientUtils.getInstance().getHttpClient(configuration, first);
+
+		assertSame(httpClient, HttpClientUtils.getInstance().getHttpClient(configuration, second));
+		assertSame(httpClient, HttpClientUtils.getInstance().getHttpClient(configuration, null));
+	}
+
+	/**
+	 * verifies different or changed pool settings get a client of their own 
+	 * and replace the client of the previous settings
+	 */
+	@Test
+	public void separateClientOfOtherSettings() throws Exception {
+
+		UserInfoConfiguration userInfoConfiguration = new UserInfoConfiguration();
+		CloseableHttpClient httpClient = 
+				HttpClientUtils.getInstance().getHttpClient(configuration, userInfoConfiguration);
+
+		UserInfoConfiguration larger = new UserInfoConfiguration();
+		larger.setMaxTotalConnections(UserInfoConfiguration.DEFAULT_MAX_TOTAL_CONNECTIONS * 2);
+		CloseableHttpClient largerClient = HttpClientUtils.getInstance().getHttpClient(configuration, larger);
+		assertNotSame(httpClient, largerClient);
+		assertSame(largerClient, HttpClientUtils.getInstance().getHttpClient(configuration, larger));
+
+		userInfoConfiguration.setKeepAliveDuration(1000L);
+		CloseableHttpClient changed = 
+				HttpClientUtils.getInstance().getHttpClient(configuration, userInfoConfiguration);
+		assertNotSame(httpClient, changed);
+		assertSame(changed, HttpClientUtils.getInstance().getHttpClient(configuration, userInfoConfiguration));
+		assertNotSame(largerClient, HttpClientUtils.getInstance().getHttpClient(configuration, larger));
+	}
+
+	/**
+	 * verifies the shared default configuration cannot be changed
+	 */
+	@Test
+	public void unmodifiableDefault() {
+
+		try {
+			UserInfoConfiguration.getDefault().setMaxTotalConnections(1);
+			fail("UnsupportedOperationException expected");
+		} catch (UnsupportedOperationException e) {
+			assertEquals(UserInfoConfiguration.DEFAULT_MAX_TOTAL_CONNECTIONS, 
+					UserInfoConfiguration.getDefault().getMaxTotalConnections());
+		}
+	}
+
+}
@@ -0,0 +1,289 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.utils;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.junit.Test;
+
+import com.adp.marketplace.product.userinfo.exception.APIException;
+import com.adp.marketplace.product.userinfo.vo.UserInfo;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class ResponseUtilsTest {
+
+	private static final String USER_INFO = "{\"sub\":\"G3349PZGBADQY8H7\",\"given_name\":\"Zoë\",\"family_name\":\"Åström\"}";
+
+	/**
+	 * verifies the body is decoded with the charset of the Content-Type
+	 */
+	@Test
+	public void readBodyWithDeclaredCharset() throws Exception {
+
+		Charset latin1 = Charset.forName("ISO-8859-1");
+		ByteArrayEntity entity = new ByteArrayEntity(USER_INFO.getBytes(latin1),
+				ContentType.create("application/json", latin1));
+
+		assertEquals(USER_INFO, ResponseUtils.getInstance().readBody(entity, 1024));
+	}
+
+	/**
+	 * verifies UTF-8 is used when the Content-Type has no charset
+	 */
+	@Test
+	public void readBodyDefaultsToUTF8() throws Exception {
+
+		ByteArrayEntity entity = new ByteArrayEntity(USER_INFO.getBytes("UTF-8"),
+				ContentType.create("application/json"));
+
+		assertEquals(Charset.forName("UTF-8"), ResponseUtils.getInstance().getCharset(entity));
+		assertEquals(USER_INFO, ResponseUtils.getInstance().readBody(entity, 1024));
+	}
+
+	/**
+	 * verifies a body larger than the buffer is read completely
+	 */
+	@Test
+	public void readBodyLargerThanBuffer() throws Exception {
+
+		StringBuilder stringBuilder = new StringBuilder();
+		while ( stringBuilder.length() < ResponseUtils.BUFFER_SIZE * 3 ) {
+			stringBuilder.append(USER_INFO);
+		}
+		String body = stringBuilder.toString();
+
+		BasicHttpEntity entity = new BasicHttpEntity();
+		entity.setContent(new ByteArrayInputStream(body.getBytes("UTF-8")));
+
+		assertEquals(body, ResponseUtils.getInstance().readBody(entity, Long.MAX_VALUE));
+	}
+
+	/**
+	 * verifies APIException is thrown when Content-Length is over the limit
+	 */
+	@Test
+	public void readBodyContentLengthOverLimit() throws Exception {
+
+		ByteArrayEntity entity = new ByteArrayEntity(USER_INFO.getBytes("UTF-8"));
+
+		try {
+			ResponseUtils.getInstance().readBody(entity, 10);
+			fail("APIException expected");
+		} catch (APIException e) {
+			assertTrue(e.getMessage().contains("exceeds maximum size"));
+		}
+	}
+
+	/**
+	 * verifies APIException is thrown when a body without Content-Length
+	 * grows over the limit
+	 */
+	@Test
+	public void readBodyStreamOverLimit() throws Exception {
+
+		BasicHttpEntity entity = new BasicHttpEntity();
+		entity.setContent(new ByteArrayInputStream(USER_INFO.getBytes("UTF-8")));
+
+		try {
+			ResponseUtils.getInstance().readBody(entity, 10);
+			fail("APIException expected");
+		} catch (APIException e) {
+			assertTrue(e.getMessage().contains("exceeds maximum size"));
+		}
+	}
+
+	/**
+	 * verifies the entity is parsed to UserInfo with the declared charset
+	 */
+	@Test
+	public void readUserInfo() throws Exception {
+
+		Charset latin1 = Charset.forName("ISO-8859-1");
+		ByteArrayEntity entity = new ByteArrayEntity(USER_INFO.getBytes(latin1),
+				ContentType.create("application/json", latin1));
+
+		UserInfo userInfo = ResponseUtils.getInstance().readUserInfo(entity, 1024);
+
+		assertEquals("G3349PZGBADQY8H7", userInfo.getSub());
+		assertEquals("Zoë", userInfo.getGivenName());
+		assertEquals("Åström", userInfo.getFamilyName());
+	}
+
+	/**
+	 * verifies a gzip encoded body is decompressed while it is read
+	 */
+	@Test
+	public void readGzipBody() throws Exception {
+
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed);
+		gzipOutputStream.write(USER_INFO.getBytes("UTF-8"));
+		gzipOutputStream.close();
+
+		ByteArrayEntity entity = new ByteArrayEntity(compressed.toByteArray(), 
+				ContentType.create("application/json", "UTF-8"));
+		entity.setContentEncoding("gzip");
+
+		assertEquals(USER_INFO, ResponseUtils.getInstance().readBody(entity, 1024));
+		assertEquals("Åström", ResponseUtils.getInstance().readUserInfo(entity, 1024).getFamilyName());
+	}
+
+	/**
+	 * verifies a deflate encoded body is decompressed while it is read
+	 */
+	@Test
+	public void readDeflateBody() throws Exception {
+
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(compressed);
+		deflaterOutputStream.write(USER_INFO.getBytes("UTF-8"));
+		deflaterOutputStream.close();
+
+		ByteArrayEntity entity = new ByteArrayEntity(compressed.toByteArray());
+		entity.setContentEncoding("deflate");
+
+		assertEquals(USER_INFO, ResponseUtils.getInstance().readBody(entity, 1024));
+	}
+
+	/**
+	 * verifies the maximum size applies to the decompressed body
+	 */
+	@Test
+	public void readGzipBodyOverLimit() throws Exception {
+
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed);
+		gzipOutputStream.write(new byte[64 * 1024]);
+		gzipOutputStream.close();
+
+		ByteArrayEntity entity = new ByteArrayEntity(compressed.toByteArray());
+		entity.setContentEncoding("gzip");
+
+		assertTrue(entity.getContentLength() < 1024);
+
+		try {
+			ResponseUtils.getInstance().readBody(entity, 1024);
+			fail("APIException expected");
+		} catch (APIException e) {
+			assertTrue(e.getMessage().contains("exceeds maximum size"));
+		}
+	}
+
+	/**
+	 * verifies a compressed body larger than the limit is accepted when its 
+	 * decompressed bytes are within it
+	 */
+	@Test
+	public void readGzipBodyCompressedOverLimit() throws Exception {
+
+		byte[] body = new byte[256];
+		new Random(1).nextBytes(body);
+
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed);
+		gzipOutputStream.write(body);
+		gzipOutputStream.close();
+
+		ByteArrayEntity entity = new ByteArrayEntity(compressed.toByteArray());
+		entity.setContentEncoding("gzip");
+
+		assertTrue(entity.getContentLength() > 260);
+
+		ByteArrayOutputStream sink = new ByteArrayOutputStream();
+		assertEquals(body.length, ResponseUtils.getInstance().writeBody(entity, sink, 260));
+		assertArrayEquals(body, sink.toByteArray());
+	}
+
+	/**
+	 * verifies the decompressed body bytes are copied to the sink undecoded
+	 */
+	@Test
+	public void writeGzipBody() throws Exception {
+
+		Charset latin1 = Charset.forName("ISO-8859-1");
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed);
+		gzipOutputStream.write(USER_INFO.getBytes(latin1));
+		gzipOutputStream.close();
+
+		ByteArrayEntity entity = new ByteArrayEntity(compressed.toByteArray(), 
+				ContentType.create("application/json", latin1));
+		entity.setContentEncoding("gzip");
+
+		ByteArrayOutputStream sink = new ByteArrayOutputStream();
+
+		assertEquals(USER_INFO.getBytes(latin1).length, ResponseUtils.getInstance().writeBody(entity, sink, 1024));
+		assertArrayEquals(USER_INFO.getBytes(latin1), sink.toByteArray());
+	}
+
+	/**
+	 * verifies the maximum size applies to a body copied to a sink
+	 */
+	@Test
+	public void writeBodyStreamOverLimit() throws Exception {
+
+		BasicHttpEntity entity = new BasicHttpEntity();
+		entity.setContent(new ByteArrayInputStream(new byte[ResponseUtils.BUFFER_SIZE * 2]));
+
+		try {
+			ResponseUtils.getInstance().writeBody(entity, new ByteArrayOutputStream(), ResponseUtils.BUFFER_SIZE);
+			fail("APIException expected");
+		} catch (APIException e) {
+			assertTrue(e.getMessage().contains("exceeds maximum size"));
+		}
+	}
+
+	/**
+	 * verifies APIException is thrown for an unsupported Content-Encoding
+	 */
+	@Test
+	public void readBodyUnsupportedEncoding() throws Exception {
+
+		ByteArrayEntity entity = new ByteArrayEntity(USER_INFO.getBytes("UTF-8"));
+		entity.setContentEncoding("br");
+
+		try {
+			ResponseUtils.getInstance().readBody(entity, 1024);
+			fail("APIException expected");
+		} catch (APIException e) {
+			assertTrue(e.getMessage().contains("not supported"));
+		}
+	}
+
+	/**
+	 * verifies null is returned for a null entity
+	 */
+	@Test
+	public void readBodyNullEntity() throws Exception {
+		assertNull(ResponseUtils.getInstance().readBody(null, 1024));
+	}
+
+}
@@ -0,0 +1,188 @@
+/*
+	---------------------------------------------------------------------------
+	Copyright © 2015-2016 ADP, LLC.   
+	
+	Licensed under the Apache License, Version 2.0 (the “License”); 
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+	http://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software 
+	distributed under the License is distributed on an “AS IS” BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or 
+	implied.  See the License for the specific language governing 
+	permissions and limitations under the License.
+	---------------------------------------------------------------------------
+*/
+package com.adp.marketplace.product.userinfo.utils;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.KeyStore;
+
+import javax.net.ssl.SSLContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.adp.marketplace.connection.configuration.AuthorizationCodeConfiguration;
+import com.adp.marketplace.connection.exception.ConnectionException;
+
+/**
+ * @author tallaprs
+ *
+ */
+public class SSLContextUtilsTest {
+
+	private static final String PASSWORD = "changeit";
+
+	File keyStoreFile = null;
+	AuthorizationCodeConfiguration configuration = null;
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@Before
+	public void setUp() throws Exception {
+
+		keyStoreFile = File.createTempFile("userinfo", ".p12");
+		writeKeyStore(keyStoreFile);
+		configuration = configuration(keyStoreFile);
+	}
+
+	/**
+	 * @throws java.lang.Exception Exception thrown if this call fails
+	 */
+	@After
+	public void tearDown() throws Exception {
+
+		SSLContextUtils.getInstance().setFileCheckInterval(SSLContextUtils.FILE_CHECK_INTERVAL);
+		SSLContextUtils.getInstance().invalidate(configuration);
+		keyStoreFile.delete();
+	}
+
+	/**
+	 * verifies the SSL context is built once and reused
+	 */
+	@Test
+	public void reuseSSLContext() throws Exception {
+
+		SSLContext sslContext = SSLContextUtils.getInstance().getSSLContext(configuration);
+
+		assertNotNull(sslContext);
+		assertSame(sslContext, SSLContextUtils.getInstance().getSSLContext(configuration));
+		assertEquals(SSLContextUtils.SESSION_CACHE_SIZE, sslContext.getClientSessionContext().getSessionCacheSize());
+	}
+
+	/**
+	 * verifies configurations with the same keystore share one SSL context
+	 */
+	@Test
+	public void shareSSLContextByFingerprint() throws Exception {
+
+		File copy = File.createTempFile("userinfo", ".p12");
+		AuthorizationCodeConfiguration other = configuration(copy);
+
+		try {
+			copy.delete();
+			Files.copy(keyStoreFile.toPath(), copy.toPath());
+
+			assertEquals(SSLContextUtils.getInstance().getFingerprint(configuration), 
+					SSLContextUtils.getInstance().getFingerprint(other));
+			assertSame(SSLContextUtils.getInstance().getSSLContext(configuration), 
+					SSLContextUtils.getInstance().getSSLContext(other));
+		} finally {
+			SSLContextUtils.getInstance().invalidate(other);
+			copy.delete();
+		}
+	}
+
+	/**
+	 * verifies a changed keystore is reloaded and an unchanged one is not
+	 */
+	@Test
+	public void reloadChangedKeyStore() throws Exception {
+
+		SSLContextUtils.getInstance().setFileCheckInterval(0);
+
+		SSLContext sslContext = SSLContextUtils.getInstance().getSSLContext(configuration);
+		String fingerprint = SSLContextUtils.getInstance().getFingerprint(configuration);
+
+		// touched but same content
+		keyStoreFile.setLastModified(keyStoreFile.lastModified() - 60000L);
+		assertSame(sslContext, SSLContextUtils.getInstance().getSSLContext(configuration));
+
+		// PKCS12 salts differ on every write
+		writeKeyStore(keyStoreFile);
+		keyStoreFile.setLastModified(keyStoreFile.lastModified() + 60000L);
+
+		assertNotSame(sslContext, SSLContextUtils.getInstance().getSSLContext(configuration));
+		assertFalse(fingerprint.equals(SSLContextUtils.getInstance().getFingerprint(configuration)));
+	}
+
+	/**
+	 * verifies a keystore replaced with the same size and modification time 
+	 * is reloaded
+	 */
+	@Test
+	public void reloadKeyStoreOfSameSizeAndTime() throws Exception {
+
+		SSLContextUtils.getInstance().setFileCheckInterval(0);
+
+		SSLContext sslContext = SSLContextUtils.getInstance().getSSLContext(configuration);
+		long lastModified = keyStoreFile.lastModified();
+		long length = keyStoreFile.length();
+
+		writeKeyStore(keyStoreFile);
+		keyStoreFile.setLastModified(lastModified);
+		assertEquals(length, keyStoreFile.length());
+
+		assertNotSame(sslContext, SSLContextUtils.getInstance().getSSLContext(configuration));
+	}
+
+	/**
+	 * verifies ConnectionException is thrown for an incomplete SSL configuration
+	 */
+	@Test
+	public void invalidSSLConfiguration() throws Exception {
+
+		AuthorizationCodeConfiguration invalid = configuration(keyStoreFile);
+		invalid.setKeyPassword(null);
+
+		try {
+			SSLContextUtils.getInstance().getSSLContext(invalid);
+			fail("ConnectionException expected");
+		} catch (ConnectionException e) {
+			assertTrue(e.getMessage().contains("Invalid SSL configuration"));
+		}
+	}
+
+	static AuthorizationCodeConfiguration configuration(File keyStoreFile) {
+
+		AuthorizationCodeConfiguration configuration = new AuthorizationCodeConfiguration();
+		configuration.setSslCertPath(keyStoreFile.getAbsolutePath());
+		configuration.setStorePassword(PASSWORD);
+		configuration.setKeyPassword(PASSWORD);
+		return configuration;
+	}
+
+	static void writeKeyStore(File file) throws Exception {
+
+		KeyStore keyStore = KeyStore.getInstance("PKCS12");
+		keyStore.load(null, null);
+
+		OutputStream outputStream = new FileOutputStream(file);
+		try {
+			keyStore.store(outputStream, PASSWORD.toCharArray());
+		} finally {
+			outputStream.close();
+		}
+	}
+
+}
@@ -19,9 +19,14 @@ package com.adp.marketplace.product.userinfo.utils;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.util.EnumSet;
 import java.util.List;
 
 import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URIBuilder;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -35,6 +40,8 @@ import com.adp.marketplace.connection.core.AuthorizationCodeConnection;
 import com.adp.marketplace.connection.core.ClientCredentialsConnection;
 import com.adp.marketplace.connection.exception.ConnectionException;
 import com.adp.marketplace.connection.vo.Token;
+import com.adp.marketplace.product.userinfo.vo.UserInfo;
+import com.adp.marketplace.product.userinfo.vo.UserInfoField;
 
 /**
  * @author tallaprs
@@ -267,4 +274,202 @@ public class UserInfoUtilsTest {
 		}
 	}
 	
+	/**
+	 * verifies parseUserInfo maps the OpenID and ADP members and skips unknown ones
+	 * 
+	 */
+	@Test 
+	public void parseUserInfo() throws IOException {
+		
+		String json = "{\"sub\":\"8f1a2b\",\"given_name\":\"Mary\",\"family_name\":\"Smith\","
+				+ "\"email\":\"mary.smith@example.com\",\"organizationOID\":\"G3349PZGBADQY8H5\","
+				+ "\"associateOID\":\"G3349PZGBADQY8H7\",\"roles\":[\"practitioner\",{\"code\":1}],"
+				+ "\"workAssignments\":[{\"itemID\":\"1\",\"positionID\":\"P100\",\"jobTitle\":\"Manager\","
+				+ "\"primaryIndicator\":true,\"location\":{\"code\":\"NJ\"}},{\"itemID\":\"2\"}]}";
+		
+		UserInfo userInfo = INSTANCE.parseUserInfo(new StringReader(json));
+		
+		assertEquals("8f1a2b", userInfo.getSub());
+		assertEquals("G3349PZGBADQY8H7", userInfo.getAssociateOID());
+		assertEquals("G3349PZGBADQY8H5", userInfo.getOrganizationOID());
+		assertEquals("Mary", userInfo.getGivenName());
+		assertEquals("Smith", userInfo.getFamilyName());
+		assertEquals("mary.smith@example.com", userInfo.getEmail());
+		assertEquals(2, userInfo.getWorkAssignments().size());
+		assertEquals("P100", userInfo.getWorkAssignments().get(0).getPositionID());
+		assertEquals("Manager", userInfo.getWorkAssignments().get(0).getJobTitle());
+		assertTrue(userInfo.getWorkAssignments().get(0).isPrimaryIndicator());
+		assertFalse(userInfo.getWorkAssignments().get(1).isPrimaryIndicator());
+	}
+	
+	/**
+	 * verifies parseUserInfo reads a response wrapped in a userInfo object
+	 * 
+	 */
+	@Test 
+	public void parseWrappedUserInfo() throws IOException {
+		
+		String json = "{\"userInfo\":{\"associateOID\":\"G3349PZGBADQY8H7\",\"givenName\":\"Mary\"}}";
+		
+		UserInfo userInfo = INSTANCE.parseUserInfo(new StringReader(json));
+		
+		assertEquals("G3349PZGBADQY8H7", userInfo.getAssociateOID());
+		assertEquals("Mary", userInfo.getGivenName());
+	}
+	
+	/**
+	 * verifies parseUserInfo throws IOException for a response that is not a JSON object
+	 * 
+	 */
+	@Test 
+	public void parseUserInfoNotAnObject() {
+		
+		try {
+			INSTANCE.parseUserInfo(new StringReader("[\"not user info\"]"));
+			assertTrue(false);
+		} catch (IOException e) {
+			assertNotNull(e);
+		}
+	}
+	
+	/**
+	 * verifies parseUserInfo reads the requested fields only
+	 * 
+	 */
+	@Test 
+	public void parseUserInfoFields() throws IOException {
+		
+		String json = "{\"sub\":\"sub-1\",\"workAssignments\":[{\"itemID\":\"1\"}],"
+				+ "\"associateOID\":\"G3349PZGBADQY8H7\",\"given_name\":\"Mary\","
+				+ "\"organizationOID\":\"ORG1\"}";
+		
+		UserInfo userInfo = INSTANCE.parseUserInfo(new StringReader(json), 
+				EnumSet.of(UserInfoField.ASSOCIATE_OID, UserInfoField.ORGANIZATION_OID));
+		
+		assertEquals("G3349PZGBADQY8H7", userInfo.getAssociateOID());
+		assertEquals("ORG1", userInfo.getOrganizationOID());
+		assertNull(userInfo.getSub());
+		assertNull(userInfo.getGivenName());
+		assertTrue(userInfo.getWorkAssignments().isEmpty());
+	}
+	
+	/**
+	 * verifies parseUserInfo stops reading once every requested field is found
+	 * 
+	 */
+	@Test 
+	public void parseUserInfoFieldsStopsEarly() throws IOException {
+		
+		// the rest of the response is not valid JSON, it is never parsed
+		String json = "{\"userInfo\":{\"associateOID\":\"G3349PZGBADQY8H7\",\"givenName\":\"Mary\", !!!";
+		
+		UserInfo userInfo = INSTANCE.parseUserInfo(new StringReader(json), 
+				EnumSet.of(UserInfoField.ASSOCIATE_OID, UserInfoField.GIVEN_NAME));
+		
+		assertEquals("G3349PZGBADQY8H7", userInfo.getAssociateOID());
+		assertEquals("Mary", userInfo.getGivenName());
+		
+		try {
+			INSTANCE.parseUserInfo(new StringReader(json));
+			assertTrue(false);
+		} catch (IOException e) {
+			assertNotNull(e);
+		}
+	}
+	
+	/**
+	 * verifies projectUserInfo copies the requested fields only
+	 * 
+	 */
+	@Test 
+	public void projectUserInfo() {
+		
+		UserInfo userInfo = new UserInfo();
+		userInfo.setAssociateOID("G3349PZGBADQY8H7");
+		userInfo.setEmail("mary@example.com");
+		
+		UserInfo projection = INSTANCE.projectUserInfo(userInfo, EnumSet.of(UserInfoField.ASSOCIATE_OID));
+		
+		assertEquals("G3349PZGBADQY8H7", projection.getAssociateOID());
+		assertNull(projection.getEmail());
+		assertNull(INSTANCE.projectUserInfo(null, EnumSet.of(UserInfoField.ASSOCIATE_OID)));
+	}
+	
+	/**
+	 * verifies the request template builds the URI URIBuilder builds from 
+	 * the name value pairs of the connection
+	 * 
+	 */
+	@Test 
+	public void requestTemplateMatchesNameValuePairs() throws Exception {
+		
+		authCodeConfiguration.setApiRequestUrl("https://iat-api.adp.com/core/v1/userinfo");
+		authCodeConfiguration.setScope("openid profile");
+		authCodeConfiguration.setClientID("5cab3a80-b3fd-415f-955f-4f868596ff43");
+		authCodeConfiguration.setClientSecret("4a26db08+2885/4766=b6bb&ad8d0eac7c22");
+		
+		RequestTemplate requestTemplate = INSTANCE.getRequestTemplate(authCodeConfiguration);
+		
+		String[] accessTokens = { "98f34d77-9b1f-490d-84c7-c9333ef929df", "a+b/c=d e&f", "Zoë" };
+		for ( String accessToken : accessTokens ) {
+			assertEquals(buildURI(accessToken), requestTemplate.createURI(accessToken));
+		}
+	}
+	
+	/**
+	 * verifies the request template is reused and rebuilt once the 
+	 * configuration changes
+	 * 
+	 */
+	@Test 
+	public void requestTemplateRebuiltOnChange() throws Exception {
+		
+		authCodeConfiguration.setApiRequestUrl("https://iat-api.adp.com/core/v1/userinfo?");
+		authCodeConfiguration.setClientID("5cab3a80-b3fd-415f-955f-4f868596ff43");
+		authCodeConfiguration.setClientSecret("4a26db08-2885-4766-b6bb-ad8d0eac7c22");
+		
+		RequestTemplate requestTemplate = INSTANCE.getRequestTemplate(authCodeConfiguration);
+		assertSame(requestTemplate, INSTANCE.getRequestTemplate(authCodeConfiguration));
+		assertEquals(buildURI("token"), requestTemplate.createURI("token"));
+		
+		authCodeConfiguration.setScope("api");
+		
+		RequestTemplate changedTemplate = INSTANCE.getRequestTemplate(authCodeConfiguration);
+		assertNotSame(requestTemplate, changedTemplate);
+		assertEquals(buildURI("token"), changedTemplate.createURI("token"));
+	}
+	
+	/**
+	 * verifies exception thrown on getRequestTemplate when configuration is null
+	 * 
+	 */
+	@Test 
+	public void requestTemplateConfigurationNull() throws Exception {
+		
+		try {
+			INSTANCE.getRequestTemplate(null);
+			assertTrue(false);
+		} catch (ConnectionException e) {
+			assertEquals("Connection Configuration is Null!", e.getMessage());
+		}
+	}
+	
+	/**
+	 * Returns the URI URIBuilder builds from the name value pairs of a 
+	 * connection holding the access token
+	 */
+	private URI buildURI(String accessToken) throws Exception {
+		
+		Token token = new Token();
+		token.setAccess_token(accessToken);
+		
+		AuthorizationCodeConnection authorizationCodeConnection = 
+				(AuthorizationCodeConnection) connectFactoryInstance.createConnection(authCodeConfiguration);
+		authorizationCodeConnection.setToken(token);
+		
+		List<NameValuePair> nameValuePairs = INSTANCE.getNameValuePairs(authorizationCodeConnection);
+		
+		return new URIBuilder(authCodeConfiguration.getApiRequestUrl()).setParameters(nameValuePairs).build();
+	}
+	
 }